@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import boa.functions.BoaAstIntrinsics;
+
+/**
+ * Measures parsing Java sources into Boa ASTs, which is what
+ * <code>getast</code> does on a cache miss (JDT parsing plus
+ * <code>JavaVisitor.getNamespaces</code>).
+ *
+ * @author hyj
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ASTBenchmark {
+	private List<String> sources;
+
+	@Setup
+	public void setup() throws IOException {
+		sources = BenchmarkData.javaSources();
+	}
+
+	/** One operation parses every test source once. */
+	@Benchmark
+	public void parse(final Blackhole bh) {
+		for (final String source : sources)
+			bh.consume(BoaAstIntrinsics.getASTRoot(source));
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import boa.aggregators.Aggregator;
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * Measures how fast each aggregator consumes values, both from typed
+ * {@link EmitValue}s and from their string form.  Only
+ * <code>aggregate</code> is measured, as <code>finish</code> writes to a
+ * Hadoop context.
+ *
+ * @author hyj
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class AggregatorBenchmark {
+	private static final int VALUES = 1024;
+
+	@Param({ "IntSum", "FloatSum", "IntMean", "FloatMean", "Median", "StDev", "Variance", "Kurtosis", "Skewness", "Statistics",
+		"IntQuantile", "FloatQuantile", "IntHistogram", "FloatHistogram", "Top", "Bottom", "Maximum", "Minimum", "Set" })
+	public String aggregator;
+
+	private Aggregator a;
+	private final EmitKey key = new EmitKey("counts");
+	private final EmitValue[] values = new EmitValue[VALUES];
+	private final String[] strings = new String[VALUES];
+
+	@Setup
+	public void setup() throws Exception {
+		final Class<?> c = Class.forName("boa.aggregators." + aggregator + "Aggregator");
+		Aggregator instance;
+		try {
+			instance = (Aggregator) c.getConstructor(long.class, long.class, long.class).newInstance(0L, 1000L, 10L);
+		} catch (final NoSuchMethodException e) {
+			try {
+				instance = (Aggregator) c.getConstructor(long.class).newInstance(10L);
+			} catch (final NoSuchMethodException e2) {
+				instance = (Aggregator) c.getConstructor().newInstance();
+			}
+		}
+		a = instance;
+
+		final Random random = new Random(42);
+		for (int i = 0; i < VALUES; i++) {
+			final long v = random.nextInt(1000);
+			values[i] = new EmitValue(v);
+			strings[i] = values[i].getData()[0];
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public Aggregator typed() throws Exception {
+		a.start(key);
+		for (final EmitValue v : values)
+			a.aggregate(v);
+		return a;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public Aggregator string() throws Exception {
+		a.start(key);
+		for (final String s : strings)
+			a.aggregate(s, null);
+		return a;
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import boa.types.Ast.ASTRoot;
+import boa.types.Ast.Declaration;
+import boa.types.Ast.Method;
+import boa.types.Ast.Namespace;
+import boa.types.Code.CodeRepository;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+import boa.types.Shared.ChangeKind;
+import boa.types.Shared.Person;
+
+/**
+ * Inputs shared by the benchmarks: the Java sources of the datagen and CFG
+ * tests, and synthetic code repositories.
+ *
+ * @author hyj
+ */
+final class BenchmarkData {
+	static final File[] SOURCE_DIRS = { new File("test/datagen/java"), new File("test/cfg/src") };
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Reads the Java sources of the tests, in a stable order.
+	 */
+	static List<String> javaSources() throws IOException {
+		final List<String> sources = new ArrayList<String>();
+		for (final File dir : SOURCE_DIRS) {
+			final File[] files = dir.listFiles();
+			if (files == null)
+				throw new IOException("missing " + dir + ", run the benchmarks from the repository root");
+			Arrays.sort(files);
+			for (final File f : files)
+				if (f.isFile())
+					sources.add(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8));
+		}
+		return sources;
+	}
+
+	/**
+	 * Collects the methods of all declarations, including nested ones.
+	 */
+	static List<Method> methods(final List<ASTRoot> roots) {
+		final List<Method> methods = new ArrayList<Method>();
+		for (final ASTRoot root : roots)
+			for (final Namespace ns : root.getNamespacesList())
+				for (final Declaration d : ns.getDeclarationsList())
+					addMethods(d, methods);
+		return methods;
+	}
+
+	private static void addMethods(final Declaration d, final List<Method> methods) {
+		methods.addAll(d.getMethodsList());
+		for (final Declaration nested : d.getNestedDeclarationsList())
+			addMethods(nested, methods);
+	}
+
+	/**
+	 * Builds a linear history where every revision adds, modifies or deletes
+	 * a few of a fixed set of paths.
+	 *
+	 * @param revisions the number of revisions
+	 * @param paths the number of distinct paths
+	 * @param changes the number of files changed per revision
+	 */
+	static CodeRepository repository(final int revisions, final int paths, final int changes) {
+		final Random random = new Random(revisions * 31L + paths);
+		final boolean[] exists = new boolean[paths];
+		final Person committer = Person.newBuilder().setUsername("bench").build();
+
+		final CodeRepository.Builder cr = CodeRepository.newBuilder();
+		cr.setUrl("https://example.org/bench.git");
+		cr.setKind(CodeRepository.RepositoryKind.GIT);
+		cr.setHead(revisions - 1);
+		for (int r = 0; r < revisions; r++) {
+			final Revision.Builder rev = Revision.newBuilder();
+			rev.setId(String.format("%040x", r));
+			rev.setCommitter(committer);
+			rev.setCommitDate(r * 1000L);
+			rev.setLog("revision " + r);
+			if (r > 0)
+				rev.addParents(r - 1);
+			for (int c = 0; c < changes; c++) {
+				final int p = random.nextInt(paths);
+				final ChangeKind change;
+				if (!exists[p])
+					change = ChangeKind.ADDED;
+				else if (random.nextInt(10) == 0)
+					change = ChangeKind.DELETED;
+				else
+					change = ChangeKind.MODIFIED;
+				exists[p] = change != ChangeKind.DELETED;
+
+				final ChangedFile.Builder cf = ChangedFile.newBuilder();
+				cf.setName("src/File" + p + ".java");
+				cf.setKind(ChangedFile.FileKind.SOURCE_JAVA_JLS8);
+				cf.setChange(change);
+				cf.setKey(0);
+				cf.setAst(false);
+				rev.addFiles(cf);
+			}
+			cr.addRevisions(rev);
+		}
+		return cr.build();
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * Measures the serialization of map output records and the comparison of
+ * serialized keys done by the shuffle sort.
+ *
+ * @author hyj
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class EmitBenchmark {
+	private final DataOutputBuffer out = new DataOutputBuffer();
+	private final DataInputBuffer in = new DataInputBuffer();
+	private final EmitValue value = new EmitValue();
+	private final EmitKey key = new EmitKey();
+
+	private EmitValue longValue;
+	private EmitValue stringValue;
+	private EmitKey emitKey;
+	private byte[] key1;
+	private byte[] key2;
+
+	@Setup
+	public void setup() throws IOException {
+		EmitKey.setTableNames(new String[] { "counts", "files" });
+		longValue = new EmitValue(123456789L);
+		stringValue = new EmitValue("org.apache.hadoop.io.Text", 3L);
+		emitKey = new EmitKey("[https://github.com/boalang/compiler][src/java/boa/io/EmitKey.java]", "counts");
+		key1 = serialize(emitKey);
+		key2 = serialize(new EmitKey("[https://github.com/boalang/compiler][src/java/boa/io/EmitValue.java]", "counts"));
+	}
+
+	private static byte[] serialize(final EmitKey k) throws IOException {
+		final DataOutputBuffer b = new DataOutputBuffer();
+		k.write(b);
+		return Arrays.copyOf(b.getData(), b.getLength());
+	}
+
+	@Benchmark
+	public EmitValue longValueRoundTrip() throws IOException {
+		return roundTrip(longValue);
+	}
+
+	@Benchmark
+	public EmitValue stringValueRoundTrip() throws IOException {
+		return roundTrip(stringValue);
+	}
+
+	private EmitValue roundTrip(final EmitValue v) throws IOException {
+		out.reset();
+		v.write(out);
+		in.reset(out.getData(), out.getLength());
+		value.readFields(in);
+		return value;
+	}
+
+	@Benchmark
+	public EmitKey keyRoundTrip() throws IOException {
+		out.reset();
+		emitKey.write(out);
+		in.reset(out.getData(), out.getLength());
+		key.readFields(in);
+		return key;
+	}
+
+	@Benchmark
+	public int rawKeyCompare() {
+		return key.compare(key1, 0, key1.length, key2, 0, key2.length);
+	}
+}
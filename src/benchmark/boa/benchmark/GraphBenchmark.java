@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import boa.functions.BoaAstIntrinsics;
+import boa.functions.BoaGraphIntrinsics;
+import boa.types.Ast.ASTRoot;
+import boa.types.Ast.Method;
+
+/**
+ * Measures building the graphs of every method in the test sources: CFGs,
+ * CDGs (post-dominator tree) and DDGs, whose construction runs a
+ * fixpoint traversal over the CFG.  With a graph cache size of 0 every
+ * call builds its graph; with the default size the calls after warm-up are
+ * cache hits, which measures the cost of a hit.
+ *
+ * @author hyj
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+	@Param({ "0", "262144" })
+	public long graphCacheSize;
+
+	private List<Method> methods;
+
+	@Setup
+	public void setup() throws IOException {
+		BoaGraphIntrinsics.setGraphCacheSize(graphCacheSize);
+
+		final List<ASTRoot> roots = new ArrayList<ASTRoot>();
+		for (final String source : BenchmarkData.javaSources())
+			roots.add(BoaAstIntrinsics.getASTRoot(source));
+		methods = BenchmarkData.methods(roots);
+	}
+
+	@Benchmark
+	public void cfg(final Blackhole bh) {
+		for (final Method m : methods)
+			bh.consume(BoaGraphIntrinsics.getcfg(m));
+	}
+
+	@Benchmark
+	public void cdg(final Blackhole bh) throws Exception {
+		for (final Method m : methods)
+			bh.consume(BoaGraphIntrinsics.getcdg(m));
+	}
+
+	@Benchmark
+	public void ddg(final Blackhole bh) throws Exception {
+		for (final Method m : methods)
+			bh.consume(BoaGraphIntrinsics.getddg(m));
+	}
+}
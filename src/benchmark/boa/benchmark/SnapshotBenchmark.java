@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import boa.functions.BoaIntrinsics;
+import boa.types.Code.CodeRepository;
+
+/**
+ * Measures <code>getsnapshot</code> on a synthetic linear history, both for
+ * the head revision and for walking every revision in order as
+ * per-revision queries do.
+ *
+ * @author hyj
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+	@Param({ "1000" })
+	public int revisions;
+
+	@Param({ "500" })
+	public int paths;
+
+	@Param({ "10" })
+	public int changes;
+
+	private CodeRepository cr;
+
+	@Setup
+	public void setup() {
+		cr = BenchmarkData.repository(revisions, paths, changes);
+	}
+
+	@Benchmark
+	public void head(final Blackhole bh) {
+		bh.consume(BoaIntrinsics.getSnapshot(cr));
+	}
+
+	/** One operation takes the snapshot of every revision, oldest first. */
+	@Benchmark
+	public void everyRevision(final Blackhole bh) {
+		for (int i = 0; i < revisions; i++)
+			bh.consume(BoaIntrinsics.getSnapshotByIndex(cr, i));
+	}
+}
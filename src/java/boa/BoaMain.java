@@ -40,6 +40,7 @@ public class BoaMain {
         options.addOption("c", "compile",  false, "compile a Boa program");
         options.addOption("e", "execute",  false, "execute a Boa program locally");
         options.addOption("g", "generate", false, "generate a Boa dataset");
+        options.addOption("s", "service",  false, "compile Boa programs read from standard input, until it closes");
 
         try {
             if (args.length == 0) {
@@ -58,6 +59,8 @@ public class BoaMain {
                     boa.evaluator.BoaEvaluator.main(tempargs);
                 } else if (cl.hasOption("g")) {
                     boa.datagen.BoaGenerator.main(tempargs);
+                } else if (cl.hasOption("s")) {
+                    boa.compiler.BoaCompilerService.main(tempargs);
                 }
             }
         } catch (final org.apache.commons.cli.ParseException e) {
@@ -93,6 +93,23 @@ public abstract class Aggregator {
 		this.aggregate(BoaCasts.doubleToString(data), null);
 	}
 
+	/**
+	 * Aggregate an emitted value, passing single numeric data to the typed
+	 * overloads so they are not formatted and parsed again.
+	 * 
+	 * @param value
+	 *            The {@link EmitValue} to aggregate
+	 */
+	public void aggregate(final EmitValue value) throws IOException, InterruptedException, FinishedException {
+		if (value.isLong())
+			this.aggregate(value.getLong(), value.getMetadata());
+		else if (value.isDouble())
+			this.aggregate(value.getDouble(), value.getMetadata());
+		else
+			for (final String s : value.getData())
+				this.aggregate(s, value.getMetadata());
+	}
+
 	@SuppressWarnings("unchecked")
 	protected void collect(final String data, final String metadata) throws IOException, InterruptedException {
 		if (this.combining)
@@ -107,20 +124,28 @@ public abstract class Aggregator {
 		this.collect(data, null);
 	}
 
+	@SuppressWarnings("unchecked")
 	protected void collect(final long data, final String metadata) throws IOException, InterruptedException {
-		this.collect(BoaCasts.longToString(data), metadata);
+		if (this.combining)
+			this.getContext().write(this.getKey(), new EmitValue(data, metadata));
+		else
+			this.collect(BoaCasts.longToString(data), metadata);
 	}
 
 	protected void collect(final long data) throws IOException, InterruptedException {
-		this.collect(BoaCasts.longToString(data), null);
+		this.collect(data, null);
 	}
 
+	@SuppressWarnings("unchecked")
 	protected void collect(final double data, final String metadata) throws IOException, InterruptedException {
-		this.collect(BoaCasts.doubleToString(data), metadata);
+		if (this.combining)
+			this.getContext().write(this.getKey(), new EmitValue(data, metadata));
+		else
+			this.collect(BoaCasts.doubleToString(data), metadata);
 	}
 
 	protected void collect(final double data) throws IOException, InterruptedException {
-		this.collect(BoaCasts.doubleToString(data), null);
+		this.collect(data, null);
 	}
 
 	public void finish() throws IOException, InterruptedException {
@@ -62,4 +62,10 @@ public @interface AggregatorSpec {
 	 * Can this aggregator combine?
 	 */
 	boolean canCombine() default false;
+
+	/**
+	 * Can the indices of a table using this aggregator be spread over
+	 * several reducers (see boa.table.reducers)?
+	 */
+	boolean canSplit() default false;
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.IOException;
+
+/**
+ * A Boa aggregator to estimate the median of the values in a dataset, in
+ * fixed memory per key.  Unlike <code>median</code> it returns a value from
+ * the dataset rather than averaging the two middle values.
+ *
+ * @author hyj
+ */
+@AggregatorSpec(name = "approxmedian", type = "int", canCombine = true)
+public class ApproximateMedianAggregator extends ApproximateQuantileAggregator {
+	/**
+	 * Construct an ApproximateMedianAggregator.
+	 */
+	public ApproximateMedianAggregator() {
+		super(2);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void finish() throws IOException, InterruptedException {
+		if (this.isCombining())
+			super.finish();
+		else
+			this.collect(this.getSketch().getQuantile(0.5));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected String format(final double value) {
+		return Long.toString((long) value);
+	}
+}
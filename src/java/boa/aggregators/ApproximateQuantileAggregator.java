@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * A Boa aggregator to estimate the quantiles for the values in a dataset, in
+ * fixed memory per key.
+ *
+ * Unlike <code>quantile</code>, which keeps a count for every distinct value,
+ * it keeps a {@link QuantileSketch}.  The combiner emits the sketch in binary
+ * and the reducer merges the sketches it receives.  The rank of each returned
+ * quantile is within about 1.7% of the number of values.
+ *
+ * @author hyj
+ */
+abstract class ApproximateQuantileAggregator extends Aggregator {
+	// the capacity of the top level of the sketch, which sets its accuracy
+	private static final int K = 200;
+
+	private final QuantileSketch sketch = new QuantileSketch(K);
+
+	/**
+	 * Construct an ApproximateQuantileAggregator.
+	 *
+	 * @param n A long representing the number of quantiles to calculate
+	 */
+	public ApproximateQuantileAggregator(final long n) {
+		super(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void start(final EmitKey key) {
+		super.start(key);
+
+		this.sketch.clear();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final EmitValue value) throws IOException, InterruptedException, FinishedException {
+		if (value.isBytes())
+			this.sketch.merge(QuantileSketch.fromBytes(K, value.getBytes()));
+		else
+			super.aggregate(value);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final String data, final String metadata) throws IOException {
+		this.aggregate(Double.parseDouble(data), metadata);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final long data, final String metadata) throws IOException {
+		this.aggregate((double) data, metadata);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final double data, final String metadata) throws IOException {
+		this.sketch.add(data, metadata == null ? 1 : Long.parseLong(metadata));
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void finish() throws IOException, InterruptedException {
+		// if we're in the combiner, just output the sketch
+		if (this.isCombining()) {
+			if (!this.sketch.isEmpty())
+				this.getContext().write(this.getKey(), new EmitValue(this.sketch.toBytes()));
+			return;
+		}
+
+		final int n = (int) (this.getArg() - 1);
+		final double[] fractions = new double[n];
+		for (int i = 0; i < n; i++)
+			fractions[i] = (i + 1) / (double) n;
+
+		final double[] values = this.sketch.getQuantiles(fractions);
+		final String[] quantiles = new String[n];
+		for (int i = 0; i < n; i++)
+			quantiles[i] = this.format(values[i]);
+
+		this.collect(Arrays.toString(quantiles));
+	}
+
+	protected QuantileSketch getSketch() {
+		return this.sketch;
+	}
+
+	/**
+	 * Format a quantile for the output.
+	 *
+	 * @param value The quantile
+	 * @return A {@link String} representation of it
+	 */
+	protected abstract String format(double value);
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.IOException;
+import java.util.List;
+
+import boa.functions.BoaCasts;
+import boa.io.EmitKey;
+
+/**
+ * A Boa aggregator to estimate the top <i>n</i> values in a dataset by
+ * cardinality, in memory proportional to <i>n</i>.
+ *
+ * Unlike <code>top</code>, which counts every distinct value exactly, it keeps
+ * a {@link FrequentItems} summary of a fixed number of counters per requested
+ * value.  The combiner emits only its summary, and the reducer merges the
+ * summaries by adding their entries to its own.
+ *
+ * @author hyj
+ */
+@AggregatorSpec(name = "approxtop", formalParameters = { "int" }, weightType = "float", canOmitWeight = true, canCombine = true)
+public class ApproximateTopAggregator extends Aggregator {
+	// counters kept for each of the n values asked for
+	private static final int COUNTERS_PER_VALUE = 10;
+
+	private final FrequentItems summary;
+
+	/**
+	 * Construct a {@link ApproximateTopAggregator}.
+	 *
+	 * @param n A long representing the number of values to return
+	 */
+	public ApproximateTopAggregator(final long n) {
+		super(n);
+
+		this.summary = new FrequentItems((int) Math.max(n * COUNTERS_PER_VALUE, 100));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void start(final EmitKey key) {
+		super.start(key);
+
+		this.summary.clear();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final String data, final String metadata) {
+		if (metadata == null)
+			this.summary.add(data, 1.0);
+		else
+			this.summary.add(data, Double.valueOf(metadata));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void finish() throws IOException, InterruptedException {
+		final List<WeightedString> entries = this.summary.getEntries();
+
+		if (this.isCombining()) {
+			for (final WeightedString e : entries)
+				this.collect(e.getString(), BoaCasts.doubleToString(e.getWeight()));
+		} else {
+			for (int i = 0; i < entries.size() && i < this.getArg(); i++)
+				this.collect(entries.get(i).toString());
+		}
+	}
+}
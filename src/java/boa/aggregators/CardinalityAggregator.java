@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.IOException;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * A Boa aggregator to count the unique values in a dataset.  Roughly
+ * equivalent to a count(distinct(*)).
+ *
+ * Unlike <code>unique</code>, the combiner does not pass the distinct values
+ * on.  It sends a {@link HyperLogLog} counter, which is exact up to the
+ * given number of distinct values and a fixed size estimate past it.
+ *
+ * @author hyj
+ */
+@AggregatorSpec(name = "cardinality", formalParameters = { "int" }, canCombine = true)
+public class CardinalityAggregator extends Aggregator {
+	private final HyperLogLog counter;
+
+	/**
+	 * Construct a CardinalityAggregator.
+	 *
+	 * @param arg
+	 *            The number of distinct values to count exactly
+	 */
+	public CardinalityAggregator(final long arg) {
+		super(arg);
+
+		this.counter = new HyperLogLog(arg);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void start(final EmitKey key) {
+		super.start(key);
+
+		this.counter.clear();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final EmitValue value) throws IOException, InterruptedException, FinishedException {
+		if (value.isBytes())
+			this.counter.merge(HyperLogLog.fromBytes(this.getArg(), value.getBytes()));
+		else
+			super.aggregate(value);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final String data, final String metadata) throws IOException, InterruptedException {
+		this.counter.add(data);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void finish() throws IOException, InterruptedException {
+		// if we're in the combiner, just output the counter
+		if (this.isCombining()) {
+			if (!this.counter.isEmpty())
+				this.getContext().write(this.getKey(), new EmitValue(this.counter.toBytes()));
+		} else {
+			this.collect(this.counter.cardinality());
+		}
+	}
+}
@@ -24,7 +24,7 @@ import java.io.IOException;
  * @author anthonyu
  * @author rdyer
  */
-@AggregatorSpec(name = "collection")
+@AggregatorSpec(name = "collection", canSplit = true)
 public class CollectionAggregator extends Aggregator {
 	/** {@inheritDoc} */
 	@Override
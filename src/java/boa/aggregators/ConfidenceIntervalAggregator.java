@@ -31,7 +31,7 @@ import boa.io.EmitKey;
  * 
  * @author rdyer
  */
-@AggregatorSpec(name = "confidence", formalParameters = {"float"}, type = "int")
+@AggregatorSpec(name = "confidence", formalParameters = {"float"}, type = "int", canSplit = true)
 public class ConfidenceIntervalAggregator extends Aggregator {
 	private SortedMap<Long, Long> map;
 	private double n;
@@ -31,7 +31,7 @@ import boa.io.EmitKey;
  * 
  * @author anthonyu
  */
-@AggregatorSpec(name = "distinct", canCombine = true)
+@AggregatorSpec(name = "distinct", canCombine = true, canSplit = true)
 public class DistinctAggregator extends Aggregator {
 	// from o.a.h.io.BloomMapFile#initBloomFilter
 	private static final int HASH_COUNT = 5;
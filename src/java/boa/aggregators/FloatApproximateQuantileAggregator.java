@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+/**
+ * A Boa aggregator to estimate the quantiles for the float values in a dataset.
+ *
+ * @author hyj
+ */
+@AggregatorSpec(name = "approxquantile", formalParameters = { "int" }, type = "float", canCombine = true)
+public class FloatApproximateQuantileAggregator extends ApproximateQuantileAggregator {
+	/**
+	 * Construct a FloatApproximateQuantileAggregator.
+	 *
+	 * @param n A long representing the number of quantiles to calculate
+	 */
+	public FloatApproximateQuantileAggregator(final long n) {
+		super(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected String format(final double value) {
+		return Double.toString(value);
+	}
+}
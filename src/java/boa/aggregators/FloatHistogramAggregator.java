@@ -28,7 +28,7 @@ import boa.io.EmitKey;
  * 
  * @author anthonyu
  */
-@AggregatorSpec(name = "histogram", formalParameters = { "int", "int", "int" }, type = "float", canCombine = true)
+@AggregatorSpec(name = "histogram", formalParameters = { "int", "int", "int" }, type = "float", canCombine = true, canSplit = true)
 public class FloatHistogramAggregator extends HistogramAggregator {
 	private SortedCountingSet<Double> list;
 
@@ -26,7 +26,7 @@ import boa.io.EmitKey;
  * 
  * @author anthonyu
  */
-@AggregatorSpec(name = "mean", type = "float", canCombine = true)
+@AggregatorSpec(name = "mean", type = "float", canCombine = true, canSplit = true)
 public class FloatMeanAggregator extends MeanAggregator {
 	private double sum;
 
@@ -26,7 +26,7 @@ import boa.io.EmitKey;
  * @author anthonyu
  * @author rdyer
  */
-@AggregatorSpec(name = "sum", type = "float", canCombine = true)
+@AggregatorSpec(name = "sum", type = "float", canCombine = true, canSplit = true)
 public class FloatSumAggregator extends Aggregator {
 	private double sum;
 
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A weighted frequent items summary (Misra and Gries, Finding repeated
+ * elements, 1982, in the batched form of Agarwal et al., Mergeable
+ * summaries, PODS 2012).
+ *
+ * It counts at most twice its capacity of values.  When it holds more, the
+ * weight of the value just past the capacity is subtracted from every count
+ * and the counts that drop to zero are removed.  Each count then
+ * underestimates the value's total weight by at most the total weight
+ * divided by the capacity plus one, and every value heavier than that is
+ * kept.  Adding the entries of one summary to another merges them with the
+ * same guarantee, so combiner output can be fed to it like any other value.
+ *
+ * @author hyj
+ */
+class FrequentItems {
+	private final int capacity;
+	private final Map<String, Double> counts;
+
+	/**
+	 * Construct a {@link FrequentItems} summary.
+	 *
+	 * @param capacity The number of values whose counts are guaranteed
+	 */
+	public FrequentItems(final int capacity) {
+		this.capacity = capacity;
+		this.counts = new HashMap<String, Double>(capacity * 4);
+	}
+
+	/**
+	 * Add a value with a weight to the summary.
+	 *
+	 * @param value The value to be added
+	 * @param weight Its weight
+	 */
+	public void add(final String value, final double weight) {
+		final Double count = this.counts.get(value);
+		if (count != null)
+			this.counts.put(value, count + weight);
+		else
+			this.counts.put(value, weight);
+
+		if (this.counts.size() > 2 * this.capacity)
+			prune();
+	}
+
+	public void clear() {
+		this.counts.clear();
+	}
+
+	/**
+	 * Get the counted values, heaviest first and ties by value.
+	 *
+	 * @return A list of {@link WeightedString} of the values and their
+	 *         estimated weights
+	 */
+	public List<WeightedString> getEntries() {
+		prune();
+
+		final List<WeightedString> entries = new ArrayList<WeightedString>(this.counts.size());
+		for (final Entry<String, Double> e : this.counts.entrySet())
+			entries.add(new WeightedString(e.getKey(), e.getValue()));
+		Collections.sort(entries, new Comparator<WeightedString>() {
+			@Override
+			public int compare(final WeightedString a, final WeightedString b) {
+				final int c = Double.compare(b.getWeight(), a.getWeight());
+				if (c != 0)
+					return c;
+				return a.getString().compareTo(b.getString());
+			}
+		});
+		return entries;
+	}
+
+	private void prune() {
+		if (this.counts.size() <= this.capacity)
+			return;
+
+		final double[] weights = new double[this.counts.size()];
+		int i = 0;
+		for (final double w : this.counts.values())
+			weights[i++] = w;
+		Arrays.sort(weights);
+		final double cut = weights[weights.length - this.capacity - 1];
+
+		final Iterator<Entry<String, Double>> it = this.counts.entrySet().iterator();
+		while (it.hasNext()) {
+			final Entry<String, Double> e = it.next();
+			final double w = e.getValue() - cut;
+			if (w > 0)
+				e.setValue(w);
+			else
+				it.remove();
+		}
+	}
+}
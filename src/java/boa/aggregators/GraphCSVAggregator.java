@@ -25,7 +25,7 @@ import java.io.IOException;
  * 
  * @author rdyer
  */
-@AggregatorSpec(name = "graph", canCombine = true)
+@AggregatorSpec(name = "graph", canCombine = true, canSplit = true)
 public class GraphCSVAggregator extends GraphAggregator {
 	/** {@inheritDoc} */
 	@Override
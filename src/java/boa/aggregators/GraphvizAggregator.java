@@ -24,7 +24,7 @@ import java.io.IOException;
  * 
  * @author rdyer
  */
-@AggregatorSpec(name = "graphviz", weightType = "any", canCombine = true)
+@AggregatorSpec(name = "graphviz", weightType = "any", canCombine = true, canSplit = true)
 public class GraphvizAggregator extends GraphAggregator {
 	/** {@inheritDoc} */
 	@Override
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A mergeable distinct counter (Heule, Nunkesser and Hall, HyperLogLog in
+ * practice, EDBT 2013).
+ *
+ * Values are hashed to 64 bits.  While there are at most a threshold of
+ * distinct hashes they are kept in a set and counted exactly.  Past that the
+ * set is replaced by 2<sup>14</sup> registers that each keep the longest run
+ * of leading zeros seen among the hashes routed to it, and the count is
+ * estimated from them with a standard error of about 0.8%.  The estimate uses
+ * the improved estimator of Ertl (New cardinality estimation algorithms for
+ * HyperLogLog sketches, 2017), which needs no empirical bias tables.
+ *
+ * @author hyj
+ */
+class HyperLogLog {
+	private static final int P = 14;
+	private static final int M = 1 << P;
+	// the largest register value
+	private static final int Q = 64 - P;
+
+	private static final byte SPARSE = 0;
+	private static final byte DENSE = 1;
+
+	private final long threshold;
+	private Set<Long> hashes = new HashSet<Long>();
+	private byte[] registers = null;
+
+	/**
+	 * Construct a {@link HyperLogLog} counter.
+	 *
+	 * @param threshold The number of distinct values counted exactly
+	 */
+	public HyperLogLog(final long threshold) {
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Add a value to the counter.
+	 *
+	 * @param value The value to be added
+	 */
+	public void add(final String value) {
+		add(hash(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Merge another counter into this one.
+	 *
+	 * @param other The {@link HyperLogLog} to merge
+	 */
+	public void merge(final HyperLogLog other) {
+		if (other.registers == null) {
+			for (final long h : other.hashes)
+				add(h);
+			return;
+		}
+
+		if (this.registers == null)
+			densify();
+		for (int i = 0; i < M; i++)
+			if (other.registers[i] > this.registers[i])
+				this.registers[i] = other.registers[i];
+	}
+
+	public void clear() {
+		this.hashes = new HashSet<Long>();
+		this.registers = null;
+	}
+
+	public boolean isEmpty() {
+		return this.registers == null && this.hashes.isEmpty();
+	}
+
+	/**
+	 * Get the number of distinct values added.
+	 *
+	 * @return The exact number while it is below the threshold, or else an
+	 *         estimate
+	 */
+	public long cardinality() {
+		if (this.registers == null)
+			return this.hashes.size();
+
+		final int[] histogram = new int[Q + 2];
+		for (final byte r : this.registers)
+			histogram[r]++;
+
+		double z = M * tau(1.0 - histogram[Q + 1] / (double) M);
+		for (int k = Q; k >= 1; k--)
+			z = 0.5 * (z + histogram[k]);
+		z += M * sigma(histogram[0] / (double) M);
+
+		return Math.round(M / (2 * Math.log(2)) * M / z);
+	}
+
+	/**
+	 * Encode the counter, as its hashes or as its registers.
+	 *
+	 * @return The encoded counter
+	 */
+	public byte[] toBytes() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		if (this.registers == null) {
+			out.writeByte(SPARSE);
+			WritableUtils.writeVInt(out, this.hashes.size());
+			for (final long h : this.hashes)
+				out.writeLong(h);
+		} else {
+			out.writeByte(DENSE);
+			out.write(this.registers);
+		}
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decode a counter written by {@link #toBytes()}.
+	 *
+	 * @param threshold The number of distinct values the decoded counter
+	 *            counts exactly
+	 * @param data The encoded counter
+	 * @return The decoded {@link HyperLogLog}
+	 */
+	public static HyperLogLog fromBytes(final long threshold, final byte[] data) throws IOException {
+		final HyperLogLog hll = new HyperLogLog(threshold);
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		if (in.readByte() == SPARSE) {
+			final int n = WritableUtils.readVInt(in);
+			for (int i = 0; i < n; i++)
+				hll.hashes.add(in.readLong());
+		} else {
+			hll.registers = new byte[M];
+			in.readFully(hll.registers);
+		}
+		return hll;
+	}
+
+	private void add(final long hash) {
+		if (this.registers == null) {
+			this.hashes.add(hash);
+			if (this.hashes.size() > this.threshold)
+				densify();
+			return;
+		}
+
+		final int index = (int) (hash >>> Q);
+		final byte rank = (byte) Math.min(Long.numberOfLeadingZeros(hash << P) + 1, Q + 1);
+		if (rank > this.registers[index])
+			this.registers[index] = rank;
+	}
+
+	private void densify() {
+		this.registers = new byte[M];
+		final Set<Long> sparse = this.hashes;
+		this.hashes = new HashSet<Long>();
+		for (final long h : sparse)
+			add(h);
+	}
+
+	private static double sigma(double x) {
+		if (x == 1.0)
+			return Double.POSITIVE_INFINITY;
+		double y = 1.0;
+		double z = x;
+		double last;
+		do {
+			x *= x;
+			last = z;
+			z += x * y;
+			y += y;
+		} while (z != last);
+		return z;
+	}
+
+	private static double tau(double x) {
+		if (x == 0.0 || x == 1.0)
+			return 0.0;
+		double y = 1.0;
+		double z = 1.0 - x;
+		double last;
+		do {
+			x = Math.sqrt(x);
+			last = z;
+			y *= 0.5;
+			z -= (1.0 - x) * (1.0 - x) * y;
+		} while (z != last);
+		return z / 3.0;
+	}
+
+	/**
+	 * The 64-bit FNV-1a hash, finished with the MurmurHash3 mixer so that every
+	 * bit depends on every input byte.
+	 */
+	private static long hash(final byte[] data) {
+		long h = 0xcbf29ce484222325L;
+		for (final byte b : data) {
+			h ^= b & 0xff;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
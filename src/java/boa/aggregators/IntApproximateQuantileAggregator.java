@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+/**
+ * A Boa aggregator to estimate the quantiles for the int values in a dataset.
+ *
+ * @author hyj
+ */
+@AggregatorSpec(name = "approxquantile", formalParameters = { "int" }, type = "int", canCombine = true)
+public class IntApproximateQuantileAggregator extends ApproximateQuantileAggregator {
+	/**
+	 * Construct a IntApproximateQuantileAggregator.
+	 *
+	 * @param n A long representing the number of quantiles to calculate
+	 */
+	public IntApproximateQuantileAggregator(final long n) {
+		super(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected String format(final double value) {
+		return Long.toString((long) value);
+	}
+}
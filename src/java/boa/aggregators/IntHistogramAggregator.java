@@ -28,7 +28,7 @@ import boa.io.EmitKey;
  * 
  * @author anthonyu
  */
-@AggregatorSpec(name = "histogram", type = "int", formalParameters = { "int", "int", "int" }, canCombine = true)
+@AggregatorSpec(name = "histogram", type = "int", formalParameters = { "int", "int", "int" }, canCombine = true, canSplit = true)
 public class IntHistogramAggregator extends HistogramAggregator {
 	private SortedCountingSet<Long> list;
 
@@ -26,7 +26,7 @@ import boa.io.EmitKey;
  * 
  * @author anthonyu
  */
-@AggregatorSpec(name = "mean", type = "int", canCombine = true)
+@AggregatorSpec(name = "mean", type = "int", canCombine = true, canSplit = true)
 public class IntMeanAggregator extends MeanAggregator {
 	private long sum;
 
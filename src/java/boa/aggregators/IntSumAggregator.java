@@ -26,7 +26,7 @@ import boa.io.EmitKey;
  * @author anthonyu
  * @author rdyer
  */
-@AggregatorSpec(name = "sum", type = "int", canCombine = true)
+@AggregatorSpec(name = "sum", type = "int", canCombine = true, canSplit = true)
 public class IntSumAggregator extends Aggregator {
 	private long sum;
 
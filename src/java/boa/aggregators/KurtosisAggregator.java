@@ -27,7 +27,7 @@ import boa.io.EmitKey;
  * 
  * @author rdyer
  */
-@AggregatorSpec(name = "kurtosis", type = "int")
+@AggregatorSpec(name = "kurtosis", type = "int", canSplit = true)
 public class KurtosisAggregator extends Aggregator {
 	private SortedMap<Long, Long> map;
 	private long count;
@@ -38,7 +38,7 @@ import boa.types.Ast.Expression;
  * @author jsu
  * @author rdyer
  */
-@AggregatorSpec(name = "precondition", formalParameters = { "float" })
+@AggregatorSpec(name = "precondition", formalParameters = { "float" }, canSplit = true)
 public class PreconditionAggregator extends Aggregator {
 	private final double sigma;
 	private int args = 0;
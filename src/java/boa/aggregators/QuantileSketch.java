@@ -0,0 +1,280 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A mergeable quantile sketch (Karnin, Lang and Liberty, Optimal quantile
+ * approximation in streams, FOCS 2016).
+ *
+ * Values are kept in levels, where a value at level <i>h</i> stands for
+ * 2<sup><i>h</i></sup> values of the input.  When the sketch holds more than
+ * its capacity the lowest full level is sorted and every other value of it,
+ * starting at a random one, moves up a level.  If the level holds an odd
+ * number of values, its smallest or largest value, chosen at random, stays
+ * behind.  Level capacities shrink
+ * geometrically towards the bottom, so the sketch holds roughly 3<i>k</i>
+ * values no matter how many it has seen.  With <i>k</i> = 200 the rank of a
+ * returned quantile is within about 1.7% of the number of values with 99%
+ * confidence, and merging sketches keeps the same bound.
+ *
+ * @author hyj
+ */
+class QuantileSketch {
+	private static final int MIN_LEVEL_CAPACITY = 8;
+	private static final double LEVEL_DECAY = 2.0 / 3.0;
+
+	private final int k;
+	// seeded from the first values compacted, which keeps re-executed tasks
+	// deterministic while sketches of different data flip different coins
+	private final Random random = new Random(0);
+	private boolean seeded = false;
+
+	private double[][] levels = new double[0][];
+	private int[] sizes = new int[0];
+	private int size = 0;
+	private long count = 0;
+
+	/**
+	 * Construct a {@link QuantileSketch}.
+	 *
+	 * @param k The capacity of the top level, which sets the accuracy
+	 */
+	public QuantileSketch(final int k) {
+		this.k = k;
+	}
+
+	/**
+	 * Add a value a number of times.
+	 *
+	 * @param value The value to be added
+	 * @param weight How many times to add it
+	 */
+	public void add(final double value, final long weight) {
+		// a weight of w puts the value at the levels of the bits set in w
+		long w = weight;
+		for (int h = 0; w > 0; h++, w >>>= 1)
+			if ((w & 1) != 0)
+				append(h, value);
+		this.count += weight;
+
+		compress();
+	}
+
+	/**
+	 * Merge another sketch into this one.
+	 *
+	 * @param other The {@link QuantileSketch} to merge
+	 */
+	public void merge(final QuantileSketch other) {
+		for (int h = 0; h < other.levels.length; h++)
+			for (int i = 0; i < other.sizes[h]; i++)
+				append(h, other.levels[h][i]);
+		this.count += other.count;
+
+		compress();
+	}
+
+	public void clear() {
+		this.levels = new double[0][];
+		this.sizes = new int[0];
+		this.size = 0;
+		this.count = 0;
+		this.seeded = false;
+	}
+
+	public boolean isEmpty() {
+		return this.count == 0;
+	}
+
+	/**
+	 * Get the smallest value whose rank is at least a fraction of the number
+	 * of values.
+	 *
+	 * @param fractions The fractions, between 0 and 1
+	 * @return The value at each fraction, or NaN if the sketch is empty
+	 */
+	public double[] getQuantiles(final double[] fractions) {
+		final double[] values = new double[this.size];
+		final long[] weights = new long[this.size];
+		final Integer[] order = new Integer[this.size];
+		int n = 0;
+		for (int h = 0; h < this.levels.length; h++)
+			for (int i = 0; i < this.sizes[h]; i++) {
+				values[n] = this.levels[h][i];
+				weights[n] = 1L << h;
+				order[n] = n;
+				n++;
+			}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer a, final Integer b) {
+				return Double.compare(values[a], values[b]);
+			}
+		});
+
+		// the weights held can differ slightly from the count seen
+		long total = 0;
+		for (final long w : weights)
+			total += w;
+
+		final double[] quantiles = new double[fractions.length];
+		for (int q = 0; q < fractions.length; q++) {
+			quantiles[q] = Double.NaN;
+			final double target = fractions[q] * total;
+			long rank = 0;
+			for (final int i : order) {
+				rank += weights[i];
+				if (rank >= target) {
+					quantiles[q] = values[i];
+					break;
+				}
+			}
+		}
+		return quantiles;
+	}
+
+	public double getQuantile(final double fraction) {
+		return getQuantiles(new double[] { fraction })[0];
+	}
+
+	/**
+	 * Encode the sketch.  Whole values are written as variable-length
+	 * integers, others as doubles.
+	 *
+	 * @return The encoded sketch
+	 */
+	public byte[] toBytes() throws IOException {
+		boolean whole = true;
+		for (int h = 0; h < this.levels.length && whole; h++)
+			for (int i = 0; i < this.sizes[h] && whole; i++)
+				whole = this.levels[h][i] == (long) this.levels[h][i];
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeBoolean(whole);
+		WritableUtils.writeVLong(out, this.count);
+		WritableUtils.writeVInt(out, this.levels.length);
+		for (int h = 0; h < this.levels.length; h++) {
+			WritableUtils.writeVInt(out, this.sizes[h]);
+			for (int i = 0; i < this.sizes[h]; i++)
+				if (whole)
+					WritableUtils.writeVLong(out, (long) this.levels[h][i]);
+				else
+					out.writeDouble(this.levels[h][i]);
+		}
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decode a sketch written by {@link #toBytes()}.
+	 *
+	 * @param k The capacity of the top level of the decoded sketch
+	 * @param data The encoded sketch
+	 * @return The decoded {@link QuantileSketch}
+	 */
+	public static QuantileSketch fromBytes(final int k, final byte[] data) throws IOException {
+		final QuantileSketch sketch = new QuantileSketch(k);
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		final boolean whole = in.readBoolean();
+		sketch.count = WritableUtils.readVLong(in);
+		final int numLevels = WritableUtils.readVInt(in);
+		sketch.levels = new double[numLevels][];
+		sketch.sizes = new int[numLevels];
+		for (int h = 0; h < numLevels; h++) {
+			final int n = WritableUtils.readVInt(in);
+			sketch.levels[h] = new double[Math.max(n, MIN_LEVEL_CAPACITY)];
+			sketch.sizes[h] = n;
+			for (int i = 0; i < n; i++)
+				sketch.levels[h][i] = whole ? WritableUtils.readVLong(in) : in.readDouble();
+			sketch.size += n;
+		}
+		return sketch;
+	}
+
+	private void append(final int level, final double value) {
+		if (level >= this.levels.length) {
+			final int old = this.levels.length;
+			this.levels = Arrays.copyOf(this.levels, level + 1);
+			this.sizes = Arrays.copyOf(this.sizes, level + 1);
+			for (int h = old; h <= level; h++)
+				this.levels[h] = new double[MIN_LEVEL_CAPACITY];
+		}
+
+		if (this.sizes[level] == this.levels[level].length)
+			this.levels[level] = Arrays.copyOf(this.levels[level], this.sizes[level] * 2);
+		this.levels[level][this.sizes[level]++] = value;
+		this.size++;
+	}
+
+	private int capacity(final int level) {
+		final int depth = this.levels.length - level - 1;
+		return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(this.k * Math.pow(LEVEL_DECAY, depth)));
+	}
+
+	private void compress() {
+		while (true) {
+			int total = 0;
+			for (int h = 0; h < this.levels.length; h++)
+				total += capacity(h);
+			if (this.size <= total)
+				return;
+
+			for (int h = 0; h < this.levels.length; h++)
+				if (this.sizes[h] >= capacity(h)) {
+					compact(h);
+					break;
+				}
+		}
+	}
+
+	private void compact(final int level) {
+		final int n = this.sizes[level];
+		Arrays.sort(this.levels[level], 0, n);
+
+		if (!this.seeded) {
+			long seed = 0;
+			for (int i = 0; i < n; i++)
+				seed = seed * 31 + Double.doubleToLongBits(this.levels[level][i]);
+			this.random.setSeed(seed);
+			this.seeded = true;
+		}
+
+		// an odd value out stays behind, the smallest or the largest at
+		// random so that neither end of the level is favored
+		final int odd = n & 1;
+		final int from = odd != 0 && this.random.nextBoolean() ? 1 : 0;
+		for (int i = from + (this.random.nextBoolean() ? 1 : 0); i < from + n - odd; i += 2)
+			append(level + 1, this.levels[level][i]);
+
+		if (odd != 0 && from == 0)
+			this.levels[level][0] = this.levels[level][n - 1];
+		this.sizes[level] = odd;
+		this.size -= n - odd;
+	}
+}
@@ -26,7 +26,7 @@ import boa.io.EmitKey;
  * 
  * @author anthonyu
  */
-@AggregatorSpec(name = "set", canCombine = true)
+@AggregatorSpec(name = "set", canCombine = true, canSplit = true)
 public class SetAggregator extends Aggregator {
 	private HashSet<String> set;
 	private final long max;
@@ -27,7 +27,7 @@ import boa.io.EmitKey;
  * 
  * @author rdyer
  */
-@AggregatorSpec(name = "skewness", type = "int")
+@AggregatorSpec(name = "skewness", type = "int", canSplit = true)
 public class SkewnessAggregator extends Aggregator {
 	private SortedMap<Long, Long> map;
 	private long count;
@@ -29,7 +29,7 @@ import boa.io.EmitKey;
  * 
  * @author rdyer
  */
-@AggregatorSpec(name = "stdev", type = "int")
+@AggregatorSpec(name = "stdev", type = "int", canSplit = true)
 public class StDevAggregator extends Aggregator {
 	private SortedMap<Long, Long> map;
 
@@ -31,7 +31,7 @@ import boa.io.EmitKey;
  * 
  * @author rdyer
  */
-@AggregatorSpec(name = "statistics", type = "int")
+@AggregatorSpec(name = "statistics", type = "int", canSplit = true)
 public class StatisticsAggregator extends Aggregator {
 	private SortedMap<Long, Long> map;
 	private long count;
@@ -28,7 +28,7 @@ import boa.io.EmitKey;
  * 
  * @author anthonyu
  */
-@AggregatorSpec(name = "unique", formalParameters = { "int" }, canCombine = true)
+@AggregatorSpec(name = "unique", formalParameters = { "int" }, canCombine = true, canSplit = true)
 public class UniqueAggregator extends DistinctAggregator {
 	private long total;
 
@@ -29,7 +29,7 @@ import boa.io.EmitKey;
  * 
  * @author rdyer
  */
-@AggregatorSpec(name = "variance", type = "int")
+@AggregatorSpec(name = "variance", type = "int", canSplit = true)
 public class VarianceAggregator extends Aggregator {
 	private SortedMap<Long, Long> map;
 
@@ -29,6 +29,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.jar.JarOutputStream;
 import java.util.zip.ZipEntry;
@@ -113,49 +114,20 @@ public class BoaCompiler extends BoaMain {
 		SymbolTable.initialize(libs);
 
 		try {
-			final BoaLexer lexer = new BoaLexer(new ANTLRFileStream(inputFile.getAbsolutePath()));
-			lexer.removeErrorListeners();
-			lexer.addErrorListener(new LexerErrorListener());
-
-			final CommonTokenStream tokens = new CommonTokenStream(lexer);
-			final BoaParser parser = new BoaParser(tokens);
-			parser.removeErrorListeners();
-			parser.addErrorListener(new BaseErrorListener() {
-				@Override
-				public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) throws ParseCancellationException {
-					throw new ParseCancellationException(e);
-				}
-			});
-
+			final BoaLexer lexer = lex(inputFile);
 			final BoaErrorListener parserErrorListener = new ParserErrorListener();
-			final Start p = parse(tokens, parser, parserErrorListener);
+			final Start p = parse(lexer, parserErrorListener);
 			if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
 			// use the whole input string to seed the RNG
 			final int seed = new PrettyPrintVisitor().startAndReturn(p).hashCode();
 
 			try {
 				if (!parserErrorListener.hasError) {
-					new TypeCheckingVisitor().start(p, new SymbolTable());
-
-					final TaskClassifyingVisitor simpleVisitor = new TaskClassifyingVisitor();
-					simpleVisitor.start(p);
-					final boolean isSimple = !simpleVisitor.isComplex();
-					LOG.info(inputFile.getName() + ": task complexity: " + (isSimple ? "simple" : "complex"));
-
-					new VariableDeclRenameTransformer().start(p);
-					new InheritedAttributeTransformer().start(p);
-					new LocalAggregationTransformer().start(p);
-					new VisitorOptimizingTransformer().start(p);
-
-					if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
-					if (cl.hasOption("ast2")) new ASTPrintingVisitor().start(p);
-
-					final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(className, isSimple ? 64 * 1024 * 1024 : 10 * 1024 * 1024, seed, DefaultProperties.localDataPath != null);
-					cg.start(p);
+					final String code = generate(cl, p, className, seed);
 
 					final File outputFile = new File(outputSrcDir, className + ".java");
 					try (final BufferedOutputStream o = new BufferedOutputStream(new FileOutputStream(outputFile))) {
-						o.write(cg.getCode().getBytes());
+						o.write(code.getBytes());
 					}
 
 					compileGeneratedSrc(cl, jarName, outputRoot, outputFile);
@@ -185,22 +157,9 @@ public class BoaCompiler extends BoaMain {
 		SymbolTable.initialize(libs);
 
 		try {
-			final BoaLexer lexer = new BoaLexer(new ANTLRFileStream(inputFile.getAbsolutePath()));
-			lexer.removeErrorListeners();
-			lexer.addErrorListener(new LexerErrorListener());
-
-			final CommonTokenStream tokens = new CommonTokenStream(lexer);
-			final BoaParser parser = new BoaParser(tokens);
-			parser.removeErrorListeners();
-			parser.addErrorListener(new BaseErrorListener() {
-				@Override
-				public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) throws ParseCancellationException {
-					throw new ParseCancellationException(e);
-				}
-			});
-
+			final BoaLexer lexer = lex(inputFile);
 			final BoaErrorListener parserErrorListener = new ParserErrorListener();
-			final Start p = parse(tokens, parser, parserErrorListener);
+			final Start p = parse(lexer, parserErrorListener);
 
 			try {
 				if (!parserErrorListener.hasError) {
@@ -220,6 +179,30 @@ public class BoaCompiler extends BoaMain {
 		}
 	}
 
+	static BoaLexer lex(final File inputFile) throws IOException {
+		final BoaLexer lexer = new BoaLexer(new ANTLRFileStream(inputFile.getAbsolutePath()));
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(new LexerErrorListener());
+		return lexer;
+	}
+
+	static Start parse(final BoaLexer lexer, final BoaErrorListener parserErrorListener) {
+		return parse(new CommonTokenStream(lexer), parserErrorListener);
+	}
+
+	static Start parse(final CommonTokenStream tokens, final BoaErrorListener parserErrorListener) {
+		final BoaParser parser = new BoaParser(tokens);
+		parser.removeErrorListeners();
+		parser.addErrorListener(new BaseErrorListener() {
+			@Override
+			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) throws ParseCancellationException {
+				throw new ParseCancellationException(e);
+			}
+		});
+
+		return parse(tokens, parser, parserErrorListener);
+	}
+
 	private static Start parse(final CommonTokenStream tokens, final BoaParser parser, final BoaErrorListener parserErrorListener) {
 		parser.setBuildParseTree(false);
 		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
@@ -239,6 +222,33 @@ public class BoaCompiler extends BoaMain {
 		}
 	}
 
+	/**
+	 * Type checks and transforms a parsed program, then generates its Java
+	 * source.
+	 *
+	 * @throws TypeCheckException if the program does not type check
+	 */
+	static String generate(final CommandLine cl, final Start p, final String className, final int seed) throws IOException {
+		new TypeCheckingVisitor().start(p, new SymbolTable());
+
+		final TaskClassifyingVisitor simpleVisitor = new TaskClassifyingVisitor();
+		simpleVisitor.start(p);
+		final boolean isSimple = !simpleVisitor.isComplex();
+		LOG.info(inputFile.getName() + ": task complexity: " + (isSimple ? "simple" : "complex"));
+
+		new VariableDeclRenameTransformer().start(p);
+		new InheritedAttributeTransformer().start(p);
+		new LocalAggregationTransformer().start(p);
+		new VisitorOptimizingTransformer().start(p);
+
+		if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
+		if (cl.hasOption("ast2")) new ASTPrintingVisitor().start(p);
+
+		final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(className, isSimple ? 64 * 1024 * 1024 : 10 * 1024 * 1024, seed, DefaultProperties.localDataPath != null);
+		cg.start(p);
+		return cg.getCode();
+	}
+
 	private static void compileGeneratedSrc(final CommandLine cl, final String jarName, final File outputRoot, final File outputFile)
 			throws RuntimeException, IOException, FileNotFoundException {
 		// compile the generated .java file
@@ -250,6 +260,15 @@ public class BoaCompiler extends BoaMain {
 		if (compiler.run(null, null, null, "-source", "8", "-target", "8", "-cp", System.getProperty("java.class.path"), outputFile.toString()) != 0)
 			throw new RuntimeException("compile failed");
 
+		generateJar(jarName, outputRoot, libJars(cl));
+
+		if (DefaultProperties.localDataPath == null) {
+			delete(outputRoot);
+		}
+	}
+
+	// the runtime jar and any custom libs, which are bundled into the jar
+	static List<File> libJars(final CommandLine cl) {
 		final List<File> libJars = new ArrayList<File>();
 
 		if (cl.hasOption('j')) {
@@ -267,16 +286,12 @@ public class BoaCompiler extends BoaMain {
 			for (final String s : Arrays.asList(cl.getOptionValues('l')))
 				libJars.add(new File(s));
 
-		generateJar(jarName, outputRoot, libJars);
-
-		if (DefaultProperties.localDataPath == null) {
-			delete(outputRoot);
-		}
+		return libJars;
 	}
 
 	static File inputFile = null;
 
-	private static CommandLine processCommandLineOptions(final String[] args) {
+	static CommandLine processCommandLineOptions(final String[] args) {
 		// parse the command line options
 		final Options options = new Options();
 		options.addOption("l", "libs", true, "extra jars (functions/aggregators) to be compiled in");
@@ -354,7 +369,7 @@ public class BoaCompiler extends BoaMain {
 	}
 
 	// get the name of the generated class
-	private static final String getGeneratedClass(final CommandLine cl) {
+	static final String getGeneratedClass(final CommandLine cl) {
 		String className;
 		if (cl.hasOption('n')) {
 			className = cl.getOptionValue('n');
@@ -389,6 +404,23 @@ public class BoaCompiler extends BoaMain {
 		}
 	}
 
+	static void generateJar(final String jarName, final Map<String, byte[]> entries, final List<File> libJars) throws IOException, FileNotFoundException {
+		final JarOutputStream jar = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(new File(jarName))));
+
+		try {
+			for (final Map.Entry<String, byte[]> e : entries.entrySet()) {
+				jar.putNextEntry(new ZipEntry(e.getKey()));
+				jar.write(e.getValue());
+				jar.closeEntry();
+			}
+
+			for (final File f : libJars)
+				putJarEntry(jar, f, "lib" + File.separatorChar + f.getName());
+		} finally {
+			jar.close();
+		}
+	}
+
 	private static final List<File> findFiles(final File f, final List<File> l) {
 		if (f.isDirectory())
 			for (final File g : f.listFiles())
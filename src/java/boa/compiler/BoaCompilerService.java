@@ -0,0 +1,301 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+import org.apache.log4j.Logger;
+
+import boa.BoaMain;
+import boa.compiler.ast.Start;
+import boa.compiler.listeners.BoaErrorListener;
+import boa.compiler.listeners.ParserErrorListener;
+import boa.compiler.visitors.ASTPrintingVisitor;
+import boa.compiler.visitors.PrettyPrintVisitor;
+import boa.functions.LRUCache;
+import boa.parser.BoaLexer;
+
+/**
+ * A long running Boa compiler, for compiling many programs without paying
+ * for JVM start up, symbol table initialization and javac set up each time.
+ *
+ * Each line read from standard input is one request, holding the same
+ * arguments as {@link BoaCompiler}, and gets one line of reply on standard
+ * output: either <code>OK jarName</code> (followed by <code>cached</code> if
+ * nothing had to be compiled) or <code>ERROR message</code>.  Anything else
+ * the compiler prints goes to standard error.  Custom libs and the runtime
+ * jar are given when the service starts, and nothing but the jar is written,
+ * so requests can not use <code>-l</code>, <code>-j</code> or
+ * <code>-cd</code>.
+ *
+ * The generated Java is compiled in memory, and the classes are cached by a
+ * hash of the generated class name and the program's tokens, so programs
+ * that differ only in whitespace or comments are compiled once.
+ *
+ * @author hyj
+ */
+public class BoaCompilerService extends BoaMain {
+	private static Logger LOG = Logger.getLogger(BoaCompilerService.class);
+
+	// the default cache size, in megabytes
+	private static final long CACHE_SIZE = 64;
+
+	private final JavaCompiler compiler;
+	private final ClassOutputManager fileManager;
+	private final List<File> libJars;
+	private final LRUCache<String, Map<String, byte[]>> cache;
+
+	public static void main(final String[] args) throws IOException {
+		final Options options = new Options();
+		options.addOption("l", "libs", true, "extra jars (functions/aggregators) to be compiled in");
+		options.addOption("j", "rtjar", true, "the path to the Boa runtime jar");
+		options.addOption("cs", "cache-size", true, "the most compiled programs to cache, in megabytes (default " + CACHE_SIZE + ")");
+
+		final CommandLine cl;
+		try {
+			cl = new PosixParser().parse(options, args);
+		} catch (final org.apache.commons.cli.ParseException e) {
+			printHelp(options, e.getMessage());
+			return;
+		}
+
+		// find custom libs to load
+		final List<URL> libs = new ArrayList<URL>();
+		if (cl.hasOption('l'))
+			for (final String lib : cl.getOptionValues('l'))
+				libs.add(new File(lib).toURI().toURL());
+
+		SymbolTable.initialize(libs);
+
+		long cacheSize = CACHE_SIZE;
+		if (cl.hasOption("cs"))
+			cacheSize = Long.parseLong(cl.getOptionValue("cs"));
+
+		final BoaCompilerService service = new BoaCompilerService(BoaCompiler.libJars(cl), cacheSize * 1024 * 1024);
+
+		// keep standard output for replies
+		final PrintStream out = System.out;
+		System.setOut(System.err);
+
+		final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+			out.println(service.compile(line.split("\\s+")));
+			out.flush();
+		}
+
+		LOG.info("cache hits: " + service.cache.getHits() + ", misses: " + service.cache.getMisses());
+	}
+
+	/**
+	 * Construct a BoaCompilerService.  The symbol table must already be
+	 * initialized.
+	 *
+	 * @param libJars the jars to bundle into every compiled jar
+	 * @param cacheSize the most bytes of compiled programs to cache
+	 */
+	public BoaCompilerService(final List<File> libJars, final long cacheSize) throws IOException {
+		this.compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			throw new RuntimeException("Could not get javac - are you running the Boa compiler with a JDK or a JRE?");
+
+		final StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+		final List<File> classpath = new ArrayList<File>();
+		for (final String s : System.getProperty("java.class.path").split(File.pathSeparator))
+			if (!s.isEmpty())
+				classpath.add(new File(s));
+		standardFileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+		this.fileManager = new ClassOutputManager(standardFileManager);
+
+		this.libJars = libJars;
+		this.cache = new LRUCache<String, Map<String, byte[]>>(cacheSize) {
+			@Override
+			protected long sizeOf(final String key, final Map<String, byte[]> value) {
+				long size = 0;
+				for (final byte[] b : value.values())
+					size += b.length;
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Compiles one program.
+	 *
+	 * @param args the same arguments as {@link BoaCompiler} takes
+	 * @return the reply to the request
+	 */
+	public String compile(final String[] args) {
+		final CommandLine cl = BoaCompiler.processCommandLineOptions(args);
+		if (cl == null)
+			return "ERROR invalid arguments: " + Arrays.toString(args);
+		if (cl.hasOption('l') || cl.hasOption('j') || cl.hasOption("cd"))
+			return "ERROR libs, the runtime jar and the compilation dir can only be set when the service starts";
+		final File inputFile = BoaCompiler.inputFile;
+
+		final String className = BoaCompiler.getGeneratedClass(cl);
+		final String jarName;
+		if (cl.hasOption('o'))
+			jarName = cl.getOptionValue('o');
+		else
+			jarName = className + ".jar";
+
+		// forget any types declared by the last program
+		SymbolTable.resetTypeMap();
+
+		try {
+			final BoaLexer lexer = BoaCompiler.lex(inputFile);
+			final CommonTokenStream tokens = new CommonTokenStream(lexer);
+			tokens.fill();
+			final BoaErrorListener parserErrorListener = new ParserErrorListener();
+			final Start p = BoaCompiler.parse(tokens, parserErrorListener);
+			if (parserErrorListener.hasError)
+				return "ERROR " + inputFile.getName() + ": syntax error";
+			if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
+
+			final String key = hash(className, tokens.getTokens());
+
+			Map<String, byte[]> entries = cache.get(key);
+			final boolean cached = entries != null;
+			if (!cached) {
+				final String code;
+				try {
+					// use the whole input string to seed the RNG, as BoaCompiler does
+					code = BoaCompiler.generate(cl, p, className, new PrettyPrintVisitor().startAndReturn(p).hashCode());
+				} catch (final TypeCheckException e) {
+					parserErrorListener.error("typecheck", lexer, null, e.n.beginLine, e.n.beginColumn, e.n2.endColumn - e.n.beginColumn + 1, e.getMessage(), e);
+					return "ERROR " + inputFile.getName() + ": " + e.getMessage();
+				}
+
+				entries = compileGeneratedSrc(className, code);
+				cache.put(key, entries);
+			}
+
+			BoaCompiler.generateJar(jarName, entries, libJars);
+			return "OK " + jarName + (cached ? " cached" : "");
+		} catch (final Exception e) {
+			e.printStackTrace();
+			return "ERROR " + inputFile.getName() + ": compilation failed: " + e.getMessage();
+		}
+	}
+
+	// compiles the generated source in memory, returning the jar entries
+	private Map<String, byte[]> compileGeneratedSrc(final String className, final String code) {
+		final JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///boa/" + className + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+				return code;
+			}
+		};
+
+		final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		fileManager.classes.clear();
+		final boolean success = compiler.getTask(null, fileManager, diagnostics, Arrays.asList("-source", "8", "-target", "8"), null, Collections.singletonList(source)).call();
+		for (final Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics())
+			System.err.println(d);
+		if (!success)
+			throw new RuntimeException("compile failed");
+
+		final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		entries.put("boa/" + className + ".java", code.getBytes());
+		for (final Map.Entry<String, ByteArrayOutputStream> e : fileManager.classes.entrySet())
+			entries.put(e.getKey().replace('.', '/') + ".class", e.getValue().toByteArray());
+		return entries;
+	}
+
+	// hashes the class name and the type and text of each token; the lexer
+	// drops whitespace and comments, so they do not change the hash
+	private static String hash(final String className, final List<Token> tokens) {
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		md.update(className.getBytes(StandardCharsets.UTF_8));
+		for (final Token t : tokens) {
+			final String text = t.getText();
+			md.update((" " + t.getType() + " " + text.length() + " " + text).getBytes(StandardCharsets.UTF_8));
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		for (final byte b : md.digest())
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+	/**
+	 * Keeps the class files javac writes in memory, and otherwise defers to
+	 * the standard file manager.
+	 */
+	private static class ClassOutputManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+		private final Map<String, ByteArrayOutputStream> classes = new LinkedHashMap<String, ByteArrayOutputStream>();
+
+		ClassOutputManager(final StandardJavaFileManager fileManager) {
+			super(fileManager);
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(final Location location, final String className, final JavaFileObject.Kind kind, final FileObject sibling) throws IOException {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			classes.put(className, out);
+			return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+				@Override
+				public OutputStream openOutputStream() {
+					return out;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import boa.aggregators.AggregatorSpec;
+import boa.functions.FunctionSpec;
+
+/**
+ * An index of the built-in functions and aggregators, written when the
+ * compiler is built so the {@link SymbolTable} does not have to load and
+ * reflect over every intrinsic class each time it is initialized.
+ *
+ * The first line of the index is <code>fingerprint crc</code>, a checksum of
+ * the class files it was made from.  Each other line is tab separated, and is
+ * either <code>function name method returnType formalParameters...</code> or
+ * <code>aggregator name type class</code>.
+ *
+ * @author hyj
+ */
+public class SymbolIndex {
+	private static final Logger LOG = Logger.getLogger(SymbolIndex.class);
+
+	public static final String RESOURCE = "symbols.idx";
+
+	// the classes holding the built-in functions, by name so that listing
+	// them does not load them
+	static final String[] FUNCTIONS = {
+		"boa.functions.BoaAstIntrinsics",
+		"boa.functions.BoaGraphIntrinsics",
+		"boa.functions.BoaIntrinsics",
+		"boa.functions.BoaMetricIntrinsics",
+		"boa.functions.BoaNormalFormIntrinsics",
+		"boa.functions.BoaModifierIntrinsics",
+		"boa.functions.BoaCasts",
+		"boa.functions.BoaMathIntrinsics",
+		"boa.functions.BoaSortIntrinsics",
+		"boa.functions.BoaSpecialIntrinsics",
+		"boa.functions.BoaStringIntrinsics",
+		"boa.functions.BoaTimeIntrinsics",
+		"boa.functions.code.change.refactoring.BoaRefactoringIntrinsics",
+		"boa.functions.code.change.refactoring.BoaRefactoringPredictionIntrinsics",
+		"boa.functions.code.change.BoaCodeChangeIntrinsics"
+	};
+
+	// the built-in aggregators
+	static final String[] AGGREGATORS = {
+		"boa.aggregators.ApproximateMedianAggregator",
+		"boa.aggregators.ApproximateTopAggregator",
+		"boa.aggregators.BottomAggregator",
+		"boa.aggregators.CardinalityAggregator",
+		"boa.aggregators.CollectionAggregator",
+		"boa.aggregators.ConfidenceIntervalAggregator",
+		"boa.aggregators.DistinctAggregator",
+		"boa.aggregators.FloatApproximateQuantileAggregator",
+		"boa.aggregators.FloatHistogramAggregator",
+		"boa.aggregators.FloatMeanAggregator",
+		"boa.aggregators.FloatQuantileAggregator",
+		"boa.aggregators.FloatSumAggregator",
+		"boa.aggregators.GraphAggregator",
+		"boa.aggregators.GraphvizAggregator",
+		"boa.aggregators.IntApproximateQuantileAggregator",
+		"boa.aggregators.IntHistogramAggregator",
+		"boa.aggregators.IntMeanAggregator",
+		"boa.aggregators.IntQuantileAggregator",
+		"boa.aggregators.IntSumAggregator",
+		"boa.aggregators.KurtosisAggregator",
+		"boa.aggregators.LogAggregator",
+		"boa.aggregators.MaximumAggregator",
+		"boa.aggregators.MedianAggregator",
+		"boa.aggregators.MinimumAggregator",
+		"boa.aggregators.SetAggregator",
+		"boa.aggregators.SkewnessAggregator",
+		"boa.aggregators.StatisticsAggregator",
+		"boa.aggregators.StDevAggregator",
+		"boa.aggregators.TopAggregator",
+		"boa.aggregators.UniqueAggregator",
+		"boa.aggregators.VarianceAggregator",
+		"boa.aggregators.PreconditionAggregator"
+	};
+
+	public static void main(final String[] args) throws IOException {
+		final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(args[0]), StandardCharsets.UTF_8));
+		try {
+			out.println("fingerprint\t" + fingerprint());
+
+			for (final String name : FUNCTIONS)
+				for (final Method m : load(name).getMethods()) {
+					final FunctionSpec annotation = m.getAnnotation(FunctionSpec.class);
+					if (annotation == null)
+						continue;
+					out.print("function\t" + annotation.name() + "\t" + m.getDeclaringClass().getCanonicalName() + '.' + m.getName() + "\t" + annotation.returnType());
+					for (final String p : annotation.formalParameters())
+						out.print("\t" + p);
+					out.println();
+				}
+
+			for (final String name : AGGREGATORS) {
+				final Class<?> c = load(name);
+				final AggregatorSpec annotation = c.getAnnotation(AggregatorSpec.class);
+				if (annotation != null)
+					out.println("aggregator\t" + annotation.name() + "\t" + annotation.type() + "\t" + c.getName());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static Class<?> load(final String name) {
+		try {
+			return Class.forName(name, false, SymbolIndex.class.getClassLoader());
+		} catch (final ClassNotFoundException e) {
+			throw new RuntimeException("no such class " + name, e);
+		}
+	}
+
+	/**
+	 * Computes a checksum of the class files of the built-in functions and
+	 * aggregators, reading them as resources so that none of them is loaded.
+	 *
+	 * @return the checksum, or null if a class file could not be found
+	 */
+	static String fingerprint() throws IOException {
+		final CRC32 crc = new CRC32();
+		final byte[] buf = new byte[8192];
+		for (final String[] names : new String[][] { FUNCTIONS, AGGREGATORS })
+			for (final String name : names) {
+				final InputStream in = SymbolIndex.class.getClassLoader().getResourceAsStream(name.replace('.', '/') + ".class");
+				if (in == null)
+					return null;
+				try {
+					int n;
+					while ((n = in.read(buf)) != -1)
+						crc.update(buf, 0, n);
+				} finally {
+					in.close();
+				}
+			}
+		return Long.toHexString(crc.getValue());
+	}
+
+	/**
+	 * Imports the built-in functions and aggregators from the index.
+	 *
+	 * @return false if there is no index, or it no longer matches the class
+	 *         files, in which case nothing was imported
+	 */
+	static boolean read() throws IOException {
+		final InputStream in = SymbolIndex.class.getResourceAsStream(RESOURCE);
+		if (in == null)
+			return false;
+
+		final BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		try {
+			final String header = r.readLine();
+			final String fingerprint = fingerprint();
+			if (header == null || fingerprint == null || !header.equals("fingerprint\t" + fingerprint)) {
+				LOG.warn("ignoring " + RESOURCE + ", the built-in classes changed since it was made");
+				return false;
+			}
+
+			String line;
+			while ((line = r.readLine()) != null) {
+				final String[] parts = line.split("\t", -1);
+				if (parts[0].equals("function")) {
+					final String[] formalParameters = new String[parts.length - 4];
+					System.arraycopy(parts, 4, formalParameters, 0, formalParameters.length);
+					SymbolTable.importFunction(parts[1], parts[2], parts[3], formalParameters);
+				} else if (parts[0].equals("aggregator")) {
+					SymbolTable.importAggregator(parts[1], parts[2], load(parts[3]));
+				}
+			}
+		} finally {
+			r.close();
+		}
+		return true;
+	}
+}
@@ -495,11 +495,14 @@ public class SymbolTable {
 		if (annotation == null)
 			return;
 
-		final String type = annotation.type();
+		importAggregator(annotation.name(), annotation.type(), clazz);
+	}
+
+	static void importAggregator(final String name, final String type, final Class<?> clazz) {
 		if (type.equals("any"))
-			aggregators.put(annotation.name(), clazz);
+			aggregators.put(name, clazz);
 		else
-			aggregators.put(annotation.name() + ":" + type, clazz);
+			aggregators.put(name + ":" + type, clazz);
 	}
 
 	private static void importAggregator(final String c) {
@@ -524,7 +527,10 @@ public class SymbolTable {
 		if (annotation == null)
 			return;
 
-		final String[] formalParameters = annotation.formalParameters();
+		importFunction(annotation.name(), m.getDeclaringClass().getCanonicalName() + '.' + m.getName(), annotation.returnType(), annotation.formalParameters());
+	}
+
+	static void importFunction(final String name, final String method, final String returnType, final String[] formalParameters) {
 		final BoaType[] formalParameterTypes = new BoaType[formalParameters.length];
 
 		for (int i = 0; i < formalParameters.length; i++) {
@@ -537,7 +543,7 @@ public class SymbolTable {
 				formalParameterTypes[i] = getType(id);
 		}
 
-		globalFunctions.addFunction(annotation.name(), new BoaFunction(m.getDeclaringClass().getCanonicalName() + '.' + m.getName(), getType(annotation.returnType()), formalParameterTypes));
+		globalFunctions.addFunction(name, new BoaFunction(method, getType(returnType), formalParameterTypes));
 	}
 
 	private static void importFunctions(final Class<?> c) {
@@ -555,59 +561,13 @@ public class SymbolTable {
 	}
 
 	private static void importLibs(final List<URL> urls) throws IOException {
-		// load built-in functions
-		final Class<?>[] builtinFuncs = {
-			boa.functions.BoaAstIntrinsics.class,
-			boa.functions.BoaGraphIntrinsics.class,
-			boa.functions.BoaIntrinsics.class,
-			boa.functions.BoaMetricIntrinsics.class,
-			boa.functions.BoaNormalFormIntrinsics.class,
-			boa.functions.BoaModifierIntrinsics.class,
-			boa.functions.BoaCasts.class,
-			boa.functions.BoaMathIntrinsics.class,
-			boa.functions.BoaSortIntrinsics.class,
-			boa.functions.BoaSpecialIntrinsics.class,
-			boa.functions.BoaStringIntrinsics.class,
-			boa.functions.BoaTimeIntrinsics.class,
-			boa.functions.code.change.refactoring.BoaRefactoringIntrinsics.class,
-			boa.functions.code.change.refactoring.BoaRefactoringPredictionIntrinsics.class,
-			boa.functions.code.change.BoaCodeChangeIntrinsics.class
-		};
-		for (final Class<?> c : builtinFuncs)
-			importFunctions(c);
-
-		// load built-in aggregators
-		final Class<?>[] builtinAggs = {
-			boa.aggregators.BottomAggregator.class,
-			boa.aggregators.CollectionAggregator.class,
-			boa.aggregators.ConfidenceIntervalAggregator.class,
-			boa.aggregators.DistinctAggregator.class,
-			boa.aggregators.FloatHistogramAggregator.class,
-			boa.aggregators.FloatMeanAggregator.class,
-			boa.aggregators.FloatQuantileAggregator.class,
-			boa.aggregators.FloatSumAggregator.class,
-			boa.aggregators.GraphAggregator.class,
-			boa.aggregators.GraphvizAggregator.class,
-			boa.aggregators.IntHistogramAggregator.class,
-			boa.aggregators.IntMeanAggregator.class,
-			boa.aggregators.IntQuantileAggregator.class,
-			boa.aggregators.IntSumAggregator.class,
-			boa.aggregators.KurtosisAggregator.class,
-			boa.aggregators.LogAggregator.class,
-			boa.aggregators.MaximumAggregator.class,
-			boa.aggregators.MedianAggregator.class,
-			boa.aggregators.MinimumAggregator.class,
-			boa.aggregators.SetAggregator.class,
-			boa.aggregators.SkewnessAggregator.class,
-			boa.aggregators.StatisticsAggregator.class,
-			boa.aggregators.StDevAggregator.class,
-			boa.aggregators.TopAggregator.class,
-			boa.aggregators.UniqueAggregator.class,
-			boa.aggregators.VarianceAggregator.class,
-			boa.aggregators.PreconditionAggregator.class,
-		};
-		for (final Class<?> c : builtinAggs)
-			importAggregator(c);
+		// load built-in functions and aggregators, from the index made at build time if there is one
+		if (!SymbolIndex.read()) {
+			for (final String c : SymbolIndex.FUNCTIONS)
+				importFunctions(c);
+			for (final String c : SymbolIndex.AGGREGATORS)
+				importAggregator(c);
+		}
 
 		// also check any libs passed into the compiler
 		if (urls.size() > 0) {
@@ -473,7 +473,47 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		}
 	}
 
+	/**
+	 * Finds the output variables whose emits can be aggregated in the mapper,
+	 * and the name of the aggregation to use for each.
+	 *
+	 * @author hyj
+	 */
+	protected class CombinedTableFindingVisitor extends AbstractVisitorNoArgNoRet {
+		protected final Map<String, String> tables = new HashMap<String, String>();
+		protected final Map<String, BoaType> types = new HashMap<String, BoaType>();
+
+		public Map<String, String> getTables() {
+			return tables;
+		}
+
+		public Map<String, BoaType> getTypes() {
+			return types;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			tables.clear();
+			types.clear();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VarDeclStatement n) {
+			if (n.hasType() && n.getType() instanceof OutputType) {
+				final OutputType t = (OutputType) n.getType();
+				final String aggregator = t.getId().getToken();
+				if (t.getArgsSize() == 0 && ("sum".equals(aggregator) || "mean".equals(aggregator))) {
+					tables.put(n.getId().getToken(), aggregator);
+					types.put(n.getId().getToken(), n.type);
+				}
+			}
+		}
+	}
+
 	protected final IdentifierFindingVisitor idFinder = new IdentifierFindingVisitor();
+	protected final CombinedTableFindingVisitor combinedTableFinder = new CombinedTableFindingVisitor();
 	protected final IndexeeFindingVisitor indexeeFinder = new IndexeeFindingVisitor();
 	protected final CallFindingVisitor callFinder = new CallFindingVisitor();
 	protected final VarDeclCodeGeneratingVisitor varDecl;
@@ -510,6 +550,7 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 	public void visit(final Program n) {
 		final ST st = stg.getInstanceOf("Program");
 
+		this.combinedTableFinder.start(n);
 		this.varDecl.start(n);
 		this.functionDeclarator.start(n);
 		this.tupleDeclarator.start(n);
@@ -543,6 +584,7 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 
 		final List<String> combineAggregatorStrings = new ArrayList<String>();
 		final List<String> reduceAggregatorStrings = new ArrayList<String>();
+		final List<String> splitVariableNames = new ArrayList<String>();
 
 		for (final Entry<String, AggregatorDescription> entry : this.aggregators.entrySet()) {
 			final String id = entry.getKey();
@@ -552,17 +594,22 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 			final BoaType type = description.getType();
 
 			boolean combines = false;
+			boolean splits = false;
 			final Class<?> c = n.env.getAggregator(description.getAggregator(), type);
 			try {
 				final AggregatorSpec annotation = c.getAnnotation(AggregatorSpec.class);
 				if (annotation.canCombine())
 					combines = true;
+				if (annotation.canSplit())
+					splits = true;
 			} catch (final RuntimeException e) {
 				throw new TypeCheckException(n, e.getMessage(), e);
 			}
 			reduceAggregatorStrings.add("this.aggregators.put(\"" + id + "\", new " + c.getCanonicalName() + "(" + parameters + "));");
 			if (combines)
 				combineAggregatorStrings.add(reduceAggregatorStrings.get(reduceAggregatorStrings.size() - 1));
+			if (splits)
+				splitVariableNames.add("\"" + id + "\"");
 		}
 
 		st.add("combineTables", combineAggregatorStrings);
@@ -577,6 +624,8 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		st.add("splitsize", splitSize);
 		st.add("seed", seed);
 		st.add("outputVariableNames", variableNames);
+		Collections.sort(splitVariableNames);
+		st.add("splitVariableNames", splitVariableNames);
 		if (isLocal) st.add("isLocal", true);
 
 		code.add(st.render());
@@ -1059,7 +1108,20 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 	/** {@inheritDoc} */
 	@Override
 	public void visit(final EmitStatement n) {
-		final ST st = stg.getInstanceOf("EmitStatement");
+		final String op = this.combinedTableFinder.getTables().get(n.getId().getToken());
+		// emits added by transforms may not have been type checked, so use the declared type
+		final BoaType type = this.combinedTableFinder.getTypes().get(n.getId().getToken());
+		final String cast;
+		if (op == null || n.hasWeight() || !(type instanceof BoaTable))
+			cast = null;
+		else if (((BoaTable) type).getType() instanceof BoaInt)
+			cast = "long";
+		else if (((BoaTable) type).getType() instanceof BoaFloat)
+			cast = "double";
+		else
+			cast = null;
+
+		final ST st = stg.getInstanceOf(cast == null ? "EmitStatement" : "CombinedEmitStatement");
 
 		if (n.getIndicesSize() > 0) {
 			final List<String> indices = new ArrayList<String>();
@@ -1077,6 +1139,11 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		n.getValue().accept(this);
 		st.add("expression", code.removeLast());
 
+		if (cast != null) {
+			st.add("op", op);
+			st.add("cast", cast);
+		}
+
 		if (n.hasWeight()) {
 			n.getWeight().accept(this);
 			st.add("weight", code.removeLast());
@@ -1477,8 +1544,10 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 			st.add("name", "preTraverse");
 		}
 
-		if (!(funcType.getType() instanceof BoaAny))
+		if (!(funcType.getType() instanceof BoaAny)) {
 			st.add("ret", funcType.getType().toBoxedJavaType());
+			st.add("copy", TraversalResultAliasAnalysis.needsCopy(n));
+		}
 
 		if (n.hasBody()) {
 			if (n.getBody() instanceof Block) {
@@ -1649,6 +1718,7 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 
 		this.varDecl.start(n);
 		st.add("staticDeclarations", this.varDecl.getCode());
+		st.add("walkedTypes", VisitorReachabilityAnalysis.getWalkedTypes(n));
 
 		final List<String> body = new ArrayList<String>();
 		for (final Node node : n.getBody().getStatements()) {
@@ -1887,6 +1957,8 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 
 		n.env.setNeedsBoxing(false);
 
+		st.add("primitive", ((BoaStack) n.type).getPrimitiveClass());
+
 		code.add(st.render());
 	}
 
@@ -1902,6 +1974,8 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 
 		n.env.setNeedsBoxing(false);
 
+		st.add("primitive", ((BoaQueue) n.type).getPrimitiveClass());
+
 		code.add(st.render());
 	}
 
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.visitors.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import boa.compiler.ast.Call;
+import boa.compiler.ast.Composite;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.expressions.Expression;
+import boa.compiler.ast.expressions.FixPExpression;
+import boa.compiler.ast.expressions.FunctionExpression;
+import boa.compiler.ast.expressions.TraversalExpression;
+import boa.compiler.ast.expressions.VisitorExpression;
+import boa.compiler.ast.statements.AssignmentStatement;
+import boa.compiler.ast.statements.ReturnStatement;
+import boa.compiler.ast.statements.TraverseStatement;
+import boa.compiler.ast.statements.VarDeclStatement;
+import boa.compiler.visitors.AbstractVisitorNoArgNoRet;
+import boa.types.BoaFunction;
+import boa.types.BoaName;
+import boa.types.BoaProtoMap;
+import boa.types.BoaProtoTuple;
+import boa.types.BoaScalar;
+import boa.types.BoaType;
+
+/**
+ * Decides whether a traversal clause's result has to be copied before it is
+ * stored as the node's value.
+ *
+ * The copy keeps the stored value apart from anything else that can reach
+ * the returned object, and from the result kept for the fixpoint check.  It
+ * can be skipped when the clause returns a value of an immutable type, or
+ * when every value it returns is freshly built inside the clause, never
+ * stored anywhere else, and the clause only reads the values it gets from
+ * <code>getvalue()</code>.  The analysis is flow-insensitive and works on
+ * variable names, so it errs on the side of copying.
+ *
+ * @author hyj
+ */
+public class TraversalResultAliasAnalysis extends AbstractVisitorNoArgNoRet {
+	// functions that neither keep nor change their arguments
+	private static final Set<String> readers = new HashSet<String>(Arrays.asList(
+			"def", "len", "contains", "containsall", "haskey", "keys", "values", "lookup", "peek",
+			"union", "intersect", "difference", "symdiff", "clone", "string", "getvalue"));
+	// functions that change their first argument
+	private static final Set<String> writers = new HashSet<String>(Arrays.asList(
+			"add", "remove", "clear", "push", "pop", "offer", "poll"));
+	// functions that return a new collection
+	private static final Set<String> builders = new HashSet<String>(Arrays.asList(
+			"union", "intersect", "difference", "symdiff", "clone"));
+
+	private final Set<String> declared = new HashSet<String>();
+	private final Set<String> borrowed = new HashSet<String>();
+	private final Set<String> mutated = new HashSet<String>();
+	private final Set<String> escaped = new HashSet<String>();
+	private final Set<Expression> allowed = Collections.newSetFromMap(new IdentityHashMap<Expression, Boolean>());
+	private final List<Expression> returns = new ArrayList<Expression>();
+	private boolean unsafe = false;
+
+	/**
+	 * Returns whether a traversal clause's result has to be copied.
+	 *
+	 * @param n the traversal clause
+	 * @return false if the result can be stored as is
+	 */
+	public static boolean needsCopy(final TraverseStatement n) {
+		if (!isMutable(((BoaFunction) n.type).getType()))
+			return false;
+		if (!n.hasBody())
+			return true;
+
+		final TraversalResultAliasAnalysis a = new TraversalResultAliasAnalysis();
+		n.getBody().accept(a);
+		if (a.unsafe || a.returns.isEmpty())
+			return true;
+
+		for (final String id : a.borrowed)
+			if (a.escaped.contains(id))
+				return true;
+		for (final String id : a.mutated)
+			if (!a.declared.contains(id) || a.borrowed.contains(id))
+				return true;
+		for (final Expression e : a.returns) {
+			if (isBuilt(e))
+				continue;
+			final Identifier id = bareIdentifier(e);
+			if (id == null || !a.declared.contains(id.getToken()) || a.borrowed.contains(id.getToken()) || a.escaped.contains(id.getToken()))
+				return true;
+		}
+		return false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final VarDeclStatement n) {
+		if (isMutable(n.type)) {
+			declared.add(n.getId().getToken());
+			if (n.hasInitializer())
+				define(n.getId().getToken(), n.getInitializer());
+		}
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final AssignmentStatement n) {
+		final Factor lhs = n.getLhs();
+		if (!(lhs.getOperand() instanceof Identifier)) {
+			unsafe = true;
+		} else {
+			final String id = ((Identifier) lhs.getOperand()).getToken();
+			if (lhs.getOpsSize() > 0 || !"=".equals(n.getOp()))
+				mutated.add(id);
+			else if (isMutable(lhs.type))
+				define(id, n.getRhs());
+		}
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ReturnStatement n) {
+		if (n.hasExpr()) {
+			returns.add(n.getExpr());
+			allowed.add(n.getExpr());
+		}
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Factor n) {
+		final String name = calledFunction(n);
+		if (name != null) {
+			final List<Expression> args = ((Call) n.getOp(0)).getArgs();
+			for (int i = 0; i < args.size(); i++) {
+				final Expression arg = args.get(i);
+				if (readers.contains(name) && !("lookup".equals(name) && i == 2)) {
+					allowed.add(arg);
+				} else if (writers.contains(name) && i == 0) {
+					allowed.add(arg);
+					final Factor f = bareFactor(arg);
+					if (f == null || !(f.getOperand() instanceof Identifier) || "getvalue".equals(calledFunction(f)))
+						unsafe = true;
+					else
+						mutated.add(((Identifier) f.getOperand()).getToken());
+				}
+			}
+		}
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Expression n) {
+		final Factor f = bareFactor(n);
+		if (!allowed.contains(n) && f != null && f.getOperand() instanceof Identifier) {
+			final String name = calledFunction(f);
+			// a variable, or a part of one, that may be kept in another value
+			if (name == null && isMutable(n.type))
+				escaped.add(((Identifier) f.getOperand()).getToken());
+			// and the same for a node's stored value
+			else if ("getvalue".equals(name) && (f.getOpsSize() == 1 || isMutable(n.type)))
+				unsafe = true;
+		}
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final FunctionExpression n) {
+		unsafe = true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final VisitorExpression n) {
+		unsafe = true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final TraversalExpression n) {
+		unsafe = true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final FixPExpression n) {
+		unsafe = true;
+	}
+
+	private void define(final String id, final Expression e) {
+		if (isGetvalue(e))
+			allowed.add(e);
+		if (!isBuilt(e))
+			borrowed.add(id);
+	}
+
+	private static boolean isMutable(BoaType t) {
+		if (t instanceof BoaName)
+			t = ((BoaName) t).getType();
+		return !(t instanceof BoaScalar || t instanceof BoaProtoTuple || t instanceof BoaProtoMap);
+	}
+
+	private static boolean isBuilt(final Expression e) {
+		final Factor f = bareFactor(e);
+		if (f == null)
+			return false;
+		if (f.getOperand() instanceof Composite)
+			return f.getOpsSize() == 0;
+		return f.getOpsSize() == 1 && builders.contains(calledFunction(f));
+	}
+
+	private static boolean isGetvalue(final Expression e) {
+		final Factor f = bareFactor(e);
+		return f != null && f.getOpsSize() == 1 && "getvalue".equals(calledFunction(f));
+	}
+
+	private static Identifier bareIdentifier(final Expression e) {
+		final Factor f = bareFactor(e);
+		if (f == null || f.getOpsSize() != 0 || !(f.getOperand() instanceof Identifier))
+			return null;
+		return (Identifier) f.getOperand();
+	}
+
+	/**
+	 * Returns the function a factor calls, if it is a call.
+	 */
+	private static String calledFunction(final Factor f) {
+		if (!(f.getOperand() instanceof Identifier) || f.getOpsSize() == 0 || !(f.getOp(0) instanceof Call))
+			return null;
+		return ((Identifier) f.getOperand()).getToken();
+	}
+
+	/**
+	 * Returns the only factor of an expression that has no operators.
+	 */
+	private static Factor bareFactor(final Expression e) {
+		if (e.getRhsSize() != 0 || e.getLhs().getRhsSize() != 0 || e.getLhs().getLhs().hasRhs())
+			return null;
+		if (e.getLhs().getLhs().getLhs().getRhsSize() != 0 || e.getLhs().getLhs().getLhs().getLhs().getRhsSize() != 0)
+			return null;
+		return e.getLhs().getLhs().getLhs().getLhs().getLhs();
+	}
+}
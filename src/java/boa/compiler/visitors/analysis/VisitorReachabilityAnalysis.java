@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.visitors.analysis;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Node;
+import boa.compiler.ast.expressions.VisitorExpression;
+import boa.compiler.ast.statements.VisitStatement;
+import boa.types.BoaProtoTuple;
+import boa.types.BoaType;
+import boa.types.proto.*;
+
+/**
+ * Finds the types of nodes a visitor has to walk into, from the types its
+ * <code>before</code> and <code>after</code> clauses are for and the types
+ * each protobuf type contains.  Any other node has no node below it the
+ * visitor acts on, so the visitor can skip it, along with the AST or the
+ * revisions it would have read to get there.
+ *
+ * @author hyj
+ */
+public class VisitorReachabilityAnalysis {
+	// the types BoaAbstractVisitor walks, in the order it walks them
+	private static final BoaProtoTuple[] walkedTypes = {
+		new ProjectProtoTuple(), new CodeRepositoryProtoTuple(), new RevisionProtoTuple(),
+		new ChangedFileProtoTuple(), new ASTRootProtoTuple(), new NamespaceProtoTuple(),
+		new DeclarationProtoTuple(), new TypeProtoTuple(), new MethodProtoTuple(),
+		new VariableProtoTuple(), new StatementProtoTuple(), new ExpressionProtoTuple(),
+		new ModifierProtoTuple(), new CommentProtoTuple(), new PersonProtoTuple(),
+	};
+
+	/**
+	 * Returns the Java types of the nodes a visitor has to walk into.
+	 *
+	 * @param n the visitor
+	 * @return the Java types, or <code>null</code> if it has to walk into every node
+	 */
+	public static List<String> getWalkedTypes(final VisitorExpression n) {
+		final Set<Class<? extends BoaType>> clauseTypes = new HashSet<Class<? extends BoaType>>();
+		for (final Node s : n.getBody().getStatements()) {
+			if (!(s instanceof VisitStatement))
+				continue;
+			final VisitStatement v = (VisitStatement) s;
+			if (v.hasWildcard())
+				return null;
+			final List<BoaType> types = new ArrayList<BoaType>();
+			if (v.hasComponent())
+				types.add(v.getComponent().getType().type);
+			else
+				for (final Identifier id : v.getIdList())
+					types.add(id.type);
+			for (final BoaType t : types) {
+				if (t == null)
+					return null;
+				clauseTypes.add(t.getClass());
+			}
+		}
+
+		final List<String> walked = new ArrayList<String>();
+		for (final BoaProtoTuple t : walkedTypes) {
+			for (final Class<? extends BoaProtoTuple> reachable : t.reachableTypes()) {
+				if (clauseTypes.contains(reachable)) {
+					walked.add(t.toJavaType());
+					break;
+				}
+			}
+		}
+
+		if (walked.isEmpty() || walked.size() == walkedTypes.length)
+			return null;
+		return walked;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boa.datagen;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.eclipse.jgit.lib.Repository;
+
+import boa.datagen.util.Properties;
+import boa.functions.BoaAstIntrinsics;
+import boa.types.Ast.ASTRoot;
+import boa.types.Diff.ChangedFile;
+
+/**
+ * Builds the <code>astcache</code> map next to the <code>ast</code> and
+ * <code>repo</code> maps.  Every Java blob referenced by the dataset is parsed
+ * exactly once and stored keyed by its git object id, so the runtime
+ * <code>getast</code> never has to run the Java parser on it again.
+ *
+ * @author hyj
+ */
+public class ASTCacheGen {
+	private final static String SEQ_FILE_PATH = Properties.getProperty("output.path", DefaultProperties.OUTPUT);
+
+	public static void main(String[] args) throws Exception {
+		String base = SEQ_FILE_PATH;
+		if (args.length > 0)
+			base = args[0];
+
+		final Configuration conf = new Configuration();
+		final FileSystem fs = FileSystem.get(conf);
+
+		final Path unsorted = new Path(base + "/astcache.seq");
+		final SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, unsorted, Text.class, BytesWritable.class);
+		final int count;
+		try {
+			count = new BlobWalker() {
+				@Override
+				protected boolean accept(final ChangedFile cf) {
+					return cf.getName().endsWith(".java");
+				}
+
+				@Override
+				protected void visit(final ChangedFile cf, final Repository repo) throws IOException {
+					final ASTRoot ast = BoaAstIntrinsics.getASTRoot(BoaAstIntrinsics.getContent(repo, cf.getObjectId()));
+					if (ast.getNamespacesCount() > 0)
+						w.append(new Text(cf.getObjectId()), new BytesWritable(ast.toByteArray()));
+				}
+			}.walk(conf, fs, base);
+		} finally {
+			w.close();
+		}
+
+		// MapFile requires sorted keys
+		final Path dir = new Path(base + "/astcache");
+		final SequenceFile.Sorter sorter = new SequenceFile.Sorter(fs, Text.class, BytesWritable.class, conf);
+		sorter.sort(new Path[] { unsorted }, new Path(dir, MapFile.DATA_FILE_NAME), true);
+		MapFile.fix(fs, dir, Text.class, BytesWritable.class, false, conf);
+		fs.close();
+		System.out.println("Parsed " + count + " Java blobs");
+	}
+}
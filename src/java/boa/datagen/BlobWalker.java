@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boa.datagen;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.eclipse.jgit.internal.storage.file.ByteArrayFile;
+import org.eclipse.jgit.internal.storage.file.ByteArrayRepositoryBuilder;
+import org.eclipse.jgit.lib.Repository;
+
+import com.google.protobuf.CodedInputStream;
+
+import boa.types.Code.CodeRepository;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+import boa.types.Toplevel.Project;
+
+/**
+ * Walks every distinct blob referenced by the <code>ChangedFile</code>s of a
+ * generated dataset (head snapshots and all revisions), handing each one to
+ * {@link #visit(ChangedFile, Repository)} together with its repository.
+ *
+ * @author hyj
+ */
+public abstract class BlobWalker {
+	private MapFile.Reader repoMap, commitMap;
+	private long currentRepoKey = Long.MIN_VALUE;
+	private Repository currentRepo = null;
+	private final Set<String> seen = new HashSet<String>();
+
+	/**
+	 * Called once for every distinct object id in the dataset.
+	 *
+	 * @param cf the first ChangedFile seen with this object id
+	 * @param repo the repository holding the blob
+	 * @throws IOException
+	 */
+	protected abstract void visit(ChangedFile cf, Repository repo) throws IOException;
+
+	/**
+	 * Decides if a ChangedFile's blob should be visited at all.
+	 *
+	 * @param cf the ChangedFile
+	 * @return true if the blob should be visited
+	 */
+	protected boolean accept(final ChangedFile cf) {
+		return true;
+	}
+
+	/**
+	 * Walks the dataset.
+	 *
+	 * @param conf the Hadoop configuration
+	 * @param fs the file system holding the dataset
+	 * @param base the path of the dataset
+	 * @return the number of distinct blobs visited
+	 * @throws IOException
+	 */
+	public int walk(final Configuration conf, final FileSystem fs, final String base) throws IOException {
+		repoMap = new MapFile.Reader(fs, base + "/repo", conf);
+		commitMap = new MapFile.Reader(fs, base + "/commit", conf);
+
+		final SequenceFile.Reader r = new SequenceFile.Reader(fs, new Path(base + "/projects.seq"), conf);
+		final Text textKey = new Text();
+		final BytesWritable value = new BytesWritable();
+		try {
+			while (r.next(textKey, value)) {
+				final Project p = Project.parseFrom(CodedInputStream.newInstance(value.getBytes(), 0, value.getLength()));
+				System.out.println("Reading blobs of " + p.getName());
+				for (final CodeRepository cr : p.getCodeRepositoriesList()) {
+					visit(cr.getHeadSnapshotList());
+					for (final Revision rev : cr.getRevisionsList())
+						visit(rev.getFilesList());
+					for (final long key : cr.getRevisionKeysList()) {
+						final Revision rev = readRevision(key);
+						if (rev != null)
+							visit(rev.getFilesList());
+					}
+				}
+			}
+		} finally {
+			r.close();
+			repoMap.close();
+			commitMap.close();
+			if (currentRepo != null)
+				currentRepo.close();
+		}
+		return seen.size();
+	}
+
+	private void visit(final List<ChangedFile> files) throws IOException {
+		for (final ChangedFile cf : files) {
+			if (!cf.hasRepoKey() || !cf.hasObjectId() || !accept(cf))
+				continue;
+			final String oid = cf.getObjectId();
+			if (oid.startsWith("BOA_DELETED_FILE") || !seen.add(oid))
+				continue;
+
+			final Repository repo = getRepository(cf.getRepoKey());
+			if (repo != null)
+				visit(cf, repo);
+		}
+	}
+
+	private Repository getRepository(final long repoKey) throws IOException {
+		if (repoKey == currentRepoKey)
+			return currentRepo;
+		if (currentRepo != null)
+			currentRepo.close();
+		currentRepo = null;
+		currentRepoKey = repoKey;
+
+		final BytesWritable value = new BytesWritable();
+		if (repoMap.get(new LongWritable(repoKey), value) == null)
+			return null;
+		final ByteArrayFile file = (ByteArrayFile) SerializationUtils.deserialize(value.getBytes());
+		currentRepo = new ByteArrayRepositoryBuilder().setGitDir(file).build();
+		return currentRepo;
+	}
+
+	private Revision readRevision(final long key) throws IOException {
+		final BytesWritable value = new BytesWritable();
+		if (commitMap.get(new LongWritable(key), value) == null)
+			return null;
+		final CodedInputStream _stream = CodedInputStream.newInstance(value.getBytes(), 0, value.getLength());
+		_stream.setRecursionLimit(Integer.MAX_VALUE);
+		return Revision.parseFrom(_stream);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boa.datagen;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+
+import com.google.protobuf.CodedInputStream;
+
+import boa.datagen.util.Properties;
+import boa.io.CostInputFormat;
+import boa.io.ProjectCost;
+import boa.types.Code.CodeRepository;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+import boa.types.Toplevel.Project;
+
+/**
+ * Builds <code>projects.cost</code>, which holds the revision count, file
+ * count and repository size of every project, keyed by the position of the
+ * project's record in <code>projects.seq</code>.  The last key is the length
+ * of <code>projects.seq</code>, so a stale file can be told apart.  Select
+ * cost based splits at query time with <code>--splits cost</code>.
+ *
+ * @author hyj
+ */
+public class ProjectCostGen {
+	private final static String SEQ_FILE_PATH = Properties.getProperty("output.path", DefaultProperties.OUTPUT);
+
+	public static void main(String[] args) throws Exception {
+		String base = SEQ_FILE_PATH;
+		if (args.length > 0)
+			base = args[0];
+
+		final Configuration conf = new Configuration();
+		final FileSystem fs = FileSystem.get(conf);
+
+		final Path projects = new Path(base + "/projects.seq");
+		final MapFile.Reader commitMap = new MapFile.Reader(fs, base + "/commit", conf);
+		final MapFile.Reader repoMap = new MapFile.Reader(fs, base + "/repo", conf);
+		final SequenceFile.Reader r = new SequenceFile.Reader(fs, projects, conf);
+		final SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, new Path(base + "/" + CostInputFormat.COST_FILE_NAME), LongWritable.class, ProjectCost.class);
+		final Text textKey = new Text();
+		final BytesWritable value = new BytesWritable();
+		final LongWritable key = new LongWritable();
+		final BytesWritable bytes = new BytesWritable();
+		int count = 0;
+		try {
+			long pos = 0;
+			while (r.next(textKey, value)) {
+				// a split can only start at a sync mark, or at the start of the file
+				final boolean splittable = count == 0 || r.syncSeen();
+				final Project p = Project.parseFrom(CodedInputStream.newInstance(value.getBytes(), 0, value.getLength()));
+
+				long revisions = 0;
+				long files = 0;
+				long size = value.getLength();
+				final Set<Long> repoKeys = new HashSet<Long>();
+				for (final CodeRepository cr : p.getCodeRepositoriesList()) {
+					revisions += cr.getRevisionsCount() + cr.getRevisionKeysCount();
+					files += count(cr.getHeadSnapshotList(), repoKeys);
+					for (final Revision rev : cr.getRevisionsList())
+						files += count(rev.getFilesList(), repoKeys);
+					for (final long k : cr.getRevisionKeysList()) {
+						key.set(k);
+						if (commitMap.get(key, bytes) != null) {
+							final CodedInputStream _stream = CodedInputStream.newInstance(bytes.getBytes(), 0, bytes.getLength());
+							_stream.setRecursionLimit(Integer.MAX_VALUE);
+							files += count(Revision.parseFrom(_stream).getFilesList(), repoKeys);
+						}
+					}
+				}
+				for (final long k : repoKeys) {
+					key.set(k);
+					if (repoMap.get(key, bytes) != null)
+						size += bytes.getLength();
+				}
+
+				w.append(new LongWritable(pos), new ProjectCost(splittable, revisions, files, size));
+				pos = r.getPosition();
+				count++;
+			}
+			w.append(new LongWritable(fs.getFileStatus(projects).getLen()), new ProjectCost(true, 0, 0, 0));
+		} finally {
+			r.close();
+			w.close();
+			repoMap.close();
+			commitMap.close();
+		}
+		fs.close();
+		System.out.println("Recorded the cost of " + count + " projects");
+	}
+
+	private static int count(final Iterable<ChangedFile> files, final Set<Long> repoKeys) {
+		int count = 0;
+		for (final ChangedFile cf : files) {
+			if (cf.hasRepoKey())
+				repoKeys.add(cf.getRepoKey());
+			count++;
+		}
+		return count;
+	}
+}
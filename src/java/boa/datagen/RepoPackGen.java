@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boa.datagen;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import boa.datagen.util.Properties;
+import boa.io.BlobPackWriter;
+import boa.types.Diff.ChangedFile;
+
+/**
+ * Converts the <code>repo</code> map of a dataset into a <code>repopack</code>
+ * blob pack, which lets the runtime read a single blob by object id instead
+ * of deserializing the whole repository.  Select it at query time with
+ * <code>--repo pack</code>.
+ *
+ * @author hyj
+ */
+public class RepoPackGen {
+	private final static String SEQ_FILE_PATH = Properties.getProperty("output.path", DefaultProperties.OUTPUT);
+
+	public static void main(String[] args) throws Exception {
+		String base = SEQ_FILE_PATH;
+		if (args.length > 0)
+			base = args[0];
+
+		final Configuration conf = new Configuration();
+		final FileSystem fs = FileSystem.get(conf);
+
+		final File local = new File(System.getProperty("java.io.tmpdir"), "boa-repopack-" + System.currentTimeMillis());
+		final BlobPackWriter w = new BlobPackWriter(local);
+		final int count;
+		try {
+			count = new BlobWalker() {
+				@Override
+				protected void visit(final ChangedFile cf, final Repository repo) throws IOException {
+					try {
+						w.add(cf.getObjectId(), repo.open(ObjectId.fromString(cf.getObjectId()), Constants.OBJ_BLOB).getCachedBytes());
+					} catch (final IOException e) {
+						System.err.println("missing blob " + cf.getObjectId() + " for " + cf.getName());
+					}
+				}
+			}.walk(conf, fs, base);
+		} finally {
+			w.close();
+		}
+
+		final Path dir = new Path(base + "/repopack");
+		fs.copyFromLocalFile(true, true, new Path(new File(local, BlobPackWriter.DATA_FILE_NAME).getAbsolutePath()), new Path(dir, BlobPackWriter.DATA_FILE_NAME));
+		fs.copyFromLocalFile(true, true, new Path(new File(local, BlobPackWriter.INDEX_FILE_NAME).getAbsolutePath()), new Path(dir, BlobPackWriter.INDEX_FILE_NAME));
+		local.delete();
+		fs.close();
+		System.out.println("Packed " + w.size() + " of " + count + " blobs");
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boa.datagen;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+
+import com.google.protobuf.CodedInputStream;
+
+import boa.datagen.util.Properties;
+import boa.types.Code.CodeRepository;
+import boa.types.Code.Revision;
+import boa.types.Toplevel.Project;
+
+/**
+ * Builds the <code>revid</code> map, which holds the revision ids of every
+ * code repository in revision order, keyed by the repository's first
+ * revision key.  The runtime uses it to map a revision id to its offset
+ * without decoding any revision from the <code>commit</code> map.  The ids
+ * are separated by newlines, with an empty id for a revision missing from
+ * the <code>commit</code> map.
+ *
+ * @author hyj
+ */
+public class RevisionIdGen {
+	private final static String SEQ_FILE_PATH = Properties.getProperty("output.path", DefaultProperties.OUTPUT);
+
+	public static void main(String[] args) throws Exception {
+		String base = SEQ_FILE_PATH;
+		if (args.length > 0)
+			base = args[0];
+
+		final Configuration conf = new Configuration();
+		final FileSystem fs = FileSystem.get(conf);
+
+		final MapFile.Reader commitMap = new MapFile.Reader(fs, base + "/commit", conf);
+		final Path unsorted = new Path(base + "/revid.seq");
+		final SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, unsorted, LongWritable.class, BytesWritable.class);
+		final SequenceFile.Reader r = new SequenceFile.Reader(fs, new Path(base + "/projects.seq"), conf);
+		final Text textKey = new Text();
+		final BytesWritable value = new BytesWritable();
+		int count = 0;
+		try {
+			while (r.next(textKey, value)) {
+				final Project p = Project.parseFrom(CodedInputStream.newInstance(value.getBytes(), 0, value.getLength()));
+				for (final CodeRepository cr : p.getCodeRepositoriesList()) {
+					if (cr.getRevisionKeysCount() == 0)
+						continue;
+
+					final StringBuilder ids = new StringBuilder();
+					final LongWritable key = new LongWritable();
+					final BytesWritable rev = new BytesWritable();
+					for (int i = 0; i < cr.getRevisionKeysCount(); i++) {
+						// separate, not terminate, so there is one id per revision key
+						if (i > 0)
+							ids.append('\n');
+						key.set(cr.getRevisionKeys(i));
+						if (commitMap.get(key, rev) != null) {
+							final CodedInputStream _stream = CodedInputStream.newInstance(rev.getBytes(), 0, rev.getLength());
+							_stream.setRecursionLimit(Integer.MAX_VALUE);
+							ids.append(Revision.parseFrom(_stream).getId());
+						}
+					}
+					w.append(new LongWritable(cr.getRevisionKeys(0)), new BytesWritable(ids.toString().getBytes(StandardCharsets.UTF_8)));
+					count++;
+				}
+			}
+		} finally {
+			r.close();
+			w.close();
+			commitMap.close();
+		}
+
+		// MapFile requires sorted keys
+		final Path dir = new Path(base + "/revid");
+		final SequenceFile.Sorter sorter = new SequenceFile.Sorter(fs, LongWritable.class, BytesWritable.class, conf);
+		sorter.sort(new Path[] { unsorted }, new Path(dir, MapFile.DATA_FILE_NAME), true);
+		MapFile.fix(fs, dir, LongWritable.class, BytesWritable.class, false, conf);
+		fs.close();
+		System.out.println("Indexed revision ids of " + count + " repositories");
+	}
+}
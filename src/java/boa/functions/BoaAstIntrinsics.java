@@ -18,6 +18,7 @@
 package boa.functions;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -30,6 +31,7 @@ import java.util.Stack;
 import org.apache.commons.lang.SerializationUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
@@ -53,6 +55,9 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import boa.datagen.DefaultProperties;
 import boa.datagen.util.JavaErrorCheckVisitor;
 import boa.datagen.util.JavaVisitor;
+import boa.io.BlobPackReader;
+import boa.io.BlobPackWriter;
+import boa.runtime.Metrics;
 import boa.types.Ast.*;
 import boa.types.Ast.Expression.ExpressionKind;
 import boa.types.Code.CodeRepository;
@@ -72,7 +77,23 @@ import boa.types.Toplevel.Project;
 public class BoaAstIntrinsics {
 	@SuppressWarnings("rawtypes")
 	static Context context;
-	private static MapFile.Reader map, commitsMap, reposMap, commentsMap, issuesMap, refactoringsMap, refactoringIdsMap;
+	private static MapFile.Reader map, commitsMap, reposMap, commentsMap, issuesMap, refactoringsMap, refactoringIdsMap, astCacheMap, revisionIdsMap;
+	private static boolean astCacheMapMissing = false, revisionIdsMapMissing = false;
+	private static boolean lazyDecoding = false;
+
+	// Files may be visited on several threads (see boa.runtime.FileVisitPool).
+	// A MapFile.Reader seeks, so each map is read under its own lock and only
+	// the read is serialized, not the decoding.  The commit and revid maps
+	// are read under the revision cache's lock, the repo map under repoLock.
+	// repoLock may be held while taking any of the others, never the reverse.
+	private static final Object mapLock = new Object();
+	private static final Object astCacheMapLock = new Object();
+	private static final Object commentsMapLock = new Object();
+	private static final Object issuesMapLock = new Object();
+	private static final Object refactoringsMapLock = new Object();
+	private static final Object refactoringIdsMapLock = new Object();
+	private static final Object repoLock = new Object();
+	private static final Object repoPackLock = new Object();
 
 	private static final Revision emptyRevision;
 	static {
@@ -94,6 +115,33 @@ public class BoaAstIntrinsics {
 		GETS_ATTEMPTED, GETS_SUCCEED, GETS_FAILED, GETS_FAIL_MISSING, GETS_FAIL_BADPROTOBUF, GETS_FAIL_BADLOC,
 	};
 
+	public static enum ASTCACHECOUNTER {
+		MEMORY_HITS, MAP_HITS, PARSES, BYTES_HELD,
+	};
+
+	public static enum REVISIONCACHECOUNTER {
+		HITS, MISSES, PREFETCHED, BYTES_HELD,
+	};
+
+	/**
+	 * Roughly how many bytes of heap a decoded ASTRoot takes for each byte of
+	 * its serialized form.  Decoding the ASTs in test/datagen/test_datagen
+	 * takes about 19.
+	 */
+	private static final long AST_HEAP_FACTOR = 20;
+
+	/**
+	 * In-process tier of the parsed AST cache, keyed by git object id and
+	 * bounded by an estimate of the heap the cached ASTs take
+	 * (boa.ast.cache.size, in bytes).
+	 */
+	private static final LRUCache<String, ASTRoot> astCache = new LRUCache<String, ASTRoot>(128 * 1024 * 1024) {
+		@Override
+		protected long sizeOf(final String key, final ASTRoot value) {
+			return AST_HEAP_FACTOR * LazyDecoder.serializedSize(value);
+		}
+	};
+
 	@FunctionSpec(name = "url", returnType = "string", formalParameters = { "ChangedFile" })
 	public static String changedfileToString(final ChangedFile f) {
 		return f.getKey() + "!!" + f.getName();
@@ -109,11 +157,23 @@ public class BoaAstIntrinsics {
 	 * @param f the ChangedFile to get a snapshot of the AST for
 	 * @return the AST, or an empty AST on any sort of error
 	 */
-	@SuppressWarnings("unchecked")
 	@FunctionSpec(name = "getast", returnType = "ASTRoot", formalParameters = { "ChangedFile" })
 	public static ASTRoot getast(ChangedFile f) {
+		final long start = Metrics.begin(Metrics.Family.AST_FETCH);
+		try {
+			return fetchAst(f);
+		} finally {
+			Metrics.end(Metrics.Family.AST_FETCH, start);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ASTRoot fetchAst(ChangedFile f) {
 		context.getCounter(ASTCOUNTER.GETS_ATTEMPTED).increment(1);
 
+		// graphs of the previous file's methods are no longer needed
+		BoaGraphIntrinsics.clearGraphCache();
+
 		// check new model
 		if (f.hasRepoKey() && f.hasObjectId()) {
 			ASTRoot r = getASTRoot(f);
@@ -121,19 +181,19 @@ public class BoaAstIntrinsics {
 				return r;
 			System.err.print(" [New Model Getast] ");
 		} else {
-			if (map == null)
-				openMap();
-
 			try {
 				final BytesWritable value = new BytesWritable();
-				if (map.get(new LongWritable(f.getKey()), value) == null) {
+				final boolean found;
+				synchronized (mapLock) {
+					if (map == null)
+						openMap();
+					found = map.get(new LongWritable(f.getKey()), value) != null;
+				}
+				if (!found) {
 					context.getCounter(ASTCOUNTER.GETS_FAIL_MISSING).increment(1);
 				} else {
-					final CodedInputStream _stream = CodedInputStream.newInstance(value.getBytes(), 0,
-							value.getLength());
-					// defaults to 64, really big ASTs require more
-					_stream.setRecursionLimit(Integer.MAX_VALUE);
-					final ASTRoot root = ASTRoot.parseFrom(_stream);
+					Metrics.bytes(Metrics.Family.AST_FETCH, value.getLength());
+					final ASTRoot root = decodeAst(value);
 					context.getCounter(ASTCOUNTER.GETS_SUCCEED).increment(1);
 					return root;
 				}
@@ -167,18 +227,98 @@ public class BoaAstIntrinsics {
 		return getast(f).getAstCount();
 	}
 
+	@SuppressWarnings("unchecked")
 	public static ASTRoot getASTRoot(ChangedFile f) {
 		// if ChangedFile contains ast root
 		if (f.hasRoot())
 			return f.getRoot();
-		return getASTRoot(getContent(f));
+		if (!f.hasObjectId() || f.getObjectId().startsWith("BOA_DELETED_FILE"))
+			return getASTRoot(getContent(f));
+
+		// the same blob shows up in many revisions, so only parse it once
+		final String oid = f.getObjectId();
+		ASTRoot root;
+		synchronized (astCache) {
+			root = astCache.get(oid);
+		}
+		if (root != null) {
+			context.getCounter(ASTCACHECOUNTER.MEMORY_HITS).increment(1);
+			return root;
+		}
+
+		root = getCachedASTRoot(oid);
+		if (root != null) {
+			context.getCounter(ASTCACHECOUNTER.MAP_HITS).increment(1);
+		} else {
+			root = getASTRoot(getContent(f));
+			context.getCounter(ASTCACHECOUNTER.PARSES).increment(1);
+		}
+
+		if (root != emptyAst) {
+			synchronized (astCache) {
+				astCache.put(oid, root);
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Looks up a pre-parsed AST in the persistent <code>astcache</code> map,
+	 * which is keyed by git object id.
+	 *
+	 * @param oid the object id of the blob
+	 * @return the AST, or <code>null</code> if the blob is not in the map
+	 */
+	private static ASTRoot getCachedASTRoot(final String oid) {
+		try {
+			final BytesWritable value = new BytesWritable();
+			final boolean found;
+			synchronized (astCacheMapLock) {
+				if (astCacheMap == null) {
+					if (astCacheMapMissing)
+						return null;
+					openASTCacheMap();
+					if (astCacheMap == null) {
+						astCacheMapMissing = true;
+						return null;
+					}
+				}
+				found = astCacheMap.get(new Text(oid), value) != null;
+			}
+			if (found) {
+				Metrics.bytes(Metrics.Family.AST_FETCH, value.getLength());
+				return decodeAst(value);
+			}
+		} catch (final Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the capacity of the in-process AST cache, in estimated bytes of heap.
+	 *
+	 * @param bytes the capacity of the cache
+	 */
+	public static void setASTCacheSize(final long bytes) {
+		astCache.setCapacity(bytes);
 	}
 
 	public static final ASTRoot getASTRoot(final String content) {
+		final long start = Metrics.begin(Metrics.Family.AST_PARSE);
+		try {
+			return parseASTRoot(content);
+		} finally {
+			Metrics.end(Metrics.Family.AST_PARSE, start);
+		}
+	}
+
+	private static ASTRoot parseASTRoot(final String content) {
 		if (content == null) {
 			System.err.print(" [Null Content] ");
 			return emptyAst;
 		}
+		Metrics.bytes(Metrics.Family.AST_PARSE, content.length());
 		try {
 			final org.eclipse.jdt.core.dom.ASTParser parser = org.eclipse.jdt.core.dom.ASTParser.newParser(AST.JLS8);
 			parser.setKind(org.eclipse.jdt.core.dom.ASTParser.K_COMPILATION_UNIT);
@@ -222,6 +362,9 @@ public class BoaAstIntrinsics {
 	private static long currentRepoKey = Long.MIN_VALUE;
 	private static Repository currentStoredRepository = null;
 
+	private static boolean useRepoPack = false;
+	private static BlobPackReader repoPack = null;
+
 	@FunctionSpec(name = "getcontent", returnType = "string", formalParameters = { "ChangedFile" })
 	public static String getContent(ChangedFile f) {
 		if (f.hasRepoKey() && f.hasObjectId()) {
@@ -229,21 +372,39 @@ public class BoaAstIntrinsics {
 				System.err.println(" [BOA_DELETED_FILE] ");
 				return null;
 			}
+			if (useRepoPack)
+				return getContentFromRepoPack(f.getObjectId());
+			return getContentFromRepo(f);
+		}
+		System.err.print(" [No reposkey or objectid] ");
+		return null;
+	}
+
+	// the stored repository is swapped when the repo key changes, so it is
+	// only used under repoLock
+	private static String getContentFromRepo(final ChangedFile f) {
+		synchronized (repoLock) {
 			if (f.getRepoKey() != currentRepoKey || currentStoredRepository == null) {
 				currentRepoKey = f.getRepoKey();
-				BytesWritable value = getValueFromRepoMap(f);
-				if (value != null) {
-					ByteArrayFile file = (ByteArrayFile) SerializationUtils.deserialize(value.getBytes());
-					try {
+				final long start = Metrics.begin(Metrics.Family.REPO_LOAD);
+				try {
+					BytesWritable value = getValueFromRepoMap(f);
+					if (value != null) {
+						Metrics.bytes(Metrics.Family.REPO_LOAD, value.getLength());
+						ByteArrayFile file = (ByteArrayFile) SerializationUtils.deserialize(value.getBytes());
+						try {
+							cleanup(null);
+							currentStoredRepository = new ByteArrayRepositoryBuilder().setGitDir(file).build();
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
+					} else {
+						System.err.print(" [Repo Map Value Null] ");
 						cleanup(null);
-						currentStoredRepository = new ByteArrayRepositoryBuilder().setGitDir(file).build();
-					} catch (IOException e) {
-						e.printStackTrace();
+						return null;
 					}
-				} else {
-					System.err.print(" [Repo Map Value Null] ");
-					cleanup(null);
-					return null;
+				} finally {
+					Metrics.end(Metrics.Family.REPO_LOAD, start);
 				}
 			}
 			try {
@@ -251,16 +412,57 @@ public class BoaAstIntrinsics {
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
+			return null;
+		}
+	}
+
+	/**
+	 * Reads a single blob from the memory-mapped <code>repopack</code> store,
+	 * without loading the rest of its repository.
+	 *
+	 * @param oid the object id of the blob
+	 * @return the content of the blob, or <code>null</code> on any sort of error
+	 */
+	@SuppressWarnings("unchecked")
+	private static String getContentFromRepoPack(final String oid) {
+		// the reader is safe to share, so only opening it is locked
+		final BlobPackReader pack;
+		synchronized (repoPackLock) {
+			if (repoPack == null)
+				openRepoPack();
+			pack = repoPack;
+		}
+		if (pack == null) {
+			System.err.print(" [Repo Pack Missing] ");
+			return null;
+		}
+
+		final long start = Metrics.begin(Metrics.Family.REPO_LOAD);
+		try {
+			final byte[] content = pack.get(oid);
+			if (content == null) {
+				context.getCounter(ASTCOUNTER.GETS_FAIL_MISSING).increment(1);
+				return null;
+			}
+			Metrics.bytes(Metrics.Family.REPO_LOAD, content.length);
+			context.getCounter(ASTCOUNTER.GETS_SUCCEED).increment(1);
+			return new String(content);
+		} catch (final IOException e) {
+			e.printStackTrace();
+			context.getCounter(ASTCOUNTER.GETS_FAIL_BADPROTOBUF).increment(1);
+		} finally {
+			Metrics.end(Metrics.Family.REPO_LOAD, start);
 		}
-		System.err.print(" [No reposkey or objectid] ");
 		return null;
 	}
 
 	@FunctionSpec(name = "closerepo")
 	public static void closeRepo() {
-		if (currentStoredRepository != null) {
-			currentStoredRepository.close();
-			currentStoredRepository = null;
+		synchronized (repoLock) {
+			if (currentStoredRepository != null) {
+				currentStoredRepository.close();
+				currentStoredRepository = null;
+			}
 		}
 	}
 
@@ -298,8 +500,14 @@ public class BoaAstIntrinsics {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	public static final BytesWritable getValueFromRepoMap(ChangedFile f) {
+		synchronized (repoLock) {
+			return readRepoMap(f);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static BytesWritable readRepoMap(final ChangedFile f) {
 		if (reposMap == null)
 			openRepoMap();
 		try {
@@ -327,8 +535,182 @@ public class BoaAstIntrinsics {
 		return null;
 	}
 
+	private static final int REVISION_READ_AHEAD = 16;
+
+	/**
+	 * Decoded revisions of the current repository, bounded by their serialized size.
+	 * Its lock also guards the read-ahead state and the commit and revid maps.
+	 */
+	private static final LRUCache<Long, Revision> revisionCache = new LRUCache<Long, Revision>(32 * 1024 * 1024) {
+		@Override
+		protected long sizeOf(final Long key, final Revision value) {
+			return LazyDecoder.serializedSize(value);
+		}
+	};
+	private static CodeRepository revisionCacheRepo = null;
+	private static int lastRevisionIndex = -2;
+
+	/**
+	 * Given a CodeRepository and a revision offset, return the revision.
+	 * Revisions are cached until the repository changes, and when revisions
+	 * are requested in order the following revisions are read ahead from the
+	 * commit map while it is positioned right before them.
+	 *
+	 * @param cr the CodeRepository
+	 * @param index the offset of the revision
+	 * @return the revision, or an empty revision on any sort of error
+	 */
+	static Revision getRevision(final CodeRepository cr, final int index) {
+		final long start = Metrics.begin(Metrics.Family.REVISION_FETCH);
+		try {
+			synchronized (revisionCache) {
+				if (cr != revisionCacheRepo) {
+					clearRevisionCache();
+					revisionCacheRepo = cr;
+					lastRevisionIndex = -2;
+				}
+
+				final long key = cr.getRevisionKeys(index);
+				final boolean sequential = index == lastRevisionIndex + 1;
+				lastRevisionIndex = index;
+
+				final boolean cached = revisionCache.containsKey(key);
+				final Revision r = getRevision(key);
+				if (!cached && sequential && r != emptyRevision)
+					readAheadRevisions(cr, index + 1);
+				return r;
+			}
+		} finally {
+			Metrics.end(Metrics.Family.REVISION_FETCH, start);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void readAheadRevisions(final CodeRepository cr, final int from) {
+		final int to = Math.min(cr.getRevisionKeysCount(), from + REVISION_READ_AHEAD);
+		try {
+			final LongWritable k = new LongWritable();
+			final BytesWritable value = new BytesWritable();
+			for (int i = from; i < to; i++) {
+				final long key = cr.getRevisionKeys(i);
+				if (revisionCache.containsKey(key) || !commitsMap.next(k, value) || k.get() != key)
+					return;
+
+				Metrics.bytes(Metrics.Family.REVISION_FETCH, value.getLength());
+				cacheRevision(key, decodeRevision(value));
+				context.getCounter(REVISIONCACHECOUNTER.PREFETCHED).increment(1);
+			}
+		} catch (final Exception e) {
+			// read-ahead is only an optimization, the next get will retry
+		}
+	}
+
+	private static void cacheRevision(final long key, final Revision r) {
+		revisionCache.put(key, r);
+	}
+
+	private static void clearRevisionCache() {
+		revisionCache.clear();
+	}
+
+	private static CodeRepository revisionIdsRepo = null;
+	private static Map<String, Integer> revisionIds = null;
+
+	/**
+	 * Given a CodeRepository and a revision id, return the offset of that
+	 * revision.  The id to offset table of the repository is read from the
+	 * <code>revid</code> map when present and otherwise built once from the
+	 * revisions, so repeated lookups are constant time.
+	 *
+	 * @param cr the CodeRepository
+	 * @param id the revision id
+	 * @return the offset of the revision, or -1 if there is no such revision
+	 */
+	public static int getRevisionIndex(final CodeRepository cr, final String id) {
+		synchronized (revisionCache) {
+			if (cr != revisionIdsRepo) {
+				revisionIds = readRevisionIds(cr);
+				revisionIdsRepo = cr;
+			}
+			final Integer index = revisionIds.get(id);
+			return index == null ? -1 : index;
+		}
+	}
+
+	private static Map<String, Integer> readRevisionIds(final CodeRepository cr) {
+		final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+		if (cr.getRevisionKeysCount() == 0) {
+			for (int i = 0; i < cr.getRevisionsCount(); i++)
+				putFirst(ids, cr.getRevisions(i).getId(), i);
+			return ids;
+		}
+
+		final int count = cr.getRevisionKeysCount();
+		final String[] stored = getStoredRevisionIds(cr.getRevisionKeys(0));
+		if (stored != null && stored.length == count) {
+			for (int i = 0; i < count; i++)
+				putFirst(ids, stored[i], i);
+			return ids;
+		}
+
+		// in offset order, so the revisions are read ahead
+		for (int i = 0; i < cr.getRevisionKeysCount(); i++)
+			putFirst(ids, getRevision(cr, i).getId(), i);
+		return ids;
+	}
+
+	// the first match wins, as in a linear scan
+	private static void putFirst(final Map<String, Integer> ids, final String id, final int index) {
+		if (!ids.containsKey(id))
+			ids.put(id, index);
+	}
+
+	private static String[] getStoredRevisionIds(final long firstKey) {
+		if (revisionIdsMap == null) {
+			if (revisionIdsMapMissing)
+				return null;
+			openRevisionIdsMap();
+			if (revisionIdsMap == null) {
+				revisionIdsMapMissing = true;
+				return null;
+			}
+		}
+
+		try {
+			final BytesWritable value = new BytesWritable();
+			if (revisionIdsMap.get(new LongWritable(firstKey), value) != null)
+				return new String(value.getBytes(), 0, value.getLength(), StandardCharsets.UTF_8).split("\n", -1);
+		} catch (final Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
 	@SuppressWarnings("unchecked")
 	static Revision getRevision(long key) {
+		final long start = Metrics.begin(Metrics.Family.REVISION_FETCH);
+		try {
+			synchronized (revisionCache) {
+				final Revision cached = revisionCache.get(key);
+				if (cached != null) {
+					context.getCounter(REVISIONCACHECOUNTER.HITS).increment(1);
+					return cached;
+				}
+				context.getCounter(REVISIONCACHECOUNTER.MISSES).increment(1);
+
+				final Revision r = readRevision(key);
+				if (r != emptyRevision)
+					cacheRevision(key, r);
+				return r;
+			}
+		} finally {
+			Metrics.end(Metrics.Family.REVISION_FETCH, start);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Revision readRevision(long key) {
 		context.getCounter(COMMITCOUNTER.GETS_ATTEMPTED).increment(1);
 
 		if (commitsMap == null)
@@ -339,10 +721,8 @@ public class BoaAstIntrinsics {
 			if (commitsMap.get(new LongWritable(key), value) == null) {
 				context.getCounter(COMMITCOUNTER.GETS_FAIL_MISSING).increment(1);
 			} else {
-				final CodedInputStream _stream = CodedInputStream.newInstance(value.getBytes(), 0, value.getLength());
-				// defaults to 64, really big ASTs require more
-				_stream.setRecursionLimit(Integer.MAX_VALUE);
-				final Revision root = Revision.parseFrom(_stream);
+				Metrics.bytes(Metrics.Family.REVISION_FETCH, value.getLength());
+				final Revision root = decodeRevision(value);
 				context.getCounter(COMMITCOUNTER.GETS_SUCCEED).increment(1);
 				return root;
 			}
@@ -365,6 +745,30 @@ public class BoaAstIntrinsics {
 		return emptyRevision;
 	}
 
+	/**
+	 * Decodes a serialized AST, lazily if the job asked for it.
+	 */
+	private static ASTRoot decodeAst(final BytesWritable value) throws IOException {
+		if (lazyDecoding)
+			return LazyDecoder.decode(ASTRoot.getDefaultInstance(), value.getBytes(), value.getLength());
+		final CodedInputStream _stream = CodedInputStream.newInstance(value.getBytes(), 0, value.getLength());
+		// defaults to 64, really big ASTs require more
+		_stream.setRecursionLimit(Integer.MAX_VALUE);
+		return ASTRoot.parseFrom(_stream);
+	}
+
+	/**
+	 * Decodes a serialized revision, lazily if the job asked for it.
+	 */
+	private static Revision decodeRevision(final BytesWritable value) throws IOException {
+		if (lazyDecoding)
+			return LazyDecoder.decode(Revision.getDefaultInstance(), value.getBytes(), value.getLength());
+		final CodedInputStream _stream = CodedInputStream.newInstance(value.getBytes(), 0, value.getLength());
+		// defaults to 64, really big ASTs require more
+		_stream.setRecursionLimit(Integer.MAX_VALUE);
+		return Revision.parseFrom(_stream);
+	}
+
 	/**
 	 * Given a ChangedFile, return the comments for that file at that revision.
 	 *
@@ -382,12 +786,15 @@ public class BoaAstIntrinsics {
 
 		final String rowName = f.getKey() + "!!" + f.getName();
 
-		if (commentsMap == null)
-			openCommentMap();
-
 		try {
 			final BytesWritable value = new BytesWritable();
-			if (commentsMap.get(new Text(rowName), value) != null) {
+			final boolean found;
+			synchronized (commentsMapLock) {
+				if (commentsMap == null)
+					openCommentMap();
+				found = commentsMap.get(new Text(rowName), value) != null;
+			}
+			if (found) {
 				final CodedInputStream _stream = CodedInputStream.newInstance(value.getBytes(), 0, value.getLength());
 				final CommentsRoot root = CommentsRoot.parseFrom(_stream);
 				return root;
@@ -414,12 +821,15 @@ public class BoaAstIntrinsics {
 	 */
 	@FunctionSpec(name = "getissues", returnType = "IssuesRoot", formalParameters = { "IssueRepository" })
 	public static IssuesRoot getissues(final IssueRepository f) {
-		if (issuesMap == null)
-			openIssuesMap();
-
 		try {
 			final BytesWritable value = new BytesWritable();
-			if (issuesMap.get(new Text(f.getKey()), value) != null) {
+			final boolean found;
+			synchronized (issuesMapLock) {
+				if (issuesMap == null)
+					openIssuesMap();
+				found = issuesMap.get(new Text(f.getKey()), value) != null;
+			}
+			if (found) {
 				final CodedInputStream _stream = CodedInputStream.newInstance(value.getBytes(), 0, value.getLength());
 				final IssuesRoot root = IssuesRoot.parseFrom(_stream);
 				return root;
@@ -441,18 +851,28 @@ public class BoaAstIntrinsics {
 	@SuppressWarnings("rawtypes")
 	public static void setup(final Context context) {
 		BoaAstIntrinsics.context = context;
+		if (context != null) {
+			setASTCacheSize(context.getConfiguration().getLong("boa.ast.cache.size", astCache.getCapacity()));
+			useRepoPack = "pack".equals(context.getConfiguration().get("boa.repo.format", "map"));
+			lazyDecoding = context.getConfiguration().getBoolean("boa.decode.lazy", false);
+			revisionCache.setCapacity(context.getConfiguration().getLong("boa.revision.cache.size", revisionCache.getCapacity()));
+			BoaGraphIntrinsics.setGraphCacheSize(context.getConfiguration().getLong("boa.graph.cache.size", BoaGraphIntrinsics.getGraphCacheSize()));
+		}
 	}
 	
 	@FunctionSpec(name = "get_code_change", returnType = "Change", formalParameters = { "Project",
 			"Revision" })
 	public static boa.types.Code.Change getCodeChange(Project p, Revision r) {
 
-		if (refactoringsMap == null)
-			openRefactoringMap();
-
 		try {
 			final BytesWritable value = new BytesWritable();
-			if (refactoringsMap.get(new Text(p.getName() + " " + r.getId()), value) != null) {
+			final boolean found;
+			synchronized (refactoringsMapLock) {
+				if (refactoringsMap == null)
+					openRefactoringMap();
+				found = refactoringsMap.get(new Text(p.getName() + " " + r.getId()), value) != null;
+			}
+			if (found) {
 				final CodedInputStream _stream = CodedInputStream.newInstance(value.getBytes(), 0, value.getLength());
 				// defaults to 64, really big ASTs require more
 				_stream.setRecursionLimit(Integer.MAX_VALUE);
@@ -493,7 +913,12 @@ public class BoaAstIntrinsics {
 	
 	@FunctionSpec(name = "getrefactoringids", returnType = "array of string", formalParameters = { "Project" })
 	public static String[] getRefactoringIds(Project p) {
-	
+		synchronized (refactoringIdsMapLock) {
+			return readRefactoringIds(p);
+		}
+	}
+
+	private static String[] readRefactoringIds(final Project p) {
 		if (refactoringIdsMap == null)
 			openRefactoringIdMap();
 		
@@ -551,6 +976,84 @@ public class BoaAstIntrinsics {
 		}
 	}
 
+	private static void openASTCacheMap() {
+		try {
+			final Configuration conf = context.getConfiguration();
+			final FileSystem fs;
+			final Path p;
+			if (DefaultProperties.localDataPath != null) {
+				p = new Path(DefaultProperties.localDataPath, "astcache");
+				fs = FileSystem.getLocal(conf);
+			} else {
+				p = new Path(context.getConfiguration().get("fs.default.name", "hdfs://boa-njt/"), new Path(
+						conf.get("boa.ast.dir", conf.get("boa.input.dir", "repcache/live")), new Path("astcache")));
+				fs = FileSystem.get(conf);
+			}
+			if (fs.exists(p))
+				astCacheMap = new MapFile.Reader(fs, p.toString(), conf);
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void openRevisionIdsMap() {
+		try {
+			final Configuration conf = context.getConfiguration();
+			final FileSystem fs;
+			final Path p;
+			if (DefaultProperties.localDataPath != null) {
+				p = new Path(DefaultProperties.localDataPath, "revid");
+				fs = FileSystem.getLocal(conf);
+			} else {
+				p = new Path(context.getConfiguration().get("fs.default.name", "hdfs://boa-njt/"), new Path(
+						conf.get("boa.ast.dir", conf.get("boa.input.dir", "repcache/live")), new Path("revid")));
+				fs = FileSystem.get(conf);
+			}
+			if (fs.exists(p))
+				revisionIdsMap = new MapFile.Reader(fs, p.toString(), conf);
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void openRepoPack() {
+		try {
+			final Configuration conf = context.getConfiguration();
+			final File dir;
+			if (DefaultProperties.localDataPath != null) {
+				dir = new File(DefaultProperties.localDataPath, "repopack");
+			} else {
+				// the pack is mapped from a node-local copy, shared by every task on the node
+				final Path p = new Path(context.getConfiguration().get("fs.default.name", "hdfs://boa-njt/"), new Path(
+						conf.get("boa.ast.dir", conf.get("boa.input.dir", "repcache/live")), new Path("repopack")));
+				final FileSystem fs = FileSystem.get(conf);
+				dir = new File(conf.get("boa.repo.pack.local.dir", System.getProperty("java.io.tmpdir")), "boa-repopack-" + Math.abs(p.toString().hashCode()));
+				if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory())
+					throw new IOException("unable to mkdir " + dir);
+				for (final String name : new String[] { BlobPackWriter.INDEX_FILE_NAME, BlobPackWriter.DATA_FILE_NAME }) {
+					final File local = new File(dir, name);
+					final Path remote = new Path(p, name);
+					final long length = fs.getFileStatus(remote).getLen();
+					if (!local.exists() || local.length() != length) {
+						// copy next to it and rename, so other tasks on the node never map a partial copy
+						final File tmp = new File(dir, name + "." + System.nanoTime());
+						FileUtil.copy(fs, remote, FileSystem.getLocal(conf).getRaw(), new Path(tmp.getAbsolutePath()), false, conf);
+						if (!tmp.renameTo(local)) {
+							// another task on the node may have just put its own copy there
+							tmp.delete();
+							if (!local.exists() || local.length() != length)
+								throw new IOException("unable to rename " + tmp + " to " + local);
+						}
+					}
+				}
+			}
+			repoPack = new BlobPackReader(dir);
+			System.err.println(" [open repo pack] ");
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	private static void openRepoMap() {
 		try {
 			final Configuration conf = context.getConfiguration();
@@ -629,8 +1132,18 @@ public class BoaAstIntrinsics {
 		}
 	}
 
-	@SuppressWarnings("rawtypes")
+	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public static void cleanup(final Context context) {
+		// a gauge, so report it once per task rather than as it changes
+		if (context != null) {
+			synchronized (astCache) {
+				context.getCounter(ASTCACHECOUNTER.BYTES_HELD).increment(astCache.getSize());
+			}
+			synchronized (revisionCache) {
+				context.getCounter(REVISIONCACHECOUNTER.BYTES_HELD).increment(revisionCache.getSize());
+			}
+		}
+		BoaGraphIntrinsics.clearGraphCache();
 		closeRepo();
 		closeAllMaps();
 		System.gc();
@@ -644,6 +1157,9 @@ public class BoaAstIntrinsics {
 		closeCommitsMap();
 		closeRefactoringsMap();
 		closeRefactoringIdsMap();
+		closeASTCacheMap();
+		closeRepoPack();
+		closeRevisionIdsMap();
 	}
 	
 	@FunctionSpec(name = "clean_up")
@@ -661,38 +1177,76 @@ public class BoaAstIntrinsics {
 	}
 	
 	private static void closeMap() {
-		closeMap(map);
-		map = null;
+		synchronized (mapLock) {
+			closeMap(map);
+			map = null;
+		}
 	}
 	
 	private static void closeReposMap() {
-		closeMap(reposMap);
-		reposMap = null;
+		synchronized (repoLock) {
+			closeMap(reposMap);
+			reposMap = null;
+		}
 	}
 	
 	private static void closeCommentsMap() {
-		closeMap(commentsMap);
-		commentsMap = null;
+		synchronized (commentsMapLock) {
+			closeMap(commentsMap);
+			commentsMap = null;
+		}
 	}
 	
 	private static void closeIssuesMap() {
-		closeMap(issuesMap);
-		issuesMap = null;
+		synchronized (issuesMapLock) {
+			closeMap(issuesMap);
+			issuesMap = null;
+		}
 	}
 	
 	private static void closeCommitsMap() {
-		closeMap(commitsMap);
-		commitsMap = null;
+		synchronized (revisionCache) {
+			closeMap(commitsMap);
+			commitsMap = null;
+		}
 	}
 	
 	private static void closeRefactoringsMap() {
-		closeMap(refactoringsMap);
-		refactoringsMap = null;
+		synchronized (refactoringsMapLock) {
+			closeMap(refactoringsMap);
+			refactoringsMap = null;
+		}
 	}
 	
 	private static void closeRefactoringIdsMap() {
-		closeMap(refactoringIdsMap);
-		refactoringIdsMap = null;
+		synchronized (refactoringIdsMapLock) {
+			closeMap(refactoringIdsMap);
+			refactoringIdsMap = null;
+		}
+	}
+
+	private static void closeASTCacheMap() {
+		synchronized (astCacheMapLock) {
+			closeMap(astCacheMap);
+			astCacheMap = null;
+		}
+	}
+
+	private static void closeRevisionIdsMap() {
+		synchronized (revisionCache) {
+			closeMap(revisionIdsMap);
+			revisionIdsMap = null;
+			// the next task may read another dataset, so look for the map again
+			revisionIdsMapMissing = false;
+		}
+	}
+
+	private static void closeRepoPack() {
+		synchronized (repoPackLock) {
+			if (repoPack != null)
+				repoPack.close();
+			repoPack = null;
+		}
 	}
 
 	@FunctionSpec(name = "type_name", returnType = "string", formalParameters = { "string" })
@@ -1145,7 +1699,7 @@ public class BoaAstIntrinsics {
 
 	@FunctionSpec(name = "collect_annotations", returnType = "map[string] of int", formalParameters = { "ASTRoot",
 			"map[string] of int" })
-	public static HashMap<String, Long> collect_annotations(final ASTRoot f, final HashMap<String, Long> map)
+	public static synchronized HashMap<String, Long> collect_annotations(final ASTRoot f, final HashMap<String, Long> map)
 			throws Exception {
 		annotationCollectingVisitor.initialize(map).visit(f);
 		return annotationCollectingVisitor.map;
@@ -1173,7 +1727,7 @@ public class BoaAstIntrinsics {
 
 	@FunctionSpec(name = "collect_generic_types", returnType = "map[string] of int", formalParameters = { "ASTRoot",
 			"map[string] of int" })
-	public static HashMap<String, Long> collect_generic_types(final ASTRoot f, final HashMap<String, Long> map)
+	public static synchronized HashMap<String, Long> collect_generic_types(final ASTRoot f, final HashMap<String, Long> map)
 			throws Exception {
 		genericsCollectingVisitor.initialize(map).visit(f);
 		return genericsCollectingVisitor.map;
@@ -1255,11 +1809,21 @@ public class BoaAstIntrinsics {
 		counts.put(rawType, rawCount + 1);
 	}
 
-	static int indent = 0;
+	// per thread, as files may be visited in parallel
+	private static final ThreadLocal<int[]> indent = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+
+	private static void shiftIndent(final int by) {
+		indent.get()[0] += by;
+	}
 
 	private static String indent() {
 		String s = "";
-		for (int i = 0; i < indent; i++)
+		for (int i = 0; i < indent.get()[0]; i++)
 			s += "\t";
 		return s;
 	}
@@ -1387,7 +1951,7 @@ public class BoaAstIntrinsics {
 
 		s += " {\n";
 
-		indent++;
+		shiftIndent(1);
 		for (int i = 0; i < d.getFieldsCount(); i++) {
 			s += indent() + prettyprint(d.getFieldsList().get(i));
 			s += (!d.getFieldsList().get(i).hasVariableType() && i < d.getFieldsCount() - 1
@@ -1398,7 +1962,7 @@ public class BoaAstIntrinsics {
 		for (final Declaration d2 : d.getNestedDeclarationsList())
 			s += prettyprint(d2);
 
-		indent--;
+		shiftIndent(-1);
 
 		s += indent() + "}\n";
 
@@ -1495,10 +2059,10 @@ public class BoaAstIntrinsics {
 
 		case BLOCK:
 			s += "{\n";
-			indent++;
+			shiftIndent(1);
 			for (int i = 0; i < stmt.getStatementsCount(); i++)
 				s += indent() + prettyprint(stmt.getStatements(i)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			s += indent() + "}";
 			return s;
 
@@ -1546,10 +2110,10 @@ public class BoaAstIntrinsics {
 
 		case SYNCHRONIZED:
 			s += "synchronized () {\n";
-			indent++;
+			shiftIndent(1);
 			for (int i = 0; i < stmt.getStatementsCount(); i++)
 				s += indent() + prettyprint(stmt.getStatements(i)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			s += "}";
 			return s;
 
@@ -1557,19 +2121,19 @@ public class BoaAstIntrinsics {
 			s += indent() + "catch (";
 			s += prettyprint(stmt.getVariableDeclaration());
 			s += ") {\n";
-			indent++;
+			shiftIndent(1);
 			for (int i = 0; i < stmt.getStatementsCount(); i++)
 				s += indent() + prettyprint(stmt.getStatements(i)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			s += indent() + "}";
 			return s;
 
 		case FINALLY:
 			s += indent() + "finally {\n";
-			indent++;
+			shiftIndent(1);
 			for (int i = 0; i < stmt.getStatementsCount(); i++)
 				s += indent() + prettyprint(stmt.getStatements(i)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			s += indent() + "}";
 			return s;
 
@@ -1609,9 +2173,9 @@ public class BoaAstIntrinsics {
 				}
 			}
 			s += ")\n";
-			indent++;
+			shiftIndent(1);
 			s += indent() + prettyprint(stmt.getStatements(0)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			return s;
 
 		case FOREACH:
@@ -1622,41 +2186,41 @@ public class BoaAstIntrinsics {
 
 		case DO:
 			s += "do\n";
-			indent++;
+			shiftIndent(1);
 			for (int i = 0; i < stmt.getStatementsCount(); i++)
 				s += indent() + prettyprint(stmt.getStatements(i)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			s += indent() + "while (" + prettyprint(stmt.getConditions(0)) + ");";
 			return s;
 
 		case WHILE:
 			s += "while (" + prettyprint(stmt.getConditions(0)) + ") {\n";
-			indent++;
+			shiftIndent(1);
 			for (int i = 0; i < stmt.getStatementsCount(); i++)
 				s += indent() + prettyprint(stmt.getStatements(i)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			s += indent() + "}";
 			return s;
 
 		case IF:
 			s += "if (" + prettyprint(stmt.getConditions(0)) + ")\n";
-			indent++;
+			shiftIndent(1);
 			s += indent() + prettyprint(stmt.getStatements(0)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			if (stmt.getStatementsCount() > 1) {
 				s += indent() + "else\n";
-				indent++;
+				shiftIndent(1);
 				s += indent() + prettyprint(stmt.getStatements(1)) + "\n";
-				indent--;
+				shiftIndent(-1);
 			}
 			return s;
 
 		case SWITCH:
 			s += "switch (" + prettyprint(stmt.getExpressions(0)) + ") {\n";
-			indent++;
+			shiftIndent(1);
 			for (int i = 0; i < stmt.getStatementsCount(); i++)
 				s += indent() + prettyprint(stmt.getStatements(i)) + "\n";
-			indent--;
+			shiftIndent(-1);
 			s += indent() + "}";
 			return s;
 
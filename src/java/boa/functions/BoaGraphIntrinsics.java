@@ -32,6 +32,7 @@ import boa.types.Ast.Method;
 import boa.types.Ast.Variable;
 import boa.types.Control.Node;
 import boa.runtime.BoaAbstractTraversal;
+import boa.runtime.Metrics;
 
 /**
  * Boa functions for working with control flow graphs.
@@ -43,44 +44,115 @@ import boa.runtime.BoaAbstractTraversal;
  * @author marafat
  */
 public class BoaGraphIntrinsics {
+	public static enum GRAPHCACHECOUNTER {
+		HITS, MISSES, CLEARS,
+	};
+
+	private static volatile long graphCacheSize = 256 * 1024;
+
+	/**
+	 * Graphs built for the methods of the current changed file, shared by
+	 * the graph intrinsics below.  Each thread has its own, as files may be
+	 * visited in parallel.
+	 */
+	private static final ThreadLocal<GraphCache> graphCache = new ThreadLocal<GraphCache>() {
+		@Override
+		protected GraphCache initialValue() {
+			return new GraphCache(graphCacheSize);
+		}
+	};
+
+	public static long getGraphCacheSize() {
+		return graphCacheSize;
+	}
+
+	public static void setGraphCacheSize(final long nodes) {
+		graphCacheSize = nodes;
+		graphCache.get().setCapacity(nodes);
+	}
+
+	static void clearGraphCache() {
+		graphCache.get().clear();
+	}
+
 	@FunctionSpec(name = "getcfg", returnType = "CFG", formalParameters = { "Method" })
 	public static CFG getcfg(final Method method) {
-		return new CFG(method).get();
+		final long start = Metrics.begin(Metrics.Family.GRAPH_BUILD);
+		try {
+			return graphCache.get().getCFG(method, false);
+		} finally {
+			Metrics.end(Metrics.Family.GRAPH_BUILD, start);
+		}
 	}
 
 	@FunctionSpec(name = "getpdtree", returnType = "PDTree", formalParameters = { "Method" })
 	public static PDTree getpdtree(final Method method) throws Exception {
-		return new PDTree(method);
+		final long start = Metrics.begin(Metrics.Family.GRAPH_BUILD);
+		try {
+			return graphCache.get().getPDTree(method);
+		} finally {
+			Metrics.end(Metrics.Family.GRAPH_BUILD, start);
+		}
 	}
 
 	@FunctionSpec(name = "getcdg", returnType = "CDG", formalParameters = { "Method" })
 	public static CDG getcdg(final Method method) throws Exception {
-		return new CDG(method);
+		final long start = Metrics.begin(Metrics.Family.GRAPH_BUILD);
+		try {
+			return graphCache.get().getCDG(method, false);
+		} finally {
+			Metrics.end(Metrics.Family.GRAPH_BUILD, start);
+		}
 	}
 
 	@FunctionSpec(name = "getcdg", returnType = "CDG", formalParameters = { "CFG" })
 	public static CDG getcdg(final CFG cfg) throws Exception {
-		return new CDG(cfg);
+		final long start = Metrics.begin(Metrics.Family.GRAPH_BUILD);
+		try {
+			return graphCache.get().getCDG(cfg);
+		} finally {
+			Metrics.end(Metrics.Family.GRAPH_BUILD, start);
+		}
 	}
 
 	@FunctionSpec(name = "getddg", returnType = "DDG", formalParameters = { "Method" })
 	public static DDG getddg(final Method method) throws Exception {
-		return new DDG(method);
+		final long start = Metrics.begin(Metrics.Family.GRAPH_BUILD);
+		try {
+			return graphCache.get().getDDG(method, false);
+		} finally {
+			Metrics.end(Metrics.Family.GRAPH_BUILD, start);
+		}
 	}
 
 	@FunctionSpec(name = "getddg", returnType = "DDG", formalParameters = { "CFG" })
 	public static DDG getddg(final CFG cfg) throws Exception {
-		return new DDG(cfg);
+		final long start = Metrics.begin(Metrics.Family.GRAPH_BUILD);
+		try {
+			return graphCache.get().getDDG(cfg);
+		} finally {
+			Metrics.end(Metrics.Family.GRAPH_BUILD, start);
+		}
 	}
 
 	@FunctionSpec(name = "getpdg", returnType = "PDG", formalParameters = { "Method" })
 	public static PDG getpdg(final Method method) throws Exception {
-		return new PDG(method);
+		final long start = Metrics.begin(Metrics.Family.GRAPH_BUILD);
+		try {
+			return graphCache.get().getPDG(method, false);
+		} finally {
+			Metrics.end(Metrics.Family.GRAPH_BUILD, start);
+		}
 	}
 
 	@FunctionSpec(name = "getpdg", returnType = "PDG", formalParameters = { "Method", "bool" })
 	public static PDG getpdg(final Method method, boolean paramAsStatement) throws Exception {
-		return new PDG(method, paramAsStatement);
+		final long start = Metrics.begin(Metrics.Family.GRAPH_BUILD);
+		try {
+			return graphCache.get().getPDG(method, paramAsStatement);
+		} finally {
+			Metrics.end(Metrics.Family.GRAPH_BUILD, start);
+		}
 	}
 
 	@FunctionSpec(name = "getcfgslice", returnType = "CFGSlicer", formalParameters = { "Method", "int" })
@@ -21,13 +21,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import boa.runtime.Metrics;
 import boa.types.Ast.ASTRoot;
 import boa.types.Code.CodeRepository;
 import boa.types.Code.Revision;
@@ -75,11 +75,7 @@ public class BoaIntrinsics {
 	}
 
 	private static int getRevisionIndex(final CodeRepository cr, final String id) {
-		for (int i = 0; i < getRevisionsCount(cr); i++) {
-			if (getRevision(cr, i).getId().equals(id))
-				return i;
-		}
-		return -1;
+		return BoaAstIntrinsics.getRevisionIndex(cr, id);
 	}
 
 	@FunctionSpec(name = "getrevisionscount", returnType = "int", formalParameters = { "CodeRepository" })
@@ -89,25 +85,17 @@ public class BoaIntrinsics {
 
 	@FunctionSpec(name = "getrevision", returnType = "Revision", formalParameters = { "CodeRepository", "int" })
 	public static Revision getRevision(final CodeRepository cr, final long index) {
-		if (cr.getRevisionKeysCount() > 0) {
-			long key = cr.getRevisionKeys((int) index);
-			return BoaAstIntrinsics.getRevision(key);
-		}
+		if (cr.getRevisionKeysCount() > 0)
+			return BoaAstIntrinsics.getRevision(cr, (int) index);
 		return cr.getRevisions((int) index);
 	}
 	
 	@FunctionSpec(name = "getrevisionbyid", returnType = "Revision", formalParameters = { "CodeRepository", "string" })
 	public static Revision getRevisionById(final CodeRepository cr, final String id) {
-		for (int i = 0; i < cr.getRevisionKeysCount(); i++) {
-			long key = cr.getRevisionKeys(i);
-			Revision r = BoaAstIntrinsics.getRevision(key);
-			if (r.getId().equals(id))
-				return r;
-		}
-		for (Revision r : cr.getRevisionsList())
-			if (r.getId().equals(id))
-				return r;
-		return null;
+		final int index = getRevisionIndex(cr, id);
+		if (index < 0)
+			return null;
+		return getRevision(cr, index);
 	}
 	
 	public static List<Revision> getParentRevisions(final CodeRepository cr, final Revision r) {
@@ -150,23 +138,12 @@ public class BoaIntrinsics {
 	public static ChangedFile[] getSnapshotByIndex(final CodeRepository cr, final long commitOffset, final String... kinds) {
 //		if (commitOffset == cr.getHead())
 //			return getSnapshot(cr, kinds);
-		List<ChangedFile> snapshot = new LinkedList<ChangedFile>();
-		Set<String> adds = new HashSet<String>(), dels = new HashSet<String>();
-		PriorityQueue<Integer> pq = new PriorityQueue<Integer>(100, new Comparator<Integer>() {
-			@Override
-			public int compare(Integer i1, Integer i2) {
-				return i2 - i1;
-			}
-		});
-		Set<Integer> queuedCommitIds = new HashSet<Integer>();
-		pq.offer((int) commitOffset);
-		queuedCommitIds.add((int) commitOffset);
-		while (!pq.isEmpty()) {
-			int offset = pq.poll();
-			Revision commit = getRevision(cr, offset);
-			update(snapshot, commit, adds, dels, pq, queuedCommitIds, kinds);
+		final long start = Metrics.begin(Metrics.Family.SNAPSHOT_BUILD);
+		try {
+			return filter(getSnapshotIndex(cr).getSnapshot((int) commitOffset), kinds);
+		} finally {
+			Metrics.end(Metrics.Family.SNAPSHOT_BUILD, start);
 		}
-		return snapshot.toArray(new ChangedFile[0]);
 	}
 
 	@FunctionSpec(name = "getsnapshot", returnType = "array of ChangedFile", formalParameters = { "CodeRepository", "Revision"})
@@ -176,105 +153,36 @@ public class BoaIntrinsics {
 
 	@FunctionSpec(name = "getsnapshot", returnType = "array of ChangedFile", formalParameters = { "CodeRepository", "Revision", "string..." })
 	public static ChangedFile[] getSnapshot(final CodeRepository cr, final Revision commit, final String... kinds) {
-		List<ChangedFile> snapshot = new LinkedList<ChangedFile>();
-		Set<String> adds = new HashSet<String>(), dels = new HashSet<String>();
-		PriorityQueue<Integer> pq = new PriorityQueue<Integer>(100, new Comparator<Integer>() {
-			@Override
-			public int compare(Integer i1, Integer i2) {
-				return i2 - i1;
-			}
-		});
-		Set<Integer> queuedCommitIds = new HashSet<Integer>();
-		update(snapshot, commit, adds, dels, pq, queuedCommitIds, kinds);
-		while (!pq.isEmpty()) {
-			int offset = pq.poll();
-			Revision c = getRevision(cr, offset);
-			update(snapshot, c, adds, dels, pq, queuedCommitIds, kinds);
-		}
-		return snapshot.toArray(new ChangedFile[0]);
-	}
-
-	private static void update(List<ChangedFile> snapshot, Revision commit, Set<String> adds, Set<String> dels,
-			PriorityQueue<Integer> pq, Set<Integer> queuedCommitIds, final String... kinds) {
-		for (final ChangedFile cf : commit.getFilesList()) {
-			ChangeKind ck = cf.getChange();
-			switch (ck) {
-			case ADDED:
-				if (!adds.contains(cf.getName()) && !dels.contains(cf.getName())) {
-					adds.add(cf.getName());
-					if (isIncluded(cf, kinds))
-						snapshot.add(cf);
-				}
-				break;
-			case COPIED:
-				if (!adds.contains(cf.getName()) && !dels.contains(cf.getName())) {
-					adds.add(cf.getName());
-					if (isIncluded(cf, kinds))
-						snapshot.add(cf);
-				}
-				break;
-			case DELETED:
-				if (!adds.contains(cf.getName()) && !dels.contains(cf.getName()))
-					dels.add(cf.getName());
-				break;
-			case MERGED:
-				if (!adds.contains(cf.getName()) && !dels.contains(cf.getName())) {
-					adds.add(cf.getName());
-					if (isIncluded(cf, kinds))
-						snapshot.add(cf);
-				}
-				for (int i = 0; i < cf.getChangesCount(); i++) {
-					if (cf.getChanges(i) != ChangeKind.ADDED) {
-						ChangeKind pck = cf.getChanges(i);
-//							ChangedFile pcf = revisions.get(cf.getPreviousVersions(i)).getFiles(cf.getPreviousIndices(i));
-//							String name = pcf.getName();
-						String name = cf.getPreviousNames(i);
-						if (name.isEmpty())
-							name = cf.getName();
-						if (!adds.contains(name) && !dels.contains(name) && (pck == ChangeKind.DELETED || pck == ChangeKind.RENAMED))
-							dels.add(name);
-					}
-				}
-				break;
-			case RENAMED:
-				if (!adds.contains(cf.getName()) && !dels.contains(cf.getName())) {
-					adds.add(cf.getName());
-					if (isIncluded(cf, kinds))
-						snapshot.add(cf);
-				}
-				for (int i = 0; i < cf.getChangesCount(); i++) {
-//						ChangedFile pcf = revisions.get(cf.getPreviousVersions(i)).getFiles(cf.getPreviousIndices(i));
-//						String name = pcf.getName();
-					if (cf.getPreviousNamesCount() != 0) {
-						String name = cf.getPreviousNames(i);
-						if (!adds.contains(name) && !dels.contains(name))
-							dels.add(name);
-					}
-				}
-				break;
-			default:
-				if (!adds.contains(cf.getName()) && !dels.contains(cf.getName())) {
-					adds.add(cf.getName());
-					if (isIncluded(cf, kinds))
-						snapshot.add(cf);
-				}
-				break;
-			}
-		}
-//		for (int p : commit.getParentsList()) {
-//			if (!queuedCommitIds.contains(p)) {
-//				pq.offer(p);
-//				queuedCommitIds.add(p);
-//			}
-//		}
-		if (commit.getParentsList() != null && commit.getParentsList().size() != 0) {
-			int p = commit.getParentsList().get(0);
-			if (!queuedCommitIds.contains(p)) {
-				pq.offer(p);
-				queuedCommitIds.add(p);
-			}
+		final long start = Metrics.begin(Metrics.Family.SNAPSHOT_BUILD);
+		try {
+			return filter(getSnapshotIndex(cr).getSnapshot(commit), kinds);
+		} finally {
+			Metrics.end(Metrics.Family.SNAPSHOT_BUILD, start);
 		}
 	}
+
+	private static SnapshotIndex snapshotIndex = null;
+
+	/**
+	 * Snapshots are built incrementally from the previous request on the same
+	 * repository, so keep the index around until the repository changes.
+	 */
+	private static SnapshotIndex getSnapshotIndex(final CodeRepository cr) {
+		if (snapshotIndex == null || !snapshotIndex.isFor(cr))
+			snapshotIndex = new SnapshotIndex(cr);
+		return snapshotIndex;
+	}
+
+	private static ChangedFile[] filter(final List<ChangedFile> snapshot, final String[] kinds) {
+		Metrics.items(Metrics.Family.SNAPSHOT_BUILD, snapshot.size());
+		if (kinds == null || kinds.length == 0)
+			return snapshot.toArray(new ChangedFile[0]);
+		final List<ChangedFile> files = new ArrayList<ChangedFile>();
+		for (final ChangedFile cf : snapshot)
+			if (isIncluded(cf, kinds))
+				files.add(cf);
+		return files.toArray(new ChangedFile[0]);
+	}
 	
 	@FunctionSpec(name = "updateastcount", returnType = "bool", formalParameters = { "ChangedFile" })
 	public static boolean updateASTCount(ChangedFile cf) {
@@ -572,6 +480,25 @@ public class BoaIntrinsics {
 		return s.peek();
 	}
 
+	public static Long stack_pop(final boa.runtime.LongDeque s) {
+		if (s.empty())
+			return null;
+		return s.pop();
+	}
+
+	public static boa.runtime.LongDeque reverse_stack(final boa.runtime.LongDeque s) {
+		final boa.runtime.LongDeque tmp = new boa.runtime.LongDeque();
+		while (!s.empty())
+			tmp.push(s.pop());
+		return tmp;
+	}
+
+	public static Long stack_peek(final boa.runtime.LongDeque s) {
+		if (s.empty())
+			return null;
+		return s.peek();
+	}
+
 	public static String protolistToString(final List<String> l) {
 		String s = "";
 		for (final String str : l)
@@ -61,7 +61,7 @@ public class BoaMetricIntrinsics {
 	 * @return the NOA value for decl
 	 */
 	@FunctionSpec(name = "get_metric_noa", returnType = "int", formalParameters = { "Declaration" })
-	public static long getMetricNOA(final Declaration node) throws Exception {
+	public static synchronized long getMetricNOA(final Declaration node) throws Exception {
 		noaVisitor.initialize().visit(node);
 		return noaVisitor.count;
 	}
@@ -88,7 +88,7 @@ public class BoaMetricIntrinsics {
 	 * @return the NOO value for decl
 	 */
 	@FunctionSpec(name = "get_metric_noo", returnType = "int", formalParameters = { "Declaration" })
-	public static long getMetricNOO(final Declaration node) throws Exception {
+	public static synchronized long getMetricNOO(final Declaration node) throws Exception {
 		nooVisitor.initialize().visit(node);
 		return nooVisitor.count;
 	}
@@ -115,7 +115,7 @@ public class BoaMetricIntrinsics {
 	 * @return the NPM value for decl
 	 */
 	@FunctionSpec(name = "get_metric_npm", returnType = "int", formalParameters = { "Declaration" })
-	public static long getMetricNPM(final Declaration node) throws Exception {
+	public static synchronized long getMetricNPM(final Declaration node) throws Exception {
 		npmVisitor.initialize().visit(node);
 		return npmVisitor.count;
 	}
@@ -183,7 +183,7 @@ public class BoaMetricIntrinsics {
 	 * @return the WMC value for node
 	 */
 	@FunctionSpec(name = "get_metric_wmc", returnType = "int", formalParameters = { "Declaration" })
-	public static long getMetricWMC(final Declaration node) throws Exception {
+	public static synchronized long getMetricWMC(final Declaration node) throws Exception {
 		wmcVisitor.initialize().visit(node);
 		return wmcVisitor.count;
 	}
@@ -376,7 +376,7 @@ public class BoaMetricIntrinsics {
 	 * @return a map mapping class full qualified name to its DIT value
 	 */
 	@FunctionSpec(name = "get_metric_dit_noc", returnType = "map[string] of array of int", formalParameters = { "array of ChangedFile" })
-	public static HashMap<String, long[]> getMetricDITNOC(final ChangedFile[] snapshot) throws Exception {
+	public static synchronized HashMap<String, long[]> getMetricDITNOC(final ChangedFile[] snapshot) throws Exception {
 		ditVisitor.process(snapshot);
 		return ditVisitor.DITNOCMap;
 	}
@@ -427,7 +427,7 @@ public class BoaMetricIntrinsics {
 	 * @return a map containing partial computation of the NOC metric
 	 */
 	@FunctionSpec(name = "get_metric_noc", returnType = "map[string] of int", formalParameters = { "map[string] of Declaration" })
-	public static HashMap<String, Long> getMetricNOC(final HashMap<String, Declaration> decls) throws Exception {
+	public static synchronized HashMap<String, Long> getMetricNOC(final HashMap<String, Declaration> decls) throws Exception {
 		nocVisitor.initialize(new HashMap<String, Long>());
 		nocVisitor.process(decls);
 		return nocVisitor.map;
@@ -475,7 +475,7 @@ public class BoaMetricIntrinsics {
 	 * @return the RFC value for node
 	 */
 	@FunctionSpec(name = "get_metric_rfc", returnType = "int", formalParameters = { "Declaration" })
-	public static long getMetricRFC(final Declaration node) throws Exception {
+	public static synchronized long getMetricRFC(final Declaration node) throws Exception {
 		rfcVisitor.initialize().visit(node);
 		return rfcVisitor.count;
 	}
@@ -606,7 +606,7 @@ public class BoaMetricIntrinsics {
 	 * @return the CBO value for node
 	 */
 	@FunctionSpec(name = "get_metric_cbo", returnType = "map[string] of int", formalParameters = { "array of ChangedFile" })
-	public static HashMap<String, Long> getMetricCBO(final ChangedFile[] snapshot) throws Exception {
+	public static synchronized HashMap<String, Long> getMetricCBO(final ChangedFile[] snapshot) throws Exception {
 		cboVisitor.initialize(new HashMap<String, Long>());
 		cboVisitor.process(snapshot);
 		return cboVisitor.map;
@@ -687,7 +687,7 @@ public class BoaMetricIntrinsics {
 	 * @return the LCOM value for node
 	 */
 	@FunctionSpec(name = "get_metric_lcom", returnType = "float", formalParameters = { "Declaration" })
-	public static double getMetricLCOM(final Declaration node) throws Exception {
+	public static synchronized double getMetricLCOM(final Declaration node) throws Exception {
 		lcooVisitor.initialize().visit(node);
 		return lcooVisitor.getLCOM();
 	}
@@ -726,7 +726,7 @@ public class BoaMetricIntrinsics {
 	 * @return the CA value for node
 	 */
 	@FunctionSpec(name = "get_metric_ca", returnType = "int", formalParameters = { "Declaration" })
-	public static long getMetricCA(final Declaration node) throws Exception {
+	public static synchronized long getMetricCA(final Declaration node) throws Exception {
 		caVisitor.initialize().visit(node);
 		return caVisitor.count;
 	}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.functions;
+
+import java.util.IdentityHashMap;
+
+import boa.graphs.cdg.CDG;
+import boa.graphs.cfg.CFG;
+import boa.graphs.ddg.DDG;
+import boa.graphs.pdg.PDG;
+import boa.functions.BoaGraphIntrinsics.GRAPHCACHECOUNTER;
+import boa.graphs.trees.PDTree;
+import boa.types.Ast.Method;
+
+/**
+ * Memoizes the graphs built from a {@link Method} so that asking for several
+ * graph kinds of the same method builds its CFG, and the graphs derived from
+ * it, only once.
+ *
+ * Methods are looked up by identity, which is stable for as long as the AST
+ * of the current changed file is in use, so the cache is emptied whenever the
+ * next file's AST is read.  It is also bounded by the total number of nodes
+ * in the cached graphs.
+ *
+ * PDGs are not cached themselves, as <code>normalize</code> changes them in
+ * place, but they are built from the cached CDG and DDG.
+ *
+ * @author hyj
+ */
+class GraphCache {
+	private static final class Entry {
+		CFG cfg;
+		PDTree pdTree;
+		CDG cdg;
+		DDG ddg;
+	}
+
+	private final IdentityHashMap<Method, Entry> entries = new IdentityHashMap<Method, Entry>();
+	private final IdentityHashMap<Method, Entry> paramEntries = new IdentityHashMap<Method, Entry>();
+	private long capacity;
+	private long size = 0;
+
+	/**
+	 * Construct a GraphCache.
+	 *
+	 * @param capacity the most graph nodes to hold, or 0 to disable caching
+	 */
+	GraphCache(final long capacity) {
+		this.capacity = capacity;
+	}
+
+	void setCapacity(final long capacity) {
+		this.capacity = capacity;
+		if (size > capacity)
+			clear();
+	}
+
+	void clear() {
+		if (size == 0 && entries.isEmpty() && paramEntries.isEmpty())
+			return;
+		entries.clear();
+		paramEntries.clear();
+		size = 0;
+		count(GRAPHCACHECOUNTER.CLEARS);
+	}
+
+	CFG getCFG(final Method method, final boolean paramAsStatement) {
+		if (capacity <= 0)
+			return new CFG(method, paramAsStatement).get();
+		final Entry e = entry(method, paramAsStatement);
+		if (e.cfg != null) {
+			count(GRAPHCACHECOUNTER.HITS);
+			return e.cfg;
+		}
+		count(GRAPHCACHECOUNTER.MISSES);
+		return e.cfg = hold(new CFG(method, paramAsStatement).get());
+	}
+
+	PDTree getPDTree(final Method method) throws Exception {
+		if (capacity <= 0)
+			return new PDTree(method);
+		final Entry e = entry(method, false);
+		if (e.pdTree != null) {
+			count(GRAPHCACHECOUNTER.HITS);
+			return e.pdTree;
+		}
+		final CFG cfg = getCFG(method, false);
+		count(GRAPHCACHECOUNTER.MISSES);
+		return e.pdTree = hold(new PDTree(cfg), size(cfg));
+	}
+
+	CDG getCDG(final Method method, final boolean paramAsStatement) throws Exception {
+		if (capacity <= 0)
+			return new CDG(method, paramAsStatement);
+		final Entry e = entry(method, paramAsStatement);
+		if (e.cdg != null) {
+			count(GRAPHCACHECOUNTER.HITS);
+			return e.cdg;
+		}
+		final CFG cfg = getCFG(method, paramAsStatement);
+		count(GRAPHCACHECOUNTER.MISSES);
+		return e.cdg = hold(new CDG(cfg), size(cfg));
+	}
+
+	/**
+	 * Returns the CDG of a CFG, sharing the cached one if the CFG is the
+	 * cached CFG of its method.
+	 */
+	CDG getCDG(final CFG cfg) throws Exception {
+		if (isCached(cfg))
+			return getCDG(cfg.getMd(), false);
+		return new CDG(cfg);
+	}
+
+	DDG getDDG(final Method method, final boolean paramAsStatement) throws Exception {
+		if (capacity <= 0)
+			return new DDG(method, paramAsStatement);
+		final Entry e = entry(method, paramAsStatement);
+		if (e.ddg != null) {
+			count(GRAPHCACHECOUNTER.HITS);
+			return e.ddg;
+		}
+		final CFG cfg = getCFG(method, paramAsStatement);
+		count(GRAPHCACHECOUNTER.MISSES);
+		return e.ddg = hold(new DDG(cfg), size(cfg));
+	}
+
+	/**
+	 * Returns the DDG of a CFG, sharing the cached one if the CFG is the
+	 * cached CFG of its method.
+	 */
+	DDG getDDG(final CFG cfg) throws Exception {
+		if (isCached(cfg))
+			return getDDG(cfg.getMd(), false);
+		return new DDG(cfg);
+	}
+
+	PDG getPDG(final Method method, final boolean paramAsStatement) throws Exception {
+		if (capacity <= 0)
+			return new PDG(method, paramAsStatement);
+		return new PDG(getCDG(method, paramAsStatement), getDDG(method, paramAsStatement));
+	}
+
+	private boolean isCached(final CFG cfg) {
+		if (cfg == null || cfg.getMd() == null)
+			return false;
+		final Entry e = entries.get(cfg.getMd());
+		return e != null && e.cfg == cfg;
+	}
+
+	private Entry entry(final Method method, final boolean paramAsStatement) {
+		final IdentityHashMap<Method, Entry> map = paramAsStatement ? paramEntries : entries;
+		Entry e = map.get(method);
+		if (e == null) {
+			e = new Entry();
+			map.put(method, e);
+		}
+		return e;
+	}
+
+	private CFG hold(final CFG cfg) {
+		return hold(cfg, size(cfg));
+	}
+
+	private <T> T hold(final T graph, final long nodes) {
+		size += nodes;
+		if (size > capacity)
+			clear();
+		return graph;
+	}
+
+	private static long size(final CFG cfg) {
+		return cfg == null ? 0 : cfg.getNodes().size() + 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void count(final GRAPHCACHECOUNTER counter) {
+		if (BoaAstIntrinsics.context != null)
+			BoaAstIntrinsics.context.getCounter(counter).increment(1);
+	}
+}
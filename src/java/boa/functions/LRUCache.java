@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.functions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache used by the runtime intrinsics.
+ *
+ * The capacity is measured in whatever unit {@link #sizeOf(Object, Object)}
+ * returns, which defaults to one per entry.  Subclasses can override it to
+ * make the cache size-aware (e.g. bounded by serialized bytes).
+ *
+ * @author hyj
+ */
+public class LRUCache<K, V> {
+	private final LinkedHashMap<K, V> map = new LinkedHashMap<K, V>(16, 0.75f, true);
+	private long capacity;
+	private long size = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Construct an LRUCache.
+	 *
+	 * @param capacity the maximum total size of all cached entries
+	 */
+	public LRUCache(final long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the size of a single entry, in the unit of the cache capacity.
+	 *
+	 * @param key the key of the entry
+	 * @param value the value of the entry
+	 * @return the size of the entry
+	 */
+	protected long sizeOf(final K key, final V value) {
+		return 1;
+	}
+
+	/**
+	 * Looks up a key, marking it as most recently used.
+	 *
+	 * @param key the key to look up
+	 * @return the cached value, or <code>null</code> if not cached
+	 */
+	public V get(final K key) {
+		final V value = map.get(key);
+		if (value == null)
+			misses++;
+		else
+			hits++;
+		return value;
+	}
+
+	/**
+	 * Looks up a key without affecting the recency order or the statistics.
+	 *
+	 * @param key the key to look up
+	 * @return true if the key is currently cached
+	 */
+	public boolean containsKey(final K key) {
+		return map.containsKey(key);
+	}
+
+	/**
+	 * Adds an entry, evicting least recently used entries until it fits.
+	 * Entries larger than the whole capacity are not cached.
+	 *
+	 * @param key the key of the entry
+	 * @param value the value of the entry
+	 */
+	public void put(final K key, final V value) {
+		final long entrySize = sizeOf(key, value);
+		if (entrySize > capacity)
+			return;
+
+		final V old = map.put(key, value);
+		if (old != null)
+			size -= sizeOf(key, old);
+		size += entrySize;
+
+		evict();
+	}
+
+	/**
+	 * Removes an entry from the cache.
+	 *
+	 * @param key the key to remove
+	 * @return the removed value, or <code>null</code> if it was not cached
+	 */
+	public V remove(final K key) {
+		final V old = map.remove(key);
+		if (old != null)
+			size -= sizeOf(key, old);
+		return old;
+	}
+
+	/**
+	 * Removes every entry, keeping the hit/miss statistics.
+	 */
+	public void clear() {
+		map.clear();
+		size = 0;
+	}
+
+	private void evict() {
+		final Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+		while (size > capacity && it.hasNext()) {
+			final Map.Entry<K, V> e = it.next();
+			size -= sizeOf(e.getKey(), e.getValue());
+			it.remove();
+		}
+	}
+
+	public void setCapacity(final long capacity) {
+		this.capacity = capacity;
+		evict();
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public int getCount() {
+		return map.size();
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.functions;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.WireFormat;
+
+import boa.types.Ast.ASTRoot;
+import boa.types.Ast.Declaration;
+import boa.types.Ast.Method;
+import boa.types.Ast.Namespace;
+import boa.types.Ast.Statement;
+import boa.types.Ast.Variable;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+
+/**
+ * Decodes ASTs and revisions lazily.
+ *
+ * Decoding a message only indexes where the elements of its large repeated
+ * fields are in the serialized bytes: the file lists of revisions, and the
+ * namespaces, declarations, methods, fields and method bodies of ASTs.  Each
+ * of those elements is decoded the first time it is read, and is decoded
+ * lazily itself.  Everything else in the message is decoded right away.
+ *
+ * The messages are the usual generated messages, so reading them behaves
+ * exactly as if they had been decoded in full.  The only difference is that
+ * a malformed element is found when it is read, not when the message is
+ * decoded.
+ *
+ * @author hyj
+ */
+final class LazyDecoder {
+	/**
+	 * A repeated message field that is decoded on first access.
+	 */
+	private static final class LazyField {
+		final int number;
+		final Field field;
+		final Message prototype;
+
+		LazyField(final int number, final Field field, final Message prototype) {
+			this.number = number;
+			this.field = field;
+			this.prototype = prototype;
+		}
+	}
+
+	private static final Map<Class<?>, LazyField[]> lazyFields = new HashMap<Class<?>, LazyField[]>();
+
+	static {
+		try {
+			lazy(Revision.class,
+					field(Revision.class, Revision.FILES_FIELD_NUMBER, "files_", ChangedFile.getDefaultInstance()));
+			lazy(ASTRoot.class,
+					field(ASTRoot.class, ASTRoot.NAMESPACES_FIELD_NUMBER, "namespaces_", Namespace.getDefaultInstance()));
+			lazy(Namespace.class,
+					field(Namespace.class, Namespace.DECLARATIONS_FIELD_NUMBER, "declarations_", Declaration.getDefaultInstance()),
+					field(Namespace.class, Namespace.STATEMENTS_FIELD_NUMBER, "statements_", Statement.getDefaultInstance()),
+					field(Namespace.class, Namespace.METHODS_FIELD_NUMBER, "methods_", Method.getDefaultInstance()),
+					field(Namespace.class, Namespace.NAMESPACES_FIELD_NUMBER, "namespaces_", Namespace.getDefaultInstance()));
+			lazy(Declaration.class,
+					field(Declaration.class, Declaration.METHODS_FIELD_NUMBER, "methods_", Method.getDefaultInstance()),
+					field(Declaration.class, Declaration.FIELDS_FIELD_NUMBER, "fields_", Variable.getDefaultInstance()),
+					field(Declaration.class, Declaration.NESTED_DECLARATIONS_FIELD_NUMBER, "nestedDeclarations_", Declaration.getDefaultInstance()),
+					field(Declaration.class, Declaration.STATEMENTS_FIELD_NUMBER, "statements_", Statement.getDefaultInstance()));
+			lazy(Method.class,
+					field(Method.class, Method.STATEMENTS_FIELD_NUMBER, "statements_", Statement.getDefaultInstance()));
+		} catch (final Exception e) {
+			// the generated code changed, so decode everything eagerly
+			lazyFields.clear();
+		}
+	}
+
+	private static void lazy(final Class<?> c, final LazyField... fields) {
+		lazyFields.put(c, fields);
+	}
+
+	private static LazyField field(final Class<?> c, final int number, final String name, final Message prototype) throws NoSuchFieldException {
+		final Field f = c.getDeclaredField(name);
+		f.setAccessible(true);
+		return new LazyField(number, f, prototype);
+	}
+
+	private LazyDecoder() {
+	}
+
+	/**
+	 * Decodes a message lazily.  The bytes are copied, so the buffer can be
+	 * reused right away.
+	 *
+	 * @param prototype an instance of the type of the message
+	 * @param bytes the buffer holding the serialized message
+	 * @param length the length of the serialized message
+	 * @return the message
+	 * @throws InvalidProtocolBufferException if the message is malformed
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Message> T decode(final T prototype, final byte[] bytes, final int length) throws InvalidProtocolBufferException {
+		return (T) decode(prototype, Arrays.copyOf(bytes, length), 0, length);
+	}
+
+	/**
+	 * Returns the serialized size of a message without decoding any element
+	 * that is not decoded yet.
+	 *
+	 * @param m the message
+	 * @return the serialized size of the message
+	 */
+	static long serializedSize(final Message m) {
+		final LazyField[] fields = lazyFields.get(m.getClass());
+		if (fields != null) {
+			try {
+				for (final LazyField f : fields) {
+					final Object list = f.field.get(m);
+					if (list instanceof LazyList)
+						return ((LazyList) list).ownerLength;
+				}
+			} catch (final IllegalAccessException e) {
+				// fall through to the full size
+			}
+		}
+		return m.getSerializedSize();
+	}
+
+	private static Message decode(final Message prototype, final byte[] bytes, final int offset, final int length) throws InvalidProtocolBufferException {
+		final LazyField[] fields = lazyFields.get(prototype.getClass());
+		if (fields == null)
+			return prototype.getParserForType().parseFrom(stream(bytes, offset, length));
+
+		final IntList[] elements = new IntList[fields.length];
+		final Message.Builder builder = prototype.newBuilderForType();
+		try {
+			final CodedInputStream in = CodedInputStream.newInstance(bytes, offset, length);
+			int run = 0;
+			while (true) {
+				final int start = in.getTotalBytesRead();
+				final int tag = in.readTag();
+				if (tag == 0) {
+					merge(builder, bytes, offset + run, start - run);
+					break;
+				}
+
+				final int i = indexOf(fields, WireFormat.getTagFieldNumber(tag));
+				if (i < 0 || (tag & 7) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+					in.skipField(tag);
+					continue;
+				}
+
+				// everything up to here is decoded eagerly, the element only indexed
+				merge(builder, bytes, offset + run, start - run);
+				final int size = in.readRawVarint32();
+				if (elements[i] == null)
+					elements[i] = new IntList();
+				elements[i].add(offset + in.getTotalBytesRead(), size);
+				in.skipRawBytes(size);
+				run = in.getTotalBytesRead();
+			}
+		} catch (final InvalidProtocolBufferException e) {
+			throw e;
+		} catch (final IOException e) {
+			throw new InvalidProtocolBufferException(e.getMessage());
+		}
+
+		final Message m = builder.build();
+		try {
+			for (int i = 0; i < fields.length; i++)
+				if (elements[i] != null)
+					fields[i].field.set(m, new LazyList(fields[i].prototype, bytes, elements[i], length));
+		} catch (final IllegalAccessException e) {
+			return prototype.getParserForType().parseFrom(stream(bytes, offset, length));
+		}
+		return m;
+	}
+
+	private static void merge(final Message.Builder builder, final byte[] bytes, final int offset, final int length) throws IOException {
+		if (length > 0)
+			builder.mergeFrom(stream(bytes, offset, length));
+	}
+
+	private static CodedInputStream stream(final byte[] bytes, final int offset, final int length) {
+		final CodedInputStream in = CodedInputStream.newInstance(bytes, offset, length);
+		// defaults to 64, really big ASTs require more
+		in.setRecursionLimit(Integer.MAX_VALUE);
+		return in;
+	}
+
+	private static int indexOf(final LazyField[] fields, final int number) {
+		for (int i = 0; i < fields.length; i++)
+			if (fields[i].number == number)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * The offsets and lengths of the elements of a lazy field.
+	 */
+	private static final class IntList {
+		int[] values = new int[8];
+		int size = 0;
+
+		void add(final int offset, final int length) {
+			if (size + 2 > values.length)
+				values = Arrays.copyOf(values, values.length * 2);
+			values[size++] = offset;
+			values[size++] = length;
+		}
+	}
+
+	/**
+	 * The elements of a lazy field, each decoded on first access.  Like the
+	 * lists of a decoded message it can not be changed.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final class LazyList extends AbstractList implements RandomAccess {
+		private final Message prototype;
+		private final Object[] decoded;
+		final int ownerLength;
+		private byte[] bytes;
+		private int[] elements;
+		private int remaining;
+
+		LazyList(final Message prototype, final byte[] bytes, final IntList elements, final int ownerLength) {
+			this.prototype = prototype;
+			this.bytes = bytes;
+			this.elements = elements.values;
+			this.decoded = new Object[elements.size / 2];
+			this.remaining = this.decoded.length;
+			this.ownerLength = ownerLength;
+		}
+
+		@Override
+		public synchronized Object get(final int index) {
+			if (decoded[index] == null) {
+				try {
+					decoded[index] = decode(prototype, bytes, elements[2 * index], elements[2 * index + 1]);
+				} catch (final InvalidProtocolBufferException e) {
+					throw new IllegalStateException(e);
+				}
+				// the bytes are no longer needed once every element is decoded
+				if (--remaining == 0) {
+					bytes = null;
+					elements = null;
+				}
+			}
+			return decoded[index];
+		}
+
+		@Override
+		public int size() {
+			return decoded.length;
+		}
+	}
+}
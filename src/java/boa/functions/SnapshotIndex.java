@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.functions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import boa.types.Code.CodeRepository;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+import boa.types.Shared.ChangeKind;
+
+/**
+ * An incremental snapshot engine for a single {@link CodeRepository}.
+ *
+ * It keeps a path to {@link ChangedFile} table for one revision and rolls it
+ * forward along the first-parent chain by applying the delta of each revision.
+ * Full copies of the table are checkpointed periodically so that moving to an
+ * earlier revision only has to replay the revisions since the closest
+ * checkpoint.  Consecutive snapshot requests thus cost O(changes) instead of
+ * walking the whole history again.
+ *
+ * @author hyj
+ */
+class SnapshotIndex {
+	private static final int CHECKPOINT_INTERVAL = 64;
+	private static final long MAX_CHECKPOINT_ENTRIES = 4 * 1024 * 1024;
+
+	private static final class Entry {
+		final ChangedFile file;
+		final long seq;
+		final int pos;
+
+		Entry(final ChangedFile file, final long seq, final int pos) {
+			this.file = file;
+			this.seq = seq;
+			this.pos = pos;
+		}
+	}
+
+	// newest revision first, then the order files appear in that revision
+	private static final Comparator<Entry> snapshotOrder = new Comparator<Entry>() {
+		@Override
+		public int compare(final Entry e1, final Entry e2) {
+			if (e1.seq != e2.seq)
+				return e1.seq > e2.seq ? -1 : 1;
+			return e1.pos - e2.pos;
+		}
+	};
+
+	private final CodeRepository cr;
+	private HashMap<String, Entry> table = new HashMap<String, Entry>();
+	private int current = -1;
+	private long seq = 0;
+	private int sinceCheckpoint = 0;
+
+	private final LRUCache<Integer, HashMap<String, Entry>> checkpoints = new LRUCache<Integer, HashMap<String, Entry>>(MAX_CHECKPOINT_ENTRIES) {
+		@Override
+		protected long sizeOf(final Integer key, final HashMap<String, Entry> value) {
+			return value.size() + 1;
+		}
+	};
+
+	SnapshotIndex(final CodeRepository cr) {
+		this.cr = cr;
+	}
+
+	boolean isFor(final CodeRepository cr) {
+		return this.cr == cr;
+	}
+
+	/**
+	 * Returns the snapshot at a revision, in the same order the first-parent
+	 * backwards walk would produce.
+	 *
+	 * @param index the revision offset
+	 * @return the files in the snapshot
+	 */
+	List<ChangedFile> getSnapshot(final int index) {
+		moveTo(index);
+		return toList(table.values());
+	}
+
+	/**
+	 * Returns the snapshot at a revision that is given by value, by applying
+	 * its delta on top of the snapshot of its first parent.
+	 *
+	 * @param commit the revision
+	 * @return the files in the snapshot
+	 */
+	List<ChangedFile> getSnapshot(final Revision commit) {
+		moveTo(firstParent(commit));
+
+		final List<Entry> entries = new ArrayList<Entry>();
+		final Map<String, ChangedFile> effect = effect(commit);
+		int pos = 0;
+		for (final ChangedFile cf : effect.values())
+			if (cf != null)
+				entries.add(new Entry(cf, Long.MAX_VALUE, pos++));
+		for (final Map.Entry<String, Entry> e : table.entrySet())
+			if (!effect.containsKey(e.getKey()))
+				entries.add(e.getValue());
+		return toList(entries);
+	}
+
+	private void moveTo(final int target) {
+		if (target == current)
+			return;
+
+		// walk back along the first-parent chain to the closest known state
+		final List<Revision> path = new ArrayList<Revision>();
+		final List<Integer> indices = new ArrayList<Integer>();
+		HashMap<String, Entry> base = null;
+		int r = target;
+		while (base == null) {
+			if (r == current) {
+				base = table;
+			} else if (r < 0) {
+				base = new HashMap<String, Entry>();
+			} else {
+				final HashMap<String, Entry> checkpoint = checkpoints.get(r);
+				if (checkpoint != null) {
+					base = new HashMap<String, Entry>(checkpoint);
+				} else {
+					final Revision rev = BoaIntrinsics.getRevision(cr, r);
+					path.add(rev);
+					indices.add(r);
+					r = firstParent(rev);
+				}
+			}
+		}
+
+		// then roll forward to the target
+		for (int i = path.size() - 1; i >= 0; i--) {
+			apply(base, path.get(i));
+			if (++sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+				checkpoints.put(indices.get(i), new HashMap<String, Entry>(base));
+				sinceCheckpoint = 0;
+			}
+		}
+
+		table = base;
+		current = target;
+	}
+
+	private static int firstParent(final Revision rev) {
+		if (rev.getParentsCount() == 0)
+			return -1;
+		return rev.getParents(0);
+	}
+
+	private void apply(final Map<String, Entry> t, final Revision rev) {
+		final long s = ++seq;
+		int pos = 0;
+		for (final Map.Entry<String, ChangedFile> e : effect(rev).entrySet()) {
+			if (e.getValue() == null)
+				t.remove(e.getKey());
+			else
+				t.put(e.getKey(), new Entry(e.getValue(), s, pos++));
+		}
+	}
+
+	/**
+	 * Computes the effect of a single revision on the snapshot: each path
+	 * maps to the file now at that path, or to null if it was removed.  When
+	 * a revision mentions a path more than once, the first mention wins.
+	 */
+	private static Map<String, ChangedFile> effect(final Revision rev) {
+		final Map<String, ChangedFile> effect = new LinkedHashMap<String, ChangedFile>();
+		for (final ChangedFile cf : rev.getFilesList()) {
+			final String name = cf.getName();
+			switch (cf.getChange()) {
+			case DELETED:
+				if (!effect.containsKey(name))
+					effect.put(name, null);
+				break;
+			case MERGED:
+				if (!effect.containsKey(name))
+					effect.put(name, cf);
+				for (int i = 0; i < cf.getChangesCount(); i++) {
+					final ChangeKind pck = cf.getChanges(i);
+					if (pck != ChangeKind.ADDED) {
+						String prev = cf.getPreviousNames(i);
+						if (prev.isEmpty())
+							prev = name;
+						if (!effect.containsKey(prev) && (pck == ChangeKind.DELETED || pck == ChangeKind.RENAMED))
+							effect.put(prev, null);
+					}
+				}
+				break;
+			case RENAMED:
+				if (!effect.containsKey(name))
+					effect.put(name, cf);
+				for (int i = 0; i < cf.getChangesCount(); i++) {
+					if (cf.getPreviousNamesCount() != 0) {
+						final String prev = cf.getPreviousNames(i);
+						if (!effect.containsKey(prev))
+							effect.put(prev, null);
+					}
+				}
+				break;
+			default:
+				if (!effect.containsKey(name))
+					effect.put(name, cf);
+				break;
+			}
+		}
+		return effect;
+	}
+
+	private static List<ChangedFile> toList(final Iterable<Entry> values) {
+		final List<Entry> entries = new ArrayList<Entry>();
+		for (final Entry e : values)
+			entries.add(e);
+		Collections.sort(entries, snapshotOrder);
+
+		final List<ChangedFile> files = new ArrayList<ChangedFile>(entries.size());
+		for (final Entry e : entries)
+			files.add(e.file);
+		return files;
+	}
+}
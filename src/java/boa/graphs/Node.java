@@ -32,7 +32,13 @@ import boa.types.Control.Node.NodeType;
  * @author rdyer
  */
 public abstract class Node<N extends Node<N, E>, E extends Edge<N, E>> implements Comparable<N> {
-	public static int numOfNodes = -1;
+	// per thread, as graphs may be built in parallel
+	private static final ThreadLocal<int[]> numOfNodes = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[] { -1 };
+		}
+	};
 
 	protected int id;
 	protected NodeType kind = NodeType.OTHER;
@@ -49,14 +55,21 @@ public abstract class Node<N extends Node<N, E>, E extends Edge<N, E>> implement
 	}
 
 	public Node() {
-		this.id = ++numOfNodes;
+		this.id = ++numOfNodes.get()[0];
 	}
 
 	public Node(final NodeType kind) {
-		this.id = ++numOfNodes;
+		this.id = ++numOfNodes.get()[0];
 		this.kind = kind;
 	}
 
+	/**
+	 * Restarts the numbering of nodes created by the current thread.
+	 */
+	public static void resetNumOfNodes() {
+		numOfNodes.get()[0] = -1;
+	}
+
 	public Statement getStmt() {
 		return this.stmt;
 	}
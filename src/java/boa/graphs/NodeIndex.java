@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.graphs;
+
+import java.util.Arrays;
+
+/**
+ * The nodes of a graph or tree indexed by their ids, so they can be looked
+ * up in constant time instead of by scanning the node set.
+ *
+ * @author hyj
+ */
+public class NodeIndex<N extends Node<?, ?>> {
+	private Object[] nodes = new Object[16];
+
+	public void put(final N node) {
+		final int id = node.getNodeId();
+		if (id >= nodes.length)
+			nodes = Arrays.copyOf(nodes, Math.max(id + 1, nodes.length * 2));
+		nodes[id] = node;
+	}
+
+	public void remove(final N node) {
+		final int id = node.getNodeId();
+		if (id < nodes.length && nodes[id] == node)
+			nodes[id] = null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public N get(final int id) {
+		if (id < 0 || id >= nodes.length)
+			return null;
+		return (N) nodes[id];
+	}
+}
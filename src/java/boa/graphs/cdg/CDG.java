@@ -19,12 +19,11 @@ package boa.graphs.cdg;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import boa.functions.BoaAstIntrinsics;
+import boa.graphs.NodeIndex;
 import boa.graphs.cfg.CFG;
 import boa.graphs.cfg.CFGEdge;
 import boa.graphs.cfg.CFGNode;
@@ -44,6 +43,7 @@ public class CDG {
     private CDGNode entryNode;
     private CFG cfg;
     private final Set<CDGNode> nodes = new HashSet<CDGNode>();
+    private final NodeIndex<CDGNode> nodeIndex = new NodeIndex<CDGNode>();
 
     /**
      * Constructs a control dependence graph
@@ -133,12 +133,8 @@ public class CDG {
      * @param id node id
      * @return the CDG node for the given node id. If not found then returns null
      */
-    public CDGNode getNode(final int id) { // sort and do b-search
-        for (final CDGNode n : nodes)
-            if (n.getNodeId() == id)
-                return n;
-
-        return null;
+    public CDGNode getNode(final int id) {
+        return nodeIndex.get(id);
     }
 
     /**
@@ -152,36 +148,23 @@ public class CDG {
             if (n.getNodeId() < pdTree.getNodes().size() - 2)
                 getNode(n);
 
-        // store source and desination of control edges with label
-        final Map<Integer[], String> controlEdges = new LinkedHashMap<Integer[], String>();
-        for (final CFGNode n : cfg.sortNodes()) {
-            if (n.getKind() == Control.Node.NodeType.CONTROL) {
+        /*
+         * Node B is control dependent on node A if B is in the post-dominance
+         * frontier of A.  For each edge A ---> B out of a control node, that
+         * frontier is found by walking the post-dominator tree up from B to
+         * the parent of A (Cooper, Harvey and Kennedy).  The entry node is
+         * added with an edge to the start node.
+         */
+        try {
+            for (final CFGNode n : cfg.sortNodes()) {
+                if (n.getKind() != Control.Node.NodeType.CONTROL)
+                    continue;
                 final List<CFGEdge> edges = new ArrayList<CFGEdge>(n.getOutEdges());
                 Collections.sort(edges);
                 for (final CFGEdge e : edges)
-                    if (e.getLabel().equals("."))
-                        controlEdges.put(new Integer[]{e.getSrc().getNodeId(), e.getDest().getNodeId()}, "F");
-                    else
-                        controlEdges.put(new Integer[]{e.getSrc().getNodeId(), e.getDest().getNodeId()}, e.getLabel());
-            }
-        }
-
-        // add the edge: entry ---> start
-        controlEdges.put(new Integer[]{cfg.getNodes().size(), 0}, "T");
-
-        // for the given edge A ---> B, traverse from node B to the parent of node A
-        try {
-            for (final Map.Entry<Integer[], String> entry : controlEdges.entrySet()) {
-                final TreeNode srcTreeNode = pdTree.getNode(entry.getKey()[0]);
-                final TreeNode srcParent = srcTreeNode.getParent();
-                final CDGNode source = getNode(srcTreeNode);
-                TreeNode dest = pdTree.getNode(entry.getKey()[1]);
-
-                while (!srcParent.equals(dest)) {
-                    new CDGEdge(source, getNode(dest), entry.getValue());
-                    dest = dest.getParent();
-                }
+                    addFrontier(pdTree, n.getNodeId(), e.getDest().getNodeId(), e.getLabel().equals(".") ? "F" : e.getLabel());
             }
+            addFrontier(pdTree, cfg.getNodes().size(), 0, "T");
 
             // remove start node and replace it with entry
             final CDGNode startNode = getNode(0);
@@ -189,15 +172,35 @@ public class CDG {
 
             startNode.delete();
             nodes.remove(startNode);
+            nodeIndex.remove(startNode);
 
             entryNode.setKind(Control.Node.NodeType.ENTRY);
+            nodeIndex.remove(entryNode);
             entryNode.setId(0);
+            nodeIndex.put(entryNode);
         } catch (final Exception e) {
             System.out.println(BoaAstIntrinsics.prettyprint(md));
             throw e;
         }
     }
 
+    /**
+     * Adds the control dependence edges of a CFG edge
+     *
+     * @param pdTree post dominator tree
+     * @param src source node id of the edge
+     * @param dest destination node id of the edge
+     * @param label edge label
+     */
+    private void addFrontier(final PDTree pdTree, final int src, final int dest, final String label) throws Exception {
+        final TreeNode srcTreeNode = pdTree.getNode(src);
+        final TreeNode srcParent = srcTreeNode.getParent();
+        final CDGNode source = getNode(srcTreeNode);
+
+        for (TreeNode node = pdTree.getNode(dest); !srcParent.equals(node); node = node.getParent())
+            new CDGEdge(source, getNode(node), label);
+    }
+
     /**
      * Returns the existing CDG node for the given Tree node. If not found then returns a new node
      *
@@ -212,6 +215,7 @@ public class CDG {
 
             final CDGNode newNode = new CDGNode(treeNode);
             nodes.add(newNode);
+            nodeIndex.put(newNode);
             return newNode;
         } catch (final Exception e) {
             System.out.println(BoaAstIntrinsics.prettyprint(md));
@@ -18,6 +18,7 @@
 package boa.graphs.cfg;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -57,6 +58,13 @@ public class CFG {
 	protected boolean isBranchPresent = false;
 	protected boolean paramAsStatement = false;
 
+	// dense views of the graph indexed by node id, built on first use and
+	// dropped whenever a node or edge is added
+	private CFGNode[] nodesById;
+	private int[][] successorIds;
+	private int[][] predecessorIds;
+	private int[] postOrder;
+
 	public CFG(final Method method) {
 		this(method, "this");
 	}
@@ -118,16 +126,140 @@ public class CFG {
 	 * @return CFG node
 	 */
 	public CFGNode getNode(int id) {
-		for (final CFGNode node : nodes) {
-			if (node.getNodeId() == id)
-				return node;
+		index();
+		if (id < 0 || id >= nodesById.length)
+			return null;
+		return nodesById[id];
+	}
+
+	/**
+	 * Returns the ids of the successors of a node, in ascending order.  The
+	 * array is shared and must not be modified.
+	 *
+	 * @param id node id
+	 * @return the successor ids
+	 */
+	public int[] getSuccessorIds(final int id) {
+		index();
+		return successorIds[id];
+	}
+
+	/**
+	 * Returns the ids of the predecessors of a node, in ascending order.  The
+	 * array is shared and must not be modified.
+	 *
+	 * @param id node id
+	 * @return the predecessor ids
+	 */
+	public int[] getPredecessorIds(final int id) {
+		index();
+		return predecessorIds[id];
+	}
+
+	/**
+	 * Returns the ids of the nodes reachable from the entry node in
+	 * depth-first post-order.  The array is shared and must not be modified.
+	 *
+	 * @return the node ids in post-order
+	 */
+	public int[] getPostOrder() {
+		index();
+		if (postOrder == null)
+			postOrder = computePostOrder();
+		return postOrder;
+	}
+
+	/**
+	 * Returns the ids of the nodes reachable from the entry node in reverse
+	 * post-order, so every node comes before its successors except along back
+	 * edges.
+	 *
+	 * @return the node ids in reverse post-order
+	 */
+	public int[] getReversePostOrder() {
+		final int[] post = getPostOrder();
+		final int[] rpo = new int[post.length];
+		for (int i = 0; i < post.length; i++)
+			rpo[i] = post[post.length - 1 - i];
+		return rpo;
+	}
+
+	private void invalidate() {
+		nodesById = null;
+		successorIds = null;
+		predecessorIds = null;
+		postOrder = null;
+	}
+
+	private void index() {
+		if (nodesById != null)
+			return;
+
+		int max = -1;
+		for (final CFGNode node : nodes)
+			max = Math.max(max, node.getNodeId());
+
+		final CFGNode[] byId = new CFGNode[max + 1];
+		for (final CFGNode node : nodes)
+			byId[node.getNodeId()] = node;
+
+		successorIds = new int[byId.length][];
+		predecessorIds = new int[byId.length][];
+		for (int i = 0; i < byId.length; i++) {
+			if (byId[i] == null) {
+				successorIds[i] = new int[0];
+				predecessorIds[i] = new int[0];
+				continue;
+			}
+			successorIds[i] = sortedIds(byId[i].getOutEdges(), true);
+			predecessorIds[i] = sortedIds(byId[i].getInEdges(), false);
 		}
-		return null;
+		nodesById = byId;
+	}
+
+	private static int[] sortedIds(final java.util.Set<CFGEdge> edges, final boolean dest) {
+		final int[] ids = new int[edges.size()];
+		int i = 0;
+		for (final CFGEdge e : edges)
+			ids[i++] = dest ? e.getDest().getNodeId() : e.getSrc().getNodeId();
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	private int[] computePostOrder() {
+		if (entryNode == null)
+			return new int[0];
+
+		// an explicit stack, as methods can be too long to recurse over
+		final int[] order = new int[nodesById.length];
+		int size = 0;
+		final boolean[] visited = new boolean[nodesById.length];
+		final int[] stack = new int[nodesById.length];
+		final int[] next = new int[nodesById.length];
+		int top = 0;
+		stack[0] = entryNode.getNodeId();
+		visited[stack[0]] = true;
+		while (top >= 0) {
+			final int n = stack[top];
+			final int[] succs = successorIds[n];
+			if (next[n] < succs.length) {
+				final int s = succs[next[n]++];
+				if (!visited[s]) {
+					visited[s] = true;
+					stack[++top] = s;
+				}
+			} else {
+				order[size++] = n;
+				top--;
+			}
+		}
+		return Arrays.copyOf(order, size);
 	}
 
 	protected void addNode(final CFGNode node) {
 		if (nodes.contains(node))
 			return;
+		invalidate();
 		outs.add(node);
 		nodes.add(node);
 		ins.add(node);
@@ -136,6 +268,7 @@ public class CFG {
 	protected void removeNode(final CFGNode node) {
 		if (!nodes.contains(node))
 			return;
+		invalidate();
 		nodes.remove(node);
 		ins.remove(node);
 		outs.remove(node);
@@ -149,6 +282,7 @@ public class CFG {
 		if (target.getNodes().size() == 0)
 			return;
 
+		invalidate();
 		if (nodes.size() == 0) {
 			nodes.addAll(target.nodes);
 			ins.addAll(target.ins);
@@ -181,9 +315,10 @@ public class CFG {
 	}
 
 	protected void createNewEdge(final CFGNode src, final CFGNode dest, final String label) {
-		if (src.getSuccessors().contains(dest))
+		if (src.getOutEdge(dest) != null)
 			return;
 
+		invalidate();
 		if (label == null)
 			new CFGEdge(src, dest);
 		else
@@ -212,6 +347,7 @@ public class CFG {
 		if (target.getNodes().size() == 0)
 			return;
 
+		invalidate();
 		if (saveOuts.size() == 0) {
 			// add Nodes
 			nodes.addAll(target.nodes);
@@ -241,6 +377,7 @@ public class CFG {
 		if (target.getNodes().size() == 0)
 			return;
 
+		invalidate();
 		// add Nodes
 		nodes.addAll(target.nodes);
 		// merge Edges
@@ -315,7 +452,7 @@ public class CFG {
 
 	public CFG get() {
 		if (md.getStatementsCount() > 0) {
-			CFGNode.numOfNodes = -1;
+			CFGNode.resetNumOfNodes();
 			final CFGNode startNode = new CFGNode("ENTRY", NodeType.ENTRY, "ENTRY", "ENTRY");
 			mergeSeq(startNode);
 			if (paramAsStatement)
@@ -852,29 +989,21 @@ public class CFG {
 	}
 
 	public CFGNode[] reverseSortNodes() {
-		try {
-			final CFGNode[] results = new CFGNode[nodes.size()];
-			for (final CFGNode node : nodes) {
-				results[nodes.size() - 1 - node.getNodeId()] = node;
-			}
-			return results;
-		} catch (final Exception e) {
-			e.printStackTrace();
-		}
-		return null;
+		final CFGNode[] sorted = sortNodes();
+		if (sorted == null)
+			return null;
+		final CFGNode[] results = new CFGNode[sorted.length];
+		for (int i = 0; i < sorted.length; i++)
+			results[sorted.length - 1 - i] = sorted[i];
+		return results;
 	}
 
 	public CFGNode[] sortNodes() {
-		try {
-			final CFGNode[] results = new CFGNode[nodes.size()];
-			for (final CFGNode node : nodes) {
-				results[node.getNodeId()] = node;
-			}
-			return results;
-		} catch (final Exception e) {
-			e.printStackTrace();
-		}
-		return null;
+		index();
+		// only a graph with dense ids can be sorted into an array
+		if (nodesById.length != nodes.size())
+			return null;
+		return nodesById.clone();
 	}
 
 	public String toString() {
@@ -16,6 +16,7 @@
  */
 package boa.graphs.ddg;
 
+import boa.graphs.NodeIndex;
 import boa.graphs.cfg.CFG;
 import boa.graphs.cfg.CFGNode;
 import boa.types.Ast.*;
@@ -32,6 +33,7 @@ public class DDG {
     private Method md;
     private DDGNode entryNode;
     private final HashSet<DDGNode> nodes = new HashSet<DDGNode>();
+    private final NodeIndex<DDGNode> nodeIndex = new NodeIndex<DDGNode>();
     private final HashMap<DDGNode, Set<DDGNode>> defUseChain = new HashMap<DDGNode, Set<DDGNode>>();
     //private HashMap<DDGNode, Set<DDGNode>> useDefChain; //TODO: needs reaching-def analysis
 
@@ -140,11 +142,7 @@ public class DDG {
      * @return DDGNode
      */
     public DDGNode getNode(final int id) {
-        for (final DDGNode n : nodes)
-            if (n.getNodeId() == id)
-                return n;
-
-        return null;
+        return nodeIndex.get(id);
     }
 
     /**
@@ -298,6 +296,7 @@ public class DDG {
 
         final DDGNode newNode = new DDGNode(cfgNode);
         nodes.add(newNode);
+        nodeIndex.put(newNode);
         return newNode;
     }
 
@@ -17,6 +17,7 @@
 package boa.graphs.pdg;
 
 import boa.functions.BoaAstIntrinsics;
+import boa.graphs.NodeIndex;
 import boa.graphs.cdg.CDG;
 import boa.graphs.cdg.CDGEdge;
 import boa.graphs.cdg.CDGNode;
@@ -42,6 +43,7 @@ public class PDG {
     private Method md;
     private PDGNode entryNode;
     private final HashSet<PDGNode> nodes = new HashSet<PDGNode>();
+    private final NodeIndex<PDGNode> nodeIndex = new NodeIndex<PDGNode>();
     private boolean normalize = false;
     private int hashcode;
 
@@ -175,11 +177,7 @@ public class PDG {
      * @return
      */
     public PDGNode getNode(final int id) {
-        for (final PDGNode n : nodes)
-            if (n.getNodeId() == id)
-                return n;
-
-        return null;
+        return nodeIndex.get(id);
     }
 
     /**
@@ -255,7 +253,9 @@ public class PDG {
      */
     private void addCDG(final CDG cdg) {
         for (final CDGNode n : cdg.getNodes()) {
-            nodes.add(new PDGNode(n));
+            final PDGNode node = new PDGNode(n);
+            nodes.add(node);
+            nodeIndex.put(node);
         }
 
         for (final CDGNode n : cdg.getNodes()) {
@@ -20,6 +20,7 @@ import java.util.*;
 
 import boa.functions.BoaAstIntrinsics;
 import boa.types.Ast.Method;
+import boa.graphs.NodeIndex;
 import boa.graphs.cfg.CFG;
 import boa.graphs.cfg.CFGNode;
 
@@ -33,6 +34,7 @@ public class DTree {
     private Method md;
     private TreeNode rootNode;
     private final HashSet<TreeNode> nodes = new HashSet<TreeNode>();
+    private final NodeIndex<TreeNode> nodeIndex = new NodeIndex<TreeNode>();
     private boolean isEntryNode = false; // as specified in ferrante-1987 paper on PDG
 
     /**
@@ -44,9 +46,7 @@ public class DTree {
     public DTree(final CFG cfg) throws Exception {
         if (cfg != null && cfg.getNodes().size() > 0) {
             this.md = cfg.getMd();
-            final Map<CFGNode, Set<CFGNode>> dom = computeDominators(cfg);
-            final Map<CFGNode, CFGNode> idom = computeImmediateDominator(dom, cfg);
-            buildDomTree(idom);
+            buildDomTree(Dominators.dominators(cfg), cfg);
         }
     }
 
@@ -81,6 +81,7 @@ public class DTree {
             entry.setParent(rootNode);
             rootNode.addChild(entry);
             nodes.add(entry);
+            nodeIndex.put(entry);
             isEntryNode = true;
         }
     }
@@ -117,9 +118,8 @@ public class DTree {
      * @return the immediate dominator of the given node
      */
     public TreeNode getImmediateDominator(final TreeNode node) {
-        for (final TreeNode n : nodes)
-            if (n.equals(node))
-                return n.getParent();
+        if (nodes.contains(node))
+            return node.getParent();
         return null;
     }
 
@@ -130,9 +130,9 @@ public class DTree {
      * @return the immediate dominator for the given node id
      */
     public TreeNode getImmediateDominator(final int nodeid) {
-        for (final TreeNode n : nodes)
-            if (n.getNodeId() == nodeid)
-                return n.getParent();
+        final TreeNode n = nodeIndex.get(nodeid);
+        if (n != null)
+            return n.getParent();
         return null;
     }
 
@@ -143,126 +143,27 @@ public class DTree {
      * @return the tree node for the given node id. If not found then returns null
      */
     public TreeNode getNode(final int id) {
-        for (final TreeNode node : nodes) {
-            if (node.getNodeId() == id)
-                return node;
-        }
-        return null;
-    }
-
-    /**
-     * Computes and returns map of dominators for each node in the control flow graph
-     *
-     * @param cfg control flow graph
-     * @return map of nodes and corresponding set of dominator nodes
-     * @throws Exception
-     */
-    private Map<CFGNode, Set<CFGNode>> computeDominators(final CFG cfg) {
-        final Map<CFGNode, Set<CFGNode>> pDomMap = new HashMap<CFGNode, Set<CFGNode>>();
-
-        // initialize
-        if (cfg.getNodes().size() > 2) {
-            for (final CFGNode n : cfg.getNodes()) {
-                if (n.getNodeId() == 0)
-                    pDomMap.put(n, new HashSet<CFGNode>(Collections.singletonList(n)));
-                else
-                    pDomMap.put(n, cfg.getNodes());
-            }
-        } else {
-            final CFGNode startNode = cfg.getNode(0);
-            pDomMap.put(startNode, new HashSet<CFGNode>(Collections.singletonList(startNode)));
-            pDomMap.put(cfg.getNode(1), new HashSet<CFGNode>(cfg.getNodes()));
-        }
-
-        final Map<CFGNode, Set<CFGNode>> currentPDomMap = new HashMap<CFGNode, Set<CFGNode>>();
-        boolean saturated = false;
-        while (!saturated) { // fix point iteration
-            int changeCount = 0;
-            for (final CFGNode n : cfg.getNodes()) {
-                final Set<CFGNode> currentPDom = new HashSet<CFGNode>();
-
-                // Intersection[pred(node)]
-                boolean first = true;
-                for (final CFGNode pred : n.getPredecessors()) {
-                    if (first) {
-                        currentPDom.addAll(pDomMap.get(pred));
-                        first = false;
-                        continue;
-                    }
-                    currentPDom.retainAll(pDomMap.get(pred));
-                }
-                // D[n] = {n} Union (Intersection[pred[node]])
-                currentPDom.add(n);
-
-                final Set<CFGNode> diff = new HashSet<CFGNode>(pDomMap.get(n));
-                diff.removeAll(currentPDom);
-                if (diff.size() > 0)
-                    changeCount++;
-                currentPDomMap.put(n, currentPDom);
-            }
-
-            if (changeCount == 0) {
-                saturated = true;
-            } else {
-                pDomMap.clear();
-                pDomMap.putAll(currentPDomMap);
-                currentPDomMap.clear();
-            }
-        }
-
-        // strict dominance
-        for (final CFGNode n : pDomMap.keySet())
-            pDomMap.get(n).remove(n);
-
-        return pDomMap;
-    }
-
-    /**
-     * Computes and returns map of nodes and corresponding immediate dominators
-     *
-     * @param dom map of nodes and corresponding dominators
-     * @return map of nodes and corresponding immediate dominators
-     */
-    private Map<CFGNode, CFGNode> computeImmediateDominator(final Map<CFGNode, Set<CFGNode>> dom, final CFG cfg) {
-        /*
-         * To find idom, we check each dom of a node to see if it is dominating any other
-         * node. Each node should have atmost one i-dom (first node has no immediate dominator)
-         */
-        final Map<CFGNode, CFGNode> idom = new HashMap<CFGNode, CFGNode>();
-        for (final Map.Entry<CFGNode, Set<CFGNode>> entry : dom.entrySet()) {
-            for (final CFGNode pd1 : entry.getValue()) {
-                boolean isIPDom = true;
-                for (final CFGNode pd2 : entry.getValue()) {
-                    if (pd1.getNodeId() != pd2.getNodeId())
-                        if ((dom.get(pd2)).contains(pd1)) {
-                            isIPDom = false;
-                            break;
-                        }
-                }
-                if (isIPDom) {
-                    idom.put(entry.getKey(), pd1);
-                    break;
-                }
-            }
-        }
-
-        return idom;
+        return nodeIndex.get(id);
     }
 
     /**
      * Builds a dominator tree using nodes and their immediate dominators
      *
-     * @param idoms map of nodes and their immediate dominators
+     * @param idoms immediate dominators
+     * @param cfg control flow graph
      */
-    private void buildDomTree(final Map<CFGNode, CFGNode> idoms) throws Exception {
+    private void buildDomTree(final Dominators idoms, final CFG cfg) throws Exception {
         /*
          * Create an edge between idom and corresponding node.
          * Since each node can have only one idom, the resulting graph will form a tree
          */
         try {
-            for (final Map.Entry<CFGNode, CFGNode> entry : idoms.entrySet()) {
-                final TreeNode src = getNode(entry.getValue());
-                final TreeNode dest = getNode(entry.getKey());
+            for (int n = 0; n < idoms.size(); n++) {
+                final int idom = idoms.getImmediateDominator(n);
+                if (idom < 0)
+                    continue;
+                final TreeNode src = getNode(cfg.getNode(idom));
+                final TreeNode dest = getNode(cfg.getNode(n));
 
                 src.addChild(dest);
                 dest.setParent(src);
@@ -289,6 +190,7 @@ public class DTree {
 
         final TreeNode newNode = new TreeNode(cfgNode);
         nodes.add(newNode);
+        nodeIndex.put(newNode);
         return newNode;
     }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.graphs.trees;
+
+import java.util.Arrays;
+
+import boa.graphs.cfg.CFG;
+
+/**
+ * Computes immediate dominators or post-dominators of a control flow graph
+ * with the iterative algorithm of Cooper, Harvey and Kennedy (A Simple, Fast
+ * Dominance Algorithm, 2001).
+ *
+ * Nodes are visited in reverse post-order and each one's immediate dominator
+ * is found by walking up the partial dominator tree of its processed
+ * predecessors, so no dominator sets are ever built.  A few passes suffice
+ * for the graphs of structured code.
+ *
+ * Besides the entry node (or the exit node, for post-dominators) every node
+ * without predecessors (successors) is a root of its own tree, by hanging all
+ * roots off a virtual node.  Nodes not reachable from any root have no
+ * immediate dominator.
+ *
+ * @author hyj
+ */
+public class Dominators {
+	private final int[] idom;
+
+	/**
+	 * Computes the immediate dominators of a control flow graph
+	 *
+	 * @param cfg control flow graph with dense node ids
+	 * @return the immediate dominators, rooted at the entry node
+	 */
+	public static Dominators dominators(final CFG cfg) {
+		final int size = cfg.getNodes().size();
+		final int[][] succs = new int[size][];
+		final int[][] preds = new int[size][];
+		for (int n = 0; n < size; n++) {
+			succs[n] = cfg.getSuccessorIds(n);
+			preds[n] = cfg.getPredecessorIds(n);
+		}
+		return new Dominators(succs, preds, 0);
+	}
+
+	/**
+	 * Computes the immediate post-dominators of a control flow graph
+	 *
+	 * @param cfg control flow graph with dense node ids
+	 * @return the immediate post-dominators, rooted at the exit node
+	 */
+	public static Dominators postDominators(final CFG cfg) {
+		final int size = cfg.getNodes().size();
+		final int[][] succs = new int[size][];
+		final int[][] preds = new int[size][];
+		for (int n = 0; n < size; n++) {
+			succs[n] = cfg.getPredecessorIds(n);
+			preds[n] = cfg.getSuccessorIds(n);
+		}
+		return new Dominators(succs, preds, size - 1);
+	}
+
+	/**
+	 * Computes the immediate dominators of a graph
+	 *
+	 * @param succs successor ids, indexed by node id
+	 * @param preds predecessor ids, indexed by node id
+	 * @param root the id of the main root
+	 */
+	private Dominators(final int[][] succs, final int[][] preds, final int root) {
+		final int size = succs.length;
+		final int virtual = size;
+
+		// the main root comes first, then the other nodes without predecessors
+		final int[] roots = new int[size];
+		int numRoots = 0;
+		if (root >= 0 && root < size)
+			roots[numRoots++] = root;
+		for (int n = 0; n < size; n++)
+			if (n != root && preds[n].length == 0)
+				roots[numRoots++] = n;
+
+		// depth-first post-order from the virtual node, with an explicit stack
+		final int[] postNum = new int[size + 1];
+		Arrays.fill(postNum, -1);
+		final int[] order = new int[size + 1];
+		int numbered = 0;
+		final boolean[] visited = new boolean[size + 1];
+		final int[] stack = new int[size + 1];
+		final int[] next = new int[size + 1];
+		int top = 0;
+		stack[0] = virtual;
+		visited[virtual] = true;
+		while (top >= 0) {
+			final int n = stack[top];
+			final int count = n == virtual ? numRoots : succs[n].length;
+			if (next[n] < count) {
+				final int s = n == virtual ? roots[next[n]++] : succs[n][next[n]++];
+				if (!visited[s]) {
+					visited[s] = true;
+					stack[++top] = s;
+				}
+			} else {
+				postNum[n] = numbered;
+				order[numbered++] = n;
+				top--;
+			}
+		}
+
+		final boolean[] isRoot = new boolean[size];
+		for (int i = 0; i < numRoots; i++)
+			isRoot[roots[i]] = true;
+
+		final int[] doms = new int[size + 1];
+		Arrays.fill(doms, -1);
+		doms[virtual] = virtual;
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			// reverse post-order, skipping the virtual node
+			for (int i = numbered - 2; i >= 0; i--) {
+				final int b = order[i];
+				int newIdom = isRoot[b] ? virtual : -1;
+				for (final int p : preds[b]) {
+					if (doms[p] == -1)
+						continue;
+					newIdom = newIdom == -1 ? p : intersect(doms, postNum, p, newIdom);
+				}
+				if (doms[b] != newIdom) {
+					doms[b] = newIdom;
+					changed = true;
+				}
+			}
+		}
+
+		this.idom = new int[size];
+		for (int n = 0; n < size; n++)
+			this.idom[n] = doms[n] == virtual ? -1 : doms[n];
+	}
+
+	private static int intersect(final int[] doms, final int[] postNum, int a, int b) {
+		while (a != b) {
+			while (postNum[a] < postNum[b])
+				a = doms[a];
+			while (postNum[b] < postNum[a])
+				b = doms[b];
+		}
+		return a;
+	}
+
+	/**
+	 * Returns the immediate dominator of a node
+	 *
+	 * @param id node id
+	 * @return the id of its immediate dominator, or -1 if it has none
+	 */
+	public int getImmediateDominator(final int id) {
+		return idom[id];
+	}
+
+	/**
+	 * Returns the number of nodes
+	 *
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return idom.length;
+	}
+}
@@ -20,6 +20,7 @@ import java.util.*;
 
 import boa.functions.BoaAstIntrinsics;
 import boa.types.Ast.Method;
+import boa.graphs.NodeIndex;
 import boa.graphs.cfg.CFG;
 import boa.graphs.cfg.CFGNode;
 
@@ -33,6 +34,7 @@ public class PDTree {
     private Method md;
     private TreeNode rootNode;
     private final HashSet<TreeNode> nodes = new HashSet<TreeNode>();
+    private final NodeIndex<TreeNode> nodeIndex = new NodeIndex<TreeNode>();
     private boolean hasEntryNode = false; // as specified in ferrante-1987 paper on PDG
 
     /**
@@ -44,9 +46,7 @@ public class PDTree {
     public PDTree(final CFG cfg) throws Exception {
         if (cfg != null && cfg.getNodes().size() > 0) {
             this.md = cfg.getMd();
-            final Map<CFGNode, BitSet> pdom = computePostDomonitors(cfg);
-            final Map<CFGNode, CFGNode> ipdom = computeImmediatePostDominator(pdom, cfg);
-            buildPDomTree(ipdom);
+            buildPDomTree(Dominators.postDominators(cfg), cfg);
         }
     }
 
@@ -81,6 +81,7 @@ public class PDTree {
             entry.setParent(rootNode);
             rootNode.addChild(entry);
             nodes.add(entry);
+            nodeIndex.put(entry);
             hasEntryNode = true;
         }
     }
@@ -132,9 +133,8 @@ public class PDTree {
      * @return the immediate post-dominator of the given node
      */
     public TreeNode getImmediatePostDominator(final TreeNode node) {
-        for (final TreeNode n : nodes)
-            if (n.equals(node))
-                return n.getParent();
+        if (nodes.contains(node))
+            return node.getParent();
         return null;
     }
 
@@ -145,9 +145,9 @@ public class PDTree {
      * @return the immediate post-dominator of the given node
      */
     public TreeNode getImmediatePostDominator(final int nodeid) {
-        for (final TreeNode n : nodes)
-            if (n.getNodeId() == nodeid)
-                return n.getParent();
+        final TreeNode n = nodeIndex.get(nodeid);
+        if (n != null)
+            return n.getParent();
         return null;
     }
 
@@ -158,145 +158,27 @@ public class PDTree {
      * @return the tree node for the given node id. If not found then returns null
      */
     public TreeNode getNode(final int id) {
-        for (final TreeNode node : nodes) {
-            if (node.getNodeId() == id)
-                return node;
-        }
-        return null;
-    }
-
-    /**
-     * Computes and returns map of post-dominators for each node in the control flow graph
-     *
-     * @param cfg control flow graph
-     * @return map of nodes and corresponding set of post-dominator nodes
-     * @throws Exception
-     */
-    private Map<CFGNode, BitSet> computePostDomonitors(final CFG cfg) {
-        final CFGNode[] cfgNodes = cfg.reverseSortNodes();
-        final Map<CFGNode, List<CFGNode>> successors = new HashMap<CFGNode, List<CFGNode>>();
-
-        Map<CFGNode, BitSet> pDomMap = new HashMap<CFGNode, BitSet>();
-        Map<CFGNode, BitSet> currentPDomMap = new HashMap<CFGNode, BitSet>();
-
-        // initialize
-        final BitSet allBits = new BitSet();
-        for (final CFGNode n : cfg.getNodes()) {
-            allBits.set(n.getNodeId());
-        }
-
-        if (cfg.getNodes().size() > 2) {
-            final int stopid = cfg.getNodes().size() - 1;
-
-            for (final CFGNode n : cfg.getNodes()) {
-                if (n.getNodeId() == stopid) {
-                    pDomMap.put(n, new BitSet());
-                    pDomMap.get(n).set(n.getNodeId());
-                } else {
-                    pDomMap.put(n, (BitSet)allBits.clone());
-                }
-
-                successors.put(n, n.getSuccessors());
-            }
-        } else {
-            pDomMap.put(cfg.getNode(0), (BitSet)allBits.clone());
-
-            final CFGNode stopNode = cfg.getNode(1);
-            pDomMap.put(stopNode, new BitSet());
-            pDomMap.get(stopNode).set(stopNode.getNodeId());
-
-            successors.put(cfg.getNode(0), cfg.getNode(0).getSuccessors());
-            successors.put(stopNode, stopNode.getSuccessors());
-        }
-
-        while (true) { // fix point iteration
-            boolean changed = false;
-
-            for (final CFGNode n : cfgNodes) {
-                BitSet currentPDom = null;
-
-                // Intersection[succ(node)]
-                for (final CFGNode succ : successors.get(n)) {
-                    if (currentPDom == null) {
-                        currentPDom = (BitSet)pDomMap.get(succ).clone();
-                        continue;
-                    }
-                    currentPDom.and(pDomMap.get(succ));
-                    if (currentPDom.isEmpty())
-                        break;
-                }
-                // D[n] = {n} Union (Intersection[succ[node]])
-                if (currentPDom == null) currentPDom = new BitSet();
-                currentPDom.set(n.getNodeId());
-
-                if (!pDomMap.get(n).equals(currentPDom))
-                    changed = true;
-                currentPDomMap.put(n, currentPDom);
-            }
-
-            if (!changed)
-                break;
-
-            pDomMap = currentPDomMap;
-            currentPDomMap = new HashMap<CFGNode, BitSet>();
-        }
-
-        // ensure strict post-dominance
-        for (final CFGNode n : cfgNodes) {
-            final BitSet curMap = pDomMap.get(n);
-            curMap.clear(n.getNodeId());
-        }
-
-        return pDomMap;
-    }
-
-    /**
-     * Computes and returns a map of nodes and corresponding immediate post-dominators
-     *
-     * @param pdom map of nodes and corresponding post-dominators
-     * @return map of nodes and corresponding immediate post-dominators
-     */
-    private Map<CFGNode, CFGNode> computeImmediatePostDominator(final Map<CFGNode, BitSet> pdom, final CFG cfg) {
-        final Map<CFGNode, CFGNode> ipdom = new HashMap<CFGNode, CFGNode>();
-
-        // To find ipdom, we check each pdom of a node to see if it is post dominating any other
-        // node. Each node should have at most one ip-dom (last node has no immediate post dominator)
-        for (final Map.Entry<CFGNode, BitSet> entry : pdom.entrySet()) {
-            BitSet bs1 = entry.getValue();
-            for (int pd1 = 0; pd1 < bs1.size(); pd1++) {
-                if (!bs1.get(pd1)) continue;
-                boolean isIPDom = true;
-                for (int pd2 = 0; pd2 < bs1.size(); pd2++) {
-                    if (!bs1.get(pd2) || pd1 == pd2) continue;
-                    if (pdom.containsKey(pd2) && pdom.get(pd2).get(pd1)) {
-                        isIPDom = false;
-                        break;
-                    }
-                }
-                if (isIPDom) {
-                    ipdom.put(entry.getKey(), cfg.getNode(pd1));
-                    break;
-                }
-            }
-        }
-
-        return ipdom;
+        return nodeIndex.get(id);
     }
 
     /**
      * Builds a post dominator tree using nodes and their immediate post-dominators
      *
-     * @param ipdoms map of nodes and their immediate post-dominators
+     * @param ipdoms immediate post-dominators
+     * @param cfg control flow graph
      */
-    private void buildPDomTree(final Map<CFGNode, CFGNode> ipdoms) throws Exception {
+    private void buildPDomTree(final Dominators ipdoms, final CFG cfg) throws Exception {
         /*
          * Create an edge between ipdom and corresponding node.
          * Since each node can have only one ipdom, the resulting graph will form a tree
          */
         try {
-            for (final Map.Entry<CFGNode, CFGNode> entry : ipdoms.entrySet()) {
-                final TreeNode src = getNode(entry.getValue());
-                final TreeNode dest = getNode(entry.getKey());
+            for (int n = 0; n < ipdoms.size(); n++) {
+                final int ipdom = ipdoms.getImmediateDominator(n);
+                if (ipdom < 0)
+                    continue;
+                final TreeNode src = getNode(cfg.getNode(ipdom));
+                final TreeNode dest = getNode(cfg.getNode(n));
 
                 src.addChild(dest);
                 dest.setParent(src);
@@ -322,6 +204,7 @@ public class PDTree {
 
         final TreeNode newNode = new TreeNode(cfgNode);
         nodes.add(newNode);
+        nodeIndex.put(newNode);
         return newNode;
     }
 }
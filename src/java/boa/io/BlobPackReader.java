@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static boa.io.BlobPackWriter.ENTRY_LENGTH;
+import static boa.io.BlobPackWriter.HEADER_LENGTH;
+import static boa.io.BlobPackWriter.ID_LENGTH;
+
+/**
+ * Reads single blobs out of a pack written by {@link BlobPackWriter}.
+ * Both files are memory-mapped, so looking up a blob only touches the
+ * index pages on its binary search path and the blob's own bytes.
+ * A reader may be shared by several threads.
+ *
+ * @author hyj
+ */
+public class BlobPackReader implements Closeable {
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	private final MappedSegments index;
+	private final MappedSegments data;
+	private final long count;
+
+	/**
+	 * A file mapped as a series of (at most 1GB) segments, since a single
+	 * {@link MappedByteBuffer} can not address more than 2GB.
+	 */
+	private static class MappedSegments {
+		private final MappedByteBuffer[] segments;
+		private final long segmentSize;
+
+		MappedSegments(final File f, final long segmentSize) throws IOException {
+			this.segmentSize = segmentSize;
+			final RandomAccessFile raf = new RandomAccessFile(f, "r");
+			try {
+				final FileChannel ch = raf.getChannel();
+				final long length = ch.size();
+				segments = new MappedByteBuffer[(int) ((length + segmentSize - 1) / segmentSize)];
+				for (int i = 0; i < segments.length; i++) {
+					final long start = i * segmentSize;
+					segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, length - start));
+				}
+			} finally {
+				raf.close();
+			}
+		}
+
+		void read(long pos, final byte[] dst, int off, int len) {
+			while (len > 0) {
+				final ByteBuffer seg = segments[(int) (pos / segmentSize)].duplicate();
+				seg.position((int) (pos % segmentSize));
+				final int n = Math.min(len, seg.remaining());
+				seg.get(dst, off, n);
+				pos += n;
+				off += n;
+				len -= n;
+			}
+		}
+	}
+
+	/**
+	 * Construct a BlobPackReader.
+	 *
+	 * @param dir the local directory holding the pack and index files
+	 * @throws IOException if the files are missing or not a blob pack
+	 */
+	public BlobPackReader(final File dir) throws IOException {
+		// entries never straddle two index segments
+		this.index = new MappedSegments(new File(dir, BlobPackWriter.INDEX_FILE_NAME), (SEGMENT_SIZE / ENTRY_LENGTH) * ENTRY_LENGTH);
+		this.data = new MappedSegments(new File(dir, BlobPackWriter.DATA_FILE_NAME), SEGMENT_SIZE);
+
+		final byte[] header = new byte[HEADER_LENGTH];
+		index.read(0, header, 0, HEADER_LENGTH);
+		final ByteBuffer bb = ByteBuffer.wrap(header);
+		if (bb.getInt() != BlobPackWriter.MAGIC)
+			throw new IOException("not a blob pack index: " + dir);
+		this.count = bb.getLong();
+	}
+
+	/**
+	 * Returns the number of blobs in the pack.
+	 *
+	 * @return the number of blobs
+	 */
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * Reads a single blob.
+	 *
+	 * @param id the hex string of the object id
+	 * @return the raw content of the blob, or <code>null</code> if it is not in the pack
+	 * @throws IOException if the blob data is corrupt
+	 */
+	public byte[] get(final String id) throws IOException {
+		final byte[] key = BlobPackWriter.toBytes(id);
+		final byte[] entry = new byte[ENTRY_LENGTH];
+
+		// the index entries are fixed-size and sorted, so binary search them in place
+		long low = 0;
+		long high = count - 1;
+		while (low <= high) {
+			final long mid = (low + high) >>> 1;
+			index.read(HEADER_LENGTH + mid * ENTRY_LENGTH, entry, 0, ENTRY_LENGTH);
+			final int c = BlobPackWriter.compareIds(entry, 0, key);
+			if (c < 0)
+				low = mid + 1;
+			else if (c > 0)
+				high = mid - 1;
+			else
+				return read(ByteBuffer.wrap(entry, ID_LENGTH, ENTRY_LENGTH - ID_LENGTH));
+		}
+		return null;
+	}
+
+	private byte[] read(final ByteBuffer entry) throws IOException {
+		final long offset = entry.getLong();
+		final int length = entry.getInt();
+		final int rawLength = entry.getInt();
+
+		final byte[] deflated = new byte[length];
+		data.read(offset, deflated, 0, length);
+
+		final byte[] raw = new byte[rawLength];
+		final Inflater inflater = new Inflater();
+		inflater.setInput(deflated);
+		try {
+			int n = 0;
+			while (n < rawLength && !inflater.finished())
+				n += inflater.inflate(raw, n, rawLength - n);
+		} catch (final DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+		return raw;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void close() {
+		// mapped buffers are released when they are garbage collected, so
+		// reads still in flight on other threads can finish
+	}
+}
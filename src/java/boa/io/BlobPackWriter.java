@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a blob pack: a data file of individually deflated blobs plus an
+ * index file sorted by object id, which {@link BlobPackReader} memory-maps
+ * so a single blob can be read without loading its whole repository.
+ *
+ * The index file starts with {@link #MAGIC} and the entry count, followed by
+ * fixed-size entries of the 20 byte object id, the offset and the deflated
+ * length in the data file and the inflated length.
+ *
+ * @author hyj
+ */
+public class BlobPackWriter implements Closeable {
+	public static final String DATA_FILE_NAME = "blobs.pack";
+	public static final String INDEX_FILE_NAME = "blobs.idx";
+
+	public static final int MAGIC = 0x424f4150; // "BOAP"
+	public static final int ID_LENGTH = 20;
+	public static final int ENTRY_LENGTH = ID_LENGTH + 8 + 4 + 4;
+	public static final int HEADER_LENGTH = 4 + 8;
+
+	private final File dir;
+	private final DataOutputStream data;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private final byte[] buffer = new byte[64 * 1024];
+	private final List<Entry> entries = new ArrayList<Entry>();
+	private final Set<String> ids = new HashSet<String>();
+	private long offset = 0;
+
+	private static class Entry {
+		final byte[] id;
+		final long offset;
+		final int length;
+		final int rawLength;
+
+		Entry(final byte[] id, final long offset, final int length, final int rawLength) {
+			this.id = id;
+			this.offset = offset;
+			this.length = length;
+			this.rawLength = rawLength;
+		}
+	}
+
+	/**
+	 * Construct a BlobPackWriter.
+	 *
+	 * @param dir the local directory to write the pack and index files into
+	 * @throws IOException
+	 */
+	public BlobPackWriter(final File dir) throws IOException {
+		this.dir = dir;
+		if (!dir.exists())
+			dir.mkdirs();
+		this.data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, DATA_FILE_NAME)), 1 << 20));
+	}
+
+	/**
+	 * Adds a blob to the pack, unless a blob with the same id was already added.
+	 *
+	 * @param id the hex string of the 20 byte object id
+	 * @param content the raw content of the blob
+	 * @return true if the blob was added
+	 * @throws IOException
+	 */
+	public boolean add(final String id, final byte[] content) throws IOException {
+		if (!ids.add(id))
+			return false;
+
+		deflater.reset();
+		deflater.setInput(content);
+		deflater.finish();
+		int length = 0;
+		while (!deflater.finished()) {
+			final int n = deflater.deflate(buffer);
+			data.write(buffer, 0, n);
+			length += n;
+		}
+
+		entries.add(new Entry(toBytes(id), offset, length, content.length));
+		offset += length;
+		return true;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void close() throws IOException {
+		data.close();
+		deflater.end();
+
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(final Entry e1, final Entry e2) {
+				return compareIds(e1.id, 0, e2.id);
+			}
+		});
+
+		final DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, INDEX_FILE_NAME)), 1 << 20));
+		try {
+			index.writeInt(MAGIC);
+			index.writeLong(entries.size());
+			for (final Entry e : entries) {
+				index.write(e.id);
+				index.writeLong(e.offset);
+				index.writeInt(e.length);
+				index.writeInt(e.rawLength);
+			}
+		} finally {
+			index.close();
+		}
+	}
+
+	/**
+	 * Converts an object id hex string into its 20 raw bytes.
+	 *
+	 * @param id the hex string
+	 * @return the raw bytes
+	 */
+	public static byte[] toBytes(final String id) {
+		final byte[] b = new byte[ID_LENGTH];
+		for (int i = 0; i < ID_LENGTH; i++)
+			b[i] = (byte) Integer.parseInt(id.substring(2 * i, 2 * i + 2), 16);
+		return b;
+	}
+
+	/**
+	 * Compares an object id stored in an array against another one, treating
+	 * bytes as unsigned.
+	 */
+	static int compareIds(final byte[] b1, final int s1, final byte[] b2) {
+		for (int i = 0; i < ID_LENGTH; i++) {
+			final int c = (b1[s1 + i] & 0xff) - (b2[i] & 0xff);
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+}
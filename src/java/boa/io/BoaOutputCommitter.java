@@ -20,10 +20,15 @@ package boa.io;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.JobID;
@@ -33,6 +38,9 @@ import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.JobStatus;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.log4j.Logger;
+
+import boa.runtime.Metrics;
 
 /**
  * A {@link FileOutputCommitter} that stores the job results into a database.
@@ -41,6 +49,8 @@ import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
  * @author hungc
  */
 public class BoaOutputCommitter extends FileOutputCommitter {
+	private static final Logger LOG = Logger.getLogger(BoaOutputCommitter.class);
+
 	private final Path outputPath;
 	private final TaskAttemptContext context;
 	public static Throwable lastSeenEx = null;
@@ -56,6 +66,9 @@ public class BoaOutputCommitter extends FileOutputCommitter {
 	public void commitJob(final JobContext context) throws java.io.IOException {
 		super.commitJob(context);
 
+		mergeSplitPartitions(context);
+		writeProfile(context);
+
 		final int boaJobId = context.getConfiguration().getInt("boa.hadoop.jobid", 0);
 		storeOutput(context, boaJobId);
 		updateStatus(null, boaJobId);
@@ -145,10 +158,7 @@ public class BoaOutputCommitter extends FileOutputCommitter {
 			int length = 0;
 			String output = "";
 
-			// ensure the reducer class is initialized in the cleanup task
-			try {
-				context.getReducerClass().getConstructor().newInstance();
-			} catch (final ReflectiveOperationException e) { }
+			initReducerClass(context);
 
 			while (true) {
 				final Path path = new Path(outputPath, "part-r-" + String.format("%05d", partNum));
@@ -197,6 +207,125 @@ public class BoaOutputCommitter extends FileOutputCommitter {
 		}
 	}
 
+	// ensure the reducer class is initialized in the cleanup task
+	private static void initReducerClass(final JobContext context) {
+		try {
+			context.getReducerClass().getConstructor().newInstance();
+		} catch (final ReflectiveOperationException e) { }
+	}
+
+	/**
+	 * Appends the extra partitions of every table that was spread over
+	 * several reducers to the table's own partition, so each table still
+	 * ends up in a single output file.
+	 */
+	private void mergeSplitPartitions(final JobContext context) throws java.io.IOException {
+		final int num = context.getNumReduceTasks();
+
+		initReducerClass(context);
+		if (num <= boa.runtime.BoaPartitioner.getVariableCount())
+			return;
+
+		final FileSystem fileSystem = outputPath.getFileSystem(context.getConfiguration());
+		for (int partNum = 0; partNum < boa.runtime.BoaPartitioner.getVariableCount(); partNum++) {
+			final int[] splits = boa.runtime.BoaPartitioner.getSplitPartitions(partNum, num);
+			if (splits.length == 0)
+				continue;
+
+			final Path path = new Path(outputPath, "part-r-" + String.format("%05d", partNum));
+			final Path merged = new Path(outputPath, "_merged-r-" + String.format("%05d", partNum));
+			final FSDataOutputStream out = fileSystem.create(merged, true);
+			try {
+				append(fileSystem, path, out, context);
+				for (final int split : splits)
+					append(fileSystem, new Path(outputPath, "part-r-" + String.format("%05d", split)), out, context);
+			} finally {
+				out.close();
+			}
+			fileSystem.rename(merged, path);
+		}
+	}
+
+	/**
+	 * Writes the counters collected by {@link boa.runtime.Metrics} in the map
+	 * tasks to <code>_profile.json</code> in the output directory.
+	 */
+	private void writeProfile(final JobContext context) {
+		if (!context.getConfiguration().getBoolean("boa.metrics", false))
+			return;
+
+		try {
+			final JobClient jobClient = new JobClient(new JobConf(context.getConfiguration()));
+			final RunningJob job = jobClient.getJob((org.apache.hadoop.mapred.JobID) JobID.forName(context.getConfiguration().get("mapred.job.id")));
+
+			final Map<String, Map<String, Long>> families = new TreeMap<String, Map<String, Long>>();
+			final Map<String, Long> emits = new TreeMap<String, Long>();
+			for (final Counters.Counter counter : job.getCounters().getGroup(Metrics.COUNTER_GROUP)) {
+				final String name = counter.getName();
+				if (name.startsWith(Metrics.EMITS_PREFIX)) {
+					emits.put(name.substring(Metrics.EMITS_PREFIX.length()), counter.getValue());
+				} else {
+					final int dot = name.indexOf('.');
+					if (dot < 0)
+						continue;
+					final String family = name.substring(0, dot);
+					if (!families.containsKey(family))
+						families.put(family, new TreeMap<String, Long>());
+					families.get(family).put(name.substring(dot + 1).toLowerCase(), counter.getValue());
+				}
+			}
+
+			final StringBuilder sb = new StringBuilder();
+			sb.append("{\n  \"job\": ").append(quote(job.getID().toString())).append(",\n  \"families\": {");
+			String sep = "\n";
+			for (final Map.Entry<String, Map<String, Long>> e : families.entrySet()) {
+				sb.append(sep).append("    ").append(quote(e.getKey())).append(": ");
+				appendObject(sb, e.getValue());
+				sep = ",\n";
+			}
+			sb.append("\n  },\n  \"emits\": ");
+			appendObject(sb, emits);
+			sb.append("\n}\n");
+
+			final FileSystem fileSystem = outputPath.getFileSystem(context.getConfiguration());
+			final FSDataOutputStream out = fileSystem.create(new Path(outputPath, "_profile.json"), true);
+			try {
+				out.write(sb.toString().getBytes("UTF-8"));
+			} finally {
+				out.close();
+			}
+		} catch (final Exception e) {
+			LOG.warn("unable to write the profile of the job", e);
+		}
+	}
+
+	private static void appendObject(final StringBuilder sb, final Map<String, Long> values) {
+		sb.append('{');
+		String sep = " ";
+		for (final Map.Entry<String, Long> e : values.entrySet()) {
+			sb.append(sep).append(quote(e.getKey())).append(": ").append(e.getValue());
+			sep = ", ";
+		}
+		sb.append(" }");
+	}
+
+	private static String quote(final String s) {
+		return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private static void append(final FileSystem fileSystem, final Path path, final FSDataOutputStream out, final JobContext context) throws java.io.IOException {
+		if (!fileSystem.exists(path))
+			return;
+
+		final FSDataInputStream in = fileSystem.open(path);
+		try {
+			IOUtils.copyBytes(in, out, context.getConfiguration(), false);
+		} finally {
+			in.close();
+		}
+		fileSystem.delete(path, false);
+	}
+
 	public static void setJobID(final String id, final int jobId) {
 		if (jobId == 0)
 			return;
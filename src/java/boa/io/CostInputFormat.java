@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+
+/**
+ * A {@link SequenceFileInputFormat} for <code>projects.seq</code> that packs
+ * splits by the estimated cost of their projects instead of by bytes.
+ *
+ * The cost of every project is read from <code>projects.cost</code>, written
+ * next to the input by {@link boa.datagen.ProjectCostGen}.  Splits are kept
+ * contiguous and start at sync marks, so the usual record reader reads them.
+ * They hold about the same cost each, and as many are made as byte based
+ * splitting would make (or <code>boa.split.count</code>).  A run of records
+ * that costs at least that much on its own gets a split of its own, so one
+ * giant repository does not hold up the projects packed with it.
+ *
+ * When the cost file is missing or does not match the input, the splits are
+ * made by bytes as before.
+ *
+ * @author hyj
+ */
+public class CostInputFormat extends SequenceFileInputFormat<Text, BytesWritable> {
+	public static final String COST_FILE_NAME = "projects.cost";
+
+	/** {@inheritDoc} */
+	@Override
+	public List<InputSplit> getSplits(final JobContext job) throws IOException {
+		final List<InputSplit> byBytes = super.getSplits(job);
+
+		final List<FileStatus> files = listStatus(job);
+		if (files.size() != 1)
+			return byBytes;
+
+		final Configuration conf = job.getConfiguration();
+		final FileStatus file = files.get(0);
+		final Path path = file.getPath();
+		final FileSystem fs = path.getFileSystem(conf);
+		final Path costs = new Path(path.getParent(), COST_FILE_NAME);
+		if (!fs.exists(costs)) {
+			System.err.println("no " + COST_FILE_NAME + " found, splitting by bytes");
+			return byBytes;
+		}
+
+		// group the records into runs that start at a sync mark, as splits can
+		// not start anywhere else
+		final List<Long> starts = new ArrayList<Long>();
+		final List<Double> runCosts = new ArrayList<Double>();
+		long length = -1;
+		double total = 0;
+		final SequenceFile.Reader r = new SequenceFile.Reader(fs, costs, conf);
+		try {
+			final LongWritable pos = new LongWritable();
+			final ProjectCost cost = new ProjectCost();
+			while (r.next(pos, cost)) {
+				length = pos.get();
+				if (cost.isSplittable() || starts.isEmpty()) {
+					starts.add(pos.get());
+					runCosts.add(0.0);
+				}
+				final double c = cost.getCost(conf);
+				runCosts.set(runCosts.size() - 1, runCosts.get(runCosts.size() - 1) + c);
+				total += c;
+			}
+		} finally {
+			r.close();
+		}
+
+		// the last entry marks the end of the file it was made for
+		if (length != file.getLen() || starts.size() < 2) {
+			System.err.println(COST_FILE_NAME + " does not match " + path + ", splitting by bytes");
+			return byBytes;
+		}
+		starts.remove(starts.size() - 1);
+		runCosts.remove(runCosts.size() - 1);
+
+		final int count = Math.max(1, conf.getInt("boa.split.count", byBytes.size()));
+		final double target = total / count;
+
+		final BlockLocation[] blocks = fs.getFileBlockLocations(file, 0, length);
+		final List<InputSplit> splits = new ArrayList<InputSplit>();
+		int isolated = 0;
+		long start = 0;
+		double cost = 0;
+		for (int i = 0; i < starts.size(); i++) {
+			final long runStart = starts.get(i);
+			final double runCost = runCosts.get(i);
+			final boolean outlier = runCost >= target;
+			if (cost > 0 && (outlier || cost + runCost > target)) {
+				splits.add(makeSplit(path, start, runStart, blocks));
+				start = runStart;
+				cost = 0;
+			}
+			cost += runCost;
+			if (outlier) {
+				final long end = i + 1 < starts.size() ? starts.get(i + 1) : length;
+				splits.add(makeSplit(path, start, end, blocks));
+				start = end;
+				cost = 0;
+				isolated++;
+			}
+		}
+		if (start < length)
+			splits.add(makeSplit(path, start, length, blocks));
+
+		System.err.println("made " + splits.size() + " splits by cost (" + isolated + " isolated) instead of " + byBytes.size() + " by bytes");
+		return splits;
+	}
+
+	private FileSplit makeSplit(final Path path, final long start, final long end, final BlockLocation[] blocks) throws IOException {
+		final String[] hosts = blocks.length == 0 ? new String[0] : blocks[getBlockIndex(blocks, start)].getHosts();
+		return new FileSplit(path, start, end - start, hosts);
+	}
+}
@@ -16,30 +16,64 @@
  */
 package boa.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
 
 /**
  * A {@link WritableComparable} that contains a low resolution key which is the
  * name of the table this value is being emitted to, and a high resolution key
  * which is an index into that table.
  * 
+ * Names of tables registered with {@link #setTableNames(String[])} are written
+ * as their ordinal, and {@link #compare(byte[], int, int, byte[], int, int)}
+ * orders serialized keys exactly like {@link #compareTo(EmitKey)} without
+ * deserializing them.
+ * 
  * @author anthonyu
  * @author rdyer
  */
 public class EmitKey implements WritableComparable<EmitKey>, RawComparator<EmitKey>, Serializable {
 	private static final long serialVersionUID = -6302400030199718829L;
 
+	private static String[] tableNames = new String[0];
+	private static Map<String, Integer> tableOrdinals = new HashMap<String, Integer>();
+
 	private String index;
 	private String name;
 
+	/**
+	 * Set the names of the tables of the job.  Every task of a job must set
+	 * the same names before keys are written or read.
+	 * 
+	 * @param names
+	 *            The names of the output tables
+	 */
+	public static void setTableNames(final String[] names) {
+		// ordinals follow the name order, so they compare like the names
+		final String[] sorted = names.clone();
+		Arrays.sort(sorted);
+
+		final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+		for (int i = 0; i < sorted.length; i++)
+			ordinals.put(sorted[i], i);
+
+		tableNames = sorted;
+		tableOrdinals = ordinals;
+	}
+
 	/**
 	 * Construct an EmitKey.
 	 */
@@ -80,21 +114,100 @@ public class EmitKey implements WritableComparable<EmitKey>, RawComparator<EmitK
 	/** {@inheritDoc} */
 	@Override
 	public void readFields(final DataInput in) throws IOException {
+		final int ordinal = WritableUtils.readVInt(in);
+		if (ordinal < 0)
+			this.name = Text.readString(in);
+		else
+			this.name = tableNames[ordinal];
 		this.index = Text.readString(in);
-		this.name = Text.readString(in);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void write(final DataOutput out) throws IOException {
+		final Integer ordinal = tableOrdinals.get(this.name);
+		if (ordinal == null) {
+			WritableUtils.writeVInt(out, -1);
+			Text.writeString(out, this.name);
+		} else {
+			WritableUtils.writeVInt(out, ordinal);
+		}
 		Text.writeString(out, this.index);
-		Text.writeString(out, this.name);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public int compare(final byte[] b1, final int s1, final int l1, final byte[] b2, final int s2, final int l2) {
-		return WritableComparator.compareBytes(b1, s1, l1, b2, s2, l2);
+		try {
+			final int t1 = WritableComparator.readVInt(b1, s1);
+			final int t2 = WritableComparator.readVInt(b2, s2);
+			int i1 = s1 + WritableUtils.decodeVIntSize(b1[s1]);
+			int i2 = s2 + WritableUtils.decodeVIntSize(b2[s2]);
+
+			// compare the names
+			if (t1 >= 0 && t2 >= 0) {
+				if (t1 != t2)
+					return t1 < t2 ? -1 : 1;
+			} else if (t1 < 0 && t2 < 0) {
+				final int n1 = WritableComparator.readVInt(b1, i1);
+				final int n2 = WritableComparator.readVInt(b2, i2);
+				i1 += WritableUtils.decodeVIntSize(b1[i1]);
+				i2 += WritableUtils.decodeVIntSize(b2[i2]);
+				final int c = compareStrings(b1, i1, n1, b2, i2, n2);
+				if (c != 0)
+					return c;
+				i1 += n1;
+				i2 += n2;
+			} else {
+				// a registered table against an unregistered one, not worth
+				// a fast path
+				final EmitKey k1 = new EmitKey();
+				final EmitKey k2 = new EmitKey();
+				k1.readFields(new DataInputStream(new ByteArrayInputStream(b1, s1, l1)));
+				k2.readFields(new DataInputStream(new ByteArrayInputStream(b2, s2, l2)));
+				return k1.compareTo(k2);
+			}
+
+			// compare the indices
+			final int n1 = WritableComparator.readVInt(b1, i1);
+			final int n2 = WritableComparator.readVInt(b2, i2);
+			i1 += WritableUtils.decodeVIntSize(b1[i1]);
+			i2 += WritableUtils.decodeVIntSize(b2[i2]);
+			return compareStrings(b1, i1, n1, b2, i2, n2);
+		} catch (final IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Compare two UTF-8 encoded strings the way {@link String#compareTo(String)}
+	 * compares the decoded strings.
+	 */
+	private static int compareStrings(final byte[] b1, final int s1, final int l1, final byte[] b2, final int s2, final int l2) {
+		final int n = Math.min(l1, l2);
+		for (int i = 0; i < n; i++) {
+			final int a = b1[s1 + i] & 0xff;
+			final int b = b2[s2 + i] & 0xff;
+			if (a == b)
+				continue;
+
+			// the bytes before i are equal, so both characters start at j
+			int j = i;
+			while (j > 0 && (b1[s1 + j] & 0xc0) == 0x80)
+				j--;
+
+			// UTF-8 orders by code point, but String orders by UTF-16 unit,
+			// which puts supplementary characters (4 byte sequences) before
+			// U+E000 to U+FFFF (3 byte sequences led by 0xEE or 0xEF)
+			if (j == i) {
+				if (a >= 0xf0 && (b == 0xee || b == 0xef))
+					return -1;
+				if (b >= 0xf0 && (a == 0xee || a == 0xef))
+					return 1;
+			}
+			return a - b;
+		}
+		return l1 - l2;
 	}
 
 	/** {@inheritDoc} */
@@ -21,9 +21,11 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Base64;
 
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 
 import boa.functions.BoaCasts;
 
@@ -31,11 +33,33 @@ import boa.functions.BoaCasts;
  * A {@link Writable} that contains a datum and an optional metadatum to be
  * emitted to a Boa table.
  * 
+ * Single long, double and boolean values are written in binary (longs as
+ * variable-length integers) instead of as strings, and only formatted when
+ * {@link #getData()} or {@link #getMetadata()} is called.  Aggregators that
+ * combine into a binary summary emit it as raw bytes.
+ * 
  * @author anthonyu
  * @author rdyer
  */
 public class EmitValue implements Writable {
+	// kinds of data and metadata, as written in the header byte
+	private static final byte NONE = 0;
+	private static final byte STRINGS = 1;
+	private static final byte LONG = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte BOOLEAN = 4;
+	private static final byte BYTES = 5;
+
+	// numeric values are kept unformatted, the strings are built on demand
+	private byte kind = STRINGS;
+	private long longData;
+	private double doubleData;
+	private byte[] bytesData;
 	private String[] data;
+
+	private byte metadataKind = NONE;
+	private long longMetadata;
+	private double doubleMetadata;
 	private String metadata;
 
 	/**
@@ -54,8 +78,8 @@ public class EmitValue implements Writable {
 	 *            A {@link String} containing the metadata to be emitted
 	 */
 	public EmitValue(final String[] data, final String metadata) {
-		this.data = data;
-		this.metadata = metadata;
+		this.setData(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -82,8 +106,8 @@ public class EmitValue implements Writable {
 		for (int i = 0; i < data.length; i++)
 			strings[i] = data[i].toString();
 
-		this.data = strings;
-		this.metadata = metadata;
+		this.setData(strings);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -127,7 +151,8 @@ public class EmitValue implements Writable {
 	 *            A long representing the metadata to be emitted
 	 */
 	public EmitValue(final String data, final long metadata) {
-		this(new String[] { data }, BoaCasts.longToString(metadata));
+		this.setData(new String[] { data });
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -139,7 +164,8 @@ public class EmitValue implements Writable {
 	 *            A double representing the metadata to be emitted
 	 */
 	public EmitValue(final String data, final double metadata) {
-		this(new String[] { data }, BoaCasts.doubleToString(metadata));
+		this.setData(new String[] { data });
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -149,7 +175,7 @@ public class EmitValue implements Writable {
 	 *            A long representing the data to be emitted
 	 */
 	public EmitValue(final long data) {
-		this(new String[] { BoaCasts.longToString(data) }, null);
+		this.setLong(data);
 	}
 
 	/**
@@ -161,7 +187,8 @@ public class EmitValue implements Writable {
 	 *            A {@link String} containing the metadata to be emitted
 	 */
 	public EmitValue(final long data, final String metadata) {
-		this(new String[] { BoaCasts.longToString(data) }, metadata);
+		this.setLong(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -173,7 +200,8 @@ public class EmitValue implements Writable {
 	 *            A long representing the metadata to be emitted
 	 */
 	public EmitValue(final long data, final long metadata) {
-		this(new String[] { BoaCasts.longToString(data) }, BoaCasts.longToString(metadata));
+		this.setLong(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -185,7 +213,8 @@ public class EmitValue implements Writable {
 	 *            A double representing the metadata to be emitted
 	 */
 	public EmitValue(final long data, final double metadata) {
-		this(new String[] { BoaCasts.longToString(data) }, BoaCasts.doubleToString(metadata));
+		this.setLong(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -195,7 +224,7 @@ public class EmitValue implements Writable {
 	 *            A double representing the data to be emitted
 	 */
 	public EmitValue(final double data) {
-		this(new String[] { BoaCasts.doubleToString(data) }, null);
+		this.setDouble(data);
 	}
 
 	/**
@@ -207,7 +236,8 @@ public class EmitValue implements Writable {
 	 *            A {@link String} containing the metadata to be emitted
 	 */
 	public EmitValue(final double data, final String metadata) {
-		this(new String[] { BoaCasts.doubleToString(data) }, metadata);
+		this.setDouble(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -219,7 +249,8 @@ public class EmitValue implements Writable {
 	 *            A long representing the metadata to be emitted
 	 */
 	public EmitValue(final double data, final long metadata) {
-		this(new String[] { BoaCasts.doubleToString(data) }, BoaCasts.longToString(metadata));
+		this.setDouble(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -231,7 +262,8 @@ public class EmitValue implements Writable {
 	 *            A double representing the metadata to be emitted
 	 */
 	public EmitValue(final double data, final double metadata) {
-		this(new String[] { BoaCasts.doubleToString(data) }, BoaCasts.doubleToString(metadata));
+		this.setDouble(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -241,7 +273,7 @@ public class EmitValue implements Writable {
 	 *            A boolean representing the data to be emitted
 	 */
 	public EmitValue(final boolean data) {
-		this(new String[] { BoaCasts.booleanToString(data) }, null);
+		this.setBoolean(data);
 	}
 
 	/**
@@ -253,7 +285,8 @@ public class EmitValue implements Writable {
 	 *            A {@link String} containing the metadata to be emitted
 	 */
 	public EmitValue(final boolean data, final String metadata) {
-		this(new String[] { BoaCasts.booleanToString(data) }, metadata);
+		this.setBoolean(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -265,7 +298,8 @@ public class EmitValue implements Writable {
 	 *            A long representing the metadata to be emitted
 	 */
 	public EmitValue(final boolean data, final long metadata) {
-		this(new String[] { BoaCasts.booleanToString(data) }, BoaCasts.longToString(metadata));
+		this.setBoolean(data);
+		this.setMetadata(metadata);
 	}
 
 	/**
@@ -277,43 +311,170 @@ public class EmitValue implements Writable {
 	 *            A double representing the metadata to be emitted
 	 */
 	public EmitValue(final boolean data, final double metadata) {
-		this(new String[] { BoaCasts.booleanToString(data) }, BoaCasts.doubleToString(metadata));
+		this.setBoolean(data);
+		this.setMetadata(metadata);
+	}
+
+	/**
+	 * Construct an EmitValue.
+	 * 
+	 * @param data
+	 *            An array of byte containing the data to be emitted
+	 */
+	public EmitValue(final byte[] data) {
+		this.setBytes(data);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void readFields(final DataInput in) throws IOException {
-		final int count = in.readInt();
-
-		this.data = new String[count];
-		for (int i = 0; i < count; i++)
-			this.data[i] = Text.readString(in);
-
-		final String metadata = Text.readString(in);
-		if (metadata.equals(""))
-			this.metadata = null;
-		else
-			this.metadata = metadata;
+		final byte header = in.readByte();
+
+		this.kind = (byte) (header & 0x0f);
+		this.data = null;
+		switch (this.kind) {
+		case LONG:
+			this.longData = WritableUtils.readVLong(in);
+			break;
+		case DOUBLE:
+			this.doubleData = in.readDouble();
+			break;
+		case BOOLEAN:
+			this.longData = in.readBoolean() ? 1 : 0;
+			break;
+		case BYTES:
+			this.bytesData = new byte[WritableUtils.readVInt(in)];
+			in.readFully(this.bytesData);
+			break;
+		default:
+			final int count = WritableUtils.readVInt(in);
+			this.data = new String[count];
+			for (int i = 0; i < count; i++)
+				this.data[i] = Text.readString(in);
+			break;
+		}
+
+		this.metadataKind = (byte) ((header >> 4) & 0x0f);
+		this.metadata = null;
+		switch (this.metadataKind) {
+		case LONG:
+			this.longMetadata = WritableUtils.readVLong(in);
+			break;
+		case DOUBLE:
+			this.doubleMetadata = in.readDouble();
+			break;
+		case STRINGS:
+			this.metadata = Text.readString(in);
+			break;
+		default:
+			break;
+		}
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void write(final DataOutput out) throws IOException {
-		out.writeInt(this.data.length);
+		out.writeByte(this.kind | this.metadataKind << 4);
+
+		switch (this.kind) {
+		case LONG:
+			WritableUtils.writeVLong(out, this.longData);
+			break;
+		case DOUBLE:
+			out.writeDouble(this.doubleData);
+			break;
+		case BOOLEAN:
+			out.writeBoolean(this.longData != 0);
+			break;
+		case BYTES:
+			WritableUtils.writeVInt(out, this.bytesData.length);
+			out.write(this.bytesData);
+			break;
+		default:
+			WritableUtils.writeVInt(out, this.data.length);
+			for (final String d : this.data)
+				Text.writeString(out, d);
+			break;
+		}
+
+		switch (this.metadataKind) {
+		case LONG:
+			WritableUtils.writeVLong(out, this.longMetadata);
+			break;
+		case DOUBLE:
+			out.writeDouble(this.doubleMetadata);
+			break;
+		case STRINGS:
+			Text.writeString(out, this.metadata);
+			break;
+		default:
+			break;
+		}
+	}
 
-		for (final String d : this.data)
-			Text.writeString(out, d);
+	/**
+	 * @return true if the datum is a single long
+	 */
+	public boolean isLong() {
+		return this.kind == LONG;
+	}
 
-		if (this.metadata == null)
-			Text.writeString(out, "");
-		else
-			Text.writeString(out, this.metadata);
+	/**
+	 * @return true if the datum is a single double
+	 */
+	public boolean isDouble() {
+		return this.kind == DOUBLE;
+	}
+
+	/**
+	 * @return true if the datum is raw bytes
+	 */
+	public boolean isBytes() {
+		return this.kind == BYTES;
+	}
+
+	/**
+	 * @return the datum, if {@link #isLong()}
+	 */
+	public long getLong() {
+		return this.longData;
+	}
+
+	/**
+	 * @return the datum, if {@link #isDouble()}
+	 */
+	public double getDouble() {
+		return this.doubleData;
+	}
+
+	/**
+	 * @return the datum, if {@link #isBytes()}
+	 */
+	public byte[] getBytes() {
+		return this.bytesData;
 	}
 
 	/**
 	 * @return the data
 	 */
 	public String[] getData() {
+		if (this.data == null)
+			switch (this.kind) {
+			case LONG:
+				this.data = new String[] { BoaCasts.longToString(this.longData) };
+				break;
+			case DOUBLE:
+				this.data = new String[] { BoaCasts.doubleToString(this.doubleData) };
+				break;
+			case BOOLEAN:
+				this.data = new String[] { BoaCasts.booleanToString(this.longData != 0) };
+				break;
+			case BYTES:
+				this.data = new String[] { Base64.getEncoder().encodeToString(this.bytesData) };
+				break;
+			default:
+				break;
+			}
 		return this.data;
 	}
 
@@ -322,13 +483,49 @@ public class EmitValue implements Writable {
 	 *            the data to set
 	 */
 	public void setData(final String[] data) {
+		this.kind = STRINGS;
 		this.data = data;
 	}
 
+	private void setLong(final long data) {
+		this.kind = LONG;
+		this.longData = data;
+		this.data = null;
+	}
+
+	private void setDouble(final double data) {
+		this.kind = DOUBLE;
+		this.doubleData = data;
+		this.data = null;
+	}
+
+	private void setBoolean(final boolean data) {
+		this.kind = BOOLEAN;
+		this.longData = data ? 1 : 0;
+		this.data = null;
+	}
+
+	private void setBytes(final byte[] data) {
+		this.kind = BYTES;
+		this.bytesData = data;
+		this.data = null;
+	}
+
 	/**
 	 * @return the metadata
 	 */
 	public String getMetadata() {
+		if (this.metadata == null)
+			switch (this.metadataKind) {
+			case LONG:
+				this.metadata = BoaCasts.longToString(this.longMetadata);
+				break;
+			case DOUBLE:
+				this.metadata = BoaCasts.doubleToString(this.doubleMetadata);
+				break;
+			default:
+				break;
+			}
 		return this.metadata;
 	}
 
@@ -337,15 +534,36 @@ public class EmitValue implements Writable {
 	 *            the metadatum to set
 	 */
 	public void setMetadata(final String metadata) {
-		this.metadata = metadata;
+		this.metadataKind = metadata == null || metadata.equals("") ? NONE : STRINGS;
+		this.metadata = this.metadataKind == NONE ? null : metadata;
+	}
+
+	/**
+	 * @param metadata
+	 *            the metadatum to set
+	 */
+	public void setMetadata(final long metadata) {
+		this.metadataKind = LONG;
+		this.longMetadata = metadata;
+		this.metadata = null;
+	}
+
+	/**
+	 * @param metadata
+	 *            the metadatum to set
+	 */
+	public void setMetadata(final double metadata) {
+		this.metadataKind = DOUBLE;
+		this.doubleMetadata = metadata;
+		this.metadata = null;
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + Arrays.hashCode(this.data);
-		result = prime * result + (this.metadata == null ? 0 : this.metadata.hashCode());
+		result = prime * result + Arrays.hashCode(this.getData());
+		result = prime * result + (this.getMetadata() == null ? 0 : this.getMetadata().hashCode());
 		return result;
 	}
 
@@ -358,12 +576,12 @@ public class EmitValue implements Writable {
 		if (this.getClass() != obj.getClass())
 			return false;
 		final EmitValue other = (EmitValue) obj;
-		if (!Arrays.equals(this.data, other.data))
+		if (!Arrays.equals(this.getData(), other.getData()))
 			return false;
-		if (this.metadata == null) {
-			if (other.metadata != null)
+		if (this.getMetadata() == null) {
+			if (other.getMetadata() != null)
 				return false;
-		} else if (!this.metadata.equals(other.metadata))
+		} else if (!this.getMetadata().equals(other.getMetadata()))
 			return false;
 		return true;
 	}
@@ -371,6 +589,6 @@ public class EmitValue implements Writable {
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
-		return Arrays.toString(this.data) + ":" + this.metadata;
+		return Arrays.toString(this.getData()) + ":" + this.getMetadata();
 	}
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * The work that sits behind one record of <code>projects.seq</code>, recorded
+ * at datagen time by {@link boa.datagen.ProjectCostGen} and read by
+ * {@link CostInputFormat} to pack splits.
+ *
+ * @author hyj
+ */
+public class ProjectCost implements Writable {
+	private boolean splittable;
+	private long revisions;
+	private long files;
+	private long bytes;
+
+	/**
+	 * Construct an empty ProjectCost.
+	 */
+	public ProjectCost() {
+	}
+
+	/**
+	 * Construct a ProjectCost.
+	 *
+	 * @param splittable whether a split may start at this record
+	 * @param revisions the number of revisions of the project
+	 * @param files the number of changed files of all revisions and head snapshots
+	 * @param bytes the size of the project record and of its repositories
+	 */
+	public ProjectCost(final boolean splittable, final long revisions, final long files, final long bytes) {
+		this.splittable = splittable;
+		this.revisions = revisions;
+		this.files = files;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Whether a split may start at this record, that is whether a sync mark
+	 * precedes it in the sequence file.
+	 */
+	public boolean isSplittable() {
+		return this.splittable;
+	}
+
+	public long getRevisions() {
+		return this.revisions;
+	}
+
+	public long getFiles() {
+		return this.files;
+	}
+
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Estimates the cost of visiting the project.  The weights of revisions,
+	 * files and kilobytes can be tuned with <code>boa.split.cost.revision</code>,
+	 * <code>boa.split.cost.file</code> and <code>boa.split.cost.kb</code>.
+	 *
+	 * @param conf the job configuration
+	 * @return the estimated cost, at least 1
+	 */
+	public double getCost(final Configuration conf) {
+		return 1
+				+ this.revisions * conf.getFloat("boa.split.cost.revision", 1)
+				+ this.files * conf.getFloat("boa.split.cost.file", 1)
+				+ this.bytes / 1024.0 * conf.getFloat("boa.split.cost.kb", 1);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void readFields(final DataInput in) throws IOException {
+		this.splittable = in.readBoolean();
+		this.revisions = WritableUtils.readVLong(in);
+		this.files = WritableUtils.readVLong(in);
+		this.bytes = WritableUtils.readVLong(in);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		out.writeBoolean(this.splittable);
+		WritableUtils.writeVLong(out, this.revisions);
+		WritableUtils.writeVLong(out, this.files);
+		WritableUtils.writeVLong(out, this.bytes);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return "revisions: " + this.revisions + ", files: " + this.files + ", bytes: " + this.bytes + (this.splittable ? "" : " (joined)");
+	}
+}
@@ -407,24 +407,7 @@ public abstract class BoaAbstractTraversal<T1> {
 				case REVERSEPOSTORDER:
 				case ITERATIVE:
 				case RANDOM:
-					boolean fixpFlag;
-					do {
-						prevOutputMapObj = new java.util.HashMap<Long, T1>(outputMapObj);
-						traverse(cfg, direction, kind);
-						fixpFlag = true;
-						final java.util.HashSet<CFGNode> nl = cfg.getNodes();
-						for (final CFGNode node : nl) {
-							boolean curFlag = outputMapObj.containsKey(node.getId());
-							if (curFlag) {
-								if (outputMapObj.containsKey(node.getId()) && prevOutputMapObj.containsKey(node.getId())) {
-									fixpFlag = fixpFlag && fixp.invoke((T1)outputMapObj.get(node.getId()), (T1)prevOutputMapObj.get(node.getId()));
-								} else {
-									fixpFlag = false;
-									break;
-								}
-							}
-						}
-					} while (!fixpFlag);
+					solve(cfg, direction, kind, fixp);
 					break;
 				case WORKLIST_POSTORDER:
 				case WORKLIST_REVERSEPOSTORDER:
@@ -515,6 +498,92 @@ public abstract class BoaAbstractTraversal<T1> {
 		}
 	}
 
+	/**
+	 * Traverses a CFG until its results reach a fixpoint.
+	 *
+	 * The first pass visits the nodes in the order given by <code>kind</code>.
+	 * After that only the nodes whose inputs changed are visited again: the
+	 * successors of a changed node for forward traversals and its
+	 * predecessors for backward ones.  Pending nodes are swept in reverse
+	 * post-order (forward) or post-order (backward), and each node is checked
+	 * for convergence on its own against its previous result, which is kept
+	 * in an array indexed by node id.
+	 *
+	 * @param cfg the CFG to traverse
+	 * @param direction the traversal direction
+	 * @param kind the order of the first pass
+	 * @param fixp decides if a node's result has converged
+	 */
+	public final void solve(final CFG cfg, final Traversal.TraversalDirection direction, final Traversal.TraversalKind kind, final BoaAbstractFixP fixp) throws Exception {
+		final long start = Metrics.begin(Metrics.Family.TRAVERSAL_FIXPOINT);
+		try {
+			traverse(cfg, direction, kind);
+			if (outputMapObj == null || outputMapObj.isEmpty())
+				return;
+
+			final boolean forward = direction == Traversal.TraversalDirection.FORWARD;
+
+			int max = -1;
+			for (final CFGNode node : cfg.getNodes())
+				max = Math.max(max, node.getNodeId());
+
+			// the sweep order, with nodes not reachable from the entry last
+			final int[] order = new int[max + 1];
+			final int[] rank = new int[max + 1];
+			java.util.Arrays.fill(rank, -1);
+			int size = 0;
+			for (final int id : forward ? cfg.getReversePostOrder() : cfg.getPostOrder()) {
+				rank[id] = size;
+				order[size++] = id;
+			}
+			for (int id = 0; id <= max; id++) {
+				if (rank[id] == -1 && cfg.getNode(id) != null) {
+					rank[id] = size;
+					order[size++] = id;
+				}
+			}
+
+			// only nodes the first pass reached take part
+			final Object[] prev = new Object[max + 1];
+			for (int id = 0; id <= max; id++)
+				if (rank[id] != -1)
+					prev[id] = outputMapObj.get((long) id);
+
+			final java.util.BitSet pending = new java.util.BitSet(size);
+			for (int id = 0; id <= max; id++)
+				if (prev[id] != null)
+					enqueueDependents(cfg, id, forward, prev, rank, pending);
+
+			int visits = 0;
+			int i = pending.nextSetBit(0);
+			while (i >= 0) {
+				pending.clear(i);
+				final int id = order[i];
+				traverse(cfg.getNode(id), false);
+				visits++;
+				final Object cur = outputMapObj.get((long) id);
+				if (cur != null) {
+					if (!fixp.invoke(cur, prev[id]))
+						enqueueDependents(cfg, id, forward, prev, rank, pending);
+					prev[id] = cur;
+				}
+
+				i = pending.nextSetBit(i + 1);
+				if (i < 0)
+					i = pending.nextSetBit(0);
+			}
+			Metrics.items(Metrics.Family.TRAVERSAL_FIXPOINT, visits);
+		} finally {
+			Metrics.end(Metrics.Family.TRAVERSAL_FIXPOINT, start);
+		}
+	}
+
+	private static void enqueueDependents(final CFG cfg, final int id, final boolean forward, final Object[] prev, final int[] rank, final java.util.BitSet pending) {
+		for (final int d : forward ? cfg.getSuccessorIds(id) : cfg.getPredecessorIds(id))
+			if (prev[d] != null)
+				pending.set(rank[d]);
+	}
+
 	public final void traverseWithFixp(final CFG cfg, final Traversal.TraversalDirection direction, final Traversal.TraversalKind kind, final BoaAbstractFixP fixp) throws Exception {
 		if (preTraverse(cfg)) {
 			if (outputMapObj==null) {
@@ -36,9 +36,64 @@ import boa.types.Toplevel.Project;
  * By default, all <code>preVisit()</code> methods call {@link #defaultPreVisit()} and return <code>true</code>.
  * By default, all <code>postVisit()</code> methods call {@link #defaultPostVisit()}.
  * 
+ * A visitor can be told which types of nodes it has to walk into.  Nodes of
+ * other types are skipped without being visited, and neither the AST of a
+ * skipped file nor the revisions of a skipped repository are read.  Lists of
+ * skipped children are not read either, so children that are decoded lazily
+ * stay undecoded.
+ * 
  * @author rdyer
  */
 public abstract class BoaAbstractVisitor {
+	private static final Class<?>[] types = {
+		Project.class, CodeRepository.class, Revision.class, ChangedFile.class, ASTRoot.class,
+		Namespace.class, Declaration.class, Type.class, Method.class, Variable.class,
+		Statement.class, Expression.class, Modifier.class, Comment.class, Person.class,
+	};
+	private static final int PROJECT = 0, CODEREPOSITORY = 1, REVISION = 2, CHANGEDFILE = 3, ASTROOT = 4,
+			NAMESPACE = 5, DECLARATION = 6, TYPE = 7, METHOD = 8, VARIABLE = 9,
+			STATEMENT = 10, EXPRESSION = 11, MODIFIER = 12, COMMENT = 13, PERSON = 14;
+
+	private static FileVisitPool fileVisitPool = null;
+
+	// which types of nodes to walk into, indexed like types
+	private final boolean[] walks = new boolean[types.length];
+
+	// how many projects, code repositories and revisions the mapper thread is inside of
+	private int enclosing = 0;
+	private final java.util.Map<Class<?>, Boolean> waitsBeforePostVisit = new java.util.HashMap<Class<?>, Boolean>();
+
+	/**
+	 * Sets the pool that visits of changed files are handed to, or
+	 * <code>null</code> to visit them on the calling thread.
+	 *
+	 * @param pool the pool of file visits
+	 */
+	public static void setFileVisitPool(final FileVisitPool pool) {
+		fileVisitPool = pool;
+	}
+
+	/**
+	 * Construct a visitor that walks into nodes of every type.
+	 */
+	protected BoaAbstractVisitor() {
+		java.util.Arrays.fill(walks, true);
+	}
+
+	/**
+	 * Construct a visitor that only walks into nodes of the given types.  The
+	 * caller must make sure no node the visitor acts on is below a node of
+	 * any other type.
+	 * 
+	 * @param walkedTypes the types of nodes to walk into
+	 */
+	protected BoaAbstractVisitor(final Class<?>... walkedTypes) {
+		for (final Class<?> t : walkedTypes)
+			for (int i = 0; i < types.length; i++)
+				if (types[i] == t)
+					walks[i] = true;
+	}
+
 	/**
 	 * Initializes any visitor-specific data before starting a visit.
 	 * 
@@ -156,7 +211,52 @@ public abstract class BoaAbstractVisitor {
 		defaultPostVisit();
 	}
 
+	private void enter() {
+		if (!FileVisitPool.isWorker())
+			enclosing++;
+	}
+
+	private void leave() throws Exception {
+		if (!FileVisitPool.isWorker() && --enclosing == 0)
+			awaitFiles();
+	}
+
+	private void awaitFiles() throws Exception {
+		if (fileVisitPool != null && !FileVisitPool.isWorker())
+			fileVisitPool.await();
+	}
+
+	/**
+	 * Returns true if this visitor has its own <code>postVisit()</code> for
+	 * the given type, which must then see every file visited before it.
+	 */
+	private boolean waitsBeforePostVisit(final Class<?> type) {
+		if (fileVisitPool == null)
+			return false;
+		Boolean waits = waitsBeforePostVisit.get(type);
+		if (waits == null) {
+			waits = false;
+			for (Class<?> c = getClass(); c != BoaAbstractVisitor.class && !waits; c = c.getSuperclass()) {
+				try {
+					c.getDeclaredMethod("postVisit", type);
+					waits = true;
+				} catch (final NoSuchMethodException e) {
+					try {
+						c.getDeclaredMethod("defaultPostVisit");
+						waits = true;
+					} catch (final NoSuchMethodException e2) {
+					}
+				}
+			}
+			waitsBeforePostVisit.put(type, waits);
+		}
+		return waits;
+	}
+
 	public final void visit(final Project node) throws Exception {
+		if (!walks[PROJECT])
+			return;
+		enter();
 		if (preVisit(node)) {
 			final List<CodeRepository> reposList = node.getCodeRepositoriesList();
 			final int reposSize = reposList.size();
@@ -173,24 +273,40 @@ public abstract class BoaAbstractVisitor {
 			for (int i = 0; i < maintsSize; i++)
 				visit(maintsList.get(i));
 
+			if (waitsBeforePostVisit(Project.class))
+				awaitFiles();
 			postVisit(node);
 		}
+		leave();
 	}
 	public final void visit(final CodeRepository node) throws Exception {
+		if (!walks[CODEREPOSITORY])
+			return;
+		enter();
 		if (preVisit(node)) {
-			final int revisionsSize = BoaIntrinsics.getRevisionsCount(node);
-			for (int i = 0; i < revisionsSize; i++)
-				visit(BoaIntrinsics.getRevision(node, i));
-
+			if (walks[REVISION]) {
+				final int revisionsSize = BoaIntrinsics.getRevisionsCount(node);
+				for (int i = 0; i < revisionsSize; i++)
+					visit(BoaIntrinsics.getRevision(node, i));
+			}
+
+			if (waitsBeforePostVisit(CodeRepository.class))
+				awaitFiles();
 			postVisit(node);
 		}
+		leave();
 	}
 	public final void visit(final Revision node) throws Exception {
+		if (!walks[REVISION])
+			return;
+		enter();
 		if (preVisit(node)) {
-			final List<ChangedFile> filesList = node.getFilesList();
-			final int filesSize = filesList.size();
-			for (int i = 0; i < filesSize; i++)
-				visit(filesList.get(i));
+			if (walks[CHANGEDFILE]) {
+				final List<ChangedFile> filesList = node.getFilesList();
+				final int filesSize = filesList.size();
+				for (int i = 0; i < filesSize; i++)
+					visit(filesList.get(i));
+			}
 
 			if (node.hasAuthor())
 				visit(node.getAuthor());
@@ -198,34 +314,59 @@ public abstract class BoaAbstractVisitor {
 			if (node.hasCommitter())
 				visit(node.getCommitter());
 
+			if (waitsBeforePostVisit(Revision.class))
+				awaitFiles();
 			postVisit(node);
 		}
+		leave();
 	}
 	public final void visit(final ChangedFile node) throws Exception {
+		if (!walks[CHANGEDFILE])
+			return;
+		if (fileVisitPool != null && enclosing > 0 && !FileVisitPool.isWorker()) {
+			fileVisitPool.submit(new FileVisitPool.Task() {
+				@Override
+				public void run() throws Exception {
+					visitFile(node);
+				}
+			});
+		} else {
+			visitFile(node);
+		}
+	}
+	private void visitFile(final ChangedFile node) throws Exception {
 		if (preVisit(node)) {
 			if (node.hasRoot())
 				visit(node.getRoot());
-			else
+			else if (walks[ASTROOT])
 				visit(BoaAstIntrinsics.getast(node));
 			postVisit(node);
 		}
 	}
 	public final void visit(final ASTRoot node) throws Exception {
+		if (!walks[ASTROOT])
+			return;
 		if (preVisit(node)) {
-			final List<Namespace> namespacesList = node.getNamespacesList();
-			final int namespacesSize = namespacesList.size();
-			for (int i = 0; i < namespacesSize; i++)
-				visit(namespacesList.get(i));
+			if (walks[NAMESPACE]) {
+				final List<Namespace> namespacesList = node.getNamespacesList();
+				final int namespacesSize = namespacesList.size();
+				for (int i = 0; i < namespacesSize; i++)
+					visit(namespacesList.get(i));
+			}
 
 			postVisit(node);
 		}
 	}
 	public final void visit(final Namespace node) throws Exception {
+		if (!walks[NAMESPACE])
+			return;
 		if (preVisit(node)) {
-			final List<Declaration> declarationsList = node.getDeclarationsList();
-			final int declarationsSize = declarationsList.size();
-			for (int i = 0; i < declarationsSize; i++)
-				visit(declarationsList.get(i));
+			if (walks[DECLARATION]) {
+				final List<Declaration> declarationsList = node.getDeclarationsList();
+				final int declarationsSize = declarationsList.size();
+				for (int i = 0; i < declarationsSize; i++)
+					visit(declarationsList.get(i));
+			}
 
 			final List<Modifier> modifiersList = node.getModifiersList();
 			final int modifiersSize = modifiersList.size();
@@ -236,6 +377,8 @@ public abstract class BoaAbstractVisitor {
 		}
 	}
 	public final void visit(final Declaration node) throws Exception {
+		if (!walks[DECLARATION])
+			return;
 		if (preVisit(node)) {
 			final List<Modifier> modifiersList = node.getModifiersList();
 			final int modifiersSize = modifiersList.size();
@@ -252,15 +395,19 @@ public abstract class BoaAbstractVisitor {
 			for (int i = 0; i < parentsSize; i++)
 				visit(parentsList.get(i));
 
-			final List<Method> methodsList = node.getMethodsList();
-			final int methodsSize = methodsList.size();
-			for (int i = 0; i < methodsSize; i++)
-				visit(methodsList.get(i));
+			if (walks[METHOD]) {
+				final List<Method> methodsList = node.getMethodsList();
+				final int methodsSize = methodsList.size();
+				for (int i = 0; i < methodsSize; i++)
+					visit(methodsList.get(i));
+			}
 
-			final List<Variable> fieldsList = node.getFieldsList();
-			final int fieldsSize = fieldsList.size();
-			for (int i = 0; i < fieldsSize; i++)
-				visit(fieldsList.get(i));
+			if (walks[VARIABLE]) {
+				final List<Variable> fieldsList = node.getFieldsList();
+				final int fieldsSize = fieldsList.size();
+				for (int i = 0; i < fieldsSize; i++)
+					visit(fieldsList.get(i));
+			}
 
 			final List<Declaration> nestedList = node.getNestedDeclarationsList();
 			final int nestedSize = nestedList.size();
@@ -271,11 +418,15 @@ public abstract class BoaAbstractVisitor {
 		}
 	}
 	public final void visit(final Type node) throws Exception {
+		if (!walks[TYPE])
+			return;
 		if (preVisit(node)) {
 			postVisit(node);
 		}
 	}
 	public final void visit(final Method node) throws Exception {
+		if (!walks[METHOD])
+			return;
 		if (preVisit(node)) {
 			visit(node.getReturnType());
 
@@ -299,15 +450,19 @@ public abstract class BoaAbstractVisitor {
 			for (int i = 0; i < exceptionTypesSize; i++)
 				visit(exceptionTypesList.get(i));
 
-			final List<Statement> statementsList = node.getStatementsList();
-			final int statementsSize = statementsList.size();
-			for (int i = 0; i < statementsSize; i++)
-				visit(statementsList.get(i));
+			if (walks[STATEMENT]) {
+				final List<Statement> statementsList = node.getStatementsList();
+				final int statementsSize = statementsList.size();
+				for (int i = 0; i < statementsSize; i++)
+					visit(statementsList.get(i));
+			}
 
 			postVisit(node);
 		}
 	}
 	public final void visit(final Variable node) throws Exception {
+		if (!walks[VARIABLE])
+			return;
 		if (preVisit(node)) {
 			visit(node.getVariableType());
 
@@ -323,6 +478,8 @@ public abstract class BoaAbstractVisitor {
 		}
 	}
 	public final void visit(final Statement node) throws Exception {
+		if (!walks[STATEMENT])
+			return;
 		if (preVisit(node)) {
 			final List<Statement> statementsList = node.getStatementsList();
 			final int statementsSize = statementsList.size();
@@ -357,6 +514,8 @@ public abstract class BoaAbstractVisitor {
 		}
 	}
 	public final void visit(final Expression node) throws Exception {
+		if (!walks[EXPRESSION])
+			return;
 		if (preVisit(node)) {
 			final List<Expression> expressionsList = node.getExpressionsList();
 			final int expressionsSize = expressionsList.size();
@@ -388,6 +547,8 @@ public abstract class BoaAbstractVisitor {
 		}
 	}
 	public final void visit(final Modifier node) throws Exception {
+		if (!walks[MODIFIER])
+			return;
 		if (preVisit(node)) {
 			final List<Expression> annotationValuesList = node.getAnnotationValuesList();
 			final int annotationValuesSize = annotationValuesList.size();
@@ -398,11 +559,15 @@ public abstract class BoaAbstractVisitor {
 		}
 	}
 	public final void visit(final Comment node) throws Exception {
+		if (!walks[COMMENT])
+			return;
 		if (preVisit(node)) {
 			postVisit(node);
 		}
 	}
 	public final void visit(final Person node) throws Exception {
+		if (!walks[PERSON])
+			return;
 		if (preVisit(node)) {
 			postVisit(node);
 		}
@@ -38,6 +38,8 @@ public abstract class BoaMapper extends Mapper<Text, BytesWritable, EmitKey, Emi
 
 	private Configuration conf;
 	protected Context context;
+	protected InMapperCombiner inMapperCombiner;
+	protected FileVisitPool fileVisitPool;
 
 	/** {@inheritDoc} */
 	@Override
@@ -57,5 +59,48 @@ public abstract class BoaMapper extends Mapper<Text, BytesWritable, EmitKey, Emi
 		super.setup(context);
 
 		this.context = context;
+		Metrics.setEnabled(context.getConfiguration().getBoolean("boa.metrics", false));
+		this.inMapperCombiner = new InMapperCombiner(context, context.getConfiguration().getInt("boa.mapper.combine.size", 64 * 1024));
+
+		final int threads = context.getConfiguration().getInt("boa.mapper.threads", 1);
+		if (threads > 1) {
+			this.fileVisitPool = new FileVisitPool(context, threads);
+			this.inMapperCombiner.setFileVisitPool(this.fileVisitPool);
+		}
+		BoaAbstractVisitor.setFileVisitPool(this.fileVisitPool);
+	}
+
+	/**
+	 * Writes an emit to the map output, or buffers it while files are being
+	 * visited in parallel.
+	 *
+	 * @param key the key to emit
+	 * @param value the value to emit
+	 */
+	protected void emit(final EmitKey key, final EmitValue value) throws IOException, InterruptedException {
+		Metrics.emit(key.getName());
+		if (this.fileVisitPool != null && this.fileVisitPool.isDeferring()) {
+			this.fileVisitPool.defer(new FileVisitPool.Emit() {
+				@Override
+				public void write() throws IOException, InterruptedException {
+					context.write(key, value);
+				}
+			});
+		} else {
+			this.context.write(key, value);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void cleanup(final Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context context) throws IOException, InterruptedException {
+		if (this.fileVisitPool != null) {
+			this.fileVisitPool.shutdown();
+			BoaAbstractVisitor.setFileVisitPool(null);
+		}
+		this.inMapperCombiner.flush();
+		Metrics.publish(context);
+
+		super.cleanup(context);
 	}
 }
@@ -25,18 +25,82 @@ import boa.io.EmitValue;
  * A {@link Partitioner} that assigns each
  * output variable to its own reducer.
  *
+ * When the job has more reducers than output variables, the keys of each
+ * splittable variable are spread by a hash of their index over one extra
+ * group of reducers per variable.  Partition <code>i</code> still holds
+ * (part of) variable <code>i</code>, and the {@link boa.io.BoaOutputCommitter}
+ * appends the extra partitions to it.
+ *
  * @author rdyer
  * @author hungc
  */
 public class BoaPartitioner extends Partitioner<EmitKey, EmitValue> {
 	private static String[] outputVariableNames = new String[0];
+	private static String[] splitVariableNames = new String[0];
 
 	public int getPartition(final EmitKey key, final EmitValue value, final int num) {
-		return getPartitionForVariable(key.getName());
+		final int partition = getPartitionForVariable(key.getName());
+		if (num <= outputVariableNames.length)
+			return partition;
+
+		final int split = getSplitForVariable(key.getName());
+		if (split < 0)
+			return partition;
+
+		// bucket 0 stays on the variable's own reducer
+		final int extra = getExtraPartitions(num);
+		final int bucket = (key.getIndex().hashCode() & Integer.MAX_VALUE) % (extra + 1);
+		if (bucket == 0)
+			return partition;
+		return outputVariableNames.length + split * extra + bucket - 1;
 	}
 
 	public static void setVariableNames(final String[] names) {
+		setVariableNames(names, new String[0]);
+	}
+
+	public static void setVariableNames(final String[] names, final String[] splits) {
 		outputVariableNames = names;
+		splitVariableNames = splits;
+		EmitKey.setTableNames(names);
+	}
+
+	public static int getVariableCount() {
+		return outputVariableNames.length;
+	}
+
+	/**
+	 * Returns the extra partitions holding keys of a variable, in the order
+	 * they should be appended to the variable's own partition.
+	 *
+	 * @param pIndex the partition of the variable
+	 * @param num the number of partitions of the job
+	 * @return the extra partitions, empty if the variable is not split
+	 */
+	public static int[] getSplitPartitions(final int pIndex, final int num) {
+		if (num <= outputVariableNames.length || pIndex >= outputVariableNames.length)
+			return new int[0];
+
+		final int split = getSplitForVariable(outputVariableNames[pIndex]);
+		if (split < 0)
+			return new int[0];
+
+		final int extra = getExtraPartitions(num);
+		final int[] partitions = new int[extra];
+		for (int i = 0; i < extra; i++)
+			partitions[i] = outputVariableNames.length + split * extra + i;
+		return partitions;
+	}
+
+	private static int getExtraPartitions(final int num) {
+		return (num - outputVariableNames.length) / splitVariableNames.length;
+	}
+
+	private static int getSplitForVariable(final String s) {
+		for (int i = 0; i < splitVariableNames.length; i++)
+			if (splitVariableNames[i].equals(s))
+				return i;
+		return -1;
 	}
 
 	public static String getVariableFromPartition(final int pIndex) {
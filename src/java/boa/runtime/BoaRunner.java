@@ -108,6 +108,7 @@ public abstract class BoaRunner extends Configured implements Tool {
 
 		job.setMapOutputKeyClass(EmitKey.class);
 		job.setMapOutputValueClass(EmitValue.class);
+		job.setSortComparatorClass(EmitKey.class);
 
 		job.setOutputFormatClass(BoaOutputFormat.class);
 		job.setOutputKeyClass(Text.class);
@@ -123,6 +124,8 @@ public abstract class BoaRunner extends Configured implements Tool {
 	static {
 		options.addOption("p", "profile", false, "if true, profiles the execution of 1 map task");
 		options.addOption("b", "block", false, "if true, wait for job to finish and show status");
+		options.addOption("m", "metrics", false, "if true, collects metrics of the intrinsics and writes them to _profile.json in the output");
+		options.addOption("l", "lazy", false, "if true, decodes the nested messages of ASTs and revisions when they are first read");
 		options.addOption(OptionBuilder.withLongOpt("job")
 										.withDescription("sets the MySql ID to update with this job's status")
 										.hasArg()
@@ -138,10 +141,44 @@ public abstract class BoaRunner extends Configured implements Tool {
 										.hasArg()
 										.withArgName("INPUT")
 										.create("c"));
+		options.addOption(org.apache.commons.cli.OptionBuilder.withLongOpt("repo")
+										.withDescription("which FORMAT to read file contents from (map or pack)")
+										.hasArg()
+										.withArgName("FORMAT")
+										.create("r"));
+		options.addOption(org.apache.commons.cli.OptionBuilder.withLongOpt("reducers")
+										.withDescription("spreads each table that allows it over N reducers")
+										.hasArg()
+										.withArgName("N")
+										.create("n"));
+		options.addOption(org.apache.commons.cli.OptionBuilder.withLongOpt("threads")
+										.withDescription("visits the changed files of a project on N threads (opt-in, per-file work must not share state)")
+										.hasArg()
+										.withArgName("N")
+										.create("t"));
+		options.addOption(org.apache.commons.cli.OptionBuilder.withLongOpt("splits")
+										.withDescription("how to make input SPLITS (bytes or cost, cost needs projects.cost from datagen)")
+										.hasArg()
+										.withArgName("SPLITS")
+										.create("w"));
 	}
 
 	protected static Options getOptions() { return options; }
 
+	/**
+	 * Returns how many reducers each table that allows it is spread over.
+	 *
+	 * @param configuration the job configuration, holding boa.table.reducers
+	 * @return the number of reducers per table, at least 1
+	 * @throws IllegalArgumentException if boa.table.reducers is below 1
+	 */
+	public static int getTableReducers(final Configuration configuration) {
+		final int reducers = configuration.getInt("boa.table.reducers", 1);
+		if (reducers < 1)
+			throw new IllegalArgumentException("boa.table.reducers must be at least 1, not " + reducers);
+		return reducers;
+	}
+
 	public static CommandLine parseArgs(String[] args, String usage) {
 		CommandLine line = null;
 
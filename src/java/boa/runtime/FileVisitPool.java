@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.runtime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+/**
+ * Runs the per-file work of visitors on a bounded pool of worker threads.
+ *
+ * A visit to a <code>ChangedFile</code> that is made while a visitor is
+ * inside a project, code repository or revision is handed to a worker, and
+ * the enclosing visit waits for every file it handed out before it moves on.
+ * While files are in flight, every emit is buffered: in the buffer of the
+ * file it was made for, or, for emits of the mapper thread, in a buffer
+ * between the files submitted before and after it.  Buffers are written out
+ * in submission order, so the map output is exactly that of a sequential run.
+ *
+ * Per-file work must not update state it shares with other files, such as
+ * variables declared outside the visitor clause, which is why this mode is
+ * opt-in.
+ *
+ * @author hyj
+ */
+public class FileVisitPool {
+	public static enum FILEVISITCOUNTER {
+		FILES, BUFFERED_EMITS, WAITS
+	};
+
+	/**
+	 * A deferred write to the map output.
+	 */
+	public interface Emit {
+		void write() throws IOException, InterruptedException;
+	}
+
+	/**
+	 * The per-file work to run on a worker.
+	 */
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	private static final class Buffer {
+		final List<Emit> emits = new ArrayList<Emit>();
+		Future<?> future;
+	}
+
+	// the buffer of the file the current thread is working on
+	private static final ThreadLocal<Buffer> current = new ThreadLocal<Buffer>();
+
+	@SuppressWarnings("rawtypes")
+	private final TaskInputOutputContext context;
+	private final ExecutorService executor;
+	private final int maxPending;
+
+	// only touched by the mapper thread
+	private final LinkedList<Buffer> pending = new LinkedList<Buffer>();
+	private Buffer mapperBuffer = null;
+
+	/**
+	 * Construct a FileVisitPool.
+	 *
+	 * @param context the context to count in
+	 * @param threads the number of worker threads
+	 */
+	@SuppressWarnings("rawtypes")
+	public FileVisitPool(final TaskInputOutputContext context, final int threads) {
+		this.context = context;
+		this.maxPending = threads * 4;
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "boa-file-visit-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Returns true if the current thread is a worker running per-file work.
+	 */
+	public static boolean isWorker() {
+		return current.get() != null;
+	}
+
+	/**
+	 * Returns true if an emit made now must be buffered rather than written.
+	 */
+	public boolean isDeferring() {
+		return current.get() != null || !pending.isEmpty();
+	}
+
+	/**
+	 * Buffers an emit behind everything submitted before it.
+	 *
+	 * @param emit the write to defer
+	 */
+	public void defer(final Emit emit) {
+		Buffer b = current.get();
+		if (b == null) {
+			if (mapperBuffer == null) {
+				mapperBuffer = new Buffer();
+				pending.add(mapperBuffer);
+			}
+			b = mapperBuffer;
+		}
+		b.emits.add(emit);
+	}
+
+	/**
+	 * Hands per-file work to a worker.  Blocks while too many files are in
+	 * flight, writing out the buffers of the oldest ones.
+	 *
+	 * @param task the work to run
+	 */
+	public void submit(final Task task) throws Exception {
+		final Buffer b = new Buffer();
+		pending.add(b);
+		mapperBuffer = null;
+		b.future = executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				current.set(b);
+				try {
+					task.run();
+				} finally {
+					current.remove();
+				}
+				return null;
+			}
+		});
+		count(FILEVISITCOUNTER.FILES);
+
+		if (pending.size() > maxPending)
+			drain(maxPending / 2);
+	}
+
+	/**
+	 * Waits for all files in flight and writes out every buffer.
+	 */
+	public void await() throws Exception {
+		if (pending.isEmpty())
+			return;
+		count(FILEVISITCOUNTER.WAITS);
+		drain(0);
+	}
+
+	/**
+	 * Stops the workers.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void drain(final int keep) throws Exception {
+		while (pending.size() > keep) {
+			final Buffer b = pending.getFirst();
+			if (b.future != null) {
+				try {
+					b.future.get();
+				} catch (final ExecutionException e) {
+					for (final Buffer p : pending)
+						if (p.future != null)
+							p.future.cancel(true);
+					pending.clear();
+					mapperBuffer = null;
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
+			}
+			pending.removeFirst();
+			if (b == mapperBuffer)
+				mapperBuffer = null;
+
+			if (!b.emits.isEmpty())
+				context.getCounter(FILEVISITCOUNTER.BUFFERED_EMITS).increment(b.emits.size());
+			for (final Emit e : b.emits)
+				e.write();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void count(final FILEVISITCOUNTER counter) {
+		context.getCounter(counter).increment(1);
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.runtime;
+
+import java.io.IOException;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * Aggregates emits to <code>sum</code> and <code>mean</code> tables inside
+ * the mapper, before they are written to the map output.
+ *
+ * Partial results are kept in a bounded open-addressing table keyed by the
+ * table name and index.  The table is flushed to the map output when it fills
+ * up, when the heap runs low and when the mapper finishes.  What it writes is
+ * exactly what the combiner would have written for the same values, so the
+ * combiner and reducer need no changes.
+ *
+ * @author hyj
+ */
+public class InMapperCombiner {
+	public static enum INMAPPERCOMBINERCOUNTER {
+		EMITS, RECORDS, FLUSHES
+	};
+
+	private static final byte SUM_LONG = 1;
+	private static final byte SUM_DOUBLE = 2;
+	private static final byte MEAN_LONG = 3;
+	private static final byte MEAN_DOUBLE = 4;
+
+	// how many emits between two checks of the free heap
+	private static final int MEMORY_CHECK_INTERVAL = 1024;
+
+	@SuppressWarnings("rawtypes")
+	private final TaskInputOutputContext context;
+	private final int capacity;
+
+	private final String[] names;
+	private final String[] indices;
+	private final byte[] ops;
+	private final long[] longs;
+	private final double[] doubles;
+	private final long[] counts;
+	private int size = 0;
+	private int sinceCheck = 0;
+	// published with each flush, so counting an emit costs no counter lookup
+	private long emits = 0;
+	private FileVisitPool fileVisitPool = null;
+
+	/**
+	 * Construct an InMapperCombiner.
+	 *
+	 * @param context the context to write to
+	 * @param capacity the most partial results to hold, or 0 to write every
+	 *            emit through
+	 */
+	@SuppressWarnings("rawtypes")
+	public InMapperCombiner(final TaskInputOutputContext context, final int capacity) {
+		this.context = context;
+		this.capacity = capacity;
+
+		// keep the load factor at or below one half
+		int slots = 1;
+		while (slots < capacity * 2)
+			slots <<= 1;
+		if (capacity == 0)
+			slots = 0;
+
+		this.names = new String[slots];
+		this.indices = new String[slots];
+		this.ops = new byte[slots];
+		this.longs = new long[slots];
+		this.doubles = new double[slots];
+		this.counts = new long[slots];
+	}
+
+	/**
+	 * Routes emits through a pool of file visits, so they are combined in the
+	 * same order as in a sequential run.
+	 *
+	 * @param pool the pool, or null
+	 */
+	public void setFileVisitPool(final FileVisitPool pool) {
+		this.fileVisitPool = pool;
+	}
+
+	public void sum(final String index, final String name, final long value) throws IOException, InterruptedException {
+		Metrics.emit(name);
+		if (isDeferring()) {
+			fileVisitPool.defer(new FileVisitPool.Emit() {
+				@Override
+				public void write() throws IOException, InterruptedException {
+					addSum(index, name, value);
+				}
+			});
+			return;
+		}
+		addSum(index, name, value);
+	}
+
+	public void sum(final String index, final String name, final double value) throws IOException, InterruptedException {
+		Metrics.emit(name);
+		if (isDeferring()) {
+			fileVisitPool.defer(new FileVisitPool.Emit() {
+				@Override
+				public void write() throws IOException, InterruptedException {
+					addSum(index, name, value);
+				}
+			});
+			return;
+		}
+		addSum(index, name, value);
+	}
+
+	public void mean(final String index, final String name, final long value) throws IOException, InterruptedException {
+		Metrics.emit(name);
+		if (isDeferring()) {
+			fileVisitPool.defer(new FileVisitPool.Emit() {
+				@Override
+				public void write() throws IOException, InterruptedException {
+					addMean(index, name, value);
+				}
+			});
+			return;
+		}
+		addMean(index, name, value);
+	}
+
+	public void mean(final String index, final String name, final double value) throws IOException, InterruptedException {
+		Metrics.emit(name);
+		if (isDeferring()) {
+			fileVisitPool.defer(new FileVisitPool.Emit() {
+				@Override
+				public void write() throws IOException, InterruptedException {
+					addMean(index, name, value);
+				}
+			});
+			return;
+		}
+		addMean(index, name, value);
+	}
+
+	private void addSum(final String index, final String name, final long value) throws IOException, InterruptedException {
+		final int slot = slot(index, name, SUM_LONG);
+		if (slot >= 0)
+			this.longs[slot] += value;
+		else
+			write(new EmitKey(index, name), new EmitValue(value));
+	}
+
+	private void addSum(final String index, final String name, final double value) throws IOException, InterruptedException {
+		final int slot = slot(index, name, SUM_DOUBLE);
+		if (slot >= 0)
+			this.doubles[slot] += value;
+		else
+			write(new EmitKey(index, name), new EmitValue(value));
+	}
+
+	private void addMean(final String index, final String name, final long value) throws IOException, InterruptedException {
+		final int slot = slot(index, name, MEAN_LONG);
+		if (slot >= 0) {
+			this.longs[slot] += value;
+			this.counts[slot]++;
+		} else {
+			write(new EmitKey(index, name), new EmitValue(value));
+		}
+	}
+
+	private void addMean(final String index, final String name, final double value) throws IOException, InterruptedException {
+		final int slot = slot(index, name, MEAN_DOUBLE);
+		if (slot >= 0) {
+			this.doubles[slot] += value;
+			this.counts[slot]++;
+		} else {
+			write(new EmitKey(index, name), new EmitValue(value));
+		}
+	}
+
+	/**
+	 * Writes all partial results to the map output and empties the table.
+	 */
+	@SuppressWarnings("unchecked")
+	public void flush() throws IOException, InterruptedException {
+		if (this.size == 0)
+			return;
+
+		for (int i = 0; i < this.names.length; i++) {
+			if (this.names[i] == null)
+				continue;
+
+			final EmitKey key = new EmitKey(this.indices[i], this.names[i]);
+			switch (this.ops[i]) {
+			case SUM_LONG:
+				write(key, new EmitValue(this.longs[i]));
+				break;
+			case SUM_DOUBLE:
+				write(key, new EmitValue(this.doubles[i]));
+				break;
+			case MEAN_LONG:
+				write(key, new EmitValue(this.longs[i], this.counts[i]));
+				break;
+			case MEAN_DOUBLE:
+				write(key, new EmitValue(this.doubles[i], this.counts[i]));
+				break;
+			default:
+				break;
+			}
+
+			this.names[i] = null;
+			this.indices[i] = null;
+			this.longs[i] = 0;
+			this.doubles[i] = 0;
+			this.counts[i] = 0;
+		}
+		this.size = 0;
+		this.context.getCounter(INMAPPERCOMBINERCOUNTER.FLUSHES).increment(1);
+		this.context.getCounter(INMAPPERCOMBINERCOUNTER.EMITS).increment(this.emits);
+		this.emits = 0;
+	}
+
+	/**
+	 * Finds or claims the slot of a key.
+	 *
+	 * @return the slot, or -1 if the emit should be written through
+	 */
+	private int slot(final String index, final String name, final byte op) throws IOException, InterruptedException {
+		if (this.capacity == 0)
+			return -1;
+
+		this.emits++;
+
+		if (++this.sinceCheck >= MEMORY_CHECK_INTERVAL) {
+			this.sinceCheck = 0;
+			if (isMemoryLow())
+				flush();
+		}
+
+		final int mask = this.names.length - 1;
+		final int home = (31 * name.hashCode() + index.hashCode()) & mask;
+		int i = home;
+		while (this.names[i] != null) {
+			if (this.names[i].equals(name) && this.indices[i].equals(index))
+				return i;
+			i = (i + 1) & mask;
+		}
+
+		if (this.size >= this.capacity) {
+			flush();
+			// the table is empty now
+			i = home;
+		}
+
+		this.names[i] = name;
+		this.indices[i] = index;
+		this.ops[i] = op;
+		this.size++;
+		return i;
+	}
+
+	private boolean isDeferring() {
+		return this.fileVisitPool != null && this.fileVisitPool.isDeferring();
+	}
+
+	private static boolean isMemoryLow() {
+		final Runtime runtime = Runtime.getRuntime();
+		final long free = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+		return free < runtime.maxMemory() / 10;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void write(final EmitKey key, final EmitValue value) throws IOException, InterruptedException {
+		this.context.write(key, value);
+		this.context.getCounter(INMAPPERCOMBINERCOUNTER.RECORDS).increment(1);
+	}
+}
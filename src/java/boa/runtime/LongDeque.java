@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.runtime;
+
+import java.util.Arrays;
+
+/**
+ * A growable ring buffer of <code>long</code> values, used by the generated
+ * code for Boa <code>stack of int</code> and <code>queue of int</code>, and
+ * the same for <code>time</code>.
+ *
+ * Values are added at the tail.  As a stack it has the methods the generated
+ * code calls on a {@link java.util.Stack}, taking from the tail, and as a
+ * queue those it calls on a {@link java.util.LinkedList}, taking from the
+ * head.  Either way the values are listed in the order they were added.
+ *
+ * Copies are copy-on-write: a copy shares the buffer with the original until
+ * either of them adds a value.
+ *
+ * @author hyj
+ */
+public class LongDeque {
+	private static final int MIN_SLOTS = 16;
+
+	private long[] elements;
+	private int head;
+	private int size;
+	// the buffer may be shared with a copy
+	private boolean shared;
+
+	public LongDeque() {
+		this.elements = new long[MIN_SLOTS];
+	}
+
+	public LongDeque(final LongDeque d) {
+		this.elements = d.elements;
+		this.head = d.head;
+		this.size = d.size;
+		this.shared = true;
+		d.shared = true;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean empty() {
+		return this.size == 0;
+	}
+
+	public void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+
+	public void push(final long v) {
+		addLast(v);
+	}
+
+	public boolean offer(final long v) {
+		addLast(v);
+		return true;
+	}
+
+	/**
+	 * Removes the newest value.  The deque must not be empty.
+	 */
+	public long pop() {
+		this.size--;
+		return this.elements[slot(this.size)];
+	}
+
+	/**
+	 * Returns the newest value.  The deque must not be empty.
+	 */
+	public long peek() {
+		return this.elements[slot(this.size - 1)];
+	}
+
+	/**
+	 * Removes the oldest value.
+	 *
+	 * @return the value, or null if the deque is empty
+	 */
+	public Long poll() {
+		if (this.size == 0)
+			return null;
+		final long v = this.elements[this.head];
+		this.head = slot(1);
+		this.size--;
+		return v;
+	}
+
+	/**
+	 * Returns the oldest value.
+	 *
+	 * @return the value, or null if the deque is empty
+	 */
+	public Long peekFirst() {
+		if (this.size == 0)
+			return null;
+		return this.elements[this.head];
+	}
+
+	public long[] toLongArray() {
+		final long[] a = new long[this.size];
+		for (int i = 0; i < this.size; i++)
+			a[i] = this.elements[slot(i)];
+		return a;
+	}
+
+	public Long[] toArray(final Long[] a) {
+		final Long[] r = a.length >= this.size ? a : new Long[this.size];
+		for (int i = 0; i < this.size; i++)
+			r[i] = this.elements[slot(i)];
+		if (r.length > this.size)
+			r[this.size] = null;
+		return r;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean equals(final Object o) {
+		if (o == this)
+			return true;
+		if (!(o instanceof LongDeque))
+			return false;
+		final LongDeque d = (LongDeque) o;
+		if (d.size != this.size)
+			return false;
+		for (int i = 0; i < this.size; i++)
+			if (d.elements[d.slot(i)] != this.elements[slot(i)])
+				return false;
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int hashCode() {
+		int h = 1;
+		for (int i = 0; i < this.size; i++)
+			h = 31 * h + Long.hashCode(this.elements[slot(i)]);
+		return h;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return Arrays.toString(toLongArray());
+	}
+
+	private void addLast(final long v) {
+		if (this.size == this.elements.length) {
+			final long[] grown = toLongArray();
+			this.elements = Arrays.copyOf(grown, grown.length * 2);
+			this.head = 0;
+			this.shared = false;
+		} else if (this.shared) {
+			this.elements = this.elements.clone();
+			this.shared = false;
+		}
+		this.elements[slot(this.size)] = v;
+		this.size++;
+	}
+
+	private int slot(final int i) {
+		return (this.head + i) & (this.elements.length - 1);
+	}
+}
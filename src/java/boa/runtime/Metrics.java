@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+/**
+ * Call counts, time, bytes read and allocations of the major intrinsic
+ * families, collected in the mapper when <code>boa.metrics</code> is set
+ * (<code>--metrics</code>).
+ *
+ * A family is measured from {@link #begin(Family)} to
+ * {@link #end(Family, long)}.  Calls of a family nested in a call of the same
+ * family are part of the outer one, while time spent in other families is
+ * included, so the AST fetch time holds the AST parse time.  The totals are
+ * published as counters of the {@link #COUNTER_GROUP} group when the mapper
+ * finishes, named after the family and the field, and
+ * {@link boa.io.BoaOutputCommitter} writes them to <code>_profile.json</code>
+ * in the output directory of the job.
+ *
+ * Hadoop 1 allows only 120 counters per job, shared with its own and those
+ * of the intrinsics.  Families take at most one counter per field, and only
+ * the first {@link #MAX_TABLE_COUNTERS} tables of the program get their own
+ * emit counter, while emits to the other tables are summed into
+ * {@link #OTHER_TABLES}.
+ *
+ * @author hyj
+ */
+public final class Metrics {
+	public static final String COUNTER_GROUP = "Boa Metrics";
+	public static final String EMITS_PREFIX = "EMITS.";
+	public static final String OTHER_TABLES = "(other tables)";
+	public static final int MAX_TABLE_COUNTERS = 8;
+
+	public static enum Family {
+		AST_FETCH, AST_PARSE, REPO_LOAD, REVISION_FETCH, SNAPSHOT_BUILD, GRAPH_BUILD, TRAVERSAL_FIXPOINT, EMIT,
+	};
+
+	public static enum Field {
+		CALLS, MILLIS, BYTES, ALLOCATED, ITEMS,
+	};
+
+	private static final int FAMILIES = Family.values().length;
+	private static final int FIELDS = Field.values().length;
+
+	private static volatile boolean enabled = false;
+
+	// MILLIS are kept in nanoseconds until they are published
+	private static final AtomicLongArray totals = new AtomicLongArray(FAMILIES * FIELDS);
+	private static final ConcurrentHashMap<String, AtomicLong> emits = new ConcurrentHashMap<String, AtomicLong>();
+
+	// per thread, how deep each family is nested and what was allocated when it was entered
+	private static final ThreadLocal<long[]> depths = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[FAMILIES * 2];
+		}
+	};
+
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private static final boolean allocationSupported = isAllocationSupported();
+
+	private Metrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns collection on or off and forgets what was collected so far.
+	 */
+	public static void setEnabled(final boolean on) {
+		enabled = on;
+		for (int i = 0; i < totals.length(); i++)
+			totals.set(i, 0);
+		emits.clear();
+	}
+
+	/**
+	 * Enters a family.
+	 *
+	 * @return the start time, to pass to {@link #end(Family, long)}
+	 */
+	public static long begin(final Family f) {
+		if (!enabled)
+			return 0;
+		final long[] d = depths.get();
+		if (d[f.ordinal() * 2]++ == 0)
+			d[f.ordinal() * 2 + 1] = allocated();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Leaves a family entered by {@link #begin(Family)}.
+	 *
+	 * @param start what <code>begin</code> returned
+	 */
+	public static void end(final Family f, final long start) {
+		if (!enabled)
+			return;
+		final long[] d = depths.get();
+		if (--d[f.ordinal() * 2] > 0)
+			return;
+		add(f, Field.CALLS, 1);
+		add(f, Field.MILLIS, System.nanoTime() - start);
+		if (allocationSupported)
+			add(f, Field.ALLOCATED, allocated() - d[f.ordinal() * 2 + 1]);
+	}
+
+	/**
+	 * Counts bytes read by a family.
+	 */
+	public static void bytes(final Family f, final long n) {
+		if (enabled)
+			add(f, Field.BYTES, n);
+	}
+
+	/**
+	 * Counts the items a family worked on, such as the files of a snapshot or
+	 * the node visits of a fixpoint.
+	 */
+	public static void items(final Family f, final long n) {
+		if (enabled)
+			add(f, Field.ITEMS, n);
+	}
+
+	/**
+	 * Counts an emit to a table.
+	 *
+	 * @param table the name of the table
+	 */
+	public static void emit(final String table) {
+		if (!enabled)
+			return;
+		add(Family.EMIT, Field.CALLS, 1);
+		AtomicLong count = emits.get(table);
+		if (count == null) {
+			emits.putIfAbsent(table, new AtomicLong());
+			count = emits.get(table);
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Adds what was collected to the counters of a task.
+	 *
+	 * @param context the context of the task
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void publish(final TaskInputOutputContext context) {
+		if (!enabled)
+			return;
+		for (final Family f : Family.values())
+			for (final Field field : Field.values()) {
+				long value = totals.get(f.ordinal() * FIELDS + field.ordinal());
+				if (field == Field.MILLIS)
+					value /= 1000000;
+				if (value != 0)
+					context.getCounter(COUNTER_GROUP, f.name() + "." + field.name()).increment(value);
+			}
+
+		// every task picks the same tables, so the job never has more counters
+		final Set<String> counted = new HashSet<String>();
+		for (int i = 0; i < MAX_TABLE_COUNTERS && i < BoaPartitioner.getVariableCount(); i++)
+			counted.add(BoaPartitioner.getVariableFromPartition(i));
+		long others = 0;
+		for (final Map.Entry<String, AtomicLong> e : emits.entrySet()) {
+			if (counted.contains(e.getKey()))
+				context.getCounter(COUNTER_GROUP, EMITS_PREFIX + e.getKey()).increment(e.getValue().get());
+			else
+				others += e.getValue().get();
+		}
+		if (others != 0)
+			context.getCounter(COUNTER_GROUP, EMITS_PREFIX + OTHER_TABLES).increment(others);
+	}
+
+	private static void add(final Family f, final Field field, final long n) {
+		totals.addAndGet(f.ordinal() * FIELDS + field.ordinal(), n);
+	}
+
+	private static long allocated() {
+		if (!allocationSupported)
+			return 0;
+		return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static boolean isAllocationSupported() {
+		try {
+			return threads instanceof com.sun.management.ThreadMXBean
+					&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+					&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+		} catch (final Throwable e) {
+			return false;
+		}
+	}
+}
@@ -124,9 +124,24 @@ public class BoaQueue extends BoaType {
 	/** {@inheritDoc} */
 	@Override
 	public String toJavaType() {
+		final String primitive = getPrimitiveClass();
+		if (primitive != null)
+			return "boa.runtime." + primitive;
 		return "java.util.LinkedList<" + this.type.toBoxedJavaType() + ">";
 	}
 
+	/**
+	 * Returns the primitive-specialized collection in <code>boa.runtime</code>
+	 * that holds this queue in the generated code.
+	 *
+	 * @return the simple class name, or null if it is a java.util.LinkedList
+	 */
+	public String getPrimitiveClass() {
+		if (this.type instanceof BoaInt || this.type instanceof BoaTime)
+			return "LongDeque";
+		return null;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public int hashCode() {
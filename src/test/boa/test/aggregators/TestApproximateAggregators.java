@@ -0,0 +1,245 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.aggregators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.util.Progress;
+import org.junit.Test;
+
+import boa.aggregators.Aggregator;
+import boa.aggregators.ApproximateMedianAggregator;
+import boa.aggregators.ApproximateTopAggregator;
+import boa.aggregators.CardinalityAggregator;
+import boa.aggregators.FinishedException;
+import boa.aggregators.IntApproximateQuantileAggregator;
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * Test that the approximate aggregators stay accurate when their inputs are
+ * split over several combiners and the partial results are serialized and
+ * merged in the reducer.
+ *
+ * @author hyj
+ */
+public class TestApproximateAggregators {
+	private static final EmitKey KEY = new EmitKey("t");
+
+	@Test
+	public void quantiles() throws Exception {
+		final int n = 100000;
+		final List<EmitValue> values = new ArrayList<EmitValue>();
+		for (int i = 1; i <= n; i++)
+			values.add(new EmitValue((long) i));
+		Collections.shuffle(values, new Random(0));
+
+		for (final int partitions : new int[] { 1, 4, 16 }) {
+			final List<String> out = reduce(new IntApproximateQuantileAggregator(5), new IntApproximateQuantileAggregator(5), values, partitions);
+			assertEquals(1, out.size());
+
+			final String s = out.get(0);
+			final String[] quantiles = s.substring((KEY + " = [").length(), s.length() - 1).split(", ");
+			assertEquals(4, quantiles.length);
+			for (int i = 0; i < quantiles.length; i++) {
+				// the value of rank r is r, so the rank error is the value error
+				final double expected = (i + 1) / 4.0 * n;
+				final long actual = Long.parseLong(quantiles[i]);
+				assertTrue(s, Math.abs(actual - expected) <= 0.02 * n);
+			}
+		}
+	}
+
+	@Test
+	public void medianUnbiased() throws Exception {
+		// many partitions of odd sizes, whose errors must cancel out
+		final int n = 20001;
+		final Random random = new Random(3);
+		final List<EmitValue> values = new ArrayList<EmitValue>();
+		for (int i = 1; i <= n; i++)
+			values.add(new EmitValue((long) i));
+
+		final int trials = 50;
+		double error = 0;
+		for (int t = 0; t < trials; t++) {
+			Collections.shuffle(values, random);
+			final List<String> out = reduce(new ApproximateMedianAggregator(), new ApproximateMedianAggregator(), values, 41);
+			error += Double.parseDouble(out.get(0).substring((KEY + " = ").length())) - (n + 1) / 2;
+		}
+		assertTrue(Double.toString(error / trials), Math.abs(error / trials) <= 0.0005 * n);
+	}
+
+	@Test
+	public void cardinalityExact() throws Exception {
+		final List<EmitValue> values = new ArrayList<EmitValue>();
+		for (int i = 0; i < 3000; i++)
+			values.add(new EmitValue("v" + (i % 500)));
+
+		for (final int partitions : new int[] { 1, 4, 16 })
+			assertEquals(500, cardinality(1000, values, partitions));
+	}
+
+	@Test
+	public void cardinalityEstimate() throws Exception {
+		final int n = 200000;
+		final List<EmitValue> values = new ArrayList<EmitValue>();
+		for (int i = 0; i < n; i++)
+			values.add(new EmitValue("v" + i));
+		for (int i = 0; i < n; i += 3)
+			values.add(new EmitValue("v" + i));
+		Collections.shuffle(values, new Random(1));
+
+		for (final int partitions : new int[] { 1, 4, 16 }) {
+			final long estimate = cardinality(1000, values, partitions);
+			assertTrue(Long.toString(estimate), Math.abs(estimate - n) <= 0.03 * n);
+		}
+	}
+
+	@Test
+	public void top() throws Exception {
+		// ten heavy values over a long tail of light ones
+		final List<EmitValue> values = new ArrayList<EmitValue>();
+		for (int i = 0; i < 10; i++)
+			for (int j = 0; j < 2000 - 100 * i; j++)
+				values.add(new EmitValue("heavy" + i));
+		for (int i = 0; i < 50000; i++)
+			values.add(new EmitValue("light" + i));
+		Collections.shuffle(values, new Random(2));
+
+		for (final int partitions : new int[] { 1, 4, 16 }) {
+			final List<String> out = reduce(new ApproximateTopAggregator(10), new ApproximateTopAggregator(10), values, partitions);
+			assertEquals(10, out.size());
+			for (int i = 0; i < 10; i++)
+				assertTrue(out.get(i), out.get(i).startsWith(KEY + " = heavy" + i + ", "));
+		}
+	}
+
+	private static long cardinality(final long threshold, final List<EmitValue> values, final int partitions) throws Exception {
+		final List<String> out = reduce(new CardinalityAggregator(threshold), new CardinalityAggregator(threshold), values, partitions);
+		assertEquals(1, out.size());
+		return Long.parseLong(out.get(0).substring((KEY + " = ").length()));
+	}
+
+	/**
+	 * Run each partition of the values through the combiner, serialize what it
+	 * writes and feed that to the reducer.
+	 *
+	 * @return The lines the reducer writes
+	 */
+	private static List<String> reduce(final Aggregator combiner, final Aggregator reducer, final List<EmitValue> values, final int partitions) throws Exception {
+		final Collector combined = new Collector();
+		combiner.setCombining(true);
+		combiner.setContext(newContext(combined));
+		for (int p = 0; p < partitions; p++) {
+			combiner.start(KEY);
+			for (int i = p; i < values.size(); i += partitions)
+				combiner.aggregate(values.get(i));
+			combiner.finish();
+		}
+
+		final Collector reduced = new Collector();
+		reducer.setCombining(false);
+		reducer.setContext(newContext(reduced));
+		reducer.start(KEY);
+		try {
+			for (final Object v : combined.values)
+				reducer.aggregate(roundTrip((EmitValue) v));
+		} catch (final FinishedException e) {
+			// nothing more is needed
+		}
+		reducer.finish();
+
+		final List<String> lines = new ArrayList<String>();
+		for (final Object k : reduced.keys)
+			lines.add(((Text) k).toString());
+		return lines;
+	}
+
+	private static EmitValue roundTrip(final EmitValue value) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		value.write(out);
+		out.close();
+
+		final DataInputBuffer in = new DataInputBuffer();
+		in.reset(bytes.toByteArray(), bytes.size());
+		final EmitValue read = new EmitValue();
+		read.readFields(in);
+		return read;
+	}
+
+	private static Reducer<EmitKey, EmitValue, Object, Object>.Context newContext(final Collector collector) throws IOException, InterruptedException {
+		final RawKeyValueIterator input = new RawKeyValueIterator() {
+			@Override
+			public DataInputBuffer getKey() {
+				return null;
+			}
+
+			@Override
+			public DataInputBuffer getValue() {
+				return null;
+			}
+
+			@Override
+			public boolean next() {
+				return false;
+			}
+
+			@Override
+			public void close() {
+			}
+
+			@Override
+			public Progress getProgress() {
+				return null;
+			}
+		};
+		return new Reducer<EmitKey, EmitValue, Object, Object>().new Context(new Configuration(), new TaskAttemptID(), input, null, null, collector, null, null, null, EmitKey.class, EmitValue.class);
+	}
+
+	private static class Collector extends RecordWriter<Object, Object> {
+		final List<Object> keys = new ArrayList<Object>();
+		final List<Object> values = new ArrayList<Object>();
+
+		@Override
+		public void write(final Object key, final Object value) {
+			this.keys.add(key);
+			this.values.add(value);
+		}
+
+		@Override
+		public void close(final TaskAttemptContext context) {
+		}
+	}
+}
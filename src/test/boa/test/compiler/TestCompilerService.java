@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.jar.JarFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boa.compiler.BoaCompilerService;
+import boa.compiler.visitors.PrettyPrintVisitor;
+
+/**
+ * Test that the compiler service caches compiled programs, and only reuses
+ * them for programs that differ in layout or comments, without changing how
+ * the RNG is seeded.
+ *
+ * @author hyj
+ */
+public class TestCompilerService extends BaseTest {
+	private static final String PROGRAM = "o: output sum of int;\no << 1;\n";
+
+	private File dir;
+	private BoaCompilerService service;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
+		if (!dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+		service = new BoaCompilerService(new ArrayList<File>(), 1024 * 1024);
+	}
+
+	@After
+	public void tearDown() {
+		for (final File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void cached() throws IOException {
+		assertEquals(ok("a.jar", false), compile(PROGRAM, "a.jar"));
+		assertEquals(ok("b.jar", true), compile(PROGRAM, "b.jar"));
+
+		final JarFile jar = new JarFile(new File(dir, "b.jar"));
+		try {
+			assertNotNull(jar.getEntry("boa/Test.class"));
+			assertNotNull(jar.getEntry("boa/Test.java"));
+		} finally {
+			jar.close();
+		}
+	}
+
+	@Test
+	public void layout() throws IOException {
+		assertEquals(ok("a.jar", false), compile(PROGRAM, "a.jar"));
+		assertEquals(ok("b.jar", true), compile("# the same program\no:   output sum of int;\n\n\to << 1;   # emit\n", "b.jar"));
+	}
+
+	@Test
+	public void changed() throws IOException {
+		assertEquals(ok("a.jar", false), compile(PROGRAM, "a.jar"));
+		assertEquals(ok("b.jar", false), compile("o: output sum of int;\no << 2;\n", "b.jar"));
+		assertEquals(ok("c.jar", false), compile(PROGRAM, "c.jar", "Other"));
+	}
+
+	@Test
+	public void traversal() throws IOException {
+		assertEquals(ok("a.jar", false), compile(traversal("1"), "a.jar"));
+		assertEquals(ok("b.jar", true), compile("# a comment\n" + traversal("1"), "b.jar"));
+		assertEquals(ok("c.jar", false), compile(traversal("2"), "c.jar"));
+	}
+
+	@Test
+	public void seed() throws IOException {
+		// the RNG is seeded the same way BoaCompiler seeds it
+		final int seed = new PrettyPrintVisitor().startAndReturn(parse(traversal("1")).ast).hashCode();
+		assertEquals(ok("a.jar", false), compile(traversal("1"), "a.jar"));
+
+		final JarFile jar = new JarFile(new File(dir, "a.jar"));
+		try {
+			final String code = new String(readAll(jar.getInputStream(jar.getEntry("boa/Test.java"))), StandardCharsets.UTF_8);
+			assertTrue(code.contains("new java.util.Random(" + seed + " + key.hashCode())"));
+		} finally {
+			jar.close();
+		}
+	}
+
+	@Test
+	public void error() throws IOException {
+		final String reply = compile("o: output sum of int;\no << \"1\";\n", "a.jar");
+		assertTrue(reply, reply.startsWith("ERROR "));
+		assertTrue(reply, !new File(dir, "a.jar").exists());
+
+		assertEquals(ok("b.jar", false), compile(PROGRAM, "b.jar"));
+	}
+
+	private static String traversal(final String value) {
+		return "o: output sum of int;\n"
+				+ "t := traversal(node: CFGNode): int {\n"
+				+ "	return " + value + ";\n"
+				+ "};\n"
+				+ "o << 1;\n";
+	}
+
+	private static byte[] readAll(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buf = new byte[4096];
+		int n;
+		while ((n = in.read(buf)) != -1)
+			out.write(buf, 0, n);
+		return out.toByteArray();
+	}
+
+	private String ok(final String jar, final boolean cached) {
+		return "OK " + new File(dir, jar).getPath() + (cached ? " cached" : "");
+	}
+
+	private String compile(final String program, final String jar) throws IOException {
+		return compile(program, jar, "Test");
+	}
+
+	private String compile(final String program, final String jar, final String name) throws IOException {
+		final File input = new File(dir, UUID.randomUUID().toString() + ".boa");
+		final Writer w = new OutputStreamWriter(new FileOutputStream(input), StandardCharsets.UTF_8);
+		try {
+			w.write(program);
+		} finally {
+			w.close();
+		}
+
+		return service.compile(new String[] { "-i", input.getPath(), "-o", new File(dir, jar).getPath(), "-n", name });
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.compiler;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import boa.compiler.ast.Start;
+import boa.compiler.transforms.InheritedAttributeTransformer;
+import boa.compiler.transforms.LocalAggregationTransformer;
+import boa.compiler.transforms.VariableDeclRenameTransformer;
+import boa.compiler.transforms.VisitorOptimizingTransformer;
+import boa.compiler.visitors.CodeGeneratingVisitor;
+
+/**
+ * Test that only tables whose aggregator allows it are spread over several
+ * reducers.
+ *
+ * @author hyj
+ */
+public class TestSplitTables extends BaseTest {
+	@Test
+	public void splittable() throws IOException {
+		final String code = generate("s: output sum[string] of int;\n"
+				+ "m: output mean[string] of int;\n"
+				+ "t: output top(3) of string weight int;\n"
+				+ "q: output quantile(4)[string] of int;\n"
+				+ "s[\"a\"] << 1;\nm[\"a\"] << 1;\nt << \"a\" weight 1;\nq[\"a\"] << 1;\n");
+		assertTrue(code, code.contains("setVariableNames(new String[] {\"m\", \"q\", \"s\", \"t\"}, new String[] {\"m\", \"s\"});"));
+	}
+
+	@Test
+	public void noneSplittable() throws IOException {
+		final String code = generate("t: output top(3) of string weight int;\n"
+				+ "t << \"a\" weight 1;\n");
+		assertTrue(code, code.contains("setVariableNames(new String[] {\"t\"}, new String[] {});"));
+	}
+
+	private String generate(final String input) throws IOException {
+		final Start p = typecheck(input).ast;
+		new VariableDeclRenameTransformer().start(p);
+		new InheritedAttributeTransformer().start(p);
+		new LocalAggregationTransformer().start(p);
+		new VisitorOptimizingTransformer().start(p);
+
+		final CodeGeneratingVisitor cg = new CodeGeneratingVisitor("Test", 64 * 1024 * 1024, 0, false);
+		cg.start(p);
+		return cg.getCode();
+	}
+}
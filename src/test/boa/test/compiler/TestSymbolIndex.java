@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import boa.compiler.SymbolIndex;
+import boa.compiler.SymbolTable;
+import boa.types.BoaFunction;
+import boa.types.BoaType;
+import boa.types.BoaVarargs;
+
+/**
+ * Test that the symbol index holds the same built-in functions and
+ * aggregators the symbol table finds by reflection.
+ *
+ * @author hyj
+ */
+public class TestSymbolIndex extends BaseTest {
+	@Test
+	public void index() throws IOException {
+		final List<String> lines = write();
+		final SymbolTable st = new SymbolTable();
+
+		int functions = 0, aggregators = 0;
+		for (final String line : lines.subList(1, lines.size())) {
+			final String[] parts = line.split("\t", -1);
+			if (parts[0].equals("function")) {
+				final BoaType[] formalParameters = new BoaType[parts.length - 4];
+				for (int i = 0; i < formalParameters.length; i++) {
+					final String id = parts[i + 4];
+					if (id.endsWith("..."))
+						formalParameters[i] = new BoaVarargs(SymbolTable.getType(id.substring(0, id.indexOf('.'))));
+					else
+						formalParameters[i] = SymbolTable.getType(id);
+				}
+
+				final BoaFunction f = st.getFunction(parts[1], formalParameters);
+				assertNotNull(line, f);
+				assertEquals(line, parts[2], f.getName());
+				assertEquals(line, String.valueOf(SymbolTable.getType(parts[3])), String.valueOf(f.getType()));
+				functions++;
+			} else {
+				assertEquals(line, "aggregator", parts[0]);
+				if (!parts[2].equals("any"))
+					assertEquals(line, parts[3], st.getAggregator(parts[1], SymbolTable.getType(parts[2])).getName());
+				aggregators++;
+			}
+		}
+
+		assertTrue(functions > 100);
+		assertTrue(aggregators > 20);
+	}
+
+	@Test
+	public void builtins() throws IOException {
+		final List<String> lines = write();
+
+		assertTrue(lines.contains("function\tlowercase\tboa.functions.BoaStringIntrinsics.lowerCase\tstring\tstring"));
+		assertTrue(lines.contains("aggregator\tsum\tint\tboa.aggregators.IntSumAggregator"));
+		assertTrue(lines.contains("aggregator\tsum\tfloat\tboa.aggregators.FloatSumAggregator"));
+	}
+
+	@Test
+	public void fingerprint() throws IOException {
+		final String header = write().get(0);
+
+		assertTrue(header, header.matches("fingerprint\t[0-9a-f]+"));
+		assertEquals(header, write().get(0));
+	}
+
+	private static List<String> write() throws IOException {
+		final File f = File.createTempFile("symbols", ".idx");
+		try {
+			SymbolIndex.main(new String[] { f.getPath() });
+			return Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+		} finally {
+			f.delete();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.compiler;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import boa.compiler.ast.Start;
+import boa.compiler.ast.statements.TraverseStatement;
+import boa.compiler.visitors.AbstractVisitorNoArgNoRet;
+import boa.compiler.visitors.analysis.TraversalResultAliasAnalysis;
+
+/**
+ * Test that a traversal clause's result is only stored without a copy when
+ * nothing else can reach it.
+ *
+ * @author hyj
+ */
+public class TestTraversalResultAlias extends BaseTest {
+	@Test
+	public void immutable() throws IOException {
+		assertFalse(needsCopy("string", "return string(node.id);"));
+	}
+
+	@Test
+	public void built() throws IOException {
+		assertFalse(needsCopy("set of string", "s: set of string;\nadd(s, string(node.id));\nreturn s;"));
+	}
+
+	@Test
+	public void builtFromValues() throws IOException {
+		assertFalse(needsCopy("set of string", "s: set of string;\n"
+				+ "foreach (i: int; def(node.successors[i]))\n"
+				+ "	if (def(getvalue(node.successors[i])))\n"
+				+ "		s = union(s, getvalue(node.successors[i]));\n"
+				+ "return s;"));
+	}
+
+	@Test
+	public void stack() throws IOException {
+		assertFalse(needsCopy("stack of int", "s: stack of int;\npush(s, node.id);\nreturn s;"));
+	}
+
+	@Test
+	public void storedValue() throws IOException {
+		assertTrue(needsCopy("set of string", "s: set of string;\n"
+				+ "if (def(getvalue(node)))\n"
+				+ "	s = getvalue(node);\n"
+				+ "add(s, string(node.id));\n"
+				+ "return s;"));
+	}
+
+	@Test
+	public void returnedValue() throws IOException {
+		assertTrue(needsCopy("set of string", "return getvalue(node);"));
+	}
+
+	@Test
+	public void kept() throws IOException {
+		assertTrue(needsCopy("set of string", "s: set of string;\nadd(s, string(node.id));\ng = s;\nreturn s;"));
+	}
+
+	@Test
+	public void tupleField() throws IOException {
+		assertTrue(needsCopy("T", "t: T;\nif (def(getvalue(node)))\n	t = getvalue(node);\nadd(t.s, \"a\");\nreturn t;"));
+	}
+
+	private boolean needsCopy(final String type, final String body) throws IOException {
+		final Start p = typecheck("o: output sum of int;\n"
+				+ "type T = {s: set of string, i: int};\n"
+				+ "g: set of string;\n"
+				+ "t := traversal(node: CFGNode): " + type + " {\n" + body + "\n};\n"
+				+ "o << 1;\n").ast;
+		final boolean[] copy = new boolean[1];
+		new AbstractVisitorNoArgNoRet() {
+			@Override
+			public void visit(final TraverseStatement n) {
+				copy[0] = TraversalResultAliasAnalysis.needsCopy(n);
+			}
+		}.start(p);
+		return copy[0];
+	}
+}
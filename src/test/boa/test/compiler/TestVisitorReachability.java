@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.compiler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import boa.compiler.ast.Start;
+import boa.compiler.ast.expressions.VisitorExpression;
+import boa.compiler.visitors.AbstractVisitorNoArgNoRet;
+import boa.compiler.visitors.analysis.VisitorReachabilityAnalysis;
+
+/**
+ * Test that a visitor only walks into the types of nodes that can hold a
+ * node one of its clauses is for.
+ *
+ * @author hyj
+ */
+public class TestVisitorReachability extends BaseTest {
+	@Test
+	public void revisions() throws IOException {
+		assertEquals("[boa.types.Toplevel.Project, boa.types.Code.CodeRepository, boa.types.Code.Revision]",
+				"" + walked("before r: Revision -> c << 1;"));
+	}
+
+	@Test
+	public void methods() throws IOException {
+		assertEquals("[boa.types.Toplevel.Project, boa.types.Code.CodeRepository, boa.types.Code.Revision, boa.types.Diff.ChangedFile, "
+				+ "boa.types.Ast.ASTRoot, boa.types.Ast.Namespace, boa.types.Ast.Declaration, boa.types.Ast.Type, boa.types.Ast.Method, "
+				+ "boa.types.Ast.Variable, boa.types.Ast.Statement, boa.types.Ast.Expression, boa.types.Ast.Modifier]",
+				"" + walked("before m: Method -> c << 1;"));
+	}
+
+	@Test
+	public void people() throws IOException {
+		assertEquals("[boa.types.Toplevel.Project, boa.types.Code.CodeRepository, boa.types.Code.Revision, boa.types.Shared.Person]",
+				"" + walked("before p: Person -> c << 1;"));
+	}
+
+	@Test
+	public void wildcard() throws IOException {
+		assertEquals(null, walked("before _ -> c << 1;"));
+	}
+
+	@Test
+	public void everything() throws IOException {
+		assertEquals(null, walked("before Expression, Comment, Person -> c << 1;"));
+	}
+
+	private Object walked(final String clauses) throws IOException {
+		final Start p = typecheck("c: output sum of int;\n"
+				+ "visit(input, visitor {\n" + clauses + "\n});\n").ast;
+		final Object[] walked = new Object[1];
+		new AbstractVisitorNoArgNoRet() {
+			@Override
+			public void visit(final VisitorExpression n) {
+				walked[0] = VisitorReachabilityAnalysis.getWalkedTypes(n);
+			}
+		}.start(p);
+		return walked[0];
+	}
+}
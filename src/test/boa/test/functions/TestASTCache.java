@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.protobuf.CodedInputStream;
+
+import boa.datagen.DefaultProperties;
+import boa.functions.BoaAstIntrinsics;
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.types.Ast.ASTRoot;
+import boa.types.Diff.ChangedFile;
+import boa.types.Diff.ChangedFile.FileKind;
+import boa.types.Shared.ChangeKind;
+
+/**
+ * Test that parsed ASTs are found in the astcache map and then kept in the
+ * in-process cache.
+ *
+ * @author hyj
+ */
+public class TestASTCache {
+	private static final String astPath = "test/datagen/test_datagen/ast";
+
+	private final Configuration conf = new Configuration();
+	private final Counters counters = new Counters();
+	private final List<ASTRoot> asts = new ArrayList<ASTRoot>();
+	private File dir;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
+		if (!dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+		writeASTCache();
+		DefaultProperties.localDataPath = dir.getPath();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		BoaAstIntrinsics.cleanup(null);
+		// empty the in-process cache for the next test
+		BoaAstIntrinsics.setASTCacheSize(0);
+		DefaultProperties.localDataPath = null;
+		FileUtil.fullyDelete(dir);
+	}
+
+	@Test
+	public void mapThenMemory() throws Exception {
+		conf.setLong("boa.ast.cache.size", 64 * 1024 * 1024);
+		final Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context context = newContext();
+		BoaAstIntrinsics.setup(context);
+
+		final ASTRoot[] first = new ASTRoot[asts.size()];
+		for (int i = 0; i < asts.size(); i++) {
+			first[i] = BoaAstIntrinsics.getast(newFile(i));
+			assertEquals(asts.get(i), first[i]);
+		}
+		assertEquals(asts.size(), counter(BoaAstIntrinsics.ASTCACHECOUNTER.MAP_HITS));
+		assertEquals(0, counter(BoaAstIntrinsics.ASTCACHECOUNTER.MEMORY_HITS));
+
+		// the second pass is served from memory without decoding again
+		for (int i = 0; i < asts.size(); i++)
+			assertSame(first[i], BoaAstIntrinsics.getast(newFile(i)));
+		assertEquals(asts.size(), counter(BoaAstIntrinsics.ASTCACHECOUNTER.MAP_HITS));
+		assertEquals(asts.size(), counter(BoaAstIntrinsics.ASTCACHECOUNTER.MEMORY_HITS));
+		assertEquals(0, counter(BoaAstIntrinsics.ASTCACHECOUNTER.PARSES));
+
+		// the held size is an estimate of the heap, reported once at cleanup
+		long serialized = 0;
+		for (final ASTRoot ast : asts)
+			serialized += ast.getSerializedSize();
+		assertEquals(0, counter(BoaAstIntrinsics.ASTCACHECOUNTER.BYTES_HELD));
+		BoaAstIntrinsics.cleanup(context);
+		assertEquals(20 * serialized, counter(BoaAstIntrinsics.ASTCACHECOUNTER.BYTES_HELD));
+	}
+
+	@Test
+	public void tooSmallToHold() throws Exception {
+		conf.setLong("boa.ast.cache.size", 1);
+		BoaAstIntrinsics.setup(newContext());
+
+		for (int pass = 0; pass < 2; pass++)
+			for (int i = 0; i < asts.size(); i++)
+				assertEquals(asts.get(i), BoaAstIntrinsics.getast(newFile(i)));
+		assertEquals(2 * asts.size(), counter(BoaAstIntrinsics.ASTCACHECOUNTER.MAP_HITS));
+		assertEquals(0, counter(BoaAstIntrinsics.ASTCACHECOUNTER.MEMORY_HITS));
+	}
+
+	private long counter(final Enum<?> name) {
+		return counters.findCounter(name).getValue();
+	}
+
+	private static String oid(final int i) {
+		return String.format("%040x", i);
+	}
+
+	private static ChangedFile newFile(final int i) {
+		final ChangedFile.Builder cf = ChangedFile.newBuilder();
+		cf.setChange(ChangeKind.MODIFIED);
+		cf.setKind(FileKind.SOURCE_JAVA_JLS8);
+		cf.setName(i + ".java");
+		cf.setKey(0);
+		cf.setRepoKey(0);
+		cf.setAst(true);
+		cf.setObjectId(oid(i));
+		return cf.build();
+	}
+
+	// the astcache map is keyed by object id, so reuse the test ASTs under made up ids
+	private void writeASTCache() throws IOException {
+		final FileSystem fs = FileSystem.getLocal(conf);
+		final MapFile.Reader r = new MapFile.Reader(fs, astPath, conf);
+		final MapFile.Writer w = new MapFile.Writer(conf, fs, new File(dir, "astcache").getPath(), Text.class, BytesWritable.class);
+		try {
+			final LongWritable key = new LongWritable();
+			final BytesWritable value = new BytesWritable();
+			while (r.next(key, value)) {
+				final byte[] bytes = Arrays.copyOf(value.getBytes(), value.getLength());
+				final CodedInputStream in = CodedInputStream.newInstance(bytes);
+				in.setRecursionLimit(Integer.MAX_VALUE);
+				w.append(new Text(oid(asts.size())), new BytesWritable(bytes));
+				asts.add(ASTRoot.parseFrom(in));
+			}
+		} finally {
+			w.close();
+			r.close();
+		}
+		assertTrue(asts.size() > 1);
+	}
+
+	private Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context newContext() throws Exception {
+		final StatusReporter reporter = new StatusReporter() {
+			@Override
+			public Counter getCounter(final Enum<?> name) {
+				return counters.findCounter(name);
+			}
+
+			@Override
+			public Counter getCounter(final String group, final String name) {
+				return counters.findCounter(group, name);
+			}
+
+			@Override
+			public void progress() {
+			}
+
+			@Override
+			public void setStatus(final String status) {
+			}
+		};
+		return new Mapper<Text, BytesWritable, EmitKey, EmitValue>().new Context(conf, new TaskAttemptID(), null, null, null, reporter, null);
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static boa.functions.BoaAstIntrinsics.parse;
+import static boa.functions.BoaGraphIntrinsics.getcfg;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import boa.graphs.cfg.CFG;
+import boa.graphs.trees.DTree;
+import boa.graphs.trees.Dominators;
+import boa.graphs.trees.PDTree;
+import boa.graphs.trees.TreeNode;
+import boa.types.Ast.ASTRoot;
+import boa.types.Ast.Declaration;
+import boa.types.Ast.Method;
+
+/**
+ * Test that the immediate dominators and post-dominators, and the trees built
+ * from them, match those found from dominator sets.
+ *
+ * @author hyj
+ */
+@RunWith(Parameterized.class)
+public class TestDominators {
+	final private static File srcRootDir = new File("test/cdg/src");
+
+	@Parameters(name = "{0}")
+	public static List<String[]> data() {
+		final List<String[]> files = new ArrayList<String[]>();
+		for (final File f : srcRootDir.listFiles())
+			if (!f.isDirectory())
+				files.add(new String[] { f.getPath() });
+		return files;
+	}
+
+	private ASTRoot root = null;
+
+	public TestDominators(final String src) throws IOException {
+		this.root = parse(load(src));
+	}
+
+	@Test
+	public void testDominators() throws Exception {
+		final Declaration d = root.getNamespacesList().get(0).getDeclarationsList().get(0);
+		assertTrue(d.getMethodsCount() > 0);
+		for (final Method m : d.getMethodsList())
+			check(getcfg(m));
+	}
+
+	/**
+	 * Compares both dominator trees of a graph against dominator sets.
+	 *
+	 * @param cfg the control flow graph
+	 */
+	public static void check(final CFG cfg) throws Exception {
+		final int size = cfg.getNodes().size();
+		final int[][] succs = new int[size][];
+		final int[][] preds = new int[size][];
+		for (int n = 0; n < size; n++) {
+			succs[n] = cfg.getSuccessorIds(n);
+			preds[n] = cfg.getPredecessorIds(n);
+		}
+
+		final Dominators doms = Dominators.dominators(cfg);
+		final int[] expectedDoms = immediateDominators(preds, succs, 0);
+		final Dominators pdoms = Dominators.postDominators(cfg);
+		final int[] expectedPdoms = immediateDominators(succs, preds, size - 1);
+		assertEquals(size, doms.size());
+		assertEquals(size, pdoms.size());
+		for (int n = 0; n < size; n++) {
+			assertEquals("dominator of " + n, expectedDoms[n], doms.getImmediateDominator(n));
+			assertEquals("post-dominator of " + n, expectedPdoms[n], pdoms.getImmediateDominator(n));
+		}
+
+		if (size == 0)
+			return;
+		final DTree dt = new DTree(cfg);
+		final PDTree pdt = new PDTree(cfg);
+		for (int n = 0; n < size; n++) {
+			assertParent(expectedDoms[n], dt.getNode(n));
+			assertParent(expectedPdoms[n], pdt.getNode(n));
+		}
+	}
+
+	private static void assertParent(final int expected, final TreeNode node) {
+		if (expected < 0) {
+			if (node != null)
+				assertNull(node.getParent());
+		} else {
+			assertEquals(expected, node.getParent().getNodeId());
+		}
+	}
+
+	/**
+	 * Finds immediate dominators from dominator sets, iterated to a fixpoint.
+	 * As in {@link Dominators}, the root and every other node without
+	 * predecessors hang off a virtual node, which has id <code>size</code>.
+	 *
+	 * @param preds predecessor ids, indexed by node id
+	 * @param succs successor ids, indexed by node id
+	 * @param root the id of the main root
+	 * @return the immediate dominators, or -1 for roots and unreachable nodes
+	 */
+	private static int[] immediateDominators(final int[][] preds, final int[][] succs, final int root) {
+		final int size = preds.length;
+		final int virtual = size;
+
+		final boolean[] reachable = new boolean[size];
+		final List<Integer> work = new ArrayList<Integer>();
+		for (int n = 0; n < size; n++)
+			if (n == root || preds[n].length == 0) {
+				reachable[n] = true;
+				work.add(n);
+			}
+		while (!work.isEmpty())
+			for (final int s : succs[work.remove(work.size() - 1)])
+				if (!reachable[s]) {
+					reachable[s] = true;
+					work.add(s);
+				}
+
+		final BitSet[] dom = new BitSet[size + 1];
+		for (int n = 0; n < size; n++) {
+			dom[n] = new BitSet();
+			dom[n].set(0, size + 1);
+		}
+		dom[virtual] = new BitSet();
+		dom[virtual].set(virtual);
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int n = 0; n < size; n++) {
+				final BitSet d = new BitSet();
+				d.set(0, size + 1);
+				if (n == root || preds[n].length == 0)
+					d.and(dom[virtual]);
+				for (final int p : preds[n])
+					d.and(dom[p]);
+				d.set(n);
+				if (!d.equals(dom[n])) {
+					dom[n] = d;
+					changed = true;
+				}
+			}
+		}
+
+		final int[] idom = new int[size];
+		for (int n = 0; n < size; n++) {
+			idom[n] = -1;
+			if (!reachable[n])
+				continue;
+			// the strict dominator that all the others dominate
+			int best = -1;
+			for (int d = dom[n].nextSetBit(0); d >= 0; d = dom[n].nextSetBit(d + 1))
+				if (d != n && d != virtual && (best < 0 || dom[d].cardinality() > dom[best].cardinality()))
+					best = d;
+			idom[n] = best;
+		}
+		return idom;
+	}
+
+	protected String load(final String fileName) throws IOException {
+		BufferedInputStream in = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(fileName));
+			final byte[] bytes = new byte[(int) new File(fileName).length()];
+			in.read(bytes);
+			return new String(bytes);
+		} finally {
+			if (in != null)
+				in.close();
+		}
+	}
+}
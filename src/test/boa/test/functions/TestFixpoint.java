@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static boa.functions.BoaAstIntrinsics.parse;
+import static boa.functions.BoaGraphIntrinsics.getcfg;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import boa.graphs.cfg.CFG;
+import boa.graphs.cfg.CFGNode;
+import boa.runtime.BoaAbstractFixP;
+import boa.runtime.BoaAbstractTraversal;
+import boa.types.Ast.ASTRoot;
+import boa.types.Ast.Declaration;
+import boa.types.Ast.Method;
+import boa.types.Graph.Traversal.TraversalDirection;
+import boa.types.Graph.Traversal.TraversalKind;
+
+/**
+ * Test that traversals with a fixpoint reach the same results as the loop
+ * that repeated whole traversals until no node changed.
+ *
+ * @author hyj
+ */
+@RunWith(Parameterized.class)
+public class TestFixpoint {
+	final private static File srcRootDir = new File("test/cdg/src");
+
+	private static final TraversalKind[] kinds = {
+		TraversalKind.DFS, TraversalKind.POSTORDER, TraversalKind.REVERSEPOSTORDER, TraversalKind.ITERATIVE, TraversalKind.RANDOM
+	};
+
+	@Parameters(name = "{0}")
+	public static List<String[]> data() {
+		final List<String[]> files = new ArrayList<String[]>();
+		for (final File f : srcRootDir.listFiles())
+			if (!f.isDirectory())
+				files.add(new String[] { f.getPath() });
+		return files;
+	}
+
+	private ASTRoot root = null;
+
+	public TestFixpoint(final String src) throws IOException {
+		this.root = parse(load(src));
+	}
+
+	@Test
+	public void testFixpoint() throws Exception {
+		final Declaration d = root.getNamespacesList().get(0).getDeclarationsList().get(0);
+		assertTrue(d.getMethodsCount() > 0);
+		for (final Method m : d.getMethodsList())
+			check(getcfg(m));
+	}
+
+	/**
+	 * Compares both ways of reaching a fixpoint, for a backward and a forward
+	 * analysis in every order that is solved.
+	 *
+	 * @param cfg the control flow graph
+	 */
+	public static void check(final CFG cfg) throws Exception {
+		for (final TraversalKind kind : kinds) {
+			assertEquals(kind.toString(), oldFixpoint(new Liveness(), cfg, TraversalDirection.BACKWARD, kind), solve(new Liveness(), cfg, TraversalDirection.BACKWARD, kind));
+			assertEquals(kind.toString(), oldFixpoint(new Definitions(), cfg, TraversalDirection.FORWARD, kind), solve(new Definitions(), cfg, TraversalDirection.FORWARD, kind));
+		}
+	}
+
+	private static final BoaAbstractFixP sameSet = new BoaAbstractFixP() {
+		@Override
+		public boolean invoke(final Object curr, final Object prev) {
+			return curr.equals(prev);
+		}
+	};
+
+	private static HashMap<Long, HashSet<String>> solve(final BoaAbstractTraversal<HashSet<String>> t, final CFG cfg, final TraversalDirection direction, final TraversalKind kind) throws Exception {
+		t.traverse(cfg, direction, kind, sameSet);
+		return t.outputMapObj;
+	}
+
+	/**
+	 * Repeats whole traversals until no node's result changes, as traversals
+	 * with a fixpoint used to.
+	 */
+	private static HashMap<Long, HashSet<String>> oldFixpoint(final BoaAbstractTraversal<HashSet<String>> t, final CFG cfg, final TraversalDirection direction, final TraversalKind kind) throws Exception {
+		boolean fixpFlag;
+		do {
+			final HashMap<Long, HashSet<String>> prev = t.outputMapObj == null ? new HashMap<Long, HashSet<String>>() : new HashMap<Long, HashSet<String>>(t.outputMapObj);
+			t.traverse(cfg, direction, kind);
+			fixpFlag = true;
+			for (final CFGNode node : cfg.getNodes()) {
+				if (t.outputMapObj.containsKey(node.getId())) {
+					if (prev.containsKey(node.getId())) {
+						fixpFlag = fixpFlag && sameSet.invoke(t.outputMapObj.get(node.getId()), prev.get(node.getId()));
+					} else {
+						fixpFlag = false;
+						break;
+					}
+				}
+			}
+		} while (!fixpFlag);
+		return t.outputMapObj;
+	}
+
+	/**
+	 * The variables live on entry to each node.
+	 */
+	private static class Liveness extends BoaAbstractTraversal<HashSet<String>> {
+		Liveness() {
+			super(true, true);
+		}
+
+		@Override
+		public void traverse(final CFGNode node, final boolean flag) throws Exception {
+			final HashSet<String> live = new HashSet<String>();
+			for (final CFGNode s : node.getSuccessors()) {
+				final HashSet<String> in = getValue(s);
+				if (in != null)
+					live.addAll(in);
+			}
+			live.remove(node.getDefVariables());
+			live.addAll(node.getUseVariables());
+			outputMapObj.put(node.getId(), live);
+		}
+	}
+
+	/**
+	 * The variables that may have been defined on exit from each node.
+	 */
+	private static class Definitions extends BoaAbstractTraversal<HashSet<String>> {
+		Definitions() {
+			super(true, true);
+		}
+
+		@Override
+		public void traverse(final CFGNode node, final boolean flag) throws Exception {
+			final HashSet<String> defined = new HashSet<String>();
+			for (final CFGNode p : node.getPredecessors()) {
+				final HashSet<String> out = getValue(p);
+				if (out != null)
+					defined.addAll(out);
+			}
+			if (!node.getDefVariables().isEmpty())
+				defined.add(node.getDefVariables());
+			outputMapObj.put(node.getId(), defined);
+		}
+	}
+
+	protected String load(final String fileName) throws IOException {
+		BufferedInputStream in = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(fileName));
+			final byte[] bytes = new byte[(int) new File(fileName).length()];
+			in.read(bytes);
+			return new String(bytes);
+		} finally {
+			if (in != null)
+				in.close();
+		}
+	}
+}
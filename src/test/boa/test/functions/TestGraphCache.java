@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018, Robert Dyer,
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static boa.functions.BoaGraphIntrinsics.cdgToDot;
+import static boa.functions.BoaGraphIntrinsics.cfgToDot;
+import static boa.functions.BoaGraphIntrinsics.ddgToDot;
+import static boa.functions.BoaGraphIntrinsics.getcdg;
+import static boa.functions.BoaGraphIntrinsics.getcfg;
+import static boa.functions.BoaGraphIntrinsics.getddg;
+import static boa.functions.BoaGraphIntrinsics.getpdg;
+import static boa.functions.BoaGraphIntrinsics.getpdtree;
+import static boa.functions.BoaGraphIntrinsics.pdgToDot;
+import static boa.functions.BoaGraphIntrinsics.pdtreeToDot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boa.functions.BoaAstIntrinsics;
+import boa.functions.BoaGraphIntrinsics;
+import boa.graphs.cdg.CDG;
+import boa.graphs.cfg.CFG;
+import boa.graphs.ddg.DDG;
+import boa.graphs.pdg.PDG;
+import boa.graphs.trees.PDTree;
+import boa.types.Ast.Method;
+
+/**
+ * Test that the graph intrinsics share the graphs of a method, and that the
+ * shared graphs are the ones built without the cache.
+ *
+ * @author hyj
+ */
+public class TestGraphCache {
+	private final List<Method> methods = new ArrayList<Method>();
+
+	@Before
+	public void setUp() throws Exception {
+		for (final Method m : TestGraphIndex.methods())
+			if (m.getStatementsCount() > 0)
+				methods.add(m);
+		assertTrue(methods.size() > 1);
+		BoaGraphIntrinsics.setGraphCacheSize(256 * 1024);
+	}
+
+	@After
+	public void tearDown() {
+		BoaAstIntrinsics.cleanup(null);
+		BoaGraphIntrinsics.setGraphCacheSize(256 * 1024);
+	}
+
+	@Test
+	public void shared() throws Exception {
+		final Method m = methods.get(0);
+		final CFG cfg = getcfg(m);
+		assertSame(cfg, getcfg(m));
+		assertSame(getcdg(m), getcdg(cfg));
+		assertSame(getddg(m), getddg(cfg));
+		assertSame(getpdtree(m), getpdtree(m));
+		assertNotSame(cfg, getcfg(methods.get(1)));
+
+		// PDGs can be changed in place, so each call gets its own
+		assertNotSame(getpdg(m), getpdg(m));
+
+		// a CFG that is not the cached one gets its own graphs
+		final CFG other = new CFG(m).get();
+		assertNotSame(getcdg(m), getcdg(other));
+	}
+
+	@Test
+	public void sameGraphs() throws Exception {
+		for (final Method m : methods) {
+			final CFG cfg = getcfg(m);
+			if (cfg == null)
+				continue;
+			final String cfgDot = cfgToDot(cfg);
+			final String pdtreeDot = pdtreeToDot(getpdtree(m));
+			final String cdgDot = cdgToDot(getcdg(m));
+			final String ddgDot = ddgToDot(getddg(m));
+			final String pdgDot = pdgToDot(getpdg(m));
+
+			assertEquals(cfgDot, cfgToDot(new CFG(m).get()));
+			assertEquals(pdtreeDot, pdtreeToDot(new PDTree(m)));
+			assertEquals(cdgDot, cdgToDot(new CDG(m)));
+			assertEquals(ddgDot, ddgToDot(new DDG(m)));
+			assertEquals(pdgDot, pdgToDot(new PDG(m)));
+		}
+	}
+
+	@Test
+	public void clearedBetweenFiles() throws Exception {
+		final Method m = methods.get(0);
+		final CFG cfg = getcfg(m);
+		BoaAstIntrinsics.cleanup(null);
+		assertNotSame(cfg, getcfg(m));
+	}
+
+	@Test
+	public void disabled() throws Exception {
+		BoaGraphIntrinsics.setGraphCacheSize(0);
+		final Method m = methods.get(0);
+		assertNotSame(getcfg(m), getcfg(m));
+		assertNotSame(getcdg(m), getcdg(m));
+	}
+
+	@Test
+	public void bounded() throws Exception {
+		// too small to hold any graph, so nothing is kept
+		BoaGraphIntrinsics.setGraphCacheSize(1);
+		final Method m = methods.get(0);
+		assertNotSame(getcfg(m), getcfg(m));
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018, Robert Dyer,
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.junit.Test;
+
+import com.google.protobuf.CodedInputStream;
+
+import boa.graphs.Node;
+import boa.graphs.cdg.CDG;
+import boa.graphs.cdg.CDGNode;
+import boa.graphs.cfg.CFG;
+import boa.graphs.cfg.CFGNode;
+import boa.graphs.trees.DTree;
+import boa.graphs.trees.PDTree;
+import boa.graphs.trees.TreeNode;
+import boa.types.Ast.ASTRoot;
+import boa.types.Ast.Declaration;
+import boa.types.Ast.Method;
+import boa.types.Ast.Namespace;
+
+/**
+ * Test that the id-indexed views of the graphs match their node sets, over
+ * the methods in test_datagen.
+ *
+ * @author hyj
+ */
+public class TestGraphIndex {
+	private static final String astPath = "test/datagen/test_datagen/ast";
+
+	@Test
+	public void testIndex() throws Exception {
+		int checked = 0;
+		for (final Method m : methods()) {
+			final CFG cfg = new CFG(m).get();
+			if (cfg == null || cfg.getNodes().size() == 0)
+				continue;
+			check(cfg);
+			checked++;
+		}
+		assertTrue(checked > 0);
+	}
+
+	private static void check(final CFG cfg) throws Exception {
+		final int size = cfg.getNodes().size();
+		assertNull(cfg.getNode(-1));
+		assertNull(cfg.getNode(size));
+		for (final CFGNode n : cfg.getNodes()) {
+			assertSame(n, cfg.getNode(n.getNodeId()));
+			assertArrayEquals(sortedIds(n.getSuccessors()), cfg.getSuccessorIds(n.getNodeId()));
+			assertArrayEquals(sortedIds(n.getPredecessors()), cfg.getPredecessorIds(n.getNodeId()));
+		}
+
+		final CFGNode[] sorted = cfg.sortNodes();
+		final CFGNode[] reversed = cfg.reverseSortNodes();
+		for (int i = 0; i < size; i++) {
+			assertEquals(i, sorted[i].getNodeId());
+			assertSame(sorted[i], reversed[size - 1 - i]);
+		}
+
+		// every node reachable from the entry comes once, after its successors
+		// unless the edge to them closes a cycle
+		final int[] post = cfg.getPostOrder();
+		final int[] position = new int[size];
+		Arrays.fill(position, -1);
+		for (int i = 0; i < post.length; i++) {
+			assertEquals(-1, position[post[i]]);
+			position[post[i]] = i;
+		}
+		assertEquals(post.length - 1, position[cfg.getEntryNode().getNodeId()]);
+		for (final int n : post)
+			for (final int s : cfg.getSuccessorIds(n))
+				assertTrue(position[s] >= 0 && (position[s] < position[n] || reaches(cfg, s, n)));
+		final int[] rpo = cfg.getReversePostOrder();
+		for (int i = 0; i < post.length; i++)
+			assertEquals(post[i], rpo[post.length - 1 - i]);
+
+		final DTree dt = new DTree(cfg);
+		for (final TreeNode n : dt.getNodes())
+			assertSame(n, dt.getNode(n.getNodeId()));
+		final PDTree pdt = new PDTree(cfg);
+		for (final TreeNode n : pdt.getNodes())
+			assertSame(n, pdt.getNode(n.getNodeId()));
+		final CDG cdg = new CDG(cfg);
+		for (final CDGNode n : cdg.getNodes())
+			assertSame(n, cdg.getNode(n.getNodeId()));
+	}
+
+	private static boolean reaches(final CFG cfg, final int from, final int to) {
+		final boolean[] seen = new boolean[cfg.getNodes().size()];
+		final List<Integer> work = new ArrayList<Integer>();
+		work.add(from);
+		seen[from] = true;
+		while (!work.isEmpty()) {
+			final int n = work.remove(work.size() - 1);
+			if (n == to)
+				return true;
+			for (final int s : cfg.getSuccessorIds(n))
+				if (!seen[s]) {
+					seen[s] = true;
+					work.add(s);
+				}
+		}
+		return false;
+	}
+
+	private static int[] sortedIds(final List<? extends Node<?, ?>> nodes) {
+		final int[] ids = new int[nodes.size()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = nodes.get(i).getNodeId();
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	static List<Method> methods() throws Exception {
+		final Configuration conf = new Configuration();
+		final MapFile.Reader r = new MapFile.Reader(FileSystem.getLocal(conf), astPath, conf);
+		final List<Method> methods = new ArrayList<Method>();
+		try {
+			final LongWritable key = new LongWritable();
+			final BytesWritable value = new BytesWritable();
+			while (r.next(key, value)) {
+				final CodedInputStream in = CodedInputStream.newInstance(value.getBytes(), 0, value.getLength());
+				in.setRecursionLimit(Integer.MAX_VALUE);
+				for (final Namespace ns : ASTRoot.parseFrom(in).getNamespacesList())
+					for (final Declaration d : ns.getDeclarationsList())
+						collect(d, methods);
+			}
+		} finally {
+			r.close();
+		}
+		return methods;
+	}
+
+	private static void collect(final Declaration d, final List<Method> methods) {
+		methods.addAll(d.getMethodsList());
+		for (final Declaration nested : d.getNestedDeclarationsList())
+			collect(nested, methods);
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import boa.functions.LRUCache;
+
+/**
+ * Test the eviction order, sizing and statistics of the LRU cache.
+ *
+ * @author hyj
+ */
+public class TestLRUCache {
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		final LRUCache<String, String> cache = new LRUCache<String, String>(2);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		// reading a makes b the least recently used entry
+		assertEquals("1", cache.get("a"));
+		cache.put("c", "3");
+
+		assertTrue(cache.containsKey("a"));
+		assertFalse(cache.containsKey("b"));
+		assertTrue(cache.containsKey("c"));
+		assertEquals(2, cache.getCount());
+		assertEquals(2, cache.getSize());
+	}
+
+	@Test
+	public void countsHitsAndMisses() {
+		final LRUCache<String, String> cache = new LRUCache<String, String>(4);
+		cache.put("a", "1");
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+		// containsKey does not count
+		cache.containsKey("b");
+
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void boundsBySize() {
+		final LRUCache<String, String> cache = new LRUCache<String, String>(10) {
+			@Override
+			protected long sizeOf(final String key, final String value) {
+				return value.length();
+			}
+		};
+		cache.put("a", "xxxx");
+		cache.put("b", "xxxx");
+		assertEquals(8, cache.getSize());
+
+		// replacing a value only counts the new one
+		cache.put("b", "xx");
+		assertEquals(6, cache.getSize());
+
+		cache.put("c", "xxxxxx");
+		assertFalse(cache.containsKey("a"));
+		assertEquals(8, cache.getSize());
+
+		// an entry larger than the whole cache is not kept and evicts nothing
+		cache.put("d", "xxxxxxxxxxx");
+		assertNull(cache.get("d"));
+		assertEquals(2, cache.getCount());
+
+		cache.remove("b");
+		assertEquals(6, cache.getSize());
+	}
+
+	@Test
+	public void shrinkingEvicts() {
+		final LRUCache<Integer, Integer> cache = new LRUCache<Integer, Integer>(8);
+		for (int i = 0; i < 8; i++)
+			cache.put(i, i);
+		cache.setCapacity(3);
+
+		assertEquals(3, cache.getCount());
+		for (int i = 5; i < 8; i++)
+			assertTrue(cache.containsKey(i));
+
+		cache.clear();
+		assertEquals(0, cache.getCount());
+		assertEquals(0, cache.getSize());
+	}
+}
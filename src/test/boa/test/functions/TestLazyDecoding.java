@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.protobuf.CodedInputStream;
+
+import boa.datagen.DefaultProperties;
+import boa.functions.BoaAstIntrinsics;
+import boa.functions.BoaIntrinsics;
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.types.Ast.ASTRoot;
+import boa.types.Code.CodeRepository;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+import boa.types.Diff.ChangedFile.FileKind;
+import boa.types.Shared.ChangeKind;
+import boa.types.Toplevel.Project;
+
+/**
+ * Test that lazily decoded ASTs and revisions are equal to those decoded in
+ * full, and serialize back to the same bytes.
+ *
+ * @author hyj
+ */
+public class TestLazyDecoding {
+	private static final String dataPath = "test/datagen/test_datagen";
+	private static final long firstKey = 1000;
+
+	private final Configuration conf = new Configuration();
+	private final Counters counters = new Counters();
+	private File dir;
+	private CodeRepository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
+		if (!dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+
+		final FileSystem fs = FileSystem.getLocal(conf);
+		FileUtil.copy(fs, new Path(dataPath, "ast"), fs, new Path(dir.getPath(), "ast"), false, conf);
+		repository = readRepository();
+		writeCommits();
+
+		conf.setBoolean("boa.decode.lazy", true);
+		DefaultProperties.localDataPath = dir.getPath();
+		BoaAstIntrinsics.setup(newContext());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		BoaAstIntrinsics.cleanup(null);
+		DefaultProperties.localDataPath = null;
+		FileUtil.fullyDelete(dir);
+	}
+
+	@Test
+	public void asts() throws IOException {
+		final MapFile.Reader r = new MapFile.Reader(FileSystem.getLocal(conf), new File(dir, "ast").getPath(), conf);
+		try {
+			final LongWritable key = new LongWritable();
+			final BytesWritable value = new BytesWritable();
+			int n = 0;
+			while (r.next(key, value)) {
+				final byte[] bytes = Arrays.copyOf(value.getBytes(), value.getLength());
+				final CodedInputStream in = CodedInputStream.newInstance(bytes);
+				in.setRecursionLimit(Integer.MAX_VALUE);
+				final ASTRoot expected = ASTRoot.parseFrom(in);
+
+				final ASTRoot actual = BoaAstIntrinsics.getast(newFile(key.get()));
+				assertEquals(expected, actual);
+				assertEquals(expected.hashCode(), actual.hashCode());
+				assertEquals(bytes.length, actual.getSerializedSize());
+				assertArrayEquals(bytes, actual.toByteArray());
+				n++;
+			}
+			assertTrue(n > 0);
+		} finally {
+			r.close();
+		}
+		assertEquals(0, counters.findCounter(BoaAstIntrinsics.ASTCOUNTER.GETS_FAILED).getValue());
+	}
+
+	@Test
+	public void revisions() {
+		final CodeRepository.Builder cr = CodeRepository.newBuilder(repository);
+		cr.clearRevisions();
+		for (int i = 0; i < repository.getRevisionsCount(); i++)
+			cr.addRevisionKeys(firstKey + i);
+		final CodeRepository stored = cr.build();
+
+		// in order, so revisions are read ahead, then backwards
+		for (int i = 0; i < stored.getRevisionKeysCount(); i++)
+			assertRevision(repository.getRevisions(i), BoaIntrinsics.getRevision(stored, i));
+		for (int i = stored.getRevisionKeysCount() - 1; i >= 0; i--)
+			assertRevision(repository.getRevisions(i), BoaIntrinsics.getRevision(stored, i));
+		assertEquals(0, counters.findCounter(BoaAstIntrinsics.COMMITCOUNTER.GETS_FAILED).getValue());
+	}
+
+	private static void assertRevision(final Revision expected, final Revision actual) {
+		assertEquals(expected, actual);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		assertEquals(expected.getFilesList(), actual.getFilesList());
+		assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+	}
+
+	private static ChangedFile newFile(final long key) {
+		final ChangedFile.Builder cf = ChangedFile.newBuilder();
+		cf.setChange(ChangeKind.MODIFIED);
+		cf.setKind(FileKind.SOURCE_JAVA_JLS8);
+		cf.setName(key + ".java");
+		cf.setKey(key);
+		cf.setAst(true);
+		return cf.build();
+	}
+
+	private CodeRepository readRepository() throws IOException {
+		final SequenceFile.Reader r = new SequenceFile.Reader(FileSystem.getLocal(conf), new Path(dataPath, "projects.seq"), conf);
+		try {
+			final Text key = new Text();
+			final BytesWritable val = new BytesWritable();
+			assertTrue(r.next(key, val));
+			final Project p = Project.parseFrom(CodedInputStream.newInstance(val.getBytes(), 0, val.getLength()));
+			return p.getCodeRepositories(0);
+		} finally {
+			r.close();
+		}
+	}
+
+	private void writeCommits() throws IOException {
+		final MapFile.Writer w = new MapFile.Writer(conf, FileSystem.getLocal(conf), new File(dir, "commit").getPath(), LongWritable.class, BytesWritable.class);
+		try {
+			for (int i = 0; i < repository.getRevisionsCount(); i++)
+				w.append(new LongWritable(firstKey + i), new BytesWritable(repository.getRevisions(i).toByteArray()));
+		} finally {
+			w.close();
+		}
+	}
+
+	private Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context newContext() throws Exception {
+		final StatusReporter reporter = new StatusReporter() {
+			@Override
+			public Counter getCounter(final Enum<?> name) {
+				return counters.findCounter(name);
+			}
+
+			@Override
+			public Counter getCounter(final String group, final String name) {
+				return counters.findCounter(group, name);
+			}
+
+			@Override
+			public void progress() {
+			}
+
+			@Override
+			public void setStatus(final String status) {
+			}
+		};
+		return new Mapper<Text, BytesWritable, EmitKey, EmitValue>().new Context(conf, new TaskAttemptID(), null, null, null, reporter, null);
+	}
+}
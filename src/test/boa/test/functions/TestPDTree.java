@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018, Robert Dyer,
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import boa.graphs.cfg.CFG;
+import boa.graphs.trees.PDTree;
+import boa.types.Ast.Expression;
+import boa.types.Ast.Expression.ExpressionKind;
+import boa.types.Ast.Method;
+import boa.types.Ast.Statement;
+import boa.types.Ast.Statement.StatementKind;
+
+/**
+ * Test post-dominator tree construction.
+ *
+ * @author hyj
+ */
+public class TestPDTree {
+	/*
+	 * while (c) { if (d) a; b; } e;
+	 *
+	 * 0 ENTRY, 1 WHILE, 2 IF, 3 a, 4 b, 5 e, 6 EXIT
+	 */
+	@Test
+	public void loopBody() throws Exception {
+		final Statement body = block(control(StatementKind.IF, expression()), expression());
+		final Method md = Method.newBuilder().setName("m").addStatements(block(control(StatementKind.WHILE, body), expression())).build();
+
+		final CFG cfg = new CFG(md).get();
+		assertEquals(7, cfg.getNodes().size());
+		assertEquals("WHILE", cfg.getNode(1).getName());
+		assertEquals("IF", cfg.getNode(2).getName());
+
+		final PDTree tree = new PDTree(cfg);
+		assertEquals(6, tree.getRootNode().getNodeId());
+		assertNull(tree.getNode(6).getParent());
+		assertEquals(6, tree.getNode(5).getParent().getNodeId());
+		assertEquals(5, tree.getNode(1).getParent().getNodeId());
+		assertEquals(1, tree.getNode(0).getParent().getNodeId());
+		assertEquals(1, tree.getNode(4).getParent().getNodeId());
+		// both paths from the branch and its then part meet at b, not at the loop header
+		assertEquals(4, tree.getNode(2).getParent().getNodeId());
+		assertEquals(4, tree.getNode(3).getParent().getNodeId());
+	}
+
+	private static Statement expression() {
+		final Expression e = Expression.newBuilder().setKind(ExpressionKind.LITERAL).setLiteral("x").build();
+		return Statement.newBuilder().setKind(StatementKind.EXPRESSION).addExpressions(e).build();
+	}
+
+	private static Statement control(final StatementKind kind, final Statement body) {
+		final Expression condition = Expression.newBuilder().setKind(ExpressionKind.LITERAL).setLiteral("c").build();
+		return Statement.newBuilder().setKind(kind).addConditions(condition).addStatements(body).build();
+	}
+
+	private static Statement block(final Statement... statements) {
+		final Statement.Builder s = Statement.newBuilder().setKind(StatementKind.BLOCK);
+		for (final Statement stmt : statements)
+			s.addStatements(stmt);
+		return s.build();
+	}
+}
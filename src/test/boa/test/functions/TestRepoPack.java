@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boa.datagen.DefaultProperties;
+import boa.functions.BoaAstIntrinsics;
+import boa.io.BlobPackWriter;
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.types.Diff.ChangedFile;
+import boa.types.Diff.ChangedFile.FileKind;
+import boa.types.Shared.ChangeKind;
+
+/**
+ * Test that getcontent reads file contents out of the repo pack.
+ *
+ * @author hyj
+ */
+public class TestRepoPack {
+	private static final String[] ids = {
+		"0123456789abcdef0123456789abcdef01234567",
+		"89abcdef0123456789abcdef0123456789abcdef",
+		"fedcba9876543210fedcba9876543210fedcba98",
+	};
+	private static final String[] contents = {
+		"class A {}\n",
+		"",
+		"class C {\n\tString s = \"c\";\n}\n",
+	};
+
+	private final Configuration conf = new Configuration();
+	private final Counters counters = new Counters();
+	private File dir;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
+		if (!dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+
+		final BlobPackWriter w = new BlobPackWriter(new File(dir, "repopack"));
+		for (int i = 0; i < ids.length; i++)
+			w.add(ids[i], contents[i].getBytes());
+		w.close();
+
+		conf.set("boa.repo.format", "pack");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		BoaAstIntrinsics.cleanup(null);
+		DefaultProperties.localDataPath = null;
+		FileUtil.fullyDelete(dir);
+	}
+
+	@Test
+	public void local() throws Exception {
+		DefaultProperties.localDataPath = dir.getPath();
+		BoaAstIntrinsics.setup(newContext());
+
+		for (int i = 0; i < ids.length; i++)
+			assertEquals(contents[i], BoaAstIntrinsics.getContent(newFile(ids[i])));
+		assertNull(BoaAstIntrinsics.getContent(newFile("00000000000000000000000000000000000000ff")));
+		assertEquals(ids.length, counters.findCounter(BoaAstIntrinsics.ASTCOUNTER.GETS_SUCCEED).getValue());
+		assertEquals(1, counters.findCounter(BoaAstIntrinsics.ASTCOUNTER.GETS_FAIL_MISSING).getValue());
+	}
+
+	@Test
+	public void nodeLocalCopy() throws Exception {
+		conf.set("fs.default.name", "file:///");
+		conf.set("boa.input.dir", dir.getAbsolutePath());
+		// not created yet
+		final File local = new File(dir, "node/local");
+		conf.set("boa.repo.pack.local.dir", local.getPath());
+
+		for (int run = 0; run < 2; run++) {
+			BoaAstIntrinsics.setup(newContext());
+			for (int i = 0; i < ids.length; i++)
+				assertEquals(contents[i], BoaAstIntrinsics.getContent(newFile(ids[i])));
+			BoaAstIntrinsics.cleanup(null);
+		}
+
+		// only the copied pack is left behind, without temporary or checksum files
+		final File[] copies = local.listFiles();
+		assertEquals(1, copies.length);
+		final String[] names = copies[0].list();
+		Arrays.sort(names);
+		assertArrayEquals(new String[] { BlobPackWriter.INDEX_FILE_NAME, BlobPackWriter.DATA_FILE_NAME }, names);
+	}
+
+	private static ChangedFile newFile(final String id) {
+		final ChangedFile.Builder cf = ChangedFile.newBuilder();
+		cf.setChange(ChangeKind.MODIFIED);
+		cf.setKind(FileKind.SOURCE_JAVA_JLS8);
+		cf.setName(id + ".java");
+		cf.setKey(0);
+		cf.setRepoKey(0);
+		cf.setAst(false);
+		cf.setObjectId(id);
+		return cf.build();
+	}
+
+	private Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context newContext() throws Exception {
+		final StatusReporter reporter = new StatusReporter() {
+			@Override
+			public Counter getCounter(final Enum<?> name) {
+				return counters.findCounter(name);
+			}
+
+			@Override
+			public Counter getCounter(final String group, final String name) {
+				return counters.findCounter(group, name);
+			}
+
+			@Override
+			public void progress() {
+			}
+
+			@Override
+			public void setStatus(final String status) {
+			}
+		};
+		return new Mapper<Text, BytesWritable, EmitKey, EmitValue>().new Context(conf, new TaskAttemptID(), null, null, null, reporter, null);
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.protobuf.CodedInputStream;
+
+import boa.datagen.DefaultProperties;
+import boa.functions.BoaAstIntrinsics;
+import boa.functions.BoaIntrinsics;
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.types.Code.CodeRepository;
+import boa.types.Code.Revision;
+import boa.types.Toplevel.Project;
+
+/**
+ * Test that revisions read ahead and cached are the ones in the commit map.
+ *
+ * @author hyj
+ */
+public class TestRevisionCache {
+	private static final String dataPath = "test/datagen/test_datagen";
+	private static final long firstKey = 1000;
+
+	private final Configuration conf = new Configuration();
+	private final Counters counters = new Counters();
+	private File dir;
+	private CodeRepository repository;
+	private CodeRepository stored;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
+		if (!dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+
+		repository = readRepository();
+		// the same revisions several times over, so there is something to read ahead
+		final List<Revision> revisions = new ArrayList<Revision>();
+		for (int i = 0; i < 4; i++)
+			revisions.addAll(repository.getRevisionsList());
+		repository = CodeRepository.newBuilder(repository).clearRevisions().addAllRevisions(revisions).build();
+		assertTrue(repository.getRevisionsCount() > 20);
+		writeCommits();
+
+		final CodeRepository.Builder cr = CodeRepository.newBuilder(repository);
+		cr.clearRevisions();
+		for (int i = 0; i < repository.getRevisionsCount(); i++)
+			cr.addRevisionKeys(firstKey + i);
+		stored = cr.build();
+
+		DefaultProperties.localDataPath = dir.getPath();
+		conf.setLong("boa.revision.cache.size", 32 * 1024 * 1024);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		BoaAstIntrinsics.cleanup(null);
+		DefaultProperties.localDataPath = null;
+		FileUtil.fullyDelete(dir);
+	}
+
+	@Test
+	public void sequential() throws Exception {
+		final Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context context = newContext();
+		BoaAstIntrinsics.setup(context);
+
+		for (int i = 0; i < stored.getRevisionKeysCount(); i++)
+			assertEquals(repository.getRevisions(i), BoaIntrinsics.getRevision(stored, i));
+		final long prefetched = counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.PREFETCHED);
+		assertTrue(prefetched > 0);
+		// every revision is either looked up in the map or read ahead
+		assertEquals(stored.getRevisionKeysCount(), counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.MISSES) + prefetched);
+		assertEquals(prefetched, counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.HITS));
+
+		// all of them are still cached the second time
+		for (int i = stored.getRevisionKeysCount() - 1; i >= 0; i--)
+			assertEquals(repository.getRevisions(i), BoaIntrinsics.getRevision(stored, i));
+		assertEquals(prefetched + stored.getRevisionKeysCount(), counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.HITS));
+		assertEquals(0, counter(BoaAstIntrinsics.COMMITCOUNTER.GETS_FAILED));
+
+		// the held size is reported once, at cleanup
+		long held = 0;
+		for (final Revision r : repository.getRevisionsList())
+			held += r.getSerializedSize();
+		assertEquals(0, counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.BYTES_HELD));
+		BoaAstIntrinsics.cleanup(context);
+		assertEquals(held, counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.BYTES_HELD));
+	}
+
+	@Test
+	public void randomOrder() throws Exception {
+		conf.setLong("boa.revision.cache.size", 1);
+		BoaAstIntrinsics.setup(newContext());
+
+		final List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < stored.getRevisionKeysCount(); i++)
+			order.add(i);
+		for (int pass = 0; pass < 3; pass++) {
+			Collections.shuffle(order, new Random(pass));
+			for (final int i : order)
+				assertEquals(repository.getRevisions(i), BoaIntrinsics.getRevision(stored, i));
+		}
+		// nothing fits, so nothing is kept
+		assertEquals(0, counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.HITS));
+		assertEquals(0, counter(BoaAstIntrinsics.COMMITCOUNTER.GETS_FAILED));
+	}
+
+	@Test
+	public void otherRepository() throws Exception {
+		BoaAstIntrinsics.setup(newContext());
+
+		final CodeRepository other = CodeRepository.newBuilder(stored).build();
+		assertEquals(repository.getRevisions(0), BoaIntrinsics.getRevision(stored, 0));
+		assertEquals(repository.getRevisions(0), BoaIntrinsics.getRevision(stored, 0));
+		assertEquals(1, counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.HITS));
+
+		// the cache only holds revisions of the current repository
+		assertEquals(repository.getRevisions(0), BoaIntrinsics.getRevision(other, 0));
+		assertEquals(1, counter(BoaAstIntrinsics.REVISIONCACHECOUNTER.HITS));
+	}
+
+	@Test
+	public void sharedByThreads() throws Exception {
+		conf.setLong("boa.revision.cache.size", 4 * 1024);
+		BoaAstIntrinsics.setup(newContext());
+
+		// each thread in its own order, so they evict and read ahead under each other
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						final List<Integer> order = new ArrayList<Integer>();
+						for (int i = 0; i < stored.getRevisionKeysCount(); i++)
+							order.add(i);
+						if (seed > 0)
+							Collections.shuffle(order, new Random(seed));
+						for (int pass = 0; pass < 3; pass++)
+							for (final int i : order)
+								assertEquals(repository.getRevisions(i), BoaIntrinsics.getRevision(stored, i));
+					} catch (final Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread t : threads)
+			t.join();
+		assertEquals(Collections.emptyList(), errors);
+	}
+
+	private long counter(final Enum<?> name) {
+		return counters.findCounter(name).getValue();
+	}
+
+	private CodeRepository readRepository() throws IOException {
+		final SequenceFile.Reader r = new SequenceFile.Reader(FileSystem.getLocal(conf), new Path(dataPath, "projects.seq"), conf);
+		try {
+			final Text key = new Text();
+			final BytesWritable val = new BytesWritable();
+			assertTrue(r.next(key, val));
+			final Project p = Project.parseFrom(CodedInputStream.newInstance(val.getBytes(), 0, val.getLength()));
+			return p.getCodeRepositories(0);
+		} finally {
+			r.close();
+		}
+	}
+
+	private void writeCommits() throws IOException {
+		final MapFile.Writer w = new MapFile.Writer(conf, FileSystem.getLocal(conf), new File(dir, "commit").getPath(), LongWritable.class, BytesWritable.class);
+		try {
+			for (int i = 0; i < repository.getRevisionsCount(); i++)
+				w.append(new LongWritable(firstKey + i), new BytesWritable(repository.getRevisions(i).toByteArray()));
+		} finally {
+			w.close();
+		}
+	}
+
+	private Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context newContext() throws Exception {
+		final StatusReporter reporter = new StatusReporter() {
+			@Override
+			public Counter getCounter(final Enum<?> name) {
+				return counters.findCounter(name);
+			}
+
+			@Override
+			public Counter getCounter(final String group, final String name) {
+				return counters.findCounter(group, name);
+			}
+
+			@Override
+			public void progress() {
+			}
+
+			@Override
+			public void setStatus(final String status) {
+			}
+		};
+		return new Mapper<Text, BytesWritable, EmitKey, EmitValue>().new Context(conf, new TaskAttemptID(), null, null, null, reporter, null);
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boa.datagen.DefaultProperties;
+import boa.datagen.RevisionIdGen;
+import boa.functions.BoaAstIntrinsics;
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.types.Code.CodeRepository;
+import boa.types.Code.CodeRepository.RepositoryKind;
+import boa.types.Code.Revision;
+import boa.types.Shared.Person;
+import boa.types.Toplevel.Project;
+import boa.types.Toplevel.Project.ForgeKind;
+
+/**
+ * Test that the <code>revid</code> map gives the offset of a revision
+ * without decoding the revisions.
+ *
+ * @author hyj
+ */
+public class TestRevisionIds {
+	private static final String[] ids = { "r0", "r1", "r2" };
+	private static final long firstKey = 100;
+
+	private final Configuration conf = new Configuration();
+	private final Counters counters = new Counters();
+	private File dir;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
+		if (!dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+		writeCommits();
+
+		DefaultProperties.localDataPath = dir.getPath();
+		BoaAstIntrinsics.setup(newContext());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		BoaAstIntrinsics.cleanup(null);
+		DefaultProperties.localDataPath = null;
+		FileUtil.fullyDelete(dir);
+	}
+
+	@Test
+	public void generatedIds() throws Exception {
+		writeProjects();
+		RevisionIdGen.main(new String[] { dir.getPath() });
+		assertIndexes(newRepository());
+	}
+
+	@Test
+	public void withoutMap() {
+		// without a revid map the ids are read from the revisions once
+		final CodeRepository cr = newRepository();
+		for (int i = 0; i < ids.length; i++)
+			assertEquals(i, BoaAstIntrinsics.getRevisionIndex(cr, ids[i]));
+		assertEquals(-1, BoaAstIntrinsics.getRevisionIndex(cr, "r3"));
+		assertTrue(counters.findCounter(BoaAstIntrinsics.COMMITCOUNTER.GETS_ATTEMPTED).getValue() > 0);
+	}
+
+	private void assertIndexes(final CodeRepository cr) {
+		for (int i = 0; i < ids.length; i++)
+			assertEquals(i, BoaAstIntrinsics.getRevisionIndex(cr, ids[i]));
+		assertEquals(-1, BoaAstIntrinsics.getRevisionIndex(cr, "r3"));
+		assertEquals(0, counters.findCounter(BoaAstIntrinsics.COMMITCOUNTER.GETS_ATTEMPTED).getValue());
+	}
+
+	private CodeRepository newRepository() {
+		final CodeRepository.Builder cr = CodeRepository.newBuilder();
+		cr.setUrl("https://example.com/r.git");
+		cr.setKind(RepositoryKind.GIT);
+		cr.setHead(ids.length - 1);
+		for (int i = 0; i < ids.length; i++)
+			cr.addRevisionKeys(firstKey + i);
+		return cr.build();
+	}
+
+	private void writeCommits() throws IOException {
+		final MapFile.Writer w = new MapFile.Writer(conf, FileSystem.getLocal(conf), new File(dir, "commit").getPath(), LongWritable.class, BytesWritable.class);
+		try {
+			for (int i = 0; i < ids.length; i++) {
+				final Revision.Builder r = Revision.newBuilder();
+				r.setId(ids[i]);
+				r.setCommitter(Person.newBuilder().setUsername("u"));
+				r.setCommitDate(i);
+				r.setLog("");
+				w.append(new LongWritable(firstKey + i), new BytesWritable(r.build().toByteArray()));
+			}
+		} finally {
+			w.close();
+		}
+	}
+
+	private void writeProjects() throws IOException {
+		final Project.Builder p = Project.newBuilder();
+		p.setId("1");
+		p.setName("p");
+		p.setProjectUrl("https://example.com/p");
+		p.setKind(ForgeKind.OTHER);
+		p.addCodeRepositories(newRepository());
+
+		final SequenceFile.Writer w = SequenceFile.createWriter(FileSystem.getLocal(conf), conf, new Path(dir.getPath(), "projects.seq"), Text.class, BytesWritable.class);
+		try {
+			w.append(new Text(p.getId()), new BytesWritable(p.build().toByteArray()));
+		} finally {
+			w.close();
+		}
+	}
+
+	private Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context newContext() throws Exception {
+		final StatusReporter reporter = new StatusReporter() {
+			@Override
+			public Counter getCounter(final Enum<?> name) {
+				return counters.findCounter(name);
+			}
+
+			@Override
+			public Counter getCounter(final String group, final String name) {
+				return counters.findCounter(group, name);
+			}
+
+			@Override
+			public void progress() {
+			}
+
+			@Override
+			public void setStatus(final String status) {
+			}
+		};
+		return new Mapper<Text, BytesWritable, EmitKey, EmitValue>().new Context(conf, new TaskAttemptID(), null, null, null, reporter, null);
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import com.google.protobuf.CodedInputStream;
+
+import boa.functions.BoaIntrinsics;
+import boa.types.Code.CodeRepository;
+import boa.types.Code.CodeRepository.RepositoryKind;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+import boa.types.Diff.ChangedFile.FileKind;
+import boa.types.Shared.ChangeKind;
+import boa.types.Shared.Person;
+import boa.types.Toplevel.Project;
+
+/**
+ * Test that snapshots built incrementally match those of the first-parent
+ * walk back from each revision, whatever order they are asked for in.
+ *
+ * @author hyj
+ */
+public class TestSnapshotIndex {
+	private static final String[][] KINDS = { new String[0], { "SOURCE_JAVA" }, { ".xml", "TEXT" } };
+
+	@Test
+	public void datagenRepository() throws IOException {
+		final CodeRepository cr = readRepository("test/datagen/test_datagen/projects.seq");
+		assertTrue(cr.getRevisionsCount() > 1);
+		checkAllOrders(cr, new Random(0));
+	}
+
+	@Test
+	public void randomRepositories() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 20; i++)
+			checkAllOrders(randomRepository(random, 200), random);
+	}
+
+	@Test
+	public void revisionByValue() {
+		final Random random = new Random(2);
+		final CodeRepository cr = randomRepository(random, 100);
+		for (int i = 0; i < 100; i++) {
+			// a revision that is not in the repository, on top of a random one
+			final Revision.Builder rev = randomRevision(random, "x" + i, i);
+			rev.clearParents();
+			if (random.nextInt(10) != 0)
+				rev.addParents(random.nextInt(cr.getRevisionsCount()));
+			final Revision commit = rev.build();
+			for (final String[] kinds : KINDS)
+				assertEquals(oldSnapshot(cr, commit, kinds), Arrays.asList(BoaIntrinsics.getSnapshot(cr, commit, kinds)));
+		}
+	}
+
+	private static void checkAllOrders(final CodeRepository cr, final Random random) {
+		final int n = cr.getRevisionsCount();
+		final List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++)
+			order.add(i);
+		check(cr, order);
+
+		Collections.reverse(order);
+		check(cr, order);
+
+		Collections.shuffle(order, random);
+		check(cr, order);
+	}
+
+	private static void check(final CodeRepository cr, final List<Integer> order) {
+		for (final int i : order)
+			for (final String[] kinds : KINDS)
+				assertEquals("revision " + i + " of " + cr.getUrl(), oldSnapshot(cr, i, kinds), Arrays.asList(BoaIntrinsics.getSnapshotByIndex(cr, i, kinds)));
+	}
+
+	private static CodeRepository readRepository(final String path) throws IOException {
+		final Configuration conf = new Configuration();
+		final SequenceFile.Reader r = new SequenceFile.Reader(FileSystem.getLocal(conf), new Path(path), conf);
+		try {
+			final Text key = new Text();
+			final BytesWritable val = new BytesWritable();
+			assertTrue(r.next(key, val));
+			final Project p = Project.parseFrom(CodedInputStream.newInstance(val.getBytes(), 0, val.getLength()));
+			return p.getCodeRepositories(0);
+		} finally {
+			r.close();
+		}
+	}
+
+	private static CodeRepository randomRepository(final Random random, final int n) {
+		final CodeRepository.Builder cr = CodeRepository.newBuilder();
+		cr.setUrl("random" + random.nextInt());
+		cr.setKind(RepositoryKind.GIT);
+		cr.setHead(n - 1);
+		for (int i = 0; i < n; i++)
+			cr.addRevisions(randomRevision(random, "r" + i, i));
+		return cr.build();
+	}
+
+	/**
+	 * A revision over a small set of paths, with parents before it so that
+	 * there are branches and merges.
+	 */
+	private static Revision.Builder randomRevision(final Random random, final String id, final int index) {
+		final Revision.Builder rev = Revision.newBuilder();
+		rev.setId(id);
+		rev.setCommitter(Person.newBuilder().setUsername("u"));
+		rev.setCommitDate(index);
+		rev.setLog("");
+		if (index > 0) {
+			rev.addParents(random.nextInt(4) == 0 ? random.nextInt(index) : index - 1);
+			if (random.nextInt(5) == 0)
+				rev.addParents(random.nextInt(index));
+		}
+
+		final int files = 1 + random.nextInt(6);
+		for (int j = 0; j < files; j++) {
+			final ChangedFile.Builder cf = ChangedFile.newBuilder();
+			cf.setName(randomPath(random));
+			cf.setKey(index * 100 + j);
+			cf.setAst(false);
+			switch (random.nextInt(4)) {
+			case 0:
+				cf.setKind(FileKind.SOURCE_JAVA_JLS8);
+				break;
+			case 1:
+				cf.setKind(FileKind.XML);
+				break;
+			case 2:
+				cf.setKind(FileKind.TEXT);
+				break;
+			default:
+				cf.setKind(FileKind.OTHER);
+				break;
+			}
+
+			final int kind = random.nextInt(10);
+			if (kind < 3) {
+				cf.setChange(ChangeKind.MODIFIED);
+			} else if (kind < 5) {
+				cf.setChange(ChangeKind.ADDED);
+			} else if (kind < 7) {
+				cf.setChange(ChangeKind.DELETED);
+			} else if (kind == 7) {
+				cf.setChange(ChangeKind.COPIED);
+			} else if (kind == 8) {
+				cf.setChange(ChangeKind.RENAMED);
+				cf.addChanges(ChangeKind.RENAMED);
+				cf.addPreviousNames(randomPath(random));
+			} else {
+				cf.setChange(ChangeKind.MERGED);
+				final int parents = 1 + random.nextInt(2);
+				for (int p = 0; p < parents; p++) {
+					final int c = random.nextInt(4);
+					cf.addChanges(c == 0 ? ChangeKind.ADDED : c == 1 ? ChangeKind.DELETED : c == 2 ? ChangeKind.RENAMED : ChangeKind.MODIFIED);
+					cf.addPreviousNames(random.nextBoolean() ? "" : randomPath(random));
+				}
+			}
+			rev.addFiles(cf);
+		}
+		return rev;
+	}
+
+	private static String randomPath(final Random random) {
+		final String[] extensions = { ".java", ".xml", ".txt" };
+		return "src/f" + random.nextInt(30) + extensions[random.nextInt(extensions.length)];
+	}
+
+	// the first-parent walk that snapshots used to be built with
+
+	private static final Comparator<Integer> newestFirst = new Comparator<Integer>() {
+		@Override
+		public int compare(final Integer i1, final Integer i2) {
+			return i2 - i1;
+		}
+	};
+
+	private static List<ChangedFile> oldSnapshot(final CodeRepository cr, final int commitOffset, final String[] kinds) {
+		final List<ChangedFile> snapshot = new LinkedList<ChangedFile>();
+		final Set<String> adds = new HashSet<String>(), dels = new HashSet<String>();
+		final PriorityQueue<Integer> pq = new PriorityQueue<Integer>(100, newestFirst);
+		final Set<Integer> queuedCommitIds = new HashSet<Integer>();
+		pq.offer(commitOffset);
+		queuedCommitIds.add(commitOffset);
+		while (!pq.isEmpty())
+			update(snapshot, BoaIntrinsics.getRevision(cr, pq.poll()), adds, dels, pq, queuedCommitIds, kinds);
+		return snapshot;
+	}
+
+	private static List<ChangedFile> oldSnapshot(final CodeRepository cr, final Revision commit, final String[] kinds) {
+		final List<ChangedFile> snapshot = new LinkedList<ChangedFile>();
+		final Set<String> adds = new HashSet<String>(), dels = new HashSet<String>();
+		final PriorityQueue<Integer> pq = new PriorityQueue<Integer>(100, newestFirst);
+		final Set<Integer> queuedCommitIds = new HashSet<Integer>();
+		update(snapshot, commit, adds, dels, pq, queuedCommitIds, kinds);
+		while (!pq.isEmpty())
+			update(snapshot, BoaIntrinsics.getRevision(cr, pq.poll()), adds, dels, pq, queuedCommitIds, kinds);
+		return snapshot;
+	}
+
+	private static void update(final List<ChangedFile> snapshot, final Revision commit, final Set<String> adds, final Set<String> dels,
+			final PriorityQueue<Integer> pq, final Set<Integer> queuedCommitIds, final String[] kinds) {
+		for (final ChangedFile cf : commit.getFilesList()) {
+			final String name = cf.getName();
+			switch (cf.getChange()) {
+			case DELETED:
+				if (!adds.contains(name) && !dels.contains(name))
+					dels.add(name);
+				break;
+			case MERGED:
+				add(snapshot, cf, adds, dels, kinds);
+				for (int i = 0; i < cf.getChangesCount(); i++) {
+					final ChangeKind pck = cf.getChanges(i);
+					if (pck != ChangeKind.ADDED) {
+						String prev = cf.getPreviousNames(i);
+						if (prev.isEmpty())
+							prev = name;
+						if (!adds.contains(prev) && !dels.contains(prev) && (pck == ChangeKind.DELETED || pck == ChangeKind.RENAMED))
+							dels.add(prev);
+					}
+				}
+				break;
+			case RENAMED:
+				add(snapshot, cf, adds, dels, kinds);
+				for (int i = 0; i < cf.getChangesCount(); i++) {
+					if (cf.getPreviousNamesCount() != 0) {
+						final String prev = cf.getPreviousNames(i);
+						if (!adds.contains(prev) && !dels.contains(prev))
+							dels.add(prev);
+					}
+				}
+				break;
+			default:
+				add(snapshot, cf, adds, dels, kinds);
+				break;
+			}
+		}
+		if (commit.getParentsCount() != 0) {
+			final int p = commit.getParents(0);
+			if (!queuedCommitIds.contains(p)) {
+				pq.offer(p);
+				queuedCommitIds.add(p);
+			}
+		}
+	}
+
+	private static void add(final List<ChangedFile> snapshot, final ChangedFile cf, final Set<String> adds, final Set<String> dels, final String[] kinds) {
+		if (!adds.contains(cf.getName()) && !dels.contains(cf.getName())) {
+			adds.add(cf.getName());
+			if (isIncluded(cf, kinds))
+				snapshot.add(cf);
+		}
+	}
+
+	private static boolean isIncluded(final ChangedFile cf, final String[] kinds) {
+		if (kinds.length == 0)
+			return true;
+		for (final String kind : kinds)
+			if (cf.getKind().name().startsWith(kind) || cf.getName().endsWith(kind))
+				return true;
+		return false;
+	}
+}
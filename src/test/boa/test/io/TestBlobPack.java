@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boa.io.BlobPackReader;
+import boa.io.BlobPackWriter;
+
+/**
+ * Test that blobs written to a blob pack read back unchanged.
+ *
+ * @author hyj
+ */
+public class TestBlobPack {
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
+		if (!dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtil.fullyDelete(dir);
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		final Random r = new Random(42);
+		final Map<String, byte[]> blobs = new LinkedHashMap<String, byte[]>();
+		blobs.put(id(r), new byte[0]);
+		// bigger than the deflate buffer of the writer
+		blobs.put(id(r), text(r, 300 * 1024));
+		blobs.put(id(r), random(r, 100 * 1024));
+		while (blobs.size() < 1000)
+			blobs.put(id(r), text(r, r.nextInt(4096)));
+
+		final BlobPackWriter w = new BlobPackWriter(dir);
+		for (final Map.Entry<String, byte[]> e : blobs.entrySet())
+			assertTrue(w.add(e.getKey(), e.getValue()));
+		// the same blob shows up in many revisions but is only stored once
+		for (final String id : blobs.keySet())
+			assertFalse(w.add(id, new byte[] { 1 }));
+		assertEquals(blobs.size(), w.size());
+		w.close();
+
+		final BlobPackReader pack = new BlobPackReader(dir);
+		try {
+			assertEquals(blobs.size(), pack.size());
+			for (final Map.Entry<String, byte[]> e : blobs.entrySet())
+				assertArrayEquals(e.getValue(), pack.get(e.getKey()));
+			for (int i = 0; i < 100; i++) {
+				final String id = id(r);
+				if (!blobs.containsKey(id))
+					assertNull(pack.get(id));
+			}
+			assertNull(pack.get("0000000000000000000000000000000000000000"));
+			assertNull(pack.get("ffffffffffffffffffffffffffffffffffffffff"));
+		} finally {
+			pack.close();
+		}
+	}
+
+	@Test
+	public void sharedByThreads() throws Exception {
+		final Random r = new Random(7);
+		final Map<String, byte[]> blobs = new LinkedHashMap<String, byte[]>();
+		while (blobs.size() < 500)
+			blobs.put(id(r), text(r, r.nextInt(8192)));
+		final BlobPackWriter w = new BlobPackWriter(dir);
+		for (final Map.Entry<String, byte[]> e : blobs.entrySet())
+			w.add(e.getKey(), e.getValue());
+		w.close();
+
+		final BlobPackReader pack = new BlobPackReader(dir);
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						final List<String> ids = new ArrayList<String>(blobs.keySet());
+						Collections.shuffle(ids, new Random(seed));
+						for (final String id : ids)
+							assertArrayEquals(blobs.get(id), pack.get(id));
+					} catch (final Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread t : threads)
+			t.join();
+		pack.close();
+		assertEquals(Collections.emptyList(), errors);
+	}
+
+	@Test
+	public void empty() throws IOException {
+		new BlobPackWriter(dir).close();
+
+		final BlobPackReader pack = new BlobPackReader(dir);
+		try {
+			assertEquals(0, pack.size());
+			assertNull(pack.get("0123456789abcdef0123456789abcdef01234567"));
+		} finally {
+			pack.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void notAPack() throws IOException {
+		new BlobPackWriter(dir).close();
+		final FileOutputStream out = new FileOutputStream(new File(dir, BlobPackWriter.INDEX_FILE_NAME));
+		try {
+			out.write(new byte[64]);
+		} finally {
+			out.close();
+		}
+		new BlobPackReader(dir);
+	}
+
+	private static String id(final Random r) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 40; i++)
+			sb.append(Character.forDigit(r.nextInt(16), 16));
+		return sb.toString();
+	}
+
+	private static byte[] text(final Random r, final int length) {
+		final byte[] b = new byte[length];
+		for (int i = 0; i < length; i++)
+			b[i] = (byte) ('a' + r.nextInt(8));
+		return b;
+	}
+
+	private static byte[] random(final Random r, final int length) {
+		final byte[] b = new byte[length];
+		r.nextBytes(b);
+		return b;
+	}
+}
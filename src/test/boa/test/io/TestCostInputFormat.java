@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boa.io.CostInputFormat;
+import boa.io.ProjectCost;
+
+/**
+ * Test that splits packed by project cost cover every record once and keep
+ * expensive projects apart.
+ *
+ * @author hyj
+ */
+public class TestCostInputFormat {
+	private static final int PROJECTS = 100;
+	private static final int GIANT = 37;
+
+	private File dir;
+	private Configuration conf;
+	private FileSystem fs;
+	private Path projects;
+
+	// the position of every record, and whether a sync mark precedes it
+	private final List<Long> positions = new ArrayList<Long>();
+	private final Set<Long> splittable = new HashSet<Long>();
+	private final Map<Long, ProjectCost> costs = new HashMap<Long, ProjectCost>();
+	private long length;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
+		if (!dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+		conf = new Configuration();
+		fs = FileSystem.getLocal(conf);
+		projects = new Path(dir.getAbsolutePath(), "projects.seq");
+
+		final Random r = new Random(42);
+		final SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, projects, Text.class, BytesWritable.class);
+		try {
+			for (int i = 0; i < PROJECTS; i++) {
+				final long pos = w.getLength();
+				// every third record shares its sync mark with the one before
+				final boolean sync = i == 0 || i % 3 != 0;
+				if (i > 0 && sync)
+					w.sync();
+				final byte[] value = new byte[100 + r.nextInt(1000)];
+				r.nextBytes(value);
+				w.append(new Text("project" + i), new BytesWritable(value));
+
+				positions.add(pos);
+				if (sync)
+					splittable.add(pos);
+				costs.put(pos, new ProjectCost(sync, i == GIANT ? 5000 : r.nextInt(20), r.nextInt(20), 0));
+			}
+		} finally {
+			w.close();
+		}
+		length = fs.getFileStatus(projects).getLen();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtil.fullyDelete(dir);
+	}
+
+	@Test
+	public void packed() throws Exception {
+		writeCosts(length);
+		conf.setInt("boa.split.count", 8);
+		final List<InputSplit> splits = getSplits();
+
+		double total = 0;
+		for (final ProjectCost c : costs.values())
+			total += c.getCost(conf);
+		final double target = total / 8;
+
+		final List<String> read = new ArrayList<String>();
+		boolean giantAlone = false;
+		long next = 0;
+		for (final InputSplit split : splits) {
+			final FileSplit fs = (FileSplit) split;
+			assertEquals("splits are contiguous", next, fs.getStart());
+			assertTrue("a split starts at a sync mark", fs.getStart() == 0 || splittable.contains(fs.getStart()));
+			next = fs.getStart() + fs.getLength();
+
+			final List<String> keys = read(split);
+			read.addAll(keys);
+			if (keys.contains("project" + GIANT))
+				giantAlone = keys.size() == 1;
+			else
+				assertTrue("split holds " + cost(fs) + " of " + target, cost(fs) <= target);
+		}
+		assertEquals(length, next);
+		assertTrue("the giant project has a split of its own", giantAlone);
+
+		assertEquals(PROJECTS, read.size());
+		for (int i = 0; i < PROJECTS; i++)
+			assertEquals("project" + i, read.get(i));
+	}
+
+	@Test
+	public void missing() throws Exception {
+		conf.setInt("boa.split.count", 8);
+		assertBySize(getSplits());
+	}
+
+	@Test
+	public void stale() throws Exception {
+		writeCosts(length - 1);
+		conf.setInt("boa.split.count", 8);
+		assertBySize(getSplits());
+	}
+
+	private void assertBySize(final List<InputSplit> splits) throws Exception {
+		// the whole file fits in one block, so one split by bytes
+		assertEquals(1, splits.size());
+		assertEquals(PROJECTS, read(splits.get(0)).size());
+	}
+
+	private void writeCosts(final long end) throws IOException {
+		final SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, new Path(dir.getAbsolutePath(), CostInputFormat.COST_FILE_NAME), LongWritable.class, ProjectCost.class);
+		try {
+			for (final long pos : positions)
+				w.append(new LongWritable(pos), costs.get(pos));
+			w.append(new LongWritable(end), new ProjectCost(true, 0, 0, 0));
+		} finally {
+			w.close();
+		}
+	}
+
+	private double cost(final FileSplit split) {
+		double cost = 0;
+		for (final long pos : positions)
+			if (pos >= split.getStart() && pos < split.getStart() + split.getLength())
+				cost += costs.get(pos).getCost(conf);
+		return cost;
+	}
+
+	private List<InputSplit> getSplits() throws IOException {
+		final Job job = new Job(conf);
+		FileInputFormat.setInputPaths(job, projects);
+		return new CostInputFormat().getSplits(job);
+	}
+
+	private List<String> read(final InputSplit split) throws Exception {
+		final TaskAttemptContext context = new TaskAttemptContext(conf, new TaskAttemptID());
+		final RecordReader<Text, BytesWritable> reader = new CostInputFormat().createRecordReader(split, context);
+		final List<String> keys = new ArrayList<String>();
+		try {
+			reader.initialize(split, context);
+			while (reader.nextKeyValue())
+				keys.add(reader.getCurrentKey().toString());
+		} finally {
+			reader.close();
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.junit.After;
+import org.junit.Test;
+
+import boa.io.EmitKey;
+
+/**
+ * Test that the raw comparator of {@link EmitKey} orders serialized keys like
+ * {@link EmitKey#compareTo(EmitKey)}, and that keys survive serialization.
+ *
+ * @author hyj
+ */
+public class TestEmitKey {
+	// BMP characters below and above the surrogates and a supplementary
+	// character, which sort differently in UTF-8 and UTF-16
+	private static final String[] pieces = { "", "a", "b", "ab", "[", "]", "\u00e9", "\u4e2d", "\ud7ff", "\ue000", "\uffee", "\ud83d\ude00" };
+
+	@After
+	public void tearDown() {
+		EmitKey.setTableNames(new String[0]);
+	}
+
+	@Test
+	public void registeredTables() throws IOException {
+		EmitKey.setTableNames(new String[] { "", "a", "b", "ab", "\u4e2d", "\ud83d\ude00" });
+		checkKeys(randomKeys(new Random(0), 300, 1));
+	}
+
+	@Test
+	public void unregisteredTables() throws IOException {
+		checkKeys(randomKeys(new Random(1), 300, 2));
+	}
+
+	@Test
+	public void mixedTables() throws IOException {
+		EmitKey.setTableNames(new String[] { "a", "\u00e9", "\ud83d\ude00" });
+		checkKeys(randomKeys(new Random(2), 300, 2));
+	}
+
+	private static List<EmitKey> randomKeys(final Random random, final int n, final int nameLength) {
+		final List<EmitKey> keys = new ArrayList<EmitKey>();
+		for (int i = 0; i < n; i++)
+			keys.add(new EmitKey("[" + randomString(random, 3) + "]", randomString(random, nameLength)));
+		keys.add(new EmitKey("a"));
+		keys.add(new EmitKey("[]", "a"));
+		return keys;
+	}
+
+	private static String randomString(final Random random, final int maxPieces) {
+		final StringBuilder sb = new StringBuilder();
+		final int n = random.nextInt(maxPieces + 1);
+		for (int i = 0; i < n; i++)
+			sb.append(pieces[random.nextInt(pieces.length)]);
+		return sb.toString();
+	}
+
+	private static void checkKeys(final List<EmitKey> keys) throws IOException {
+		final List<byte[]> bytes = new ArrayList<byte[]>();
+		for (final EmitKey k : keys) {
+			final byte[] b = serialize(k);
+			bytes.add(b);
+
+			final DataInputBuffer in = new DataInputBuffer();
+			in.reset(b, b.length);
+			final EmitKey read = new EmitKey();
+			read.readFields(in);
+			assertEquals(k, read);
+		}
+
+		final EmitKey comparator = new EmitKey();
+		for (int i = 0; i < keys.size(); i++)
+			for (int j = 0; j < keys.size(); j++) {
+				final byte[] b1 = bytes.get(i);
+				final byte[] b2 = bytes.get(j);
+				assertEquals(keys.get(i) + " vs " + keys.get(j),
+						Integer.signum(keys.get(i).compareTo(keys.get(j))),
+						Integer.signum(comparator.compare(b1, 0, b1.length, b2, 0, b2.length)));
+			}
+	}
+
+	private static byte[] serialize(final EmitKey k) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		k.write(out);
+		out.close();
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.junit.Test;
+
+import boa.io.EmitValue;
+
+/**
+ * Test that every kind of {@link EmitValue} survives serialization, and that
+ * typed values read back as the strings they used to be written as.
+ *
+ * @author hyj
+ */
+public class TestEmitValue {
+	@Test
+	public void strings() throws IOException {
+		check(new EmitValue("x"), new String[] { "x" }, null);
+		check(new EmitValue(new String[] { "a", "", "\u4e2d\ud83d\ude00" }, "m"), new String[] { "a", "", "\u4e2d\ud83d\ude00" }, "m");
+		check(new EmitValue(new Object[] { 1L, 2.5, "c" }), new String[] { "1", "2.5", "c" }, null);
+		check(new EmitValue("x", ""), new String[] { "x" }, null);
+	}
+
+	@Test
+	public void longs() throws IOException {
+		for (final long l : new long[] { 0, 1, -1, 127, -128, Long.MAX_VALUE, Long.MIN_VALUE }) {
+			final EmitValue v = check(new EmitValue(l), new String[] { Long.toString(l) }, null);
+			assertTrue(v.isLong());
+			assertEquals(l, v.getLong());
+		}
+		check(new EmitValue(3L, "w"), new String[] { "3" }, "w");
+		check(new EmitValue(3L, 4L), new String[] { "3" }, "4");
+		check(new EmitValue(3L, 0.5), new String[] { "3" }, "0.5");
+	}
+
+	@Test
+	public void doubles() throws IOException {
+		for (final double d : new double[] { 0.0, -0.0, 1.5, -1e300, Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY }) {
+			final EmitValue v = check(new EmitValue(d), new EmitValue(d).getData(), null);
+			assertTrue(v.isDouble());
+			assertEquals(Double.doubleToLongBits(d), Double.doubleToLongBits(v.getDouble()));
+		}
+		check(new EmitValue(1.5, "w"), new String[] { "1.5" }, "w");
+		check(new EmitValue(1.5, 2L), new String[] { "1.5" }, "2");
+		check(new EmitValue(1.5, 2.5), new String[] { "1.5" }, "2.5");
+	}
+
+	@Test
+	public void booleans() throws IOException {
+		check(new EmitValue(true), new String[] { "true" }, null);
+		check(new EmitValue(false, "w"), new String[] { "false" }, "w");
+		check(new EmitValue(true, 7L), new String[] { "true" }, "7");
+		check(new EmitValue(false, 0.25), new String[] { "false" }, "0.25");
+	}
+
+	@Test
+	public void bytes() throws IOException {
+		final byte[] data = new byte[300];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) (i * 31);
+		final EmitValue v = roundTrip(new EmitValue(data));
+		assertTrue(v.isBytes());
+		assertFalse(v.isLong());
+		assertArrayEquals(data, v.getBytes());
+
+		assertArrayEquals(new byte[0], roundTrip(new EmitValue(new byte[0])).getBytes());
+	}
+
+	@Test
+	public void reuse() throws IOException {
+		// Hadoop reuses one value object for every record it reads
+		final EmitValue v = new EmitValue();
+		read(v, serialize(new EmitValue(new byte[] { 1, 2 })));
+		read(v, serialize(new EmitValue("s", 5L)));
+		assertArrayEquals(new String[] { "s" }, v.getData());
+		assertEquals("5", v.getMetadata());
+		read(v, serialize(new EmitValue(2L)));
+		assertArrayEquals(new String[] { "2" }, v.getData());
+		assertEquals(null, v.getMetadata());
+	}
+
+	private static EmitValue check(final EmitValue value, final String[] data, final String metadata) throws IOException {
+		final EmitValue read = roundTrip(value);
+		assertArrayEquals(data, read.getData());
+		assertEquals(metadata, read.getMetadata());
+		assertEquals(value, read);
+		assertEquals(value.hashCode(), read.hashCode());
+		return read;
+	}
+
+	private static EmitValue roundTrip(final EmitValue value) throws IOException {
+		final EmitValue read = new EmitValue();
+		read(read, serialize(value));
+		return read;
+	}
+
+	private static void read(final EmitValue value, final byte[] b) throws IOException {
+		final DataInputBuffer in = new DataInputBuffer();
+		in.reset(b, b.length);
+		value.readFields(in);
+		assertEquals(-1, in.read());
+	}
+
+	private static byte[] serialize(final EmitValue value) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		value.write(out);
+		out.close();
+		return bytes.toByteArray();
+	}
+}
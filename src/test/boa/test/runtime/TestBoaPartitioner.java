@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boa.io.EmitKey;
+import boa.runtime.BoaPartitioner;
+import boa.runtime.BoaRunner;
+
+/**
+ * Test that the partitioner spreads only splittable tables over the extra
+ * reducers, and keeps every index of a table on one reducer.
+ *
+ * @author hyj
+ */
+public class TestBoaPartitioner {
+	private final BoaPartitioner partitioner = new BoaPartitioner();
+
+	@Before
+	public void setUp() {
+		BoaPartitioner.setVariableNames(new String[] { "a", "b", "c" }, new String[] { "a", "c" });
+	}
+
+	@After
+	public void tearDown() {
+		BoaPartitioner.setVariableNames(new String[0]);
+	}
+
+	@Test
+	public void onePerTable() {
+		for (int i = 0; i < 100; i++) {
+			assertEquals(0, partition("a", i, 3));
+			assertEquals(1, partition("b", i, 3));
+			assertEquals(2, partition("c", i, 3));
+		}
+		assertArrayEquals(new int[0], BoaPartitioner.getSplitPartitions(0, 3));
+	}
+
+	@Test
+	public void spread() {
+		// two extra reducers for each of the two split tables
+		final int num = 3 + 2 * 2;
+		assertPartitions("a", num, 0, 3, 4);
+		assertPartitions("b", num, 1);
+		assertPartitions("c", num, 2, 5, 6);
+
+		assertArrayEquals(new int[] { 3, 4 }, BoaPartitioner.getSplitPartitions(0, num));
+		assertArrayEquals(new int[0], BoaPartitioner.getSplitPartitions(1, num));
+		assertArrayEquals(new int[] { 5, 6 }, BoaPartitioner.getSplitPartitions(2, num));
+	}
+
+	@Test
+	public void sameIndexSamePartition() {
+		final int num = 3 + 2 * 4;
+		for (int i = 0; i < 100; i++) {
+			final int p = partition("a", i, num);
+			for (int j = 0; j < 3; j++)
+				assertEquals(p, partition("a", i, num));
+		}
+	}
+
+	@Test
+	public void tableReducers() {
+		final Configuration conf = new Configuration();
+		assertEquals(1, BoaRunner.getTableReducers(conf));
+		conf.setInt("boa.table.reducers", 4);
+		assertEquals(4, BoaRunner.getTableReducers(conf));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void noTableReducers() {
+		final Configuration conf = new Configuration();
+		conf.setInt("boa.table.reducers", 0);
+		BoaRunner.getTableReducers(conf);
+	}
+
+	private void assertPartitions(final String name, final int num, final int... expected) {
+		final Set<Integer> seen = new HashSet<Integer>();
+		for (int i = 0; i < 1000; i++)
+			seen.add(partition(name, i, num));
+		final Set<Integer> partitions = new HashSet<Integer>();
+		for (final int p : expected)
+			partitions.add(p);
+		assertEquals(partitions, seen);
+	}
+
+	private int partition(final String name, final int index, final int num) {
+		return partitioner.getPartition(new EmitKey("[" + index + "]", name), null, num);
+	}
+}
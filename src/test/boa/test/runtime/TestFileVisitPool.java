@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.After;
+import org.junit.Test;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.runtime.BoaAbstractVisitor;
+import boa.runtime.FileVisitPool;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+import boa.types.Diff.ChangedFile.FileKind;
+import boa.types.Shared.ChangeKind;
+import boa.types.Shared.Person;
+
+/**
+ * Test that visiting files on a pool of workers writes the same emits, in the
+ * same order, as visiting them on the mapper thread.
+ *
+ * @author hyj
+ */
+public class TestFileVisitPool {
+	private final Counters counters = new Counters();
+	private final List<String> written = new ArrayList<String>();
+	private FileVisitPool pool;
+
+	@After
+	public void tearDown() {
+		BoaAbstractVisitor.setFileVisitPool(null);
+		if (pool != null)
+			pool.shutdown();
+	}
+
+	@Test
+	public void submissionOrder() throws Exception {
+		pool = new FileVisitPool(newContext(), 4);
+		assertFalse(pool.isDeferring());
+
+		final List<String> expected = new ArrayList<String>();
+		final Random r = new Random(5);
+		for (int i = 0; i < 100; i++) {
+			final String file = "f" + i;
+			final int delay = r.nextInt(3);
+			pool.submit(new FileVisitPool.Task() {
+				@Override
+				public void run() throws Exception {
+					Thread.sleep(delay);
+					emit(file + "a");
+					emit(file + "b");
+				}
+			});
+			emit("m" + i);
+			expected.add(file + "a");
+			expected.add(file + "b");
+			expected.add("m" + i);
+		}
+		pool.await();
+
+		assertFalse(pool.isDeferring());
+		assertEquals(expected, written);
+		assertEquals(100, counters.findCounter(FileVisitPool.FILEVISITCOUNTER.FILES).getValue());
+		assertEquals(300, counters.findCounter(FileVisitPool.FILEVISITCOUNTER.BUFFERED_EMITS).getValue());
+	}
+
+	@Test
+	public void boundedInFlight() throws Exception {
+		pool = new FileVisitPool(newContext(), 2);
+		for (int i = 0; i < 100; i++) {
+			final String file = "f" + i;
+			pool.submit(new FileVisitPool.Task() {
+				@Override
+				public void run() throws Exception {
+					emit(file);
+				}
+			});
+		}
+		// the oldest files are written out once too many are in flight
+		assertTrue(written.size() >= 100 - 2 * 4);
+		pool.await();
+		assertEquals(100, written.size());
+	}
+
+	@Test
+	public void failure() throws Exception {
+		pool = new FileVisitPool(newContext(), 4);
+		final IOException error = new IOException("bad file");
+		for (int i = 0; i < 5; i++) {
+			final int n = i;
+			pool.submit(new FileVisitPool.Task() {
+				@Override
+				public void run() throws Exception {
+					if (n == 2)
+						throw error;
+				}
+			});
+		}
+		try {
+			pool.await();
+			fail("expected the file's exception");
+		} catch (final IOException e) {
+			assertSame(error, e);
+		}
+		assertFalse(pool.isDeferring());
+	}
+
+	@Test
+	public void visitor() throws Exception {
+		final Revision revision = revision(200);
+
+		new FileVisitor().visit(revision);
+		final List<String> sequential = new ArrayList<String>(written);
+		assertEquals(201, sequential.size());
+		written.clear();
+
+		pool = new FileVisitPool(newContext(), 4);
+		BoaAbstractVisitor.setFileVisitPool(pool);
+		final FileVisitor visitor = new FileVisitor();
+		visitor.visit(revision);
+		assertEquals(sequential, written);
+		assertFalse(pool.isDeferring());
+		assertEquals(200, counters.findCounter(FileVisitPool.FILEVISITCOUNTER.FILES).getValue());
+		assertTrue(visitor.threads.size() > 0);
+		assertFalse(visitor.threads.contains(Thread.currentThread().getName()));
+	}
+
+	/**
+	 * Emits each file's name, and after the revision how many files it saw.
+	 */
+	private class FileVisitor extends BoaAbstractVisitor {
+		private final List<String> files = Collections.synchronizedList(new ArrayList<String>());
+		final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		protected boolean preVisit(final ChangedFile node) throws Exception {
+			if (FileVisitPool.isWorker())
+				threads.add(Thread.currentThread().getName());
+			files.add(node.getName());
+			emit(node.getName());
+			return false;
+		}
+
+		@Override
+		protected void postVisit(final Revision node) throws Exception {
+			emit("files " + files.size());
+		}
+	}
+
+	private void emit(final String s) {
+		if (pool != null && pool.isDeferring()) {
+			pool.defer(new FileVisitPool.Emit() {
+				@Override
+				public void write() {
+					written.add(s);
+				}
+			});
+		} else {
+			written.add(s);
+		}
+	}
+
+	private static Revision revision(final int files) {
+		final Revision.Builder r = Revision.newBuilder();
+		r.setId("0");
+		r.setCommitter(Person.newBuilder().setUsername("u").build());
+		r.setCommitDate(0);
+		r.setLog("");
+		for (int i = 0; i < files; i++)
+			r.addFiles(ChangedFile.newBuilder().setName("f" + i).setKind(FileKind.TEXT).setChange(ChangeKind.ADDED).setKey(i).setAst(false).build());
+		return r.build();
+	}
+
+	private Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context newContext() throws Exception {
+		final StatusReporter reporter = new StatusReporter() {
+			@Override
+			public Counter getCounter(final Enum<?> name) {
+				return counters.findCounter(name);
+			}
+
+			@Override
+			public Counter getCounter(final String group, final String name) {
+				return counters.findCounter(group, name);
+			}
+
+			@Override
+			public void progress() {
+			}
+
+			@Override
+			public void setStatus(final String status) {
+			}
+		};
+		return new Mapper<Text, BytesWritable, EmitKey, EmitValue>().new Context(new Configuration(), new TaskAttemptID(), null, null, null, reporter, null);
+	}
+}
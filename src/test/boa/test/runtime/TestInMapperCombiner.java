@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.Test;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.runtime.FileVisitPool;
+import boa.runtime.InMapperCombiner;
+
+/**
+ * Test that aggregating in the mapper gives the reducer the same totals as
+ * writing every emit through.
+ *
+ * @author hyj
+ */
+public class TestInMapperCombiner {
+	private final Counters counters = new Counters();
+	private final List<EmitKey> keys = new ArrayList<EmitKey>();
+	private final List<EmitValue> values = new ArrayList<EmitValue>();
+
+	@Test
+	public void sameTotals() throws Exception {
+		emit(0);
+		final Map<String, double[]> expected = totals();
+		assertEquals(4000, keys.size());
+
+		for (final int capacity : new int[] { 1, 7, 64, 64 * 1024 }) {
+			emit(capacity);
+			final Map<String, double[]> actual = totals();
+			assertEquals(expected.keySet(), actual.keySet());
+			for (final String k : expected.keySet()) {
+				assertEquals(k, expected.get(k)[0], actual.get(k)[0], 0.0);
+				// only a mean counts its values
+				if (k.startsWith("m"))
+					assertEquals(k, expected.get(k)[1], actual.get(k)[1], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void fewerRecords() throws Exception {
+		emit(64 * 1024);
+		// one record per distinct table and index
+		assertTrue(keys.size() <= 4 * 20);
+		assertEquals(4000, counters.findCounter(InMapperCombiner.INMAPPERCOMBINERCOUNTER.EMITS).getValue());
+		assertEquals(keys.size(), counters.findCounter(InMapperCombiner.INMAPPERCOMBINERCOUNTER.RECORDS).getValue());
+		assertEquals(1, counters.findCounter(InMapperCombiner.INMAPPERCOMBINERCOUNTER.FLUSHES).getValue());
+	}
+
+	@Test
+	public void countsEveryEmit() throws Exception {
+		emit(7);
+		// the emits are published with each flush
+		assertTrue(counters.findCounter(InMapperCombiner.INMAPPERCOMBINERCOUNTER.FLUSHES).getValue() > 1);
+		assertEquals(4000, counters.findCounter(InMapperCombiner.INMAPPERCOMBINERCOUNTER.EMITS).getValue());
+		assertEquals(keys.size(), counters.findCounter(InMapperCombiner.INMAPPERCOMBINERCOUNTER.RECORDS).getValue());
+	}
+
+	@Test
+	public void fileVisitPool() throws Exception {
+		emit(64);
+		final List<EmitKey> expectedKeys = new ArrayList<EmitKey>(keys);
+		final List<EmitValue> expectedValues = new ArrayList<EmitValue>(values);
+
+		// emits made on the workers are combined in submission order
+		final Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context context = newContext();
+		final FileVisitPool pool = new FileVisitPool(context, 4);
+		try {
+			emit(new InMapperCombiner(context, 64), pool);
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(expectedKeys, keys);
+		assertEquals(expectedValues, values);
+	}
+
+	private void emit(final int capacity) throws Exception {
+		emit(new InMapperCombiner(newContext(), capacity), null);
+	}
+
+	// the same random emits to a sum and a mean table of each type, each
+	// iteration from a file visit if there is a pool
+	private void emit(final InMapperCombiner combiner, final FileVisitPool pool) throws Exception {
+		keys.clear();
+		values.clear();
+		combiner.setFileVisitPool(pool);
+		final Random r = new Random(7);
+		for (int i = 0; i < 1000; i++) {
+			final String index = "[" + r.nextInt(20) + "]";
+			final long sl = (long) r.nextInt(1000) - 500;
+			// quarters add up exactly, in any order
+			final double sd = r.nextInt(1000) / 4.0;
+			final long ml = (long) r.nextInt(1000);
+			final double md = r.nextInt(1000) / 4.0;
+			final FileVisitPool.Task task = new FileVisitPool.Task() {
+				@Override
+				public void run() throws Exception {
+					combiner.sum(index, "sl", sl);
+					combiner.sum(index, "sd", sd);
+					combiner.mean(index, "ml", ml);
+					combiner.mean(index, "md", md);
+				}
+			};
+			if (pool == null)
+				task.run();
+			else
+				pool.submit(task);
+		}
+		if (pool != null)
+			pool.await();
+		combiner.flush();
+	}
+
+	// the value total and the count the reducer would see for each key
+	private Map<String, double[]> totals() {
+		final Map<String, double[]> totals = new TreeMap<String, double[]>();
+		for (int i = 0; i < keys.size(); i++) {
+			final String k = keys.get(i).getName() + keys.get(i).getIndex();
+			if (!totals.containsKey(k))
+				totals.put(k, new double[2]);
+			final EmitValue v = values.get(i);
+			totals.get(k)[0] += v.isLong() ? v.getLong() : v.getDouble();
+			totals.get(k)[1] += v.getMetadata() == null ? 1 : Long.parseLong(v.getMetadata());
+		}
+		return totals;
+	}
+
+	private Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context newContext() throws Exception {
+		final StatusReporter reporter = new StatusReporter() {
+			@Override
+			public Counter getCounter(final Enum<?> name) {
+				return counters.findCounter(name);
+			}
+
+			@Override
+			public Counter getCounter(final String group, final String name) {
+				return counters.findCounter(group, name);
+			}
+
+			@Override
+			public void progress() {
+			}
+
+			@Override
+			public void setStatus(final String status) {
+			}
+		};
+		final RecordWriter<EmitKey, EmitValue> writer = new RecordWriter<EmitKey, EmitValue>() {
+			@Override
+			public void write(final EmitKey key, final EmitValue value) throws IOException {
+				keys.add(key);
+				values.add(value);
+			}
+
+			@Override
+			public void close(final TaskAttemptContext context) {
+			}
+		};
+		return new Mapper<Text, BytesWritable, EmitKey, EmitValue>().new Context(new Configuration(), new TaskAttemptID(), null, writer, null, reporter, null);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.runtime;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.After;
+import org.junit.Test;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.runtime.BoaPartitioner;
+import boa.runtime.Metrics;
+
+/**
+ * Test that publishing the metrics of a task uses a bounded number of
+ * counters, however many tables the program has.
+ *
+ * @author hyj
+ */
+public class TestMetrics {
+	private final Counters counters = new Counters();
+
+	@After
+	public void tearDown() {
+		Metrics.setEnabled(false);
+		BoaPartitioner.setVariableNames(new String[0]);
+	}
+
+	@Test
+	public void fewTables() throws Exception {
+		BoaPartitioner.setVariableNames(new String[] { "a", "b" });
+		Metrics.setEnabled(true);
+		emit("a", 3);
+		emit("b", 1);
+		Metrics.publish(newContext());
+
+		assertEquals(3, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.EMITS_PREFIX + "a").getValue());
+		assertEquals(1, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.EMITS_PREFIX + "b").getValue());
+		assertEquals(4, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.Family.EMIT + "." + Metrics.Field.CALLS).getValue());
+		assertEquals(3, counters.getGroup(Metrics.COUNTER_GROUP).size());
+	}
+
+	@Test
+	public void nested() throws Exception {
+		Metrics.setEnabled(true);
+		final long outer = Metrics.begin(Metrics.Family.AST_FETCH);
+		final long inner = Metrics.begin(Metrics.Family.AST_FETCH);
+		final long parse = Metrics.begin(Metrics.Family.AST_PARSE);
+		Metrics.bytes(Metrics.Family.AST_PARSE, 10);
+		Metrics.end(Metrics.Family.AST_PARSE, parse);
+		Metrics.bytes(Metrics.Family.AST_FETCH, 5);
+		Metrics.end(Metrics.Family.AST_FETCH, inner);
+		Metrics.bytes(Metrics.Family.AST_FETCH, 7);
+		Metrics.end(Metrics.Family.AST_FETCH, outer);
+		Metrics.publish(newContext());
+
+		// the inner fetch is part of the outer one, the parse is counted on its own
+		assertEquals(1, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.Family.AST_FETCH + "." + Metrics.Field.CALLS).getValue());
+		assertEquals(12, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.Family.AST_FETCH + "." + Metrics.Field.BYTES).getValue());
+		assertEquals(1, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.Family.AST_PARSE + "." + Metrics.Field.CALLS).getValue());
+		assertEquals(10, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.Family.AST_PARSE + "." + Metrics.Field.BYTES).getValue());
+	}
+
+	@Test
+	public void disabled() throws Exception {
+		Metrics.setEnabled(false);
+		Metrics.end(Metrics.Family.AST_FETCH, Metrics.begin(Metrics.Family.AST_FETCH));
+		Metrics.emit("a");
+		Metrics.publish(newContext());
+
+		assertEquals(0, counters.getGroup(Metrics.COUNTER_GROUP).size());
+	}
+
+	@Test
+	public void manyTables() throws Exception {
+		final String[] names = new String[100];
+		for (int i = 0; i < names.length; i++)
+			names[i] = "t" + i;
+		BoaPartitioner.setVariableNames(names);
+		Metrics.setEnabled(true);
+		for (int i = names.length - 1; i >= 0; i--)
+			emit(names[i], i + 1);
+		Metrics.publish(newContext());
+
+		final CounterGroup group = counters.getGroup(Metrics.COUNTER_GROUP);
+		assertEquals(Metrics.MAX_TABLE_COUNTERS + 2, group.size());
+		long total = 0;
+		for (int i = 0; i < Metrics.MAX_TABLE_COUNTERS; i++) {
+			assertEquals(i + 1, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.EMITS_PREFIX + names[i]).getValue());
+			total += i + 1;
+		}
+		final long all = names.length * (names.length + 1) / 2;
+		assertEquals(all - total, counters.findCounter(Metrics.COUNTER_GROUP, Metrics.EMITS_PREFIX + Metrics.OTHER_TABLES).getValue());
+	}
+
+	private static void emit(final String table, final int times) {
+		for (int i = 0; i < times; i++)
+			Metrics.emit(table);
+	}
+
+	private Mapper<Text, BytesWritable, EmitKey, EmitValue>.Context newContext() throws Exception {
+		final StatusReporter reporter = new StatusReporter() {
+			@Override
+			public Counter getCounter(final Enum<?> name) {
+				return counters.findCounter(name);
+			}
+
+			@Override
+			public Counter getCounter(final String group, final String name) {
+				return counters.findCounter(group, name);
+			}
+
+			@Override
+			public void progress() {
+			}
+
+			@Override
+			public void setStatus(final String status) {
+			}
+		};
+		return new Mapper<Text, BytesWritable, EmitKey, EmitValue>().new Context(new Configuration(), new TaskAttemptID(), null, null, null, reporter, null);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import boa.runtime.LongDeque;
+
+/**
+ * Test the primitive collections used by the generated code against the
+ * {@link java.util} collections they replace, under random operations on
+ * several copies that share their buffers.
+ *
+ * @author hyj
+ */
+public class TestPrimitiveCollections {
+	private static final int OPS = 10000;
+
+	@Test
+	public void longDeque() {
+		final Random random = new Random(4);
+		final List<LongDeque> deques = new ArrayList<LongDeque>();
+		final List<ArrayDeque<Long>> models = new ArrayList<ArrayDeque<Long>>();
+		deques.add(new LongDeque());
+		models.add(new ArrayDeque<Long>());
+
+		for (int op = 0; op < OPS; op++) {
+			final int i = random.nextInt(deques.size());
+			final LongDeque d = deques.get(i);
+			final ArrayDeque<Long> m = models.get(i);
+			final long v = randomLong(random);
+
+			switch (random.nextInt(7)) {
+			case 0:
+			case 1:
+				d.push(v);
+				m.addLast(v);
+				break;
+			case 2:
+				assertEquals(true, d.offer(v));
+				m.addLast(v);
+				break;
+			case 3:
+				if (!m.isEmpty()) {
+					assertEquals(m.peekLast().longValue(), d.peek());
+					assertEquals(m.removeLast().longValue(), d.pop());
+				}
+				break;
+			case 4:
+				assertEquals(m.peekFirst(), d.peekFirst());
+				assertEquals(m.pollFirst(), d.poll());
+				break;
+			case 5:
+				if (deques.size() < 8) {
+					deques.add(new LongDeque(d));
+					models.add(new ArrayDeque<Long>(m));
+				}
+				break;
+			default:
+				if (random.nextInt(20) == 0) {
+					d.clear();
+					m.clear();
+				}
+				break;
+			}
+
+			for (int j = 0; j < deques.size(); j++) {
+				final Long[] expected = models.get(j).toArray(new Long[0]);
+				assertEquals(expected.length, deques.get(j).size());
+				assertEquals(expected.length == 0, deques.get(j).empty());
+				assertArrayEquals(expected, deques.get(j).toArray(new Long[0]));
+				// string() lists the values as a java.util.Stack or LinkedList would
+				assertEquals(models.get(j).toString(), deques.get(j).toString());
+			}
+		}
+	}
+
+	// mostly small values, some of them only in the high word
+	private static long randomLong(final Random random) {
+		if (random.nextInt(10) == 0)
+			return 0;
+		final long k = random.nextInt(200) - 50;
+		return random.nextBoolean() ? k : k << 32;
+	}
+}
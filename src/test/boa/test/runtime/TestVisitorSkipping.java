@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020, Yijia Huang, Hridesh Rajan,
+ *                 and Iowa State University of Science and Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.runtime;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import boa.runtime.BoaAbstractVisitor;
+import boa.types.Ast.ASTRoot;
+import boa.types.Ast.Declaration;
+import boa.types.Ast.Method;
+import boa.types.Ast.Namespace;
+import boa.types.Code.CodeRepository;
+import boa.types.Code.Revision;
+import boa.types.Diff.ChangedFile;
+import boa.types.Toplevel.Project;
+
+/**
+ * Test that a visitor told which types to walk into skips the others, without
+ * reading the revisions or the ASTs below them.
+ *
+ * @author hyj
+ */
+public class TestVisitorSkipping {
+	private final List<String> visited = new ArrayList<String>();
+
+	@Test
+	public void walksAll() throws Exception {
+		new Recorder().visit(project(false, true));
+		assertEquals(Arrays.asList("repo", "revision", "file", "root", "method"), visited);
+	}
+
+	@Test
+	public void walksTypes() throws Exception {
+		new Recorder(Project.class, CodeRepository.class, Revision.class, ChangedFile.class, ASTRoot.class,
+				Namespace.class, Declaration.class, Method.class).visit(project(false, true));
+		assertEquals(Arrays.asList("repo", "revision", "file", "root", "method"), visited);
+	}
+
+	@Test
+	public void skipsRevisions() throws Exception {
+		// the revisions are in the commit map, which is not open
+		new Recorder(Project.class, CodeRepository.class).visit(project(true, true));
+		assertEquals(Arrays.asList("repo"), visited);
+	}
+
+	@Test
+	public void skipsAst() throws Exception {
+		// the AST is in the AST map, which is not open
+		new Recorder(Project.class, CodeRepository.class, Revision.class, ChangedFile.class).visit(project(false, false));
+		assertEquals(Arrays.asList("repo", "revision", "file"), visited);
+	}
+
+	@Test
+	public void skipsBelow() throws Exception {
+		new Recorder(Project.class, CodeRepository.class, Revision.class, ChangedFile.class, ASTRoot.class).visit(project(false, true));
+		assertEquals(Arrays.asList("repo", "revision", "file", "root"), visited);
+	}
+
+	private static Project project(final boolean revisionKeys, final boolean root) {
+		final ChangedFile.Builder file = ChangedFile.newBuilder().setName("A.java").setKey(0);
+		if (root) {
+			final Declaration.Builder type = Declaration.newBuilder().setName("A").addMethods(Method.newBuilder().setName("m").buildPartial());
+			final Namespace.Builder namespace = Namespace.newBuilder().setName("").addDeclarations(type.buildPartial());
+			file.setRoot(ASTRoot.newBuilder().addNamespaces(namespace.buildPartial()).buildPartial());
+		}
+
+		final CodeRepository.Builder repo = CodeRepository.newBuilder().setUrl("url");
+		if (revisionKeys)
+			repo.addRevisionKeys(1);
+		else
+			repo.addRevisions(Revision.newBuilder().setId("1").addFiles(file.buildPartial()).buildPartial());
+		return Project.newBuilder().setId("1").addCodeRepositories(repo.buildPartial()).buildPartial();
+	}
+
+	private class Recorder extends BoaAbstractVisitor {
+		Recorder() {
+			super();
+		}
+
+		Recorder(final Class<?>... walkedTypes) {
+			super(walkedTypes);
+		}
+
+		@Override
+		protected boolean preVisit(final CodeRepository node) throws Exception {
+			visited.add("repo");
+			return true;
+		}
+
+		@Override
+		protected boolean preVisit(final Revision node) throws Exception {
+			visited.add("revision");
+			return true;
+		}
+
+		@Override
+		protected boolean preVisit(final ChangedFile node) throws Exception {
+			visited.add("file");
+			return true;
+		}
+
+		@Override
+		protected boolean preVisit(final ASTRoot node) throws Exception {
+			visited.add("root");
+			return true;
+		}
+
+		@Override
+		protected boolean preVisit(final Method node) throws Exception {
+			visited.add("method");
+			return true;
+		}
+	}
+}